@@ -1,50 +1,158 @@
 package com.aadesh.docsearch.config;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.aadesh.docsearch.repository.DocumentRepository;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.apache.http.HttpHost;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.elasticsearch.client.NodeSelector;
 import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.client.sniff.SniffOnFailureListener;
+import org.elasticsearch.client.sniff.Sniffer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.elasticsearch.repository.config.EnableElasticsearchRepositories;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Owns the Elasticsearch client stack: one {@link RestClient} over every configured endpoint,
+ * the transport, the {@link ElasticsearchClient} that Spring Data and the services share, and
+ * the {@link ElasticsearchAsyncClient} behind the search endpoints.
+ *
+ * RestClient round-robins requests across its nodes; a node that fails (connect error, timeout,
+ * 502/503/504) is marked dead and the request is retried on the next one. With
+ * {@code docsearch.elasticsearch.sniff.enabled} the node list is also refreshed from the
+ * cluster periodically and right after a failure. Spring Boot's own RestClient
+ * auto-configuration is excluded in application.properties so only this client exists.
+ *
+ * None of it exists with {@code docsearch.search.backend=lucene}, which runs without a cluster.
+ * The repositories are enabled here rather than by Spring Boot, which is switched off in
+ * application.properties, so that they come and go with the client.
+ */
 @Configuration
+@ConditionalOnProperty(name = "docsearch.search.backend", havingValue = "elasticsearch", matchIfMissing = true)
+@EnableElasticsearchRepositories(basePackageClasses = DocumentRepository.class)
 public class ElasticsearchConfig {
 
     @Value("${spring.data.elasticsearch.client.endpoints:localhost:9200}")
     private String endpoints;
 
+    @Value("${docsearch.elasticsearch.max-conn-per-route:50}")
+    private int maxConnPerRoute;
+
+    @Value("${docsearch.elasticsearch.max-conn-total:150}")
+    private int maxConnTotal;
+
+    @Value("${docsearch.elasticsearch.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${docsearch.elasticsearch.socket-timeout-ms:30000}")
+    private int socketTimeoutMs;
+
+    // how long a request may wait for a pooled connection before failing
+    @Value("${docsearch.elasticsearch.connection-request-timeout-ms:1000}")
+    private int connectionRequestTimeoutMs;
+
+    @Value("${docsearch.elasticsearch.keep-alive-ms:60000}")
+    private long keepAliveMs;
+
+    @Value("${docsearch.elasticsearch.compression:true}")
+    private boolean compression;
+
+    @Value("${docsearch.elasticsearch.sniff.enabled:false}")
+    private boolean sniff;
+
+    @Value("${docsearch.elasticsearch.sniff.interval-ms:300000}")
+    private int sniffIntervalMs;
+
+    @Value("${docsearch.elasticsearch.sniff.after-failure-delay-ms:60000}")
+    private int sniffAfterFailureDelayMs;
+
+    // attached to the RestClient at build time; the Sniffer is handed to it once created
+    private final SniffOnFailureListener sniffOnFailure = new SniffOnFailureListener();
+
     @Bean
-    public ElasticsearchClient elasticsearchClient() {
-        // parse first host:port
-        String first = endpoints.split(",")[0].trim();
-        String host = first;
-        int port = 9200;
-        if (first.contains(":")) {
-            String[] parts = first.split(":");
-            host = parts[0];
-            try { port = Integer.parseInt(parts[1]); } catch (Exception ignored) {}
-        }
+    public RestClient elasticsearchRestClient(ElasticsearchNodeStats nodeStats) {
+        RestClientBuilder builder = RestClient.builder(parseHosts(endpoints))
+                .setCompressionEnabled(compression)
+                .setFailureListener(nodeStats.failureListener(sniff ? sniffOnFailure : null))
+                .setRequestConfigCallback(rc -> rc
+                        .setConnectTimeout(connectTimeoutMs)
+                        .setSocketTimeout(socketTimeoutMs)
+                        .setConnectionRequestTimeout(connectionRequestTimeoutMs))
+                .setHttpClientConfigCallback(hc -> hc
+                        .setMaxConnPerRoute(maxConnPerRoute)
+                        .setMaxConnTotal(maxConnTotal)
+                        .setKeepAliveStrategy((response, context) -> keepAliveMs)
+                        .setDefaultIOReactorConfig(IOReactorConfig.custom().setSoKeepAlive(true).build())
+                        .addInterceptorLast(nodeStats.requestCounter())
+                        .addInterceptorLast(nodeStats.errorCounter()));
+        // sniffed node lists include master-only nodes, which should not serve searches
+        if (sniff) builder.setNodeSelector(NodeSelector.SKIP_DEDICATED_MASTERS);
+        return builder.build();
+    }
 
-        // Create RestClient
-        RestClient restClient = RestClient.builder(new HttpHost(host, port)).build();
+    @Bean
+    @ConditionalOnProperty(name = "docsearch.elasticsearch.sniff.enabled", havingValue = "true")
+    public Sniffer elasticsearchSniffer(RestClient restClient) {
+        Sniffer sniffer = Sniffer.builder(restClient)
+                .setSniffIntervalMillis(sniffIntervalMs)
+                .setSniffAfterFailureDelayMillis(sniffAfterFailureDelayMs)
+                .build();
+        sniffOnFailure.setSniffer(sniffer);
+        return sniffer;
+    }
 
+    @Bean
+    public JacksonJsonpMapper jsonpMapper() {
         // Create ObjectMapper and register JavaTimeModule and tolerant settings
         ObjectMapper mapper = new ObjectMapper()
                 .registerModule(new JavaTimeModule())
                 .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
-                // optional: write dates as ISO strings if you ever serialize
-                // .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
-                ;
+                // write dates as ISO strings: documents sent through the client (e.g. _bulk)
+                // must match what Spring Data writes for the same date fields
+                .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
 
-        // Create JacksonJsonpMapper from the configured ObjectMapper
-        JacksonJsonpMapper jsonpMapper = new JacksonJsonpMapper(mapper);
+        return new JacksonJsonpMapper(mapper);
+    }
+
+    @Bean
+    public RestClientTransport elasticsearchTransport(RestClient restClient, JacksonJsonpMapper jsonpMapper) {
+        return new RestClientTransport(restClient, jsonpMapper);
+    }
 
-        RestClientTransport transport = new RestClientTransport(restClient, jsonpMapper);
+    @Bean
+    public ElasticsearchClient elasticsearchClient(RestClientTransport transport) {
         return new ElasticsearchClient(transport);
     }
+
+    // same transport and connection pool; its futures complete on the client's I/O threads
+    @Bean
+    public ElasticsearchAsyncClient elasticsearchAsyncClient(RestClientTransport transport) {
+        return new ElasticsearchAsyncClient(transport);
+    }
+
+    /** Comma-separated {@code host:port} or {@code scheme://host:port} entries; port defaults to 9200. */
+    static HttpHost[] parseHosts(String endpoints) {
+        List<HttpHost> hosts = new ArrayList<>();
+        for (String raw : endpoints.split(",")) {
+            String endpoint = raw.trim();
+            if (endpoint.isEmpty()) continue;
+            HttpHost host = HttpHost.create(endpoint);
+            hosts.add(host.getPort() < 0 ? new HttpHost(host.getHostName(), 9200, host.getSchemeName()) : host);
+        }
+        if (hosts.isEmpty()) throw new IllegalArgumentException("No Elasticsearch endpoints configured");
+        return hosts.toArray(new HttpHost[0]);
+    }
 }
@@ -0,0 +1,115 @@
+package com.aadesh.docsearch.config;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.protocol.HttpCoreContext;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.sniff.SniffOnFailureListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Per-node request, error and failure counts of the low-level {@link RestClient}.
+ *
+ * Requests and 5xx responses are counted by HTTP interceptors on the client's connection
+ * pool, keyed by the node that actually served the request. Failures are what RestClient
+ * reports to its failure listener (connect errors, timeouts, 502/503/504): the node is marked
+ * dead and the request retried on the next one. The counters are also published as
+ * {@code docsearch.es.node.requests}, {@code .errors} and {@code .failures} tagged by node.
+ */
+@Component
+@ConditionalOnProperty(name = "docsearch.search.backend", havingValue = "elasticsearch", matchIfMissing = true)
+public class ElasticsearchNodeStats {
+
+    private final MeterRegistry registry;
+    private final Map<String, NodeCounters> nodes = new ConcurrentHashMap<>();
+
+    public ElasticsearchNodeStats(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    HttpRequestInterceptor requestCounter() {
+        return (request, context) -> {
+            HttpHost host = HttpCoreContext.adapt(context).getTargetHost();
+            if (host != null) counters(host).requests.increment();
+        };
+    }
+
+    HttpResponseInterceptor errorCounter() {
+        return (response, context) -> {
+            HttpHost host = HttpCoreContext.adapt(context).getTargetHost();
+            if (host != null && response.getStatusLine().getStatusCode() >= 500) counters(host).errors.increment();
+        };
+    }
+
+    /** Counts node failures, then hands them to {@code sniffOnFailure} (if sniffing is on) to refresh the node list. */
+    RestClient.FailureListener failureListener(SniffOnFailureListener sniffOnFailure) {
+        return new RestClient.FailureListener() {
+            @Override
+            public void onFailure(Node node) {
+                counters(node.getHost()).failures.increment();
+                if (sniffOnFailure != null) sniffOnFailure.onFailure(node);
+            }
+        };
+    }
+
+    /** Counters of every node seen so far, marking which ones are in the client's current node list. */
+    public Map<String, Object> stats(List<Node> current) {
+        List<String> live = new ArrayList<>();
+        for (Node n : current) live.add(n.getHost().toURI());
+
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (String node : live) counters(node);
+        nodes.forEach((node, c) -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("node", node);
+            m.put("configured", live.contains(node));
+            m.put("requests", c.requests.sum());
+            m.put("errors", c.errors.sum());
+            m.put("failures", c.failures.sum());
+            out.add(m);
+        });
+        out.sort((a, b) -> ((String) a.get("node")).compareTo((String) b.get("node")));
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("nodes", out);
+        return body;
+    }
+
+    private NodeCounters counters(HttpHost host) {
+        return counters(host.toURI());
+    }
+
+    private NodeCounters counters(String node) {
+        NodeCounters c = nodes.get(node);
+        if (c != null) return c;
+        return nodes.computeIfAbsent(node, n -> {
+            NodeCounters created = new NodeCounters();
+            FunctionCounter.builder("docsearch.es.node.requests", created.requests, LongAdder::sum)
+                    .tag("node", n).register(registry);
+            FunctionCounter.builder("docsearch.es.node.errors", created.errors, LongAdder::sum)
+                    .tag("node", n).register(registry);
+            FunctionCounter.builder("docsearch.es.node.failures", created.failures, LongAdder::sum)
+                    .tag("node", n).register(registry);
+            return created;
+        });
+    }
+
+    private static final class NodeCounters {
+        final LongAdder requests = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder failures = new LongAdder();
+    }
+}
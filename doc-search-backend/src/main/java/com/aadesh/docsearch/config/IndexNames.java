@@ -0,0 +1,36 @@
+package com.aadesh.docsearch.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Names of the Elasticsearch indices, in one place. {@code documents} is an alias over a
+ * versioned index ({@code documents-v1}, {@code documents-v2}, ...) so it can be rebuilt behind
+ * the alias; the entities reference these names as {@code #{@indexNames.documents}}.
+ */
+@Component("indexNames")
+public class IndexNames {
+
+    private final String documents;
+    private final String passages;
+
+    public IndexNames(@Value("${docsearch.index.documents:documents}") String documents,
+                      @Value("${docsearch.index.passages:document-passages}") String passages) {
+        this.documents = documents;
+        this.passages = passages;
+    }
+
+    /** Alias that searches read and writes go to. */
+    public String getDocuments() {
+        return documents;
+    }
+
+    public String getPassages() {
+        return passages;
+    }
+
+    /** Name of version {@code version} of the documents index. */
+    public String documentsVersion(int version) {
+        return documents + "-v" + version;
+    }
+}
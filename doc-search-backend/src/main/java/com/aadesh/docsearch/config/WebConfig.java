@@ -1,14 +1,44 @@
 package com.aadesh.docsearch.config;
 
+import java.util.concurrent.Callable;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
 import org.springframework.web.servlet.config.annotation.*;
 
+import jakarta.servlet.http.HttpServletRequest;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
+
+  // NDJSON exports stream for as long as there are results, far beyond spring.mvc.async.request-timeout
+  @Value("${docsearch.export.timeout-ms:3600000}")
+  private long exportTimeoutMs;
+
   @Override
   public void addCorsMappings(CorsRegistry registry) {
     registry.addMapping("/**")
             .allowedOrigins("http://localhost:3001")
-            .allowedMethods("*");
+            .allowedMethods("*")
+            // pdf.js reads these to fetch PDFs by range
+            .exposedHeaders("Accept-Ranges", "Content-Range", "Content-Length", "ETag");
+  }
+
+  @Override
+  public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+    configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+      @Override
+      public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+        // runs before the async request starts, so the servlet container picks up this timeout
+        HttpServletRequest servletRequest = request.getNativeRequest(HttpServletRequest.class);
+        if (request instanceof AsyncWebRequest async && servletRequest != null
+                && servletRequest.getRequestURI().endsWith("/api/search/export")) {
+          async.setTimeout(exportTimeoutMs);
+        }
+      }
+    });
   }
 }
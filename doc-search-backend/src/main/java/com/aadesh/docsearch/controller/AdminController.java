@@ -0,0 +1,205 @@
+package com.aadesh.docsearch.controller;
+
+import com.aadesh.docsearch.model.BulkImportJob;
+import com.aadesh.docsearch.service.BlobMigrationService;
+import com.aadesh.docsearch.service.BlobStore;
+import com.aadesh.docsearch.service.BulkImportService;
+import com.aadesh.docsearch.service.DocumentFrequencyTable;
+import com.aadesh.docsearch.service.DropFolderWatcher;
+import com.aadesh.docsearch.service.IndexReplayService;
+import com.aadesh.docsearch.service.KeywordGraph;
+import com.aadesh.docsearch.service.PagePreviewService;
+import com.aadesh.docsearch.service.QueryResultCache;
+import com.aadesh.docsearch.service.SearchBackend;
+import com.aadesh.docsearch.service.SimilarityIndex;
+import com.aadesh.docsearch.service.SuggestionIndex;
+import com.aadesh.docsearch.service.TikaService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Operational endpoints: bulk import, blob migration, and statistics of the parser, query cache, autocomplete, graph,
+ * keywords, search backend, similarity index, preview cache, blob store and drop-folder watcher. Bulk import and blob
+ * migration run in the background; the POST endpoints return 202 and progress is read from the matching GET.
+ * Reindexing and the Elasticsearch client statistics are in {@link ElasticsearchAdminController}.
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private static final Logger log = LoggerFactory.getLogger(AdminController.class);
+
+    private final BulkImportService bulkImportService;
+    private final TikaService tikaService;
+    private final QueryResultCache queryCache;
+    private final SuggestionIndex suggestionIndex;
+    private final KeywordGraph keywordGraph;
+    private final DocumentFrequencyTable documentFrequency;
+    private final IndexReplayService replayService;
+    private final PagePreviewService previews;
+    private final BlobStore blobStore;
+    private final BlobMigrationService blobMigration;
+    private final DropFolderWatcher dropFolderWatcher;
+    private final SearchBackend searchBackend;
+    private final SimilarityIndex similarityIndex;
+
+    public AdminController(BulkImportService bulkImportService, TikaService tikaService, QueryResultCache queryCache,
+                           SuggestionIndex suggestionIndex, KeywordGraph keywordGraph,
+                           DocumentFrequencyTable documentFrequency, IndexReplayService replayService,
+                           PagePreviewService previews, BlobStore blobStore, BlobMigrationService blobMigration,
+                           DropFolderWatcher dropFolderWatcher, SearchBackend searchBackend,
+                           SimilarityIndex similarityIndex) {
+        this.bulkImportService = bulkImportService;
+        this.tikaService = tikaService;
+        this.queryCache = queryCache;
+        this.suggestionIndex = suggestionIndex;
+        this.keywordGraph = keywordGraph;
+        this.documentFrequency = documentFrequency;
+        this.replayService = replayService;
+        this.previews = previews;
+        this.blobStore = blobStore;
+        this.blobMigration = blobMigration;
+        this.dropFolderWatcher = dropFolderWatcher;
+        this.searchBackend = searchBackend;
+        this.similarityIndex = similarityIndex;
+    }
+
+    // Server-side directory import, e.g. {"path": "/data/onboarding/acme", "recursive": true}
+    @PostMapping("/import/directory")
+    public ResponseEntity<?> importDirectory(@RequestBody Map<String, Object> body) {
+        try {
+            Object path = body.get("path");
+            if (path == null || path.toString().isBlank()) return ResponseEntity.badRequest().body("path required");
+            boolean recursive = !Boolean.FALSE.equals(body.get("recursive"));
+            BulkImportJob job = bulkImportService.importDirectory(path.toString(), recursive);
+            return accepted(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Directory import failed to start", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/import/upload")
+    public ResponseEntity<?> importUpload(@RequestParam("files") List<MultipartFile> files) {
+        try {
+            if (files == null || files.isEmpty()) return ResponseEntity.badRequest().body("No files uploaded");
+            BulkImportJob job = bulkImportService.importUploads(files);
+            return accepted(job);
+        } catch (Exception e) {
+            log.error("Upload import failed to start", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/import")
+    public ResponseEntity<?> importJobs() {
+        return ResponseEntity.ok(bulkImportService.getJobs());
+    }
+
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<?> importStatus(@PathVariable String jobId) {
+        Optional<BulkImportJob> job = bulkImportService.getJob(jobId);
+        return job.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // parse latency percentiles, timeouts and truncations per file type
+    @GetMapping("/parse-stats")
+    public ResponseEntity<?> parseStats() {
+        return ResponseEntity.ok(tikaService.getStats());
+    }
+
+    // hit/miss/eviction counters for sizing docsearch.cache.*
+    @GetMapping("/cache")
+    public ResponseEntity<?> cacheStats() {
+        return ResponseEntity.ok(queryCache.stats());
+    }
+
+    @DeleteMapping("/cache")
+    public ResponseEntity<?> clearCache() {
+        queryCache.clear();
+        return ResponseEntity.noContent().build();
+    }
+
+    // size of the autocomplete trie and whether the startup rebuild has finished
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggestStats() {
+        Map<String, Object> body = new LinkedHashMap<>(suggestionIndex.stats());
+        body.put("replayCompleted", replayService.isCompleted());
+        return ResponseEntity.ok(body);
+    }
+
+    @GetMapping("/graph")
+    public ResponseEntity<?> graphStats() {
+        Map<String, Object> body = new LinkedHashMap<>(keywordGraph.stats());
+        body.put("replayCompleted", replayService.isCompleted());
+        return ResponseEntity.ok(body);
+    }
+
+    // corpus size behind the IDF weights used for tagging
+    @GetMapping("/keywords")
+    public ResponseEntity<?> keywordStats() {
+        return ResponseEntity.ok(documentFrequency.stats());
+    }
+
+    // which backend serves searches; for Lucene also its document count and segments
+    @GetMapping("/search-backend")
+    public ResponseEntity<?> searchBackendStats() {
+        return ResponseEntity.ok(searchBackend.stats());
+    }
+
+    // documents in the MinHash/LSH index, and those skipped for lack of a signature
+    @GetMapping("/similar")
+    public ResponseEntity<?> similarityStats() {
+        return ResponseEntity.ok(similarityIndex.stats());
+    }
+
+    // size and hit rate of the page preview cache
+    @GetMapping("/previews")
+    public ResponseEntity<?> previewStats() {
+        return ResponseEntity.ok(previews.stats());
+    }
+
+    // files waiting in the drop folders and totals of the imports fed from them
+    @GetMapping("/watch")
+    public ResponseEntity<?> watchStats() {
+        return ResponseEntity.ok(dropFolderWatcher.stats());
+    }
+
+    // blob store write counters and the state of the last flat-layout migration
+    @GetMapping("/blobs")
+    public ResponseEntity<?> blobStats() {
+        Map<String, Object> body = new LinkedHashMap<>(blobStore.stats());
+        body.put("migration", blobMigration.status());
+        return ResponseEntity.ok(body);
+    }
+
+    // moves files of the flat upload directory into the blob store
+    @PostMapping("/blobs/migrate")
+    public ResponseEntity<?> migrateBlobs() {
+        if (!blobMigration.start()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("A migration or a reindex is already running");
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/admin/blobs"))
+                .body(Map.of("statusUrl", "/api/admin/blobs"));
+    }
+
+    private ResponseEntity<?> accepted(BulkImportJob job) {
+        String statusUrl = "/api/admin/import/" + job.getId();
+        return ResponseEntity.accepted()
+                .location(URI.create(statusUrl))
+                .body(Map.of("jobId", job.getId(), "statusUrl", statusUrl));
+    }
+}
@@ -0,0 +1,60 @@
+package com.aadesh.docsearch.controller;
+
+import java.net.URI;
+import java.util.Map;
+
+import org.elasticsearch.client.RestClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.aadesh.docsearch.config.ElasticsearchNodeStats;
+import com.aadesh.docsearch.service.ReindexService;
+
+/**
+ * Operational endpoints that only exist with the Elasticsearch backend: reindexing behind the
+ * documents alias, and the per-node statistics of the client.
+ */
+@RestController
+@RequestMapping("/api/admin")
+@ConditionalOnProperty(name = "docsearch.search.backend", havingValue = "elasticsearch", matchIfMissing = true)
+public class ElasticsearchAdminController {
+
+    private final RestClient restClient;
+    private final ElasticsearchNodeStats nodeStats;
+    private final ReindexService reindexService;
+
+    public ElasticsearchAdminController(RestClient restClient, ElasticsearchNodeStats nodeStats,
+                                        ReindexService reindexService) {
+        this.restClient = restClient;
+        this.nodeStats = nodeStats;
+        this.reindexService = reindexService;
+    }
+
+    // per-node request, 5xx and failover counts of the Elasticsearch client
+    @GetMapping("/elasticsearch")
+    public ResponseEntity<?> elasticsearchStats() {
+        return ResponseEntity.ok(nodeStats.stats(restClient.getNodes()));
+    }
+
+    // copies the documents index into a new version and swaps the alias; search is served throughout
+    @PostMapping("/reindex")
+    public ResponseEntity<?> reindex(@RequestParam(value = "slices", required = false) Integer slices) {
+        if (!reindexService.start(slices)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("A reindex or a blob migration is already running");
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/admin/reindex"))
+                .body(Map.of("statusUrl", "/api/admin/reindex"));
+    }
+
+    @GetMapping("/reindex")
+    public ResponseEntity<?> reindexStatus() {
+        return ResponseEntity.ok(reindexService.status());
+    }
+}
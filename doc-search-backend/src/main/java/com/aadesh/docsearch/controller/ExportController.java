@@ -0,0 +1,183 @@
+package com.aadesh.docsearch.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.aadesh.docsearch.config.IndexNames;
+import com.aadesh.docsearch.service.DocSearchMetrics;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+
+/**
+ * Exports every document matching a query as NDJSON, one {@code {"id": ..., <fields>}} object
+ * per line.
+ *
+ * The export walks a point-in-time in {@code _shard_doc} order with {@code search_after}, one
+ * batch of {@code docsearch.export.batch-size} hits at a time. Hits are read as JSON trees and
+ * written straight to the response, and the output is flushed after each batch. Memory use is
+ * therefore bounded by one batch, whatever the size of the result. A client that disconnects
+ * fails the next flush, which ends the export and closes the point-in-time. There is no export
+ * with the Lucene backend.
+ */
+@RestController
+@RequestMapping("/api/search")
+@ConditionalOnProperty(name = "docsearch.search.backend", havingValue = "elasticsearch", matchIfMissing = true)
+public class ExportController {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportController.class);
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    static final Set<String> EXPORTABLE_FIELDS = Set.of(
+            "filename", "content", "preview", "metadata", "fileType", "uploadedAt", "size", "tags",
+            "downloadUrl", "sha256", "aliasOf");
+    static final List<String> DEFAULT_FIELDS = List.of(
+            "filename", "fileType", "size", "tags", "uploadedAt", "downloadUrl", "sha256");
+
+    private final ElasticsearchClient esClient;
+    private final JacksonJsonpMapper jsonpMapper;
+    private final DocSearchMetrics metrics;
+    private final String indexName;
+    private final int batchSize;
+    private final String pitKeepAlive;
+
+    public ExportController(ElasticsearchClient esClient, JacksonJsonpMapper jsonpMapper, DocSearchMetrics metrics,
+                            IndexNames indexNames,
+                            @Value("${docsearch.export.batch-size:1000}") int batchSize,
+                            @Value("${docsearch.search.pit-keep-alive:2m}") String pitKeepAlive) {
+        this.esClient = esClient;
+        this.jsonpMapper = jsonpMapper;
+        this.metrics = metrics;
+        this.indexName = indexNames.getDocuments();
+        this.batchSize = Math.max(1, Math.min(10_000, batchSize));
+        this.pitKeepAlive = pitKeepAlive;
+    }
+
+    /**
+     * NDJSON of all documents matching {@code q}. {@code fields} is a comma-separated subset of
+     * {@link #EXPORTABLE_FIELDS}; the default leaves out the extracted text and the preview.
+     * A blank query or an unknown field is a 400 before anything is streamed.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam("q") String q,
+                                                        @RequestParam(value = "fields", required = false) List<String> fields) {
+        if (q == null || q.isBlank()) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Query required");
+
+        List<String> selected = new ArrayList<>();
+        for (String f : fields == null || fields.isEmpty() ? DEFAULT_FIELDS : fields) {
+            String field = f.trim();
+            if (field.isEmpty() || field.equals("id")) continue;
+            if (!EXPORTABLE_FIELDS.contains(field)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Unknown field: " + field + "; exportable fields are " + new TreeSet<>(EXPORTABLE_FIELDS));
+            }
+            if (!selected.contains(field)) selected.add(field);
+        }
+
+        StreamingResponseBody body = out -> stream(q, selected, out);
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("export.ndjson").build().toString())
+                .body(body);
+    }
+
+    private void stream(String q, List<String> fields, OutputStream out) throws IOException {
+        long written = 0;
+        try (DocSearchMetrics.Request req = metrics.request("export")) {
+            String pitId = esClient.openPointInTime(o -> o
+                    .index(indexName)
+                    .keepAlive(t -> t.time(pitKeepAlive))).id();
+            try {
+                // not closed on abort: closing flushes, which would fail again on the dead connection
+                JsonGenerator gen = jsonpMapper.objectMapper().getFactory().createGenerator(out);
+                gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                gen.setRootValueSeparator(null);
+                List<FieldValue> after = null;
+                while (true) {
+                    String pit = pitId;
+                    List<FieldValue> searchAfter = after;
+                    SearchResponse<ObjectNode> resp = esClient.search(s -> {
+                        s.pit(p -> p.id(pit).keepAlive(t -> t.time(pitKeepAlive)))
+                                .size(batchSize)
+                                .query(SearchController.v2Query(q))
+                                .source(src -> fields.isEmpty() ? src.fetch(false) : src.filter(f -> f.includes(fields)))
+                                .sort(so -> so.field(f -> f.field("_shard_doc").order(SortOrder.Asc)))
+                                .trackTotalHits(t -> t.enabled(false));
+                        if (searchAfter != null) s.searchAfter(searchAfter);
+                        return s;
+                    }, ObjectNode.class);
+                    if (resp.pitId() != null) pitId = resp.pitId();
+
+                    List<Hit<ObjectNode>> hits = resp.hits().hits();
+                    try {
+                        for (Hit<ObjectNode> hit : hits) {
+                            writeLine(gen, hit, fields);
+                            written++;
+                        }
+                        gen.flush();
+                    } catch (IOException e) {
+                        log.info("Export for q={} aborted by the client after {} documents", q, written);
+                        return;
+                    }
+                    if (hits.size() < batchSize) break;
+                    after = hits.get(hits.size() - 1).sort();
+                }
+                gen.close();
+            } finally {
+                closePointInTime(pitId);
+            }
+        }
+        log.info("Exported {} documents for q={}", written, q);
+    }
+
+    private static void writeLine(JsonGenerator gen, Hit<ObjectNode> hit, List<String> fields) throws IOException {
+        ObjectNode source = hit.source();
+        gen.writeStartObject();
+        gen.writeStringField("id", hit.id());
+        if (source != null) {
+            for (String field : fields) {
+                JsonNode value = source.get(field);
+                if (value == null) continue;
+                gen.writeFieldName(field);
+                gen.writeTree(value);
+            }
+        }
+        gen.writeEndObject();
+        gen.writeRaw('\n');
+    }
+
+    private void closePointInTime(String pitId) {
+        try {
+            esClient.closePointInTime(c -> c.id(pitId));
+        } catch (Exception e) {
+            log.debug("Could not close point-in-time; it will expire on its own", e);
+        }
+    }
+}
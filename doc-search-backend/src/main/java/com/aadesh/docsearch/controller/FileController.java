@@ -1,33 +1,49 @@
 // src/main/java/com/aadesh/docsearch/controller/FileController.java
 package com.aadesh.docsearch.controller;
 
+import com.aadesh.docsearch.exception.IngestQueueFullException;
 import com.aadesh.docsearch.model.DocumentEntity;
-import com.aadesh.docsearch.repository.DocumentRepository;
-import com.aadesh.docsearch.service.IndexService;
+import com.aadesh.docsearch.model.IngestJob;
+import com.aadesh.docsearch.service.BlobStore;
+import com.aadesh.docsearch.service.DocumentStore;
+import com.aadesh.docsearch.service.IngestionService;
+import com.aadesh.docsearch.service.SimilarityIndex;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.PathResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/files")
 public class FileController {
 
-    private final IndexService indexService;
-    private final DocumentRepository repo;
+    private final IngestionService ingestionService;
+    private final DocumentStore store;
+    private final FileResponder fileResponder;
+    private final BlobStore blobStore;
+    private final SimilarityIndex similarityIndex;
 
     @Value("${file.storage-dir:./uploaded_files}")
     private String storageDir;
 
-    public FileController(IndexService indexService, DocumentRepository repo) {
-        this.indexService = indexService;
-        this.repo = repo;
+    public FileController(IngestionService ingestionService, DocumentStore store, FileResponder fileResponder,
+                          BlobStore blobStore, SimilarityIndex similarityIndex) {
+        this.ingestionService = ingestionService;
+        this.store = store;
+        this.fileResponder = fileResponder;
+        this.blobStore = blobStore;
+        this.similarityIndex = similarityIndex;
     }
 
     @PostMapping("/upload")
@@ -36,56 +52,114 @@ public class FileController {
             if (file == null || file.isEmpty()) return ResponseEntity.badRequest().body("No file uploaded");
             long maxBytes = (long) (50 * 1024 * 1024); // align with app props
             if (file.getSize() > maxBytes) return ResponseEntity.status(413).body("File too large");
-            DocumentEntity saved = indexService.indexFile(file);
-            return ResponseEntity.status(HttpStatus.CREATED).body(saved);
+            IngestJob job = ingestionService.submit(file);
+            String statusUrl = "/api/files/jobs/" + job.getId();
+            return ResponseEntity.accepted()
+                    .location(URI.create(statusUrl))
+                    .body(Map.of("jobId", job.getId(),
+                            "filename", job.getFilename(),
+                            "stage", job.getStage(),
+                            "statusUrl", statusUrl));
+        } catch (IngestQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(e.getMessage());
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error: " + e.getMessage());
         }
     }
 
-    // Download or inline (preview)
+    // Stored originals: /api/files/blob/<sha256>/<name>; the name only sets Content-Disposition
+    @GetMapping("/blob/{key}/{filename:.+}")
+    public void blob(@PathVariable String key, @PathVariable String filename,
+                     @RequestParam(value = "inline", defaultValue = "false") boolean inline,
+                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<BlobStore.Blob> blob = blobStore.get(key);
+        if (blob.isEmpty()) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        fileResponder.send(blob.get(), mediaTypeOf(filename), disposition(filename, inline), request, response);
+    }
+
+    // Download or inline (preview) of files in the flat upload directory; ranges, validators and caching
+    // are handled by FileResponder. Files already moved into the blob store redirect to their blob URL.
     @GetMapping({"/download/{filename:.+}", "/preview/{filename:.+}"})
-    public ResponseEntity<Resource> downloadOrPreview(@PathVariable String filename,
-                                                      @RequestParam(value = "inline", defaultValue = "false") boolean inline) {
-        try {
-            Path file = Paths.get(storageDir).resolve(filename);
-            Resource resource = new PathResource(file.toAbsolutePath());
-            if (!resource.exists()) return ResponseEntity.notFound().build();
-
-            String ext = filename.contains(".") ? filename.substring(filename.lastIndexOf('.') + 1).toLowerCase() : "";
-            MediaType mediaType = MediaType.APPLICATION_OCTET_STREAM;
-            switch (ext) {
-                case "pdf": mediaType = MediaType.APPLICATION_PDF; break;
-                case "txt": mediaType = MediaType.TEXT_PLAIN; break;
-                case "docx": mediaType = MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.wordprocessingml.document"); break;
-                case "pptx": mediaType = MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.presentationml.presentation"); break;
-                case "png": mediaType = MediaType.IMAGE_PNG; break;
-                case "jpg": case "jpeg": mediaType = MediaType.IMAGE_JPEG; break;
+    public void downloadOrPreview(@PathVariable String filename,
+                                  @RequestParam(value = "inline", defaultValue = "false") boolean inline,
+                                  HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path root = Paths.get(storageDir).toAbsolutePath().normalize();
+        Path file = root.resolve(filename).normalize();
+        if (!file.getParent().equals(root)) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        if (!Files.exists(file)) {
+            String moved = migratedUrl(filename);
+            if (moved != null) {
+                response.setStatus(HttpStatus.MOVED_PERMANENTLY.value());
+                response.setHeader(HttpHeaders.LOCATION, inline ? moved + "?inline=true" : moved);
+                return;
             }
+        }
 
-            ContentDisposition disposition = inline
-                    ? ContentDisposition.inline().filename(resource.getFilename()).build()
-                    : ContentDisposition.attachment().filename(resource.getFilename()).build();
+        String name = file.getFileName().toString();
+        fileResponder.send(file, mediaTypeOf(name), disposition(name, inline), request, response);
+    }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentDisposition(disposition);
-            headers.setContentType(mediaType);
+    // flat-layout names are "<document id>-<original name>"; aliases share the name of their original
+    private String migratedUrl(String filename) {
+        if (filename.length() < 38 || filename.charAt(36) != '-') return null;
+        return store.findById(filename.substring(0, 36))
+                .map(DocumentEntity::getDownloadUrl)
+                .filter(url -> BlobStore.keyOf(url) != null)
+                .orElse(null);
+    }
 
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .contentLength(resource.contentLength())
-                    .body(resource);
+    private static ContentDisposition disposition(String name, boolean inline) {
+        return inline
+                ? ContentDisposition.inline().filename(name).build()
+                : ContentDisposition.attachment().filename(name).build();
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+    private static MediaType mediaTypeOf(String filename) {
+        String ext = filename.contains(".") ? filename.substring(filename.lastIndexOf('.') + 1).toLowerCase() : "";
+        MediaType mediaType = MediaType.APPLICATION_OCTET_STREAM;
+        switch (ext) {
+            case "pdf": mediaType = MediaType.APPLICATION_PDF; break;
+            case "txt": mediaType = MediaType.TEXT_PLAIN; break;
+            case "docx": mediaType = MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.wordprocessingml.document"); break;
+            case "ppt": mediaType = MediaType.parseMediaType("application/vnd.ms-powerpoint"); break;
+            case "pptx": mediaType = MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.presentationml.presentation"); break;
+            case "png": mediaType = MediaType.IMAGE_PNG; break;
+            case "jpg": case "jpeg": mediaType = MediaType.IMAGE_JPEG; break;
         }
+        return mediaType;
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<?> jobStatus(@PathVariable String jobId) {
+        Optional<IngestJob> job = ingestionService.getJob(jobId);
+        return job.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<?> getDoc(@PathVariable String id) {
-        Optional<DocumentEntity> doc = repo.findById(id);
+        Optional<DocumentEntity> doc = store.findById(id);
         return doc.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
+
+    // Near-duplicates from the in-memory MinHash index; 404 for unknown ids and documents ingested without a signature
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<?> similar(@PathVariable String id,
+                                     @RequestParam(defaultValue = "10") int limit,
+                                     @RequestParam(defaultValue = "0.5") double min) {
+        if (limit < 1 || limit > 100) return ResponseEntity.badRequest().body("limit must be between 1 and 100");
+        if (min < 0 || min > 1) return ResponseEntity.badRequest().body("min must be between 0 and 1");
+        List<Map<String, Object>> similar = similarityIndex.similarTo(id, min, limit);
+        if (similar == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(Map.of("id", id, "similar", similar));
+    }
 }
@@ -0,0 +1,290 @@
+package com.aadesh.docsearch.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.aadesh.docsearch.service.BlobStore;
+import com.aadesh.docsearch.service.FileHashCache;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Writes a stored file to the response with HTTP caching and byte ranges.
+ *
+ * <ul>
+ *   <li>Validators: a strong ETag from the file's SHA-256 and Last-Modified. If-None-Match,
+ *       If-Modified-Since, If-Match and If-Unmodified-Since answer 304/412 without a body.</li>
+ *   <li>Ranges: single ranges answer 206 with Content-Range; several ranges answer 206
+ *       multipart/byteranges. If-Range falls back to the full file when the validator is stale.
+ *       Unsatisfiable ranges, or ranges adding up to more than the file, answer 416.</li>
+ *   <li>Zero copy: on Tomcat with sendfile support, full responses and single ranges from
+ *       {@code docsearch.files.sendfile-min-bytes} up are handed to the connector, which sends them
+ *       from the page cache without passing through the JVM. This is the only zero-copy path.
+ *       Everything else goes through {@link FileChannel#transferTo} into the servlet output
+ *       stream; that target is neither a file nor a socket channel, so the JDK copies each chunk
+ *       through a heap buffer, as a plain stream copy would.</li>
+ *   <li>Compressed blobs: sent as stored with Content-Encoding: gzip to clients that accept it,
+ *       and decompressed on the fly for the rest. Either way they answer whole, without ranges.</li>
+ * </ul>
+ */
+@Component
+public class FileResponder {
+
+    // Tomcat's sendfile contract (org.apache.catalina.Globals)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final FileHashCache hashes;
+    private final BlobStore blobStore;
+    private final String cacheControl;
+    private final long sendfileMinBytes;
+
+    public FileResponder(FileHashCache hashes, BlobStore blobStore,
+                         @Value("${docsearch.files.cache-control:private, max-age=86400}") String cacheControl,
+                         @Value("${docsearch.files.sendfile-min-bytes:49152}") long sendfileMinBytes) {
+        this.hashes = hashes;
+        this.blobStore = blobStore;
+        this.cacheControl = cacheControl;
+        this.sendfileMinBytes = sendfileMinBytes;
+    }
+
+    public void send(Path file, MediaType contentType, ContentDisposition disposition,
+                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        send(file, contentType, disposition, true, request, response);
+    }
+
+    /**
+     * Like {@link #send(Path, MediaType, ContentDisposition, HttpServletRequest, HttpServletResponse)},
+     * but the body is written before this returns, never left to sendfile. For files that may be
+     * deleted once the caller is done with them, such as preview cache entries.
+     */
+    public void sendCopy(Path file, MediaType contentType, ContentDisposition disposition,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        send(file, contentType, disposition, false, request, response);
+    }
+
+    private void send(Path file, MediaType contentType, ContentDisposition disposition, boolean sendfile,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        if (!attrs.isRegularFile()) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        String etag = "\"" + hashes.sha256(file, attrs) + "\"";
+        send(file, attrs.size(), attrs.lastModifiedTime().toMillis(), etag, contentType, disposition, sendfile,
+                request, response);
+    }
+
+    /** Serves a blob. Its key is its SHA-256, so the ETag needs no hashing. */
+    public void send(BlobStore.Blob blob, MediaType contentType, ContentDisposition disposition,
+                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (blob.compressed) {
+            sendCompressed(blob, contentType, disposition, request, response);
+        } else {
+            send(blob.path, blob.length, blob.lastModified, "\"" + blob.key + "\"",
+                    contentType, disposition, true, request, response);
+        }
+    }
+
+    private void send(Path file, long length, long lastModified, String etag, MediaType contentType,
+                      ContentDisposition disposition, boolean sendfile,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // sets ETag and Last-Modified, and the 304/412 status when a precondition decides the response
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) return;
+
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition.toString());
+        boolean head = "HEAD".equals(request.getMethod());
+
+        List<HttpRange> ranges = List.of();
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request, etag, lastModified)) {
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+                long total = 0;
+                for (HttpRange r : ranges) total += r.getRangeEnd(length) - r.getRangeStart(length) + 1;
+                if (total > length) throw new IllegalArgumentException("Ranges exceed the file length");
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+        }
+
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(contentType.toString());
+            sendRegion(file, 0, length, head, sendfile, request, response);
+        } else if (ranges.size() == 1) {
+            long start = ranges.get(0).getRangeStart(length);
+            long end = ranges.get(0).getRangeEnd(length);
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setContentType(contentType.toString());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            sendRegion(file, start, end - start + 1, head, sendfile, request, response);
+        } else {
+            sendMultipart(file, length, ranges, contentType, head, response);
+        }
+    }
+
+    // the gzip and the identity encoding are different representations, so they get different ETags
+    private void sendCompressed(BlobStore.Blob blob, MediaType contentType, ContentDisposition disposition,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        boolean gzip = acceptsGzip(request);
+        String etag = "\"" + blob.key + (gzip ? "-gzip\"" : "\"");
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "none");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (new ServletWebRequest(request, response).checkNotModified(etag, blob.lastModified)) return;
+
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition.toString());
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(contentType.toString());
+        boolean head = "HEAD".equals(request.getMethod());
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            sendRegion(blob.path, 0, Files.size(blob.path), head, true, request, response);
+            return;
+        }
+        response.setContentLengthLong(blob.length);
+        if (head) return;
+        OutputStream out = response.getOutputStream();
+        try (InputStream in = blobStore.open(blob)) {
+            in.transferTo(out);
+        }
+        out.flush();
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (header == null) return false;
+        for (String part : header.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim();
+            if (!coding.equalsIgnoreCase("gzip") && !coding.equals("*")) continue;
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String p = params[i].trim();
+                if (p.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(p.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (q > 0) return true;
+        }
+        return false;
+    }
+
+    /** If-Range: serve the range only if the file is still the one the client has part of. */
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) return true;
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) return ifRange.equals(etag);
+        long date;
+        try {
+            date = request.getDateHeader(HttpHeaders.IF_RANGE);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return date >= 0 && lastModified / 1000 == date / 1000;
+    }
+
+    private void sendRegion(Path file, long start, long count, boolean head, boolean sendfile,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentLengthLong(count);
+        if (head || count == 0) return;
+        if (sendfile && count >= sendfileMinBytes && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        OutputStream out = response.getOutputStream();
+        transfer(file, start, count, Channels.newChannel(out));
+        out.flush();
+    }
+
+    private void sendMultipart(Path file, long length, List<HttpRange> ranges, MediaType contentType, boolean head,
+                               HttpServletResponse response) throws IOException {
+        String boundary = new String(MimeTypeUtils.generateMultipartBoundary(), StandardCharsets.US_ASCII);
+        byte[][] partHeaders = new byte[ranges.size()][];
+        long bodyLength = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            long start = ranges.get(i).getRangeStart(length);
+            long end = ranges.get(i).getRangeEnd(length);
+            partHeaders[i] = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + "/" + length + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            bodyLength += partHeaders[i].length + (end - start + 1);
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        bodyLength += closing.length;
+
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(bodyLength);
+        if (head) return;
+
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel channel = Channels.newChannel(out);
+        for (int i = 0; i < ranges.size(); i++) {
+            long start = ranges.get(i).getRangeStart(length);
+            long end = ranges.get(i).getRangeEnd(length);
+            out.write(partHeaders[i]);
+            transfer(file, start, end - start + 1, channel);
+        }
+        out.write(closing);
+        out.flush();
+    }
+
+    // target wraps the servlet stream, so this copies through a JDK heap buffer; it is not zero copy
+    private static void transfer(Path file, long start, long count, WritableByteChannel target) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long n = in.transferTo(position, remaining, target);
+                if (n <= 0) throw new IOException("File shrank while it was being sent: " + file);
+                position += n;
+                remaining -= n;
+            }
+        }
+    }
+}
@@ -1,135 +1,120 @@
 package com.aadesh.docsearch.controller;
 
-import co.elastic.clients.elasticsearch.ElasticsearchClient;
-import co.elastic.clients.elasticsearch.core.SearchResponse;
-import co.elastic.clients.elasticsearch.core.search.Hit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import com.aadesh.docsearch.model.DocumentEntity;
+import com.aadesh.docsearch.service.Deadlines;
+import com.aadesh.docsearch.service.DocSearchMetrics;
+import com.aadesh.docsearch.service.KeywordGraph;
+import com.aadesh.docsearch.service.QueryResultCache;
+import com.aadesh.docsearch.service.SearchBackend;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * Simple graph aggregation endpoint.
- * It searches documents by query q (or returns top documents if empty),
- * extracts keywords/tags and builds a small graph:
+ * Keyword graph endpoints, served from the in-memory {@link KeywordGraph}:
  * - document nodes (id -> filename)
- * - keyword nodes (tag or extracted token)
- * - edges (keyword -> document) with weight = frequency (1 if unknown)
+ * - keyword nodes (tag, or filename word for untagged documents)
+ * - "tagged" edges keyword -> document, and "cooccurs" edges keyword -> keyword
+ *   weighted by the number of documents the two keywords share
  *
- * This is intentionally conservative and runs fast for interactive UI.
+ * The {@link SearchBackend} is only asked which documents match q; no document body is loaded.
+ * That call runs under the {@code docsearch.search.timeout-ms} deadline, like the search
+ * endpoints.
  */
 @RestController
 @RequestMapping("/api/search")
 public class GraphController {
 
-    private final ElasticsearchClient esClient;
-    private final String indexName = "documents";
-
-    public GraphController(ElasticsearchClient esClient) {
-        this.esClient = esClient;
+    private static final Logger log = LoggerFactory.getLogger(GraphController.class);
+
+    private final SearchBackend backend;
+    private final KeywordGraph keywordGraph;
+    private final QueryResultCache cache;
+    private final DocSearchMetrics metrics;
+    private final long timeoutMs;
+
+    public GraphController(SearchBackend backend, KeywordGraph keywordGraph, QueryResultCache cache,
+                           DocSearchMetrics metrics, @Value("${docsearch.search.timeout-ms:10000}") long timeoutMs) {
+        this.backend = backend;
+        this.keywordGraph = keywordGraph;
+        this.cache = cache;
+        this.metrics = metrics;
+        this.timeoutMs = timeoutMs;
     }
 
+    /**
+     * With q: the top `size` matching documents and their keywords.
+     * Without q: the `size` latest documents and their keywords, or with view=keywords the
+     * `size` most common keywords and how they co-occur.
+     */
     @GetMapping("/graph")
-    public ResponseEntity<?> graph(@RequestParam(value = "q", required = false) String q,
-                                   @RequestParam(value = "size", defaultValue = "30") int size) {
-        try {
-            // Query: if provided, use multi-match boolean prefix / simple match
-            String queryText = (q == null) ? "" : q.trim();
-
-            // Use simple multi-match; fall back to match_all
-            co.elastic.clients.elasticsearch._types.query_dsl.Query query;
-            if (queryText.isEmpty()) {
-                query = co.elastic.clients.elasticsearch._types.query_dsl.Query.of(b -> b.matchAll(m -> m));
-            } else {
-                query = co.elastic.clients.elasticsearch._types.query_dsl.Query.of(m -> m.multiMatch(mm -> mm
-                        .query(queryText)
-                        .fields("filename^3", "tags^5", "content")
-                        .type(co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType.BoolPrefix)
-                ));
+    public CompletableFuture<ResponseEntity<?>> graph(@RequestParam(value = "q", required = false) String q,
+                                                      @RequestParam(value = "size", defaultValue = "30") int size,
+                                                      @RequestParam(value = "view", defaultValue = "documents") String view) {
+        String queryText = (q == null) ? "" : q.trim();
+        if (queryText.isEmpty()) {
+            try (DocSearchMetrics.Request req = metrics.request("graph")) {
+                Map<String, Object> result = "keywords".equalsIgnoreCase(view)
+                        ? req.mapping(() -> keywordGraph.topKeywords(size))
+                        : req.mapping(() -> keywordGraph.latestDocuments(size));
+                return CompletableFuture.completedFuture(ResponseEntity.ok(result));
             }
+        }
 
-            SearchResponse<DocumentEntity> resp = esClient.search(s -> s
-                            .index(indexName)
-                            .size(size)
-                            .query(query),
-                    DocumentEntity.class
-            );
-
-            // Build graph
-            Map<String, Map<String, Object>> nodes = new LinkedHashMap<>();
-            List<Map<String, Object>> edges = new ArrayList<>();
-
-            for (Hit<DocumentEntity> hit : resp.hits().hits()) {
-                DocumentEntity d = hit.source();
-                if (d == null) continue;
-                String docId = d.getId();
-                if (docId == null) continue;
-
-                // add doc node
-                Map<String, Object> docNode = new HashMap<>();
-                docNode.put("id", docId);
-                docNode.put("label", d.getFilename() == null ? docId : d.getFilename());
-                docNode.put("type", "document");
-                docNode.put("meta", Map.of("size", d.getSize(), "uploadedAt", d.getUploadedAt()));
-                nodes.put(docId, docNode);
-
-                // tags -> keyword nodes
-                List<String> tags = d.getTags();
-                if (tags != null) {
-                    for (String t : tags) {
-                        if (t == null || t.trim().isEmpty()) continue;
-                        String keyId = "kw:" + t.toLowerCase();
-                        if (!nodes.containsKey(keyId)) {
-                            Map<String, Object> kw = new HashMap<>();
-                            kw.put("id", keyId);
-                            kw.put("label", t);
-                            kw.put("type", "keyword");
-                            nodes.put(keyId, kw);
-                        }
-                        Map<String, Object> edge = Map.of(
-                                "source", nodes.get(keyId).get("id"),
-                                "target", docId,
-                                "weight", 1
-                        );
-                        edges.add(edge);
+        String cacheKey = QueryResultCache.key("graph", queryText, size);
+        Object cached = cache.get(cacheKey);
+        if (cached != null) return CompletableFuture.completedFuture(ResponseEntity.ok(cached));
+        long generation = cache.generation();
+
+        // only the small fields the graph keeps, so documents it has not seen yet
+        // (e.g. while the startup replay is running) can still be drawn
+        DocSearchMetrics.Request req = metrics.request("graph");
+        return req.esAsync(() -> Deadlines.within(backend.prefixSearch(queryText, size, keywordGraph.replayFields()), timeoutMs))
+                .thenApplyAsync(result -> req.mapping(() -> toGraph(result.hits, keywordGraph)))
+                .<ResponseEntity<?>>thenApply(result -> {
+                    cache.put(cacheKey, generation, result);
+                    return ResponseEntity.ok(result);
+                })
+                .exceptionally(e -> {
+                    Throwable cause = Deadlines.unwrap(e);
+                    if (Deadlines.isTimeout(cause)) {
+                        log.warn("Graph query timed out after {} ms for q={}", timeoutMs, q);
+                        return ResponseEntity.status(504).body(Map.of("error", "Search timed out"));
                     }
-                } else {
-                    // fallback: extract top words from filename
-                    String fn = d.getFilename() == null ? "" : d.getFilename();
-                    for (String part : fn.split("[\\s_\\-/.]+")) {
-                        if (part.length() < 3) continue;
-                        String keyId = "kw:" + part.toLowerCase();
-                        if (!nodes.containsKey(keyId)) {
-                            Map<String, Object> kw = new HashMap<>();
-                            kw.put("id", keyId);
-                            kw.put("label", part);
-                            kw.put("type", "keyword");
-                            nodes.put(keyId, kw);
-                        }
-                        Map<String, Object> edge = Map.of(
-                                "source", nodes.get(keyId).get("id"),
-                                "target", docId,
-                                "weight", 1
-                        );
-                        edges.add(edge);
-                    }
-                }
-            }
-
-            // Convert nodes map to list
-            List<Map<String, Object>> nodeList = new ArrayList<>(nodes.values());
+                    log.error("Graph query failed for q={}", q, cause);
+                    return ResponseEntity.status(500).body(Map.of("error", String.valueOf(cause.getMessage())));
+                })
+                .whenComplete((r, e) -> req.close());
+    }
 
-            Map<String, Object> result = Map.of(
-                    "nodes", nodeList,
-                    "edges", edges
-            );
+    // static so the benchmarks module can feed it canned hits; the graph is
+    // only read here, it is fed by the DocumentIndexListener callbacks
+    static Map<String, Object> toGraph(List<SearchBackend.DocumentHit> hits, KeywordGraph graph) {
+        List<DocumentEntity> docs = new ArrayList<>();
+        for (SearchBackend.DocumentHit hit : hits) {
+            DocumentEntity d = hit.source;
+            if (d == null) continue;
+            d.setId(hit.id);
+            docs.add(d);
+        }
+        return graph.forDocuments(docs);
+    }
 
+    /** A keyword with its `size` strongest co-occurring keywords and its `docs` latest documents. */
+    @GetMapping("/graph/neighbors")
+    public ResponseEntity<?> neighbors(@RequestParam("keyword") String keyword,
+                                       @RequestParam(value = "size", defaultValue = "20") int size,
+                                       @RequestParam(value = "docs", defaultValue = "10") int docs) {
+        try (DocSearchMetrics.Request req = metrics.request("graph-neighbors")) {
+            Map<String, Object> result = req.mapping(() -> keywordGraph.neighborhood(keyword, size, docs));
+            if (((List<?>) result.get("nodes")).isEmpty()) return ResponseEntity.notFound().build();
             return ResponseEntity.ok(result);
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            return ResponseEntity.status(500).body(Map.of("error", ex.getMessage()));
         }
     }
 }
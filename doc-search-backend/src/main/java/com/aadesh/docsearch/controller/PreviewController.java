@@ -0,0 +1,114 @@
+package com.aadesh.docsearch.controller;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.aadesh.docsearch.exception.PreviewNotSupportedException;
+import com.aadesh.docsearch.model.DocumentEntity;
+import com.aadesh.docsearch.service.DocumentStore;
+import com.aadesh.docsearch.service.PagePreviewService;
+import com.aadesh.docsearch.service.PreviewCache;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Page-level previews of PDFs and PPTX decks, so showing the page that matched costs a
+ * page image of some kilobytes instead of the whole original file.
+ */
+@RestController
+@RequestMapping("/api/files")
+public class PreviewController {
+
+    private final DocumentStore store;
+    private final PagePreviewService previews;
+    private final FileResponder fileResponder;
+    private final int maxTextPages;
+
+    public PreviewController(DocumentStore store, PagePreviewService previews, FileResponder fileResponder,
+                             @Value("${docsearch.preview.max-text-pages:20}") int maxTextPages) {
+        this.store = store;
+        this.previews = previews;
+        this.fileResponder = fileResponder;
+        this.maxTextPages = Math.max(1, maxTextPages);
+    }
+
+    @GetMapping("/{id}/pages")
+    public ResponseEntity<?> pages(@PathVariable String id) throws IOException {
+        Optional<DocumentEntity> doc = store.findById(id);
+        if (doc.isEmpty()) return ResponseEntity.notFound().build();
+        try {
+            return ResponseEntity.ok(Map.of("id", id, "pages", previews.pageCount(doc.get())));
+        } catch (PreviewNotSupportedException e) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /** JPEG of one page; {@code size=thumb} for a thumbnail. Cached and served with ETag/304 like downloads. */
+    @GetMapping("/{id}/pages/{page}/image")
+    public void pageImage(@PathVariable String id, @PathVariable int page,
+                          @RequestParam(value = "size", defaultValue = "page") String size,
+                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<DocumentEntity> doc = store.findById(id);
+        if (doc.isEmpty()) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        PreviewCache.Pinned image;
+        try {
+            image = previews.pageImage(doc.get(), page, "thumb".equals(size));
+        } catch (PreviewNotSupportedException e) {
+            response.sendError(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value(), e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), e.getMessage());
+            return;
+        }
+        // copied while pinned rather than left to sendfile, which would open the file after the pin is released
+        ContentDisposition disposition = ContentDisposition.inline().filename(id + "-p" + page + ".jpg").build();
+        try (image) {
+            fileResponder.sendCopy(image.path, MediaType.IMAGE_JPEG, disposition, request, response);
+        }
+    }
+
+    /** Text of pages {@code from..to} (1-based, inclusive), at most {@code docsearch.preview.max-text-pages}. */
+    @GetMapping("/{id}/pages/text")
+    public ResponseEntity<?> pageText(@PathVariable String id,
+                                      @RequestParam(value = "from", defaultValue = "1") int from,
+                                      @RequestParam(value = "to", required = false) Integer to) throws IOException {
+        Optional<DocumentEntity> doc = store.findById(id);
+        if (doc.isEmpty()) return ResponseEntity.notFound().build();
+        int first = Math.max(1, from);
+        int last = to == null ? first : to;
+        if (last < first) return ResponseEntity.badRequest().body("to must not be before from");
+        last = Math.min(last, first + maxTextPages - 1);
+        try {
+            List<String> texts = previews.pageText(doc.get(), first, last);
+            List<Map<String, Object>> pages = new ArrayList<>();
+            for (int i = 0; i < texts.size(); i++) {
+                Map<String, Object> p = new LinkedHashMap<>();
+                p.put("page", first + i);
+                p.put("text", texts.get(i));
+                pages.add(p);
+            }
+            return ResponseEntity.ok(Map.of("id", id, "pages", pages));
+        } catch (PreviewNotSupportedException e) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -4,152 +4,425 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.elasticsearch.client.elc.NativeQuery;
-import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
-import org.springframework.data.elasticsearch.core.SearchHits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.aadesh.docsearch.config.IndexNames;
 import com.aadesh.docsearch.model.DocumentEntity;
+import com.aadesh.docsearch.model.PassageEntity;
+import com.aadesh.docsearch.service.Deadlines;
+import com.aadesh.docsearch.service.DocSearchMetrics;
+import com.aadesh.docsearch.service.ElasticsearchSearchBackend;
+import com.aadesh.docsearch.service.IndexService;
+import com.aadesh.docsearch.service.QueryResultCache;
+import com.aadesh.docsearch.service.SearchBackend;
+import com.aadesh.docsearch.service.SearchCursor;
+import com.aadesh.docsearch.service.SimilarityIndex;
 
-import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOrder;
 import co.elastic.clients.elasticsearch._types.query_dsl.Query;
-import co.elastic.clients.elasticsearch._types.query_dsl.QueryBuilders;
 import co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeResponse;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.search.HighlightField;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 
+/**
+ * Search endpoints. Document searches go to the configured {@link SearchBackend} and the handlers
+ * return CompletableFutures, so no servlet thread waits on a search; responses are mapped on the
+ * common pool once the hits arrive. Each call gets a {@code docsearch.search.timeout-ms} deadline
+ * after which the request is cancelled and the endpoint answers 504.
+ *
+ * /v2 also pages by cursor: {@code paging=cursor} opens a point-in-time on the index and each
+ * response carries a {@code nextCursor} that continues with {@code search_after}, so every page
+ * costs the same as the first and results do not shift while new documents are indexed. Cursor
+ * paging and passage search use Elasticsearch directly and answer 400 with the Lucene backend.
+ *
+ * {@code collapse=true} folds near-duplicates within each page of /v2 results into the
+ * best-ranked one, which lists the others under {@code nearDuplicates}. It works on the MinHash
+ * signatures held by {@link SimilarityIndex}, so it costs no extra query, but a collapsed page
+ * can hold fewer than {@code size} results.
+ */
 @RestController
 @RequestMapping("/api/search")
 public class SearchController {
 
-    private final ElasticsearchOperations operations;
-    private final ElasticsearchClient esClient;
+    private static final Logger log = LoggerFactory.getLogger(SearchController.class);
 
-    public SearchController(ElasticsearchOperations operations, ElasticsearchClient esClient) {
-        this.operations = operations;
-        this.esClient = esClient;
+    // null with the Lucene backend, which neither pages by cursor nor searches passages
+    private final ElasticsearchAsyncClient esClient;
+    private final SearchBackend backend;
+    private final SimilarityIndex similarityIndex;
+    private final QueryResultCache cache;
+    private final DocSearchMetrics metrics;
+    private final String indexName;
+    private final String passageIndexName;
+    private final boolean passagesByDefault;
+    private final long timeoutMs;
+    private final String pitKeepAlive;
+
+    public SearchController(ObjectProvider<ElasticsearchAsyncClient> esClient, SearchBackend backend, SimilarityIndex similarityIndex,
+                            QueryResultCache cache, DocSearchMetrics metrics, IndexNames indexNames,
+                            @Value("${docsearch.passages.enabled:false}") boolean passagesByDefault,
+                            @Value("${docsearch.search.timeout-ms:10000}") long timeoutMs,
+                            @Value("${docsearch.search.pit-keep-alive:2m}") String pitKeepAlive) {
+        this.esClient = esClient.getIfAvailable();
+        this.backend = backend;
+        this.similarityIndex = similarityIndex;
+        this.cache = cache;
+        this.metrics = metrics;
+        this.indexName = indexNames.getDocuments();
+        this.passageIndexName = indexNames.getPassages();
+        this.passagesByDefault = passagesByDefault;
+        this.timeoutMs = timeoutMs;
+        this.pitKeepAlive = pitKeepAlive;
     }
 
     // existing lightweight search (keeps backward compatibility)
     @GetMapping
-    public ResponseEntity<?> search(@RequestParam("q") String q,
-                                    @RequestParam(value = "page", defaultValue = "0") int page,
-                                    @RequestParam(value = "size", defaultValue = "10") int size) {
-        if (q == null || q.isBlank()) return ResponseEntity.badRequest().body("Query required");
-
-        Query multiMatchQuery = QueryBuilders.multiMatch(m -> m
-                .query(q)
-                .fields("content", "filename")
-                .type(TextQueryType.BestFields)
-        );
-
-        NativeQuery nativeQuery = NativeQuery.builder()
-                .withQuery(multiMatchQuery)
-                .withPageable(PageRequest.of(page, size))
-                .build();
-
-        SearchHits<DocumentEntity> hits = operations.search(nativeQuery, DocumentEntity.class);
-
-        List<Map<String, Object>> results = hits.getSearchHits().stream()
-                .map(sh -> {
-                    DocumentEntity d = sh.getContent();
-                    Map<String, Object> map = new HashMap<>();
-                    map.put("id", d.getId());
-                    map.put("filename", d.getFilename());
-                    map.put("tags", d.getTags());
-                    map.put("uploadedAt", d.getUploadedAt());
-                    String snippet = d.getContent() == null ? "" : d.getContent().substring(0, Math.min(250, d.getContent().length()));
-                    map.put("snippet", snippet);
-                    map.put("downloadUrl", d.getDownloadUrl());
-                    return map;
-                }).toList();
-
-        Map<String, Object> resp = new HashMap<>();
-        resp.put("total", hits.getTotalHits());
-        resp.put("page", page);
-        resp.put("size", size);
-        resp.put("results", results);
-        return ResponseEntity.ok(resp);
+    public CompletableFuture<ResponseEntity<?>> search(@RequestParam("q") String q,
+                                                       @RequestParam(value = "page", defaultValue = "0") int page,
+                                                       @RequestParam(value = "size", defaultValue = "10") int size) {
+        if (q == null || q.isBlank()) return done(ResponseEntity.badRequest().body("Query required"));
+
+        String cacheKey = QueryResultCache.key("search", q, page, size);
+        Object cached = cache.get(cacheKey);
+        if (cached != null) return done(ResponseEntity.ok(cached));
+        long generation = cache.generation();
+
+        DocSearchMetrics.Request req = metrics.request("search");
+        // the backends never return the full extracted text; the snippet comes from preview
+        return req.esAsync(() -> Deadlines.within(backend.search(q, page * size, size, false, 0), timeoutMs))
+                .thenApplyAsync(result -> req.mapping(() -> {
+                    List<Map<String, Object>> results = new ArrayList<>();
+                    for (SearchBackend.DocumentHit hit : result.hits) {
+                        DocumentEntity d = hit.source;
+                        if (d == null) continue;
+                        d.setId(hit.id);
+                        results.add(summaryOf(d));
+                    }
+                    Map<String, Object> body = new HashMap<>();
+                    body.put("total", result.total);
+                    body.put("page", page);
+                    body.put("size", size);
+                    body.put("results", results);
+                    return body;
+                }))
+                .<ResponseEntity<?>>thenApply(body -> {
+                    cache.put(cacheKey, generation, body);
+                    return ResponseEntity.ok(body);
+                })
+                .exceptionally(e -> failed("Search", q, e))
+                .whenComplete((r, e) -> req.close());
     }
 
     // NEW: ES-client search with highlighting and snippet prioritization
     @GetMapping("/v2")
-    public ResponseEntity<?> searchV2(@RequestParam("q") String q,
-                                      @RequestParam(value = "page", defaultValue = "0") int page,
-                                      @RequestParam(value = "size", defaultValue = "10") int size) {
-        if (q == null || q.isBlank()) return ResponseEntity.badRequest().body("Query required");
-
-        try {
-            SearchResponse<DocumentEntity> resp = esClient.search(s -> s
-                            .index("documents")
-                            .from(page * size)
-                            .size(size)
-                            .query(qb -> qb
-                                    .multiMatch(mm -> mm
-                                            .query(q)
-                                            .fields("content", "filename")
-                                            .type(TextQueryType.BestFields)
-                                    )
-                            )
-                            .highlight(h -> h
-                            		.preTags("<mark>")
-                            		.postTags("</mark>")
-                                    .fields("content", HighlightField.of(hf -> hf.fragmentSize(250).numberOfFragments(3)))
-                                    .fields("filename", HighlightField.of(hf -> hf.fragmentSize(150).numberOfFragments(1)))
-                            ),
-                    DocumentEntity.class
-            );
-
-            long total = resp.hits().total() != null ? resp.hits().total().value() : resp.hits().hits().size();
-            List<Map<String, Object>> results = new ArrayList<>();
-
-            for (Hit<DocumentEntity> hit : resp.hits().hits()) {
-                DocumentEntity d = hit.source();
-                Map<String, Object> r = new HashMap<>();
-                r.put("id", d.getId());
-                r.put("filename", d.getFilename());
-                r.put("tags", d.getTags());
-                r.put("uploadedAt", d.getUploadedAt());
-                r.put("downloadUrl", d.getDownloadUrl());
-                r.put("score", hit.score());
-
-                // collect highlights (prefer content highlight; fallback to filename; fallback to stored snippet)
-                List<String> highlights = new ArrayList<>();
-                if (hit.highlight() != null) {
-                    hit.highlight().forEach((field, frags) -> {
-                        if (frags != null) highlights.addAll(frags);
-                    });
-                }
-
-                String snippet = null;
-                if (!highlights.isEmpty()) {
-                    // pick the first highlight as snippet
-                    snippet = highlights.get(0);
-                } else if (d.getContent() != null && !d.getContent().isBlank()) {
-                    snippet = d.getContent().substring(0, Math.min(250, d.getContent().length()));
-                } else snippet = "";
-
-                r.put("snippet", snippet);
-                r.put("highlights", highlights);
-                results.add(r);
+    public CompletableFuture<ResponseEntity<?>> searchV2(@RequestParam("q") String q,
+                                                         @RequestParam(value = "page", defaultValue = "0") int page,
+                                                         @RequestParam(value = "size", defaultValue = "10") int size,
+                                                         @RequestParam(value = "passages", required = false) Boolean passages,
+                                                         @RequestParam(value = "paging", required = false) String paging,
+                                                         @RequestParam(value = "cursor", required = false) String cursor,
+                                                         @RequestParam(value = "tags", defaultValue = "0") int tagBuckets,
+                                                         @RequestParam(value = "collapse", defaultValue = "false") boolean collapse) {
+        if (q == null || q.isBlank()) return done(ResponseEntity.badRequest().body("Query required"));
+
+        boolean passageMode = passages != null ? passages : passagesByDefault;
+        boolean cursorPaging = cursor != null || "cursor".equals(paging);
+        if (passageMode && !backend.supportsPassages()) {
+            return done(ResponseEntity.badRequest().body("Passage search is not available with the " + backend.name() + " backend"));
+        }
+        if (cursorPaging && !backend.supportsCursorPaging()) {
+            return done(ResponseEntity.badRequest().body("Cursor paging is not available with the " + backend.name() + " backend"));
+        }
+        if (cursorPaging) {
+            // collapse only works with search_after when sorting on the collapse field
+            if (passageMode) return done(ResponseEntity.badRequest().body("Cursor paging is not available for passage search"));
+            return searchWithCursor(q, size, cursor, collapse);
+        }
+        String cacheKey = QueryResultCache.key("v2", q, page, size, passageMode, tagBuckets, collapse);
+        Object cached = cache.get(cacheKey);
+        if (cached != null) return done(ResponseEntity.ok(cached));
+        long generation = cache.generation();
+
+        if (passageMode) return searchPassages(q, page, size, collapse, cacheKey, generation);
+
+        DocSearchMetrics.Request req = metrics.request("v2");
+        return req.esAsync(() -> Deadlines.within(backend.search(q, page * size, size, true, tagBuckets), timeoutMs))
+                .thenApplyAsync(result -> req.mapping(() -> {
+                    Map<String, Object> body = new HashMap<>();
+                    body.put("total", result.total);
+                    body.put("page", page);
+                    body.put("size", size);
+                    body.put("results", collapsed(toResults(result.hits), collapse));
+                    if (tagBuckets > 0) body.put("tags", toTagCounts(result.tags));
+                    return body;
+                }))
+                .<ResponseEntity<?>>thenApply(body -> {
+                    cache.put(cacheKey, generation, body);
+                    return ResponseEntity.ok(body);
+                })
+                .exceptionally(e -> failed("Search v2", q, e))
+                .whenComplete((r, e) -> req.close());
+    }
+
+    /**
+     * Cursor paging over a point-in-time, sorted by score with the PIT's shard/doc tiebreaker.
+     * The first page opens the PIT and counts the total; later pages skip total tracking and
+     * renew the PIT's keep-alive. The PIT is closed once the last page has been served or when
+     * the first page fails, and otherwise expires {@code docsearch.search.pit-keep-alive} after
+     * the last request.
+     */
+    private CompletableFuture<ResponseEntity<?>> searchWithCursor(String q, int size, String cursor, boolean collapse) {
+        SearchCursor after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                after = SearchCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return done(ResponseEntity.badRequest().body("Invalid cursor"));
             }
+            if (!after.matches(q)) return done(ResponseEntity.badRequest().body("Cursor belongs to a different query"));
+        }
+        SearchCursor from = after;
 
-            Map<String, Object> out = new HashMap<>();
-            out.put("total", total);
-            out.put("page", page);
-            out.put("size", size);
-            out.put("results", results);
-            return ResponseEntity.ok(out);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        DocSearchMetrics.Request req = metrics.request("v2-cursor");
+        CompletableFuture<String> pit = from != null
+                ? CompletableFuture.completedFuture(from.pitId)
+                : req.esAsync(() -> Deadlines.within(esClient.openPointInTime(o -> o
+                                .index(indexName)
+                                .keepAlive(t -> t.time(pitKeepAlive))), timeoutMs))
+                        .thenApply(OpenPointInTimeResponse::id);
+
+        return pit.thenCompose(pitId -> req.esAsync(() -> Deadlines.within(esClient.search(s -> {
+                            s.pit(p -> p.id(pitId).keepAlive(t -> t.time(pitKeepAlive)))
+                                    .size(size)
+                                    .source(src -> src.filter(f -> f.excludes("content", "minhash")))
+                                    .query(v2Query(q))
+                                    .highlight(ElasticsearchSearchBackend.highlight())
+                                    .sort(so -> so.score(sc -> sc.order(SortOrder.Desc)))
+                                    .sort(so -> so.field(f -> f.field("_shard_doc").order(SortOrder.Asc)));
+                            if (from != null) s.searchAfter(from.searchAfter).trackTotalHits(t -> t.enabled(false));
+                            return s;
+                        }, DocumentEntity.class), timeoutMs))
+                        .thenApplyAsync(resp -> req.mapping(() -> {
+                            List<Hit<DocumentEntity>> hits = resp.hits().hits();
+                            long total = from != null ? from.total : totalOf(resp);
+                            String nextPit = resp.pitId() != null ? resp.pitId() : pitId;
+                            String next = null;
+                            if (hits.size() < size || hits.isEmpty()) {
+                                closePointInTime(nextPit);
+                            } else {
+                                List<FieldValue> lastSort = hits.get(hits.size() - 1).sort();
+                                next = new SearchCursor(nextPit, lastSort, total, q).encode();
+                            }
+                            Map<String, Object> body = new HashMap<>();
+                            body.put("total", total);
+                            body.put("size", size);
+                            body.put("results", collapsed(toResults(ElasticsearchSearchBackend.toHits(hits)), collapse));
+                            body.put("nextCursor", next);
+                            return body;
+                        }))
+                        .whenComplete((body, e) -> {
+                            // a failed first page hands no cursor out, so nobody else would close its PIT
+                            if (e != null && from == null) closePointInTime(pitId);
+                        }))
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(e -> {
+                    Throwable cause = Deadlines.unwrap(e);
+                    // the PIT expired (or was closed) between pages
+                    if (from != null && cause instanceof ElasticsearchException ee && ee.status() == 404) {
+                        return ResponseEntity.status(410).body(Map.of("error", "Cursor expired; start a new search"));
+                    }
+                    return failed("Cursor search", q, cause);
+                })
+                .whenComplete((r, e) -> req.close());
+    }
+
+    private void closePointInTime(String pitId) {
+        esClient.closePointInTime(c -> c.id(pitId)).whenComplete((r, e) -> {
+            if (e != null) log.debug("Could not close point-in-time; it will expire on its own", e);
+        });
+    }
+
+    // also the filter of the NDJSON export
+    static Query v2Query(String q) {
+        return ElasticsearchSearchBackend.bestFields(q);
+    }
+
+    /**
+     * Passage mode: scores and highlights short passages instead of whole documents, then
+     * collapses on documentId so each document appears once with its best passage. Highlight
+     * cost is bounded by the passage size, not the document length.
+     */
+    private CompletableFuture<ResponseEntity<?>> searchPassages(String q, int page, int size, boolean collapse,
+                                                               String cacheKey, long generation) {
+        DocSearchMetrics.Request req = metrics.request("v2-passages");
+        return req.esAsync(() -> Deadlines.within(esClient.search(s -> s
+                                .index(passageIndexName)
+                                .from(page * size)
+                                .size(size)
+                                .query(qb -> qb
+                                        .multiMatch(mm -> mm
+                                                .query(q)
+                                                .fields("text", "filename")
+                                                .type(TextQueryType.BestFields)
+                                        )
+                                )
+                                .collapse(c -> c.field("documentId"))
+                                .aggregations("documents", a -> a.cardinality(c -> c.field("documentId")))
+                                .highlight(h -> h
+                                        .preTags("<mark>")
+                                        .postTags("</mark>")
+                                        .fields("text", HighlightField.of(hf -> hf.fragmentSize(250).numberOfFragments(1)))
+                                ),
+                        PassageEntity.class), timeoutMs))
+                .thenApplyAsync(resp -> req.mapping(() -> {
+                    Map<String, Object> body = new HashMap<>();
+                    body.put("total", resp.aggregations().get("documents").cardinality().value());
+                    body.put("page", page);
+                    body.put("size", size);
+                    body.put("results", collapsed(toPassageResults(resp.hits().hits()), collapse));
+                    return body;
+                }))
+                .<ResponseEntity<?>>thenApply(body -> {
+                    cache.put(cacheKey, generation, body);
+                    return ResponseEntity.ok(body);
+                })
+                .exceptionally(e -> failed("Passage search", q, e))
+                .whenComplete((r, e) -> req.close());
+    }
+
+    // keeps the best-ranked result of each near-duplicate group, with the others' ids under nearDuplicates
+    private List<Map<String, Object>> collapsed(List<Map<String, Object>> results, boolean collapse) {
+        if (!collapse || results.size() < 2) return results;
+        List<String> ids = new ArrayList<>(results.size());
+        for (Map<String, Object> r : results) ids.add((String) r.get("id"));
+        Map<String, List<String>> duplicatesOf = new HashMap<>();
+        for (List<String> group : similarityIndex.nearDuplicateGroups(ids)) {
+            duplicatesOf.putIfAbsent(group.get(0), group.subList(1, group.size()));
+        }
+        List<Map<String, Object>> out = new ArrayList<>(duplicatesOf.size());
+        for (Map<String, Object> r : results) {
+            List<String> duplicates = duplicatesOf.remove((String) r.get("id"));
+            if (duplicates == null) continue;
+            if (!duplicates.isEmpty()) r.put("nearDuplicates", duplicates);
+            out.add(r);
+        }
+        return out;
+    }
+
+    private static CompletableFuture<ResponseEntity<?>> done(ResponseEntity<?> response) {
+        return CompletableFuture.completedFuture(response);
+    }
+
+    private static long totalOf(SearchResponse<?> resp) {
+        return resp.hits().total() != null ? resp.hits().total().value() : resp.hits().hits().size();
+    }
+
+    private ResponseEntity<?> failed(String what, String q, Throwable e) {
+        Throwable cause = Deadlines.unwrap(e);
+        if (Deadlines.isTimeout(cause)) {
+            log.warn("{} timed out after {} ms for q={}", what, timeoutMs, q);
+            return ResponseEntity.status(504).body(Map.of("error", "Search timed out"));
+        }
+        log.error("{} failed for q={}", what, q, cause);
+        return ResponseEntity.status(500).body(Map.of("error", String.valueOf(cause.getMessage())));
+    }
+
+    // Hit-to-response mapping is kept in static methods so the benchmarks module can feed it
+    // canned Elasticsearch responses.
+
+    static Map<String, Object> summaryOf(DocumentEntity d) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", d.getId());
+        map.put("filename", d.getFilename());
+        map.put("tags", d.getTags());
+        map.put("uploadedAt", d.getUploadedAt());
+        map.put("snippet", d.getPreview() == null ? "" : d.getPreview());
+        map.put("downloadUrl", d.getDownloadUrl());
+        return map;
+    }
+
+    static List<Map<String, Object>> toResults(List<SearchBackend.DocumentHit> hits) {
+        List<Map<String, Object>> results = new ArrayList<>();
+
+        for (SearchBackend.DocumentHit hit : hits) {
+            DocumentEntity d = hit.source;
+            Map<String, Object> r = new HashMap<>();
+            r.put("id", d.getId());
+            r.put("filename", d.getFilename());
+            r.put("tags", d.getTags());
+            r.put("uploadedAt", d.getUploadedAt());
+            r.put("downloadUrl", d.getDownloadUrl());
+            r.put("score", hit.score);
+
+            // collect highlights (prefer content highlight; fallback to filename; fallback to stored snippet)
+            List<String> highlights = new ArrayList<>();
+            hit.highlight.forEach((field, frags) -> {
+                if (frags != null) highlights.addAll(frags);
+            });
+
+            String snippet = null;
+            if (!highlights.isEmpty()) {
+                // pick the first highlight as snippet
+                snippet = highlights.get(0);
+            } else if (d.getPreview() != null && !d.getPreview().isBlank()) {
+                snippet = d.getPreview();
+            } else snippet = "";
+
+            r.put("snippet", snippet);
+            r.put("highlights", highlights);
+            results.add(r);
+        }
+        return results;
+    }
+
+    static List<Map<String, Object>> toTagCounts(Map<String, Long> tags) {
+        List<Map<String, Object>> out = new ArrayList<>(tags.size());
+        tags.forEach((tag, count) -> out.add(Map.of("tag", tag, "count", count)));
+        return out;
+    }
+
+    static List<Map<String, Object>> toPassageResults(List<Hit<PassageEntity>> hits) {
+        List<Map<String, Object>> results = new ArrayList<>();
+
+        for (Hit<PassageEntity> hit : hits) {
+            PassageEntity p = hit.source();
+            if (p == null) continue;
+            Map<String, Object> r = new HashMap<>();
+            r.put("id", p.getDocumentId());
+            r.put("filename", p.getFilename());
+            r.put("tags", p.getTags());
+            r.put("uploadedAt", p.getUploadedAt());
+            r.put("downloadUrl", p.getDownloadUrl());
+            r.put("score", hit.score());
+            r.put("page", p.getPage());
+            r.put("passageId", p.getId());
+
+            List<String> highlights = new ArrayList<>();
+            if (hit.highlight() != null && hit.highlight().get("text") != null) {
+                highlights.addAll(hit.highlight().get("text"));
+            }
+            String snippet = !highlights.isEmpty()
+                    ? highlights.get(0)
+                    : p.getText() == null ? "" : p.getText().substring(0, Math.min(IndexService.PREVIEW_LENGTH, p.getText().length()));
+            r.put("snippet", snippet);
+            r.put("highlights", highlights);
+            results.add(r);
         }
+        return results;
     }
 }
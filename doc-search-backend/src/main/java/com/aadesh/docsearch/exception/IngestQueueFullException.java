@@ -0,0 +1,12 @@
+package com.aadesh.docsearch.exception;
+
+/**
+ * Thrown when the ingestion queue is at capacity. Callers should retry later
+ * instead of holding a request thread until a worker frees up.
+ */
+public class IngestQueueFullException extends RuntimeException {
+
+    public IngestQueueFullException(String message) {
+        super(message);
+    }
+}
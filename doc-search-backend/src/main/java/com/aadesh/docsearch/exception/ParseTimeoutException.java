@@ -0,0 +1,11 @@
+package com.aadesh.docsearch.exception;
+
+/**
+ * Thrown when a document does not finish parsing within docsearch.tika.timeout-ms.
+ */
+public class ParseTimeoutException extends RuntimeException {
+
+    public ParseTimeoutException(String message) {
+        super(message);
+    }
+}
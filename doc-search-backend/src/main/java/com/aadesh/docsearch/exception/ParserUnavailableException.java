@@ -0,0 +1,13 @@
+package com.aadesh.docsearch.exception;
+
+/**
+ * Thrown when docsearch.tika.max-stuck-parses abandoned parses are still running, so no new
+ * parse is started. The condition clears as stuck parses finish; files that hit it can be
+ * retried later.
+ */
+public class ParserUnavailableException extends RuntimeException {
+
+    public ParserUnavailableException(String message) {
+        super(message);
+    }
+}
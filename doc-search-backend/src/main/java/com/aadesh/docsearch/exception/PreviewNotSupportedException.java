@@ -0,0 +1,12 @@
+package com.aadesh.docsearch.exception;
+
+/**
+ * Thrown when page previews are requested for a file type that cannot be split into pages
+ * (anything but PDF and PPTX), or for a document whose stored file is gone.
+ */
+public class PreviewNotSupportedException extends RuntimeException {
+
+    public PreviewNotSupportedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,106 @@
+package com.aadesh.docsearch.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one bulk import. Counters are updated concurrently by parse
+ * workers and the bulk flusher; the admin endpoint serializes it as-is.
+ */
+public class BulkImportJob {
+
+    public enum State { QUEUED, RUNNING, DONE, FAILED }
+
+    /** Keeps the status payload bounded when a whole directory fails the same way. */
+    private static final int MAX_REPORTED_FAILURES = 1000;
+
+    private final String id;
+    private final String source;
+    private final Instant createdAt = Instant.now();
+    private volatile State state = State.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    private final AtomicLong discovered = new AtomicLong();
+    private final AtomicLong parsed = new AtomicLong();
+    private final AtomicLong indexed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong bulkRequests = new AtomicLong();
+    private final List<Failure> failures = new ArrayList<>();
+
+    public BulkImportJob(String id, String source) {
+        this.id = id;
+        this.source = source;
+    }
+
+    public void start() {
+        startedAt = Instant.now();
+        state = State.RUNNING;
+    }
+
+    public void finish() {
+        finishedAt = Instant.now();
+        state = State.DONE;
+    }
+
+    public void abort(String error) {
+        this.error = error;
+        finishedAt = Instant.now();
+        state = State.FAILED;
+    }
+
+    public void addDiscovered() { discovered.incrementAndGet(); }
+    public void addParsed(long bytes) { parsed.incrementAndGet(); bytesRead.addAndGet(bytes); }
+    public void addIndexed(long n) { indexed.addAndGet(n); }
+    public void addBulkRequest() { bulkRequests.incrementAndGet(); }
+    public void addDuplicate() { duplicates.incrementAndGet(); }
+
+    public void addFailure(String file, String stage, String reason) {
+        failed.incrementAndGet();
+        synchronized (failures) {
+            if (failures.size() < MAX_REPORTED_FAILURES) failures.add(new Failure(file, stage, reason));
+        }
+    }
+
+    public boolean isFinished() {
+        return state == State.DONE || state == State.FAILED;
+    }
+
+    public String getId() { return id; }
+    public String getSource() { return source; }
+    public State getState() { return state; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Instant getStartedAt() { return startedAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public String getError() { return error; }
+    public long getDiscovered() { return discovered.get(); }
+    public long getParsed() { return parsed.get(); }
+    public long getIndexed() { return indexed.get(); }
+    public long getFailed() { return failed.get(); }
+    public long getDuplicates() { return duplicates.get(); }
+    public long getBytesRead() { return bytesRead.get(); }
+    public long getBulkRequests() { return bulkRequests.get(); }
+
+    public List<Failure> getFailures() {
+        synchronized (failures) {
+            return new ArrayList<>(failures);
+        }
+    }
+
+    public static class Failure {
+        public final String file;
+        public final String stage;
+        public final String reason;
+
+        public Failure(String file, String stage, String reason) {
+            this.file = file;
+            this.stage = stage;
+            this.reason = reason;
+        }
+    }
+}
@@ -6,25 +6,41 @@ import java.util.Map;
 
 import org.springframework.data.annotation.Id;
 import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Dynamic;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.IndexOptions;
+import org.springframework.data.elasticsearch.annotations.Setting;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
+/**
+ * A document of the {@code documents} index. The mapping is managed: fields not declared here
+ * are kept in the source but not indexed, Tika's open-ended metadata is a single flattened
+ * field, and the searched text fields index offsets so highlighting reads them from the
+ * postings instead of re-analyzing the text. Index settings come from
+ * {@code elasticsearch/documents-settings.json} plus the {@code docsearch.index.*} properties.
+ */
 @JsonIgnoreProperties(ignoreUnknown = true)
-@Document(indexName = "documents")
+@Document(indexName = "#{@indexNames.documents}", createIndex = false, dynamic = Dynamic.FALSE)
+@Setting(settingPath = "/elasticsearch/documents-settings.json")
 public class DocumentEntity {
 
     @Id
     private String id;
 
-    @Field(type = FieldType.Text)
+    @Field(type = FieldType.Text, indexOptions = IndexOptions.offsets)
     private String filename;
 
-    @Field(type = FieldType.Text)
+    @Field(type = FieldType.Text, indexOptions = IndexOptions.offsets)
     private String content;
 
-    @Field(type = FieldType.Object)
+    // first characters of content, computed at index time so result lists never fetch content
+    @Field(type = FieldType.Text, index = false)
+    private String preview;
+
+    // one field however many keys Tika emits; values longer than ignoreAbove are kept but not indexed
+    @Field(type = FieldType.Flattened, ignoreAbove = 512)
     private Map<String, String> metadata;
 
     @Field(type = FieldType.Keyword)
@@ -39,8 +55,20 @@ public class DocumentEntity {
     @Field(type = FieldType.Keyword)
     private List<String> tags;
 
+    @Field(type = FieldType.Keyword, index = false, docValues = false)
     private String downloadUrl;
 
+    @Field(type = FieldType.Keyword)
+    private String sha256;
+
+    // set on dedup alias records: id of the document whose blob and text this one shares
+    @Field(type = FieldType.Keyword)
+    private String aliasOf;
+
+    // MinHash signature of the extracted text (SimilarityIndex), so the startup replay needs no text
+    @Field(type = FieldType.Keyword, index = false, docValues = false)
+    private String minhash;
+
     public DocumentEntity() {}
 
     public String getId() { return id; }
@@ -52,6 +80,9 @@ public class DocumentEntity {
     public String getContent() { return content; }
     public void setContent(String content) { this.content = content; }
 
+    public String getPreview() { return preview; }
+    public void setPreview(String preview) { this.preview = preview; }
+
     public Map<String, String> getMetadata() { return metadata; }
     public void setMetadata(Map<String, String> metadata) { this.metadata = metadata; }
 
@@ -69,4 +100,13 @@ public class DocumentEntity {
 
     public String getDownloadUrl() { return downloadUrl; }
     public void setDownloadUrl(String downloadUrl) { this.downloadUrl = downloadUrl; }
+
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+
+    public String getAliasOf() { return aliasOf; }
+    public void setAliasOf(String aliasOf) { this.aliasOf = aliasOf; }
+
+    public String getMinhash() { return minhash; }
+    public void setMinhash(String minhash) { this.minhash = minhash; }
 }
@@ -0,0 +1,80 @@
+package com.aadesh.docsearch.model;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Status of one queued upload. Workers move it through the stages; the status
+ * endpoint serializes it as-is, so every getter is part of the API.
+ */
+public class IngestJob {
+
+    public enum Stage { QUEUED, STORING, PARSING, EXTRACTING_KEYWORDS, SAVING, DONE, FAILED }
+
+    private final String id;
+    private final String filename;
+    private final long size;
+    private final Instant queuedAt;
+    private volatile Stage stage = Stage.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String documentId;
+    private volatile boolean duplicate;
+    private volatile String error;
+
+    // stage -> elapsed millis, written only by the owning worker
+    private final Map<Stage, Long> stageMillis = new EnumMap<>(Stage.class);
+    private long stageStartedNanos;
+
+    public IngestJob(String id, String filename, long size) {
+        this.id = id;
+        this.filename = filename;
+        this.size = size;
+        this.queuedAt = Instant.now();
+        this.stageStartedNanos = System.nanoTime();
+    }
+
+    /** Closes the timing of the current stage and enters the next one. */
+    public synchronized void enter(Stage next) {
+        long now = System.nanoTime();
+        stageMillis.merge(stage, (now - stageStartedNanos) / 1_000_000, Long::sum);
+        stageStartedNanos = now;
+        if (stage == Stage.QUEUED) startedAt = Instant.now();
+        stage = next;
+        if (next == Stage.DONE || next == Stage.FAILED) finishedAt = Instant.now();
+    }
+
+    public void complete(String documentId, boolean duplicate) {
+        this.documentId = documentId;
+        this.duplicate = duplicate;
+        enter(Stage.DONE);
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        enter(Stage.FAILED);
+    }
+
+    public boolean isFinished() {
+        return stage == Stage.DONE || stage == Stage.FAILED;
+    }
+
+    public String getId() { return id; }
+    public String getFilename() { return filename; }
+    public long getSize() { return size; }
+    public Stage getStage() { return stage; }
+    public Instant getQueuedAt() { return queuedAt; }
+    public Instant getStartedAt() { return startedAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public String getDocumentId() { return documentId; }
+    public boolean isDuplicate() { return duplicate; }
+    public String getError() { return error; }
+
+    public synchronized Map<String, Long> getStageMillis() {
+        Map<String, Long> out = new LinkedHashMap<>();
+        stageMillis.forEach((k, v) -> out.put(k.name(), v));
+        return out;
+    }
+}
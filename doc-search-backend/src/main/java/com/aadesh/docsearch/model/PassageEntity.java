@@ -0,0 +1,84 @@
+package com.aadesh.docsearch.model;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * A fixed-size, overlapping slice of a document's extracted text. The display fields
+ * of the parent are copied onto every passage so a passage search can be collapsed
+ * back to documents without a join or a second lookup.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@Document(indexName = "#{@indexNames.passages}")
+public class PassageEntity {
+
+    @Id
+    private String id;
+
+    @Field(type = FieldType.Keyword)
+    private String documentId;
+
+    @Field(type = FieldType.Integer)
+    private Integer ordinal;
+
+    // 1-based page (PDF) or slide (PPTX) the passage starts on; null when unknown
+    @Field(type = FieldType.Integer)
+    private Integer page;
+
+    @Field(type = FieldType.Text)
+    private String text;
+
+    @Field(type = FieldType.Text)
+    private String filename;
+
+    @Field(type = FieldType.Keyword)
+    private String fileType;
+
+    @Field(type = FieldType.Date)
+    private Instant uploadedAt;
+
+    @Field(type = FieldType.Keyword)
+    private List<String> tags;
+
+    @Field(type = FieldType.Keyword, index = false, docValues = false)
+    private String downloadUrl;
+
+    public PassageEntity() {}
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getDocumentId() { return documentId; }
+    public void setDocumentId(String documentId) { this.documentId = documentId; }
+
+    public Integer getOrdinal() { return ordinal; }
+    public void setOrdinal(Integer ordinal) { this.ordinal = ordinal; }
+
+    public Integer getPage() { return page; }
+    public void setPage(Integer page) { this.page = page; }
+
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+
+    public String getFileType() { return fileType; }
+    public void setFileType(String fileType) { this.fileType = fileType; }
+
+    public Instant getUploadedAt() { return uploadedAt; }
+    public void setUploadedAt(Instant uploadedAt) { this.uploadedAt = uploadedAt; }
+
+    public List<String> getTags() { return tags; }
+    public void setTags(List<String> tags) { this.tags = tags; }
+
+    public String getDownloadUrl() { return downloadUrl; }
+    public void setDownloadUrl(String downloadUrl) { this.downloadUrl = downloadUrl; }
+}
@@ -1,5 +1,7 @@
 package com.aadesh.docsearch.repository;
 
+import java.util.Optional;
+
 import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
 import org.springframework.stereotype.Repository;
 
@@ -7,5 +9,7 @@ import com.aadesh.docsearch.model.DocumentEntity;
 
 @Repository
 public interface DocumentRepository extends ElasticsearchRepository<DocumentEntity, String> {
-    // Custom queries here if needed
+
+    // content-hash dedup: the original upload for a given SHA-256, never an alias record
+    Optional<DocumentEntity> findFirstBySha256AndAliasOfIsNull(String sha256);
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.aadesh.docsearch.repository;
+
+import java.util.stream.Stream;
+
+import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
+import org.springframework.stereotype.Repository;
+
+import com.aadesh.docsearch.model.PassageEntity;
+
+@Repository
+public interface PassageRepository extends ElasticsearchRepository<PassageEntity, String> {
+
+    // scrolls, so long documents return every passage
+    Stream<PassageEntity> findByDocumentId(String documentId);
+}
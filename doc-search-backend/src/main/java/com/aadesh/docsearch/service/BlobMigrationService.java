@@ -0,0 +1,241 @@
+package com.aadesh.docsearch.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.aadesh.docsearch.model.DocumentEntity;
+
+/**
+ * Moves originals from the flat upload directory ({@code <storage-dir>/<id>-<name>}) into the
+ * {@link BlobStore} and points their documents at the blob URL.
+ *
+ * Runs on a background thread over a scan of the {@link DocumentStore} that fetches only the
+ * fields it needs; the URL updates are written in batches of
+ * {@code docsearch.blobs.migration-batch-size} (partial-document _bulk updates on Elasticsearch). Files are copied into the store (a hard link
+ * where possible), and the flat file is deleted only after the scan has finished and every
+ * document pointing at it has been updated. A failed update or a crash therefore never leaves a
+ * document pointing at a file that is gone; at worst a flat file is left behind. Records
+ * sharing one stored file (dedup aliases) are found through their hash when it is gone. Old
+ * {@code /api/files/download/} links keep working: the file controller redirects them to the
+ * blob URL once the document has been updated. The migration can be run again at any time;
+ * documents already in the blob store are skipped. It does not run alongside a reindex, whose
+ * copy could bring back the old URLs: both claim the documents index through the
+ * {@link IndexWriteFence}.
+ */
+@Service
+public class BlobMigrationService {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobMigrationService.class);
+    private static final String LEGACY_PREFIX = "/api/files/download/";
+    private static final String JOB = "blob-migration";
+
+    private final DocumentStore store;
+    private final BlobStore blobStore;
+    private final IndexGeneration indexGeneration;
+    private final IndexWriteFence writeFence;
+    private final Path storageDir;
+    private final int batchSize;
+    private volatile Progress last;
+
+    public BlobMigrationService(DocumentStore store, BlobStore blobStore, IndexGeneration indexGeneration,
+                                IndexWriteFence writeFence,
+                                @Value("${file.storage-dir:./uploaded_files}") String storageDirPath,
+                                @Value("${docsearch.blobs.migration-batch-size:500}") int batchSize) {
+        this.store = store;
+        this.blobStore = blobStore;
+        this.indexGeneration = indexGeneration;
+        this.writeFence = writeFence;
+        this.storageDir = Paths.get(storageDirPath).toAbsolutePath().normalize();
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /** Starts a migration in the background; false if a migration or a reindex is already running. */
+    public boolean start() {
+        if (!writeFence.claim(JOB)) return false;
+        Progress progress = new Progress();
+        last = progress;
+        Thread t = new Thread(() -> {
+            try {
+                migrate(progress);
+            } catch (Exception e) {
+                log.error("Blob migration failed", e);
+                progress.error = e.getMessage();
+            } finally {
+                progress.finishedAt = Instant.now();
+                writeFence.release(JOB);
+            }
+        }, "blob-migration");
+        t.setDaemon(true);
+        t.start();
+        return true;
+    }
+
+    public boolean isRunning() {
+        return JOB.equals(writeFence.claimedBy());
+    }
+
+    public Map<String, Object> status() {
+        Progress p = last;
+        return p == null ? Map.of("running", false) : p.toMap(isRunning());
+    }
+
+    private void migrate(Progress progress) throws IOException {
+        List<Update> pending = new ArrayList<>();
+        // flat file -> whether every document pointing at it has been updated so far
+        Map<Path, Boolean> flatFiles = new HashMap<>();
+        try {
+            store.scan(List.of("filename", "fileType", "sha256", "downloadUrl"), batchSize, doc -> {
+                progress.scanned.increment();
+                Update update;
+                try {
+                    update = migrate(doc, progress, flatFiles);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Could not copy the stored file of document {}", doc.getId(), e);
+                    progress.failed.increment();
+                    return;
+                }
+                if (update == null) return;
+                pending.add(update);
+                if (pending.size() >= batchSize) {
+                    try {
+                        flush(pending, progress, flatFiles);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        flush(pending, progress, flatFiles);
+        deleteFlatFiles(flatFiles, progress);
+        log.info("Blob migration finished: {}", progress.toMap(false));
+    }
+
+    private Update migrate(DocumentEntity doc, Progress progress, Map<Path, Boolean> flatFiles) throws IOException {
+        String url = doc.getDownloadUrl();
+        if (url == null || !url.startsWith(LEGACY_PREFIX)) {
+            progress.skipped.increment();
+            return null;
+        }
+        String storedName = url.substring(LEGACY_PREFIX.length());
+        Path file = storageDir.resolve(storedName).normalize();
+        if (!storageDir.equals(file.getParent())) {
+            progress.missing.increment();
+            return null;
+        }
+
+        String sha256 = doc.getSha256();
+        String key;
+        Path source = null;
+        if (Files.isRegularFile(file)) {
+            try {
+                if (sha256 == null) sha256 = FileHashCache.hash(file); // ingested before hashes were recorded
+                key = blobStore.copy(file, sha256, doc.getFileType());
+            } catch (IOException | RuntimeException e) {
+                flatFiles.put(file, false);
+                throw e;
+            }
+            source = file;
+        } else if (sha256 != null && blobStore.get(sha256).isPresent()) {
+            key = sha256; // moved already through another record sharing the file
+        } else {
+            progress.missing.increment();
+            return null;
+        }
+        String filename = doc.getFilename() != null ? doc.getFilename()
+                : storedName.length() > 37 ? storedName.substring(37) : storedName;
+        return new Update(new DocumentStore.StoredFileUpdate(doc.getId(), BlobStore.url(key, filename), key), source);
+    }
+
+    private void flush(List<Update> pending, Progress progress, Map<Path, Boolean> flatFiles) throws IOException {
+        if (pending.isEmpty()) return;
+        List<DocumentStore.StoredFileUpdate> updates = new ArrayList<>(pending.size());
+        for (Update u : pending) updates.add(u.update);
+        Map<String, String> failed = store.updateStoredFiles(updates);
+        for (Update u : pending) {
+            String reason = failed.get(u.update.id);
+            if (reason == null) {
+                progress.migrated.increment();
+                if (u.source != null) flatFiles.putIfAbsent(u.source, true);
+            } else {
+                progress.failed.increment();
+                if (u.source != null) flatFiles.put(u.source, false);
+                log.warn("Could not update document {}: {}", u.update.id, reason);
+            }
+        }
+        pending.clear();
+        indexGeneration.bump(); // cached search results carry the old URLs
+    }
+
+    // only once the whole scan is done: until then another document may still point at the file
+    private static void deleteFlatFiles(Map<Path, Boolean> flatFiles, Progress progress) {
+        for (Map.Entry<Path, Boolean> e : flatFiles.entrySet()) {
+            if (!e.getValue()) {
+                progress.flatFilesKept.increment();
+                continue;
+            }
+            try {
+                Files.deleteIfExists(e.getKey());
+                progress.flatFilesDeleted.increment();
+            } catch (IOException ex) {
+                log.warn("Could not delete migrated file {}", e.getKey(), ex);
+                progress.flatFilesKept.increment();
+            }
+        }
+    }
+
+    private static final class Update {
+        final DocumentStore.StoredFileUpdate update;
+        final Path source; // the flat file copied for this document, null if it was already gone
+
+        Update(DocumentStore.StoredFileUpdate update, Path source) {
+            this.update = update;
+            this.source = source;
+        }
+    }
+
+    private static final class Progress {
+        final Instant startedAt = Instant.now();
+        volatile Instant finishedAt;
+        volatile String error;
+        final LongAdder scanned = new LongAdder();
+        final LongAdder migrated = new LongAdder();
+        final LongAdder skipped = new LongAdder();
+        final LongAdder missing = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder flatFilesDeleted = new LongAdder();
+        final LongAdder flatFilesKept = new LongAdder();
+
+        Map<String, Object> toMap(boolean running) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("running", running);
+            m.put("startedAt", startedAt);
+            m.put("finishedAt", finishedAt);
+            m.put("scanned", scanned.sum());
+            m.put("migrated", migrated.sum());
+            m.put("alreadyInBlobStore", skipped.sum());
+            m.put("missing", missing.sum());
+            m.put("failed", failed.sum());
+            m.put("flatFilesDeleted", flatFilesDeleted.sum());
+            m.put("flatFilesKept", flatFilesKept.sum());
+            if (error != null) m.put("error", error);
+            return m;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.aadesh.docsearch.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.web.util.UriUtils;
+
+/**
+ * Content-addressed storage for uploaded originals. A blob's key is the SHA-256 of its
+ * content, so duplicate uploads share one blob, and documents link to it through
+ * {@code /api/files/blob/<key>/<filename>}.
+ */
+public interface BlobStore {
+
+    String URL_PREFIX = "/api/files/blob/";
+
+    /**
+     * Moves {@code source} into the store under {@code sha256} and returns the key. The source
+     * is consumed: it is renamed into place, or deleted once a compressed copy (or an existing
+     * blob with the same content) is in place. Readers never see a partially written blob.
+     */
+    String put(Path source, String sha256, String fileType) throws IOException;
+
+    /**
+     * Like {@link #put}, but leaves {@code source} where it is: the blob is a hard link to it
+     * where the file system allows one, and a copy otherwise.
+     */
+    String copy(Path source, String sha256, String fileType) throws IOException;
+
+    /** The blob stored under {@code key}, or empty if there is none or the key is malformed. */
+    Optional<Blob> get(String key) throws IOException;
+
+    /** The original content of a blob, decompressed when it is stored compressed. */
+    InputStream open(Blob blob) throws IOException;
+
+    Map<String, Object> stats();
+
+    static String url(String key, String filename) {
+        return URL_PREFIX + key + "/" + UriUtils.encodePathSegment(filename, StandardCharsets.UTF_8);
+    }
+
+    /** The blob key of a {@code downloadUrl} built by {@link #url}, or null for any other URL. */
+    static String keyOf(String downloadUrl) {
+        if (downloadUrl == null || !downloadUrl.startsWith(URL_PREFIX)) return null;
+        int end = downloadUrl.indexOf('/', URL_PREFIX.length());
+        return end < 0 ? null : downloadUrl.substring(URL_PREFIX.length(), end);
+    }
+
+    /** A stored blob. {@code path} holds gzip data when {@code compressed}; {@code length} is the original size. */
+    final class Blob {
+        public final String key;
+        public final Path path;
+        public final boolean compressed;
+        public final long length;
+        public final long lastModified;
+
+        public Blob(String key, Path path, boolean compressed, long length, long lastModified) {
+            this.key = key;
+            this.path = path;
+            this.compressed = compressed;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.aadesh.docsearch.service;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import com.aadesh.docsearch.exception.ParseTimeoutException;
+import com.aadesh.docsearch.exception.ParserUnavailableException;
+import com.aadesh.docsearch.model.BulkImportJob;
+import com.aadesh.docsearch.model.DocumentEntity;
+import com.aadesh.docsearch.model.IngestJob;
+import com.aadesh.docsearch.model.PassageEntity;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Bulk onboarding: parses many files in parallel and writes the resulting
+ * documents to the {@link DocumentStore} in batches (a _bulk request on
+ * Elasticsearch) instead of one save per file.
+ *
+ * Imports run one at a time on a coordinator thread; within an import, files
+ * are parsed on a fixed pool sized by docsearch.bulk.concurrency and batches are
+ * flushed when either the document count or the estimated payload size is reached.
+ */
+@Service
+public class BulkImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkImportService.class);
+
+    private final IndexService indexService;
+    private final DocumentStore store;
+    private final IndexGeneration indexGeneration;
+    private final DocSearchMetrics metrics;
+    private final int batchSize;
+    private final long batchMaxBytes;
+    private final int concurrency;
+    private final ImportRoots allowedRoots;
+    private final Path stagingDir;
+
+    private final ExecutorService coordinator;
+    private final ExecutorService parsePool;
+    private final Map<String, BulkImportJob> jobs = new ConcurrentHashMap<>();
+
+    public BulkImportService(IndexService indexService, DocumentStore store, IndexGeneration indexGeneration,
+                             DocSearchMetrics metrics,
+                             @Value("${file.storage-dir:./uploaded_files}") String storageDirPath,
+                             @Value("${docsearch.bulk.batch-size:500}") int batchSize,
+                             @Value("${docsearch.bulk.batch-max-mb:10}") int batchMaxMb,
+                             @Value("${docsearch.bulk.concurrency:0}") int concurrency,
+                             @Value("${docsearch.bulk.allowed-roots:}") String allowedRoots) {
+        this.indexService = indexService;
+        this.store = store;
+        this.indexGeneration = indexGeneration;
+        this.metrics = metrics;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchMaxBytes = Math.max(1, batchMaxMb) * 1024L * 1024L;
+        this.concurrency = concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors();
+        this.allowedRoots = new ImportRoots(allowedRoots);
+        this.stagingDir = Paths.get(storageDirPath).resolve(".staging").resolve("bulk");
+
+        this.coordinator = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "bulk-import-coordinator");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger seq = new AtomicInteger();
+        this.parsePool = Executors.newFixedThreadPool(this.concurrency, r -> {
+            Thread t = new Thread(r, "bulk-import-parser-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            Files.createDirectories(this.stagingDir);
+        } catch (Exception e) {
+            // ignore for now
+        }
+    }
+
+    /**
+     * Imports every regular file under a server-side directory. Only directories
+     * whose real path is below one of docsearch.bulk.allowed-roots are accepted,
+     * and symlinks are neither followed nor imported.
+     */
+    public BulkImportJob importDirectory(String directory, boolean recursive) {
+        Path dir = allowedRoots.resolve(directory);
+        BulkImportJob job = newJob(dir.toString());
+        coordinator.execute(() -> run(job, () -> recursive ? Files.walk(dir) : Files.list(dir), false));
+        return job;
+    }
+
+    /** Stages the uploaded parts on the request thread, then imports them in the background. */
+    public BulkImportJob importUploads(List<MultipartFile> files) throws Exception {
+        BulkImportJob job = newJob("upload(" + files.size() + " files)");
+        Path jobDir = stagingDir.resolve(job.getId());
+        Files.createDirectories(jobDir);
+        for (MultipartFile f : files) {
+            if (f == null || f.isEmpty()) continue;
+            String name = Paths.get(Objects.requireNonNull(f.getOriginalFilename())).getFileName().toString();
+            // one sub-directory per part keeps duplicate original names apart
+            Path partDir = Files.createDirectories(jobDir.resolve(UUID.randomUUID().toString()));
+            f.transferTo(partDir.resolve(name).toAbsolutePath().toFile());
+        }
+        coordinator.execute(() -> run(job, () -> Files.walk(jobDir), true));
+        return job;
+    }
+
+    /**
+     * Imports the given files where they are, without staging a copy. {@code onFinished} runs on
+     * the coordinator thread once the job has finished or failed.
+     */
+    public BulkImportJob importFiles(String source, List<Path> files, Consumer<BulkImportJob> onFinished) {
+        BulkImportJob job = newJob(source);
+        coordinator.execute(() -> {
+            try {
+                run(job, files::stream, false);
+            } finally {
+                onFinished.accept(job);
+            }
+        });
+        return job;
+    }
+
+    public Optional<BulkImportJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public List<BulkImportJob> getJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    private BulkImportJob newJob(String source) {
+        Instant cutoff = Instant.now().minus(Duration.ofHours(24));
+        jobs.values().removeIf(j -> j.isFinished() && j.getFinishedAt().isBefore(cutoff));
+        BulkImportJob job = new BulkImportJob(UUID.randomUUID().toString(), source);
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    private interface PathSource {
+        Stream<Path> open() throws Exception;
+    }
+
+    private void run(BulkImportJob job, PathSource source, boolean deleteAfter) {
+        job.start();
+        Batcher batcher = new Batcher(job);
+        // bounds queued parse tasks so a huge directory walk doesn't outrun the workers
+        Semaphore inFlight = new Semaphore(concurrency * 2);
+        try (Stream<Path> paths = source.open()) {
+            for (Path p : (Iterable<Path>) paths.filter(ImportRoots::importable)::iterator) {
+                job.addDiscovered();
+                inFlight.acquire();
+                boolean submitted = false;
+                try {
+                    parsePool.execute(() -> {
+                        try {
+                            parseOne(job, batcher, p);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                    submitted = true;
+                } finally {
+                    // a rejected task never runs, so its permit would never come back
+                    if (!submitted) inFlight.release();
+                }
+            }
+            // wait for outstanding parses, then ship the tail of the last batch
+            inFlight.acquire(concurrency * 2);
+            inFlight.release(concurrency * 2);
+            batcher.flush();
+            job.finish();
+        } catch (Exception e) {
+            log.warn("Bulk import {} aborted", job.getId(), e);
+            job.abort(e.getMessage());
+        } finally {
+            if (deleteAfter) cleanup(stagingDir.resolve(job.getId()));
+        }
+    }
+
+    /**
+     * True for failures that trying the same file again would repeat: the parser rejected it
+     * ({@code parse}), or only its passages were lost ({@code index-passage}). Timeouts, a busy
+     * parser, I/O and store errors are problems of the moment.
+     */
+    public static boolean isFinalFailure(String stage) {
+        return "parse".equals(stage) || "index-passage".equals(stage);
+    }
+
+    // the stage a file that prepareDocument gave up on is reported under
+    static String failureStage(Exception e, IngestJob.Stage reached) {
+        if (e instanceof ParseTimeoutException) return "timeout";
+        if (e instanceof ParserUnavailableException || e instanceof RejectedExecutionException
+                || e instanceof InterruptedException) {
+            return "parser-unavailable";
+        }
+        if (e instanceof ElasticsearchException) return "elasticsearch";
+        if (e instanceof IOException || e instanceof UncheckedIOException) return "io";
+        return reached == IngestJob.Stage.PARSING ? "parse" : "prepare";
+    }
+
+    private void parseOne(BulkImportJob job, Batcher batcher, Path file) {
+        String name = file.getFileName().toString();
+        IndexService.PreparedDocument prepared;
+        AtomicReference<IngestJob.Stage> reached = new AtomicReference<>(IngestJob.Stage.QUEUED);
+        try (InputStream in = Files.newInputStream(file)) {
+            prepared = indexService.prepareDocument(in, name, reached::set);
+            DocumentEntity doc = prepared.document;
+            job.addParsed(doc.getSize() == null ? 0 : doc.getSize());
+            if (prepared.existing) {
+                job.addDuplicate();
+                return;
+            }
+            if (doc.getAliasOf() != null) job.addDuplicate();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            job.addFailure(file.toString(), failureStage(e, reached.get()), e.getMessage());
+            return;
+        }
+        try {
+            batcher.add(file.toString(), prepared);
+        } catch (Exception e) {
+            // the whole batch failed to ship; Batcher has already recorded each item
+            log.warn("Bulk flush failed for import {}", job.getId(), e);
+        }
+    }
+
+    private void cleanup(Path dir) {
+        try (Stream<Path> s = Files.walk(dir)) {
+            s.sorted((a, b) -> b.getNameCount() - a.getNameCount()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (Exception ignored) {
+                }
+            });
+        } catch (Exception ignored) {
+        }
+    }
+
+    /**
+     * Accumulates documents for one import and writes them as one batch when the
+     * batch reaches the configured count or estimated byte size. The batch is
+     * written outside the lock so parse workers keep filling the next one.
+     */
+    private class Batcher {
+        private final BulkImportJob job;
+        private Map<String, IndexService.PreparedDocument> pending = new LinkedHashMap<>();
+        private Map<String, String> sources = new HashMap<>();
+        private long pendingBytes;
+
+        Batcher(BulkImportJob job) {
+            this.job = job;
+        }
+
+        void add(String sourceFile, IndexService.PreparedDocument prepared) throws Exception {
+            Map<String, IndexService.PreparedDocument> ready = null;
+            Map<String, String> readySources = null;
+            synchronized (this) {
+                pending.put(prepared.document.getId(), prepared);
+                sources.put(prepared.document.getId(), sourceFile);
+                pendingBytes += estimateBytes(prepared);
+                if (pending.size() >= batchSize || pendingBytes >= batchMaxBytes) {
+                    ready = pending;
+                    readySources = sources;
+                    pending = new LinkedHashMap<>();
+                    sources = new HashMap<>();
+                    pendingBytes = 0;
+                }
+            }
+            if (ready != null) send(ready, readySources);
+        }
+
+        void flush() throws Exception {
+            Map<String, IndexService.PreparedDocument> ready;
+            Map<String, String> readySources;
+            synchronized (this) {
+                if (pending.isEmpty()) return;
+                ready = pending;
+                readySources = sources;
+                pending = new LinkedHashMap<>();
+                sources = new HashMap<>();
+                pendingBytes = 0;
+            }
+            send(ready, readySources);
+        }
+
+        private void send(Map<String, IndexService.PreparedDocument> docs, Map<String, String> docSources) throws Exception {
+            List<DocumentEntity> documents = new ArrayList<>(docs.size());
+            List<PassageEntity> passages = new ArrayList<>();
+            for (IndexService.PreparedDocument p : docs.values()) {
+                documents.add(p.document);
+                passages.addAll(p.passages);
+            }
+            job.addBulkRequest();
+            DocumentStore.BatchResult result;
+            long start = System.nanoTime();
+            try {
+                result = store.saveAll(documents, passages);
+                metrics.recordBulk(docs.size(), System.nanoTime() - start);
+            } catch (Exception e) {
+                // part of the batch may still have been applied
+                indexGeneration.bump();
+                docs.forEach((id, p) -> {
+                    indexService.discard(p.document);
+                    job.addFailure(docSources.get(id), "bulk", e.getMessage());
+                });
+                throw e;
+            }
+            // a lost passage only degrades passage search; report it against its document
+            result.failedPassages.forEach((docId, reason) -> job.addFailure(docSources.get(docId), "index-passage", reason));
+            long ok = 0;
+            for (Map.Entry<String, IndexService.PreparedDocument> e : docs.entrySet()) {
+                String reason = result.failed.get(e.getKey());
+                if (reason != null) {
+                    indexService.discard(e.getValue().document);
+                    job.addFailure(docSources.get(e.getKey()), "index", reason);
+                } else {
+                    indexService.notifyIndexed(e.getValue());
+                    ok++;
+                }
+            }
+            job.addIndexed(ok);
+            indexGeneration.bump();
+        }
+
+        private long estimateBytes(IndexService.PreparedDocument p) {
+            // UTF-8 JSON of the extracted text dominates; the rest is a small fixed overhead.
+            // Passages repeat the text plus the configured overlap.
+            long text = p.document.getContent() == null ? 0 : p.document.getContent().length();
+            long passages = 0;
+            for (PassageEntity passage : p.passages) passages += passage.getText().length() + 512;
+            return text + passages + 1024;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        coordinator.shutdownNow();
+        parsePool.shutdown();
+        parsePool.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,44 @@
+package com.aadesh.docsearch.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Per-request deadlines for calls on the async Elasticsearch client.
+ *
+ * The futures returned by {@code ElasticsearchAsyncClient} abort their HTTP request when
+ * cancelled, and Elasticsearch cancels a search task once its connection is closed, so a missed
+ * deadline stops the work on both sides instead of only abandoning the response.
+ */
+public final class Deadlines {
+
+    private Deadlines() {}
+
+    /**
+     * A future that completes like {@code call}, or fails with {@link TimeoutException} after
+     * {@code timeoutMs}, in which case {@code call} is cancelled. {@code timeoutMs <= 0} means no deadline.
+     */
+    public static <T> CompletableFuture<T> within(CompletableFuture<T> call, long timeoutMs) {
+        if (timeoutMs <= 0) return call;
+        CompletableFuture<T> bounded = call.copy().orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+        bounded.whenComplete((r, e) -> {
+            if (e instanceof TimeoutException) call.cancel(true);
+        });
+        return bounded;
+    }
+
+    /** The failure behind the completion/execution wrappers added by future composition. */
+    public static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    public static boolean isTimeout(Throwable e) {
+        return unwrap(e) instanceof TimeoutException;
+    }
+}
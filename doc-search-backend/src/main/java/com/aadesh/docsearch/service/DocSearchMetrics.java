@@ -0,0 +1,142 @@
+package com.aadesh.docsearch.service;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Micrometer instrumentation shared by the ingest pipeline and the search endpoints.
+ *
+ * <ul>
+ *   <li>{@code docsearch.ingest.stage}: one timer per ingest stage (store, dedup, parse, keywords,
+ *       minhash, save), tagged with {@code fileType} and {@code sizeBucket}</li>
+ *   <li>{@code docsearch.ingest.bulk}: _bulk round trips of the bulk importer</li>
+ *   <li>{@code docsearch.search.es} / {@code docsearch.search.mapping}: per-endpoint split between
+ *       the search backend call (the Elasticsearch round trip, or the in-process Lucene search)
+ *       and building the response in this process</li>
+ *   <li>{@code docsearch.search.inflight}: requests currently executing, per endpoint</li>
+ * </ul>
+ * The request and bulk timers publish percentile histograms, so p95/p99 can be aggregated
+ * across instances. The stage timers do not: with about 70 buckets per series, stage x fileType
+ * x sizeBucket would add tens of thousands of series, so they report count, total and max.
+ */
+@Component
+public class DocSearchMetrics {
+
+    // file types become a tag; anything else is reported as "other" to bound cardinality
+    private static final Set<String> KNOWN_TYPES = Set.of(
+            "pdf", "doc", "docx", "ppt", "pptx", "xls", "xlsx", "txt", "md", "csv", "html", "htm",
+            "rtf", "odt", "odp", "ods", "xml", "json", "eml", "msg");
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> inflight = new ConcurrentHashMap<>();
+
+    public DocSearchMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void recordStage(String stage, String fileType, long sizeBytes, long nanos) {
+        String type = fileTypeTag(fileType);
+        String bucket = sizeBucket(sizeBytes);
+        timer("docsearch.ingest.stage", false, "stage", stage, "fileType", type, "sizeBucket", bucket)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** One _bulk request of the bulk importer; documents per request go into a distribution summary. */
+    public void recordBulk(int documents, long nanos) {
+        timer("docsearch.ingest.bulk", true).record(nanos, TimeUnit.NANOSECONDS);
+        registry.summary("docsearch.ingest.bulk.documents").record(documents);
+    }
+
+    /**
+     * Starts timing one request to {@code endpoint}; close it (try-with-resources, or when the
+     * response future completes) once the response is built.
+     */
+    public Request request(String endpoint) {
+        AtomicInteger gauge = inflight.computeIfAbsent(endpoint, e -> {
+            AtomicInteger n = new AtomicInteger();
+            Gauge.builder("docsearch.search.inflight", n, AtomicInteger::get)
+                    .description("Requests currently being served")
+                    .tag("endpoint", e)
+                    .register(registry);
+            return n;
+        });
+        gauge.incrementAndGet();
+        return new Request(endpoint, gauge);
+    }
+
+    public static String fileTypeTag(String fileType) {
+        if (fileType == null) return "other";
+        String t = fileType.toLowerCase(Locale.ROOT);
+        return KNOWN_TYPES.contains(t) ? t : "other";
+    }
+
+    public static String sizeBucket(long bytes) {
+        if (bytes < 0) return "unknown";
+        if (bytes < 100 * 1024) return "lt100k";
+        if (bytes < 1024 * 1024) return "100k-1m";
+        if (bytes < 10 * 1024 * 1024) return "1m-10m";
+        return "gte10m";
+    }
+
+    private Timer timer(String name, boolean histogram, String... tags) {
+        String key = name + String.join("|", tags);
+        Timer t = timers.get(key);
+        if (t != null) return t;
+        return timers.computeIfAbsent(key, k -> Timer.builder(name)
+                .tags(tags)
+                .publishPercentileHistogram(histogram)
+                .register(registry));
+    }
+
+    public final class Request implements AutoCloseable {
+        private final String endpoint;
+        private final AtomicInteger gauge;
+
+        private Request(String endpoint, AtomicInteger gauge) {
+            this.endpoint = endpoint;
+            this.gauge = gauge;
+        }
+
+        /** Records an async search backend call as this endpoint's ES round trip once it completes or fails. */
+        public <T> CompletableFuture<T> esAsync(Supplier<CompletableFuture<T>> call) {
+            long start = System.nanoTime();
+            CompletableFuture<T> future;
+            try {
+                future = call.get();
+            } catch (RuntimeException e) {
+                // request validation fails before anything is sent
+                future = CompletableFuture.failedFuture(e);
+            }
+            return future.whenComplete((r, e) ->
+                    timer("docsearch.search.es", true, "endpoint", endpoint).record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        }
+
+        /** Runs in-process response building and records it as this endpoint's mapping time. */
+        public <T> T mapping(Supplier<T> work) {
+            long start = System.nanoTime();
+            try {
+                return work.get();
+            } finally {
+                timer("docsearch.search.mapping", true, "endpoint", endpoint).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        public void close() {
+            gauge.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.aadesh.docsearch.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Corpus-wide document frequency of terms, for IDF weighting of extracted keywords.
+ *
+ * Counts live in a count-min sketch keyed by the 64-bit term hash from {@link KeywordExtractor},
+ * so memory is fixed (depth x width ints) however large the vocabulary grows. Conservative update
+ * keeps the usual over-estimate small for rare terms. The sketch is updated as each new document
+ * is written. It is saved to {@code <storage-dir>/.stats} on a timer, only when it changed, and
+ * on shutdown, so the cost of rewriting it stays bounded however fast documents arrive.
+ */
+@Service
+public class DocumentFrequencyTable {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentFrequencyTable.class);
+    private static final int MAGIC = 0x44465331; // "DFS1"
+    private static final int DEPTH = 4;
+
+    private final int width;
+    private final int mask;
+    private final int[] counts;
+    private final Path file;
+    private final ScheduledExecutorService flusher;
+    private final Object saveLock = new Object();
+    private long documents;
+    private volatile long savedDocuments;
+
+    public DocumentFrequencyTable(@Value("${file.storage-dir:./uploaded_files}") String storageDirPath,
+                                  @Value("${docsearch.keywords.df-sketch-width:1048576}") int width,
+                                  @Value("${docsearch.keywords.df-flush-interval-seconds:60}") int flushIntervalSeconds) {
+        this.width = Integer.highestOneBit(Math.max(1024, width));
+        this.mask = this.width - 1;
+        this.counts = new int[DEPTH * this.width];
+        this.file = Paths.get(storageDirPath).resolve(".stats").resolve("document-frequency.bin");
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "df-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        load();
+        // 0 disables the timer; the sketch is then only saved on shutdown
+        if (flushIntervalSeconds > 0) {
+            flusher.scheduleWithFixedDelay(this::saveIfChanged, flushIntervalSeconds, flushIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /** Records one document containing each of the first {@code n} distinct term hashes. */
+    public synchronized void addDocument(long[] termHashes, int n) {
+        for (int i = 0; i < n; i++) {
+            long h = termHashes[i];
+            int min = estimateLocked(h);
+            // conservative update: only raise the rows that are at the current minimum
+            for (int row = 0; row < DEPTH; row++) {
+                int idx = row * width + slot(h, row);
+                if (counts[idx] == min) counts[idx] = min + 1;
+            }
+        }
+        documents++;
+    }
+
+    /** Smoothed inverse document frequency; 1.0 for every term while the corpus is empty. */
+    public double idf(long termHash) {
+        double[] out = new double[1];
+        idf(new long[] {termHash}, 1, out);
+        return out[0];
+    }
+
+    /** {@link #idf(long)} of the first {@code n} hashes into {@code out}, under a single lock. */
+    public synchronized void idf(long[] termHashes, int n, double[] out) {
+        double corpus = 1.0 + documents;
+        for (int i = 0; i < n; i++) out[i] = Math.log(corpus / (1.0 + estimateLocked(termHashes[i]))) + 1.0;
+    }
+
+    public synchronized long getDocuments() {
+        return documents;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("documents", getDocuments());
+        m.put("savedDocuments", savedDocuments);
+        m.put("sketchWidth", width);
+        m.put("sketchDepth", DEPTH);
+        m.put("file", file.toString());
+        return m;
+    }
+
+    private int estimateLocked(long h) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) min = Math.min(min, counts[row * width + slot(h, row)]);
+        return min;
+    }
+
+    private int slot(long h, int row) {
+        // derive the row hashes from the two halves of the 64-bit hash (Kirsch-Mitzenmacher)
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        int x = h1 + row * h2;
+        x ^= x >>> 16;
+        return x & mask;
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(file)) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != DEPTH || in.readInt() != width) {
+                log.warn("Ignoring {}: written with a different sketch size", file);
+                return;
+            }
+            long docs = in.readLong();
+            for (int i = 0; i < counts.length; i++) counts[i] = in.readInt();
+            documents = docs;
+            savedDocuments = docs;
+            log.info("Loaded document frequencies for {} documents", docs);
+        } catch (Exception e) {
+            log.warn("Could not load {}; starting with empty document frequencies", file, e);
+        }
+    }
+
+    /** Writes a snapshot to a temp file and renames it over the previous one. */
+    public void save() {
+        // the timer and shutdown share one temp file
+        synchronized (saveLock) {
+            saveSnapshot();
+        }
+    }
+
+    private void saveSnapshot() {
+        int[] snapshot;
+        long docs;
+        synchronized (this) {
+            snapshot = counts.clone();
+            docs = documents;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(DEPTH);
+                out.writeInt(width);
+                out.writeLong(docs);
+                for (int c : snapshot) out.writeInt(c);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            savedDocuments = docs;
+        } catch (Exception e) {
+            log.warn("Could not save document frequencies to {}", file, e);
+        }
+    }
+
+    private void saveIfChanged() {
+        if (getDocuments() != savedDocuments) save();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        saveIfChanged();
+    }
+}
@@ -0,0 +1,32 @@
+package com.aadesh.docsearch.service;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.aadesh.docsearch.model.DocumentEntity;
+
+/**
+ * Hook for in-memory structures derived from the document index.
+ *
+ * {@link IndexService} and the bulk importer call {@link #onIndexed} after a document has
+ * been written, and {@link IndexReplayService} replays every stored document through the
+ * same method at startup so the structure can be rebuilt without re-parsing anything.
+ * Replayed documents only carry {@code id} plus the fields named by {@link #replayFields()}.
+ *
+ * Every listener is replayed on every start. A document can change in place without passing
+ * through {@link #onIndexed} (the blob migration rewrites {@code downloadUrl}), so a listener
+ * keeping its own copy across restarts could not tell from the store that it is stale.
+ */
+public interface DocumentIndexListener {
+
+    void onIndexed(DocumentEntity doc);
+
+    /** _source fields this listener needs during startup replay. */
+    default Collection<String> replayFields() {
+        return List.of();
+    }
+
+    /** Called after a replay has fed this listener every stored document. */
+    default void onReplayCompleted() {
+    }
+}
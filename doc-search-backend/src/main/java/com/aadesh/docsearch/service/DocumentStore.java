@@ -0,0 +1,78 @@
+package com.aadesh.docsearch.service;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import com.aadesh.docsearch.model.DocumentEntity;
+import com.aadesh.docsearch.model.PassageEntity;
+
+/**
+ * Where documents are written and looked up, selected with {@code docsearch.search.backend}
+ * together with the matching {@link SearchBackend}: the documents alias on Elasticsearch, or
+ * the in-process Lucene index, which then is the store of record and needs no cluster.
+ *
+ * Uploads, bulk imports, the blob migration, the startup replay and the file endpoints go
+ * through here. Writes replace any earlier version with the same id; lookups by id see every
+ * write that has returned.
+ */
+public interface DocumentStore {
+
+    /** Writes a document and its passages. */
+    DocumentEntity save(DocumentEntity doc, List<PassageEntity> passages) throws IOException;
+
+    /**
+     * Writes a batch of documents and their passages in one request. Throws if the request as a
+     * whole failed, in which case part of the batch may still have been written.
+     */
+    BatchResult saveAll(Collection<DocumentEntity> docs, Collection<PassageEntity> passages) throws IOException;
+
+    Optional<DocumentEntity> findById(String id);
+
+    /** The document first ingested with this content, never a dedup alias of it. */
+    Optional<DocumentEntity> findOriginal(String sha256);
+
+    /** Passages of a document in order; empty when this store keeps none. */
+    List<PassageEntity> passagesOf(String documentId);
+
+    /** Whether passages handed to {@link #save} and {@link #saveAll} are kept. */
+    boolean keepsPassages();
+
+    /** Feeds every stored document to {@code action}, carrying {@code id} and {@code fields} only. */
+    void scan(Collection<String> fields, int batchSize, Consumer<DocumentEntity> action) throws IOException;
+
+    /**
+     * Points documents at the file now holding their original. Returns the id and reason of each
+     * update that failed; the others have been written.
+     */
+    Map<String, String> updateStoredFiles(List<StoredFileUpdate> updates) throws IOException;
+
+    /** Outcome of {@link #saveAll}. */
+    final class BatchResult {
+        /** Document id to why it was not written; documents not listed were written. */
+        public final Map<String, String> failed;
+        /** Document id to why a passage of it was not written. */
+        public final Map<String, String> failedPassages;
+
+        public BatchResult(Map<String, String> failed, Map<String, String> failedPassages) {
+            this.failed = failed;
+            this.failedPassages = failedPassages;
+        }
+    }
+
+    /** New {@code downloadUrl} and {@code sha256} of one document. */
+    final class StoredFileUpdate {
+        public final String id;
+        public final String downloadUrl;
+        public final String sha256;
+
+        public StoredFileUpdate(String id, String downloadUrl, String sha256) {
+            this.id = id;
+            this.downloadUrl = downloadUrl;
+            this.sha256 = sha256;
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package com.aadesh.docsearch.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.aadesh.docsearch.model.BulkImportJob;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Ingests files dropped into the directories of {@code docsearch.watch.dirs}.
+ *
+ * A {@link WatchService} reports new and changed files. A file is taken once it has not
+ * changed for {@code docsearch.watch.quiet-ms}, so files still being copied in are left alone.
+ * Hidden files and names ending in {@code docsearch.watch.ignore-suffixes} are never taken,
+ * which covers writers that upload under a temporary name and rename when done. Ready files
+ * go to the {@link BulkImportService} as one import of up to {@code docsearch.watch.batch-size}
+ * files, read where they lie. Only one watcher import runs at a time, so under a burst the
+ * batches grow instead of the job count.
+ *
+ * Imported files are recorded with their size and modification time in
+ * {@code <storage-dir>/.watch/checkpoint.tsv}. On startup the directories are listed once and
+ * only files missing from the checkpoint, or changed since, are imported. Files that failed
+ * for a passing reason (a parse timeout, a busy parser, I/O or Elasticsearch errors; see
+ * {@link BulkImportService#isFinalFailure}) go back to the pending files and are tried again
+ * after {@code docsearch.watch.retry-backoff-ms}, doubled after every further failure, up to
+ * {@code docsearch.watch.max-attempts} imports in all. A file that still fails is not recorded
+ * and is tried again on the next start. Files the parser rejected are recorded, so they are not
+ * parsed again until they change.
+ */
+@Service
+public class DropFolderWatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(DropFolderWatcher.class);
+
+    // BulkImportJob reports at most 1000 failures, and every failed file must be seen to retry it
+    private static final int MAX_BATCH = 1000;
+
+    private final BulkImportService bulkImportService;
+    private final List<Path> dirs;
+    private final boolean recursive;
+    private final long quietMillis;
+    private final long pollMillis;
+    private final int batchSize;
+    private final List<String> ignoreSuffixes;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final Checkpoint checkpoint;
+
+    // owned by the watcher thread
+    private final Map<WatchKey, Path> keys = new HashMap<>();
+    private final Map<Path, Pending> pending = new HashMap<>();
+    private final Map<Path, Pending> ready = new LinkedHashMap<>();
+
+    // files handed to an import that has not finished yet
+    private final Set<Path> queued = ConcurrentHashMap.newKeySet();
+    // files whose import failed for a passing reason, handed back to the watcher thread
+    private final Queue<Map.Entry<Path, Pending>> retries = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean importRunning = new AtomicBoolean();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder indexed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+    private volatile int pendingCount;
+    private volatile int readyCount;
+    private volatile String lastJobId;
+    private volatile Thread thread;
+
+    public DropFolderWatcher(BulkImportService bulkImportService,
+                             @Value("${file.storage-dir:./uploaded_files}") String storageDirPath,
+                             @Value("${docsearch.watch.dirs:}") String dirs,
+                             @Value("${docsearch.watch.recursive:true}") boolean recursive,
+                             @Value("${docsearch.watch.quiet-ms:2000}") long quietMillis,
+                             @Value("${docsearch.watch.poll-ms:500}") long pollMillis,
+                             @Value("${docsearch.watch.batch-size:500}") int batchSize,
+                             @Value("${docsearch.watch.ignore-suffixes:.tmp,.part,.partial,.crdownload,.filepart,.swp}")
+                             String ignoreSuffixes,
+                             @Value("${docsearch.watch.max-attempts:5}") int maxAttempts,
+                             @Value("${docsearch.watch.retry-backoff-ms:30000}") long retryBackoffMillis) {
+        this.bulkImportService = bulkImportService;
+        this.dirs = Arrays.stream(dirs.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(s -> Paths.get(s).toAbsolutePath().normalize())
+                .toList();
+        this.recursive = recursive;
+        this.quietMillis = Math.max(0, quietMillis);
+        this.pollMillis = Math.max(50, pollMillis);
+        this.batchSize = Math.max(1, Math.min(MAX_BATCH, batchSize));
+        this.ignoreSuffixes = Arrays.stream(ignoreSuffixes.split(","))
+                .map(s -> s.trim().toLowerCase(Locale.ROOT))
+                .filter(s -> !s.isEmpty())
+                .toList();
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMillis = Math.max(0, retryBackoffMillis);
+        this.checkpoint = new Checkpoint(Paths.get(storageDirPath).resolve(".watch").resolve("checkpoint.tsv"));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (dirs.isEmpty()) return;
+        Thread t = new Thread(this::watch, "drop-folder-watcher");
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread t = thread;
+        if (t != null) t.interrupt();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("dirs", dirs.stream().map(Path::toString).toList());
+        m.put("running", thread != null && thread.isAlive());
+        m.put("pending", pendingCount);
+        m.put("ready", readyCount);
+        m.put("importing", queued.size());
+        m.put("batches", batches.sum());
+        m.put("indexed", indexed.sum());
+        m.put("failed", failed.sum());
+        m.put("retried", retried.sum());
+        m.put("abandoned", abandoned.sum());
+        m.put("lastJobId", lastJobId);
+        m.put("checkpointed", checkpoint.size());
+        return m;
+    }
+
+    private void watch() {
+        try (WatchService ws = FileSystems.getDefault().newWatchService()) {
+            checkpoint.load();
+            Set<Path> present = new HashSet<>();
+            List<Path> scanned = new ArrayList<>();
+            for (Path dir : dirs) {
+                if (!Files.isDirectory(dir)) {
+                    log.warn("Drop folder {} does not exist and is not watched", dir);
+                    continue;
+                }
+                register(ws, dir, present);
+                scanned.add(dir);
+            }
+            checkpoint.retain(scanned, present);
+            log.info("Watching {} for new files, {} found on startup", scanned, pending.size());
+
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = ws.poll(pollMillis, TimeUnit.MILLISECONDS);
+                while (key != null) {
+                    handle(ws, key);
+                    key = ws.poll();
+                }
+                requeue();
+                checkPending();
+                dispatch();
+                pendingCount = pending.size();
+                readyCount = ready.size();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // shutting down
+        } catch (IOException | RuntimeException e) {
+            log.error("Drop-folder watcher stopped", e);
+        } finally {
+            checkpoint.close();
+        }
+    }
+
+    // registers dir (and with recursive, every directory below it) and picks up the files already there
+    private void register(WatchService ws, Path dir, Set<Path> present) throws IOException {
+        try (Stream<Path> paths = recursive ? Files.walk(dir) : Stream.concat(Stream.of(dir), Files.list(dir))) {
+            for (Path p : (Iterable<Path>) paths::iterator) {
+                if (Files.isDirectory(p, LinkOption.NOFOLLOW_LINKS)) {
+                    if (!isIgnored(p) || p.equals(dir)) {
+                        keys.put(p.register(ws, StandardWatchEventKinds.ENTRY_CREATE,
+                                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), p);
+                    }
+                } else {
+                    if (present != null) present.add(p);
+                    consider(p);
+                }
+            }
+        }
+    }
+
+    private void handle(WatchService ws, WatchKey key) throws IOException {
+        Path dir = keys.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (dir == null) break;
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                register(ws, dir, null); // events were lost; look at everything again
+                continue;
+            }
+            Path child = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                pending.remove(child);
+                ready.remove(child);
+            } else if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                if (recursive && event.kind() == StandardWatchEventKinds.ENTRY_CREATE && !isIgnored(child)) {
+                    register(ws, child, null);
+                }
+            } else {
+                consider(child);
+            }
+        }
+        if (!key.reset()) keys.remove(key);
+    }
+
+    // starts, or restarts, the quiet period of a file that is new or has changed
+    private void consider(Path file) {
+        if (isIgnored(file) || queued.contains(file)) return;
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            return; // gone again, or not readable yet
+        }
+        if (!attrs.isRegularFile()) return;
+        long size = attrs.size();
+        long modified = attrs.lastModifiedTime().toMillis();
+        if (checkpoint.isDone(file, size, modified)) return;
+        ready.remove(file);
+        Pending p = pending.get(file);
+        if (p == null) {
+            pending.put(file, new Pending(size, modified, System.currentTimeMillis()));
+        } else if (p.size != size || p.modified != modified) {
+            p.changed(size, modified, System.currentTimeMillis());
+        }
+    }
+
+    // puts files that failed for a passing reason back among the pending ones, to wait out their backoff
+    private void requeue() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Path, Pending> r; (r = retries.poll()) != null; ) {
+            Pending p = r.getValue();
+            p.retryAt = now + retryDelay(retryBackoffMillis, p.attempts);
+            pending.put(r.getKey(), p);
+        }
+    }
+
+    // moves files that stayed unchanged for the quiet period to the ready list
+    private void checkPending() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Path, Pending>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, Pending> e = it.next();
+            Pending p = e.getValue();
+            if (now - p.changedAt < quietMillis || now < p.retryAt) continue;
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(e.getKey(), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException ex) {
+                it.remove();
+                continue;
+            }
+            if (attrs.size() != p.size || attrs.lastModifiedTime().toMillis() != p.modified) {
+                p.changed(attrs.size(), attrs.lastModifiedTime().toMillis(), now);
+                continue;
+            }
+            it.remove();
+            ready.put(e.getKey(), p);
+        }
+    }
+
+    private void dispatch() {
+        if (ready.isEmpty() || !importRunning.compareAndSet(false, true)) return;
+        Map<Path, Pending> batch = new LinkedHashMap<>();
+        Iterator<Map.Entry<Path, Pending>> it = ready.entrySet().iterator();
+        while (it.hasNext() && batch.size() < batchSize) {
+            Map.Entry<Path, Pending> e = it.next();
+            batch.put(e.getKey(), e.getValue());
+            it.remove();
+        }
+        queued.addAll(batch.keySet());
+        BulkImportJob job;
+        try {
+            job = bulkImportService.importFiles("watch(" + batch.size() + " files)",
+                    new ArrayList<>(batch.keySet()), j -> finished(j, batch));
+        } catch (RuntimeException e) {
+            // finished() never runs for this batch; its files wait out a backoff like failed ones
+            queued.removeAll(batch.keySet());
+            importRunning.set(false);
+            log.warn("Could not start an import of {} dropped files", batch.size(), e);
+            int gaveUp = retry(batch, batch.keySet().stream().map(Path::toString).collect(Collectors.toSet()));
+            if (gaveUp > 0) log.warn("Gave up on {} dropped files until the next start", gaveUp);
+            requeue();
+            return;
+        }
+        batches.increment();
+        lastJobId = job.getId();
+    }
+
+    // runs on the bulk import coordinator thread
+    private void finished(BulkImportJob job, Map<Path, Pending> batch) {
+        try {
+            indexed.add(job.getIndexed());
+            Set<String> retry = new HashSet<>();
+            if (job.getState() == BulkImportJob.State.FAILED) {
+                batch.keySet().forEach(p -> retry.add(p.toString()));
+            } else {
+                for (BulkImportJob.Failure f : job.getFailures()) {
+                    if (!BulkImportService.isFinalFailure(f.stage)) retry.add(f.file);
+                }
+            }
+            failed.add(job.getFailed());
+            Map<Path, Pending> done = new LinkedHashMap<>(batch);
+            done.keySet().removeIf(p -> retry.contains(p.toString()));
+            checkpoint.markDone(done);
+            if (!retry.isEmpty()) {
+                int gaveUp = retry(batch, retry);
+                log.warn("Import {} could not import {} dropped files; {} are tried again, {} wait for the next start",
+                        job.getId(), retry.size(), retry.size() - gaveUp, gaveUp);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not checkpoint import {}", job.getId(), e);
+        } finally {
+            queued.removeAll(batch.keySet());
+            importRunning.set(false);
+        }
+    }
+
+    /**
+     * Hands the failed files of {@code batch} back to the watcher thread unless they have had
+     * {@code docsearch.watch.max-attempts} imports; returns how many were given up on.
+     */
+    private int retry(Map<Path, Pending> batch, Set<String> failedFiles) {
+        int gaveUp = 0;
+        for (Map.Entry<Path, Pending> e : batch.entrySet()) {
+            if (!failedFiles.contains(e.getKey().toString())) continue;
+            Pending p = e.getValue();
+            if (++p.attempts >= maxAttempts) {
+                gaveUp++;
+                abandoned.increment();
+            } else {
+                retried.increment();
+                retries.add(Map.entry(e.getKey(), p));
+            }
+        }
+        return gaveUp;
+    }
+
+    /** Wait before import number {@code attempts + 1} of a file: the backoff, doubled per earlier failure. */
+    static long retryDelay(long backoffMillis, int attempts) {
+        return backoffMillis << Math.min(Math.max(0, attempts - 1), 20);
+    }
+
+    private boolean isIgnored(Path file) {
+        Path name = file.getFileName();
+        if (name == null) return false;
+        String n = name.toString().toLowerCase(Locale.ROOT);
+        if (n.startsWith(".")) return true;
+        for (String suffix : ignoreSuffixes) {
+            if (n.endsWith(suffix)) return true;
+        }
+        return false;
+    }
+
+    static final class Pending {
+        long size;
+        long modified;
+        long changedAt;
+        // failed imports so far, and when the next may start; a changed file starts over
+        int attempts;
+        long retryAt;
+
+        Pending(long size, long modified, long changedAt) {
+            this.size = size;
+            this.modified = modified;
+            this.changedAt = changedAt;
+        }
+
+        void changed(long size, long modified, long now) {
+            this.size = size;
+            this.modified = modified;
+            this.changedAt = now;
+            this.attempts = 0;
+            this.retryAt = 0;
+        }
+    }
+
+    /**
+     * Append-only log of imported files, one {@code size<TAB>modified<TAB>path} line each,
+     * rewritten without stale lines when it has grown to twice the live entries.
+     */
+    static final class Checkpoint {
+        private final Path file;
+        private final Map<Path, long[]> done = new HashMap<>();
+        private long lines;
+        private Writer out;
+
+        Checkpoint(Path file) {
+            this.file = file;
+        }
+
+        synchronized void load() throws IOException {
+            Files.createDirectories(file.getParent());
+            done.clear();
+            lines = 0;
+            try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                for (String line; (line = in.readLine()) != null; ) {
+                    String[] parts = line.split("\t", 3);
+                    if (parts.length < 3) continue; // torn last line after a crash
+                    try {
+                        done.put(Paths.get(parts[2]), new long[] {Long.parseLong(parts[0]), Long.parseLong(parts[1])});
+                        lines++;
+                    } catch (RuntimeException e) {
+                        // not a line we wrote
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                // first start
+            }
+        }
+
+        synchronized boolean isDone(Path path, long size, long modified) {
+            long[] e = done.get(path);
+            return e != null && e[0] == size && e[1] == modified;
+        }
+
+        synchronized int size() {
+            return done.size();
+        }
+
+        synchronized void markDone(Map<Path, Pending> files) throws IOException {
+            if (files.isEmpty()) return;
+            if (out == null) {
+                out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            for (Map.Entry<Path, Pending> e : files.entrySet()) {
+                done.put(e.getKey(), new long[] {e.getValue().size, e.getValue().modified});
+                out.write(e.getValue().size + "\t" + e.getValue().modified + "\t" + e.getKey() + "\n");
+                lines++;
+            }
+            out.flush();
+            if (lines > 2L * done.size() + 1000) compact();
+        }
+
+        /** Forgets files below the scanned directories that are no longer there. */
+        synchronized void retain(List<Path> scanned, Set<Path> present) throws IOException {
+            int before = done.size();
+            done.keySet().removeIf(p -> !present.contains(p) && scanned.stream().anyMatch(p::startsWith));
+            if (done.size() != before || lines != done.size()) compact();
+        }
+
+        synchronized void close() {
+            try {
+                if (out != null) out.close();
+            } catch (IOException ignored) {
+            }
+            out = null;
+        }
+
+        private void compact() throws IOException {
+            close();
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<Path, long[]> e : done.entrySet()) {
+                    w.write(e.getValue()[0] + "\t" + e.getValue()[1] + "\t" + e.getKey() + "\n");
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lines = done.size();
+        }
+    }
+}
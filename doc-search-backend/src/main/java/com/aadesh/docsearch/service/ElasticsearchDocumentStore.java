@@ -0,0 +1,181 @@
+package com.aadesh.docsearch.service;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
+import org.springframework.stereotype.Service;
+
+import com.aadesh.docsearch.config.IndexNames;
+import com.aadesh.docsearch.model.DocumentEntity;
+import com.aadesh.docsearch.model.PassageEntity;
+import com.aadesh.docsearch.repository.DocumentRepository;
+import com.aadesh.docsearch.repository.PassageRepository;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+
+/**
+ * {@link DocumentStore} on the documents alias and the passage index. Every write holds an
+ * {@link IndexWriteFence} permit, and while a reindex is running it also goes to the index being
+ * built. Batches are sent as one _bulk request.
+ */
+@Service
+@ConditionalOnProperty(name = "docsearch.search.backend", havingValue = "elasticsearch", matchIfMissing = true)
+public class ElasticsearchDocumentStore implements DocumentStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ElasticsearchDocumentStore.class);
+
+    private final DocumentRepository repo;
+    private final PassageRepository passageRepo;
+    private final ElasticsearchOperations operations;
+    private final ElasticsearchClient esClient;
+    private final IndexWriteFence writeFence;
+    private final String indexName;
+    private final String passageIndexName;
+
+    public ElasticsearchDocumentStore(DocumentRepository repo, PassageRepository passageRepo,
+                                      ElasticsearchOperations operations, ElasticsearchClient esClient,
+                                      IndexWriteFence writeFence, IndexNames indexNames) {
+        this.repo = repo;
+        this.passageRepo = passageRepo;
+        this.operations = operations;
+        this.esClient = esClient;
+        this.writeFence = writeFence;
+        this.indexName = indexNames.getDocuments();
+        this.passageIndexName = indexNames.getPassages();
+    }
+
+    @Override
+    public DocumentEntity save(DocumentEntity doc, List<PassageEntity> passages) {
+        try (IndexWriteFence.Permit permit = writeFence.enter()) {
+            DocumentEntity saved = repo.save(doc);
+            if (!passages.isEmpty()) passageRepo.saveAll(passages);
+            if (permit.shadowIndex != null) saveToShadow(saved, permit);
+            return saved;
+        }
+    }
+
+    // a reindex is building the next index version; it must get this document as well
+    private void saveToShadow(DocumentEntity doc, IndexWriteFence.Permit permit) {
+        try {
+            operations.save(doc, IndexCoordinates.of(permit.shadowIndex));
+        } catch (RuntimeException e) {
+            permit.shadowFailed();
+            log.warn("Could not write document {} to {}", doc.getId(), permit.shadowIndex, e);
+        }
+    }
+
+    @Override
+    public BatchResult saveAll(Collection<DocumentEntity> docs, Collection<PassageEntity> passages) throws IOException {
+        try (IndexWriteFence.Permit permit = writeFence.enter()) {
+            String shadow = permit.shadowIndex;
+            BulkRequest.Builder br = new BulkRequest.Builder();
+            for (DocumentEntity d : docs) {
+                br.operations(op -> op.index(idx -> idx.index(indexName).id(d.getId()).document(d)));
+                if (shadow != null) br.operations(op -> op.index(idx -> idx.index(shadow).id(d.getId()).document(d)));
+            }
+            for (PassageEntity passage : passages) {
+                br.operations(op -> op.index(idx -> idx.index(passageIndexName).id(passage.getId()).document(passage)));
+            }
+            BulkResponse resp;
+            try {
+                resp = esClient.bulk(br.build());
+            } catch (IOException | RuntimeException e) {
+                if (shadow != null) permit.shadowFailed();
+                throw e;
+            }
+            Map<String, String> failed = new HashMap<>();
+            Map<String, String> failedPassages = new HashMap<>();
+            for (BulkResponseItem item : resp.items()) {
+                if (item.error() == null) continue;
+                if (shadow != null && shadow.equals(item.index())) {
+                    permit.shadowFailed();
+                } else if (passageIndexName.equals(item.index())) {
+                    failedPassages.put(item.id().substring(0, item.id().lastIndexOf('_')), item.error().reason());
+                } else {
+                    failed.put(item.id(), item.error().reason());
+                }
+            }
+            return new BatchResult(failed, failedPassages);
+        }
+    }
+
+    @Override
+    public Optional<DocumentEntity> findById(String id) {
+        return repo.findById(id);
+    }
+
+    @Override
+    public Optional<DocumentEntity> findOriginal(String sha256) {
+        return repo.findFirstBySha256AndAliasOfIsNull(sha256);
+    }
+
+    @Override
+    public List<PassageEntity> passagesOf(String documentId) {
+        try (Stream<PassageEntity> passages = passageRepo.findByDocumentId(documentId)) {
+            return passages.sorted(Comparator.comparing(PassageEntity::getOrdinal)).toList();
+        }
+    }
+
+    @Override
+    public boolean keepsPassages() {
+        return true;
+    }
+
+    // a scroll that fetches only the requested fields, so document bodies are not loaded for it
+    @Override
+    public void scan(Collection<String> fields, int batchSize, Consumer<DocumentEntity> action) {
+        Set<String> includes = new LinkedHashSet<>();
+        includes.add("id");
+        includes.addAll(fields);
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(Query.of(q -> q.matchAll(m -> m)))
+                .withSourceFilter(new FetchSourceFilterBuilder().withIncludes(includes.toArray(new String[0])).build())
+                .withPageable(PageRequest.of(0, Math.max(1, batchSize)))
+                .build();
+        try (SearchHitsIterator<DocumentEntity> it = operations.searchForStream(query, DocumentEntity.class)) {
+            while (it.hasNext()) action.accept(it.next().getContent());
+        }
+    }
+
+    // partial-document updates in one _bulk request
+    @Override
+    public Map<String, String> updateStoredFiles(List<StoredFileUpdate> updates) throws IOException {
+        Map<String, String> failed = new HashMap<>();
+        if (updates.isEmpty()) return failed;
+        BulkRequest.Builder br = new BulkRequest.Builder();
+        for (StoredFileUpdate u : updates) {
+            Map<String, Object> fields = Map.of("downloadUrl", u.downloadUrl, "sha256", u.sha256);
+            br.operations(op -> op.update(up -> up.index(indexName).id(u.id).action(a -> a.doc(fields))));
+        }
+        BulkResponse resp;
+        try (IndexWriteFence.Permit permit = writeFence.enter()) {
+            resp = esClient.bulk(br.build());
+        }
+        for (BulkResponseItem item : resp.items()) {
+            if (item.error() != null) failed.put(item.id(), item.error().reason());
+        }
+        return failed;
+    }
+}
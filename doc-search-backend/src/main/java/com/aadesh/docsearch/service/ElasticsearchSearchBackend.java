@@ -0,0 +1,126 @@
+package com.aadesh.docsearch.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.aadesh.docsearch.config.IndexNames;
+import com.aadesh.docsearch.model.DocumentEntity;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Highlight;
+import co.elastic.clients.elasticsearch.core.search.HighlightField;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+
+/** {@link SearchBackend} on the documents alias, through the async client. */
+@Service
+@ConditionalOnProperty(name = "docsearch.search.backend", havingValue = "elasticsearch", matchIfMissing = true)
+public class ElasticsearchSearchBackend implements SearchBackend {
+
+    private final ElasticsearchAsyncClient esClient;
+    private final String indexName;
+
+    public ElasticsearchSearchBackend(ElasticsearchAsyncClient esClient, IndexNames indexNames) {
+        this.esClient = esClient;
+        this.indexName = indexNames.getDocuments();
+    }
+
+    @Override
+    public String name() {
+        return "elasticsearch";
+    }
+
+    @Override
+    public CompletableFuture<Result> search(String q, int from, int size, boolean highlight, int tagBuckets) {
+        return esClient.search(s -> {
+                    s.index(indexName)
+                            .from(from)
+                            .size(size)
+                            .source(src -> src.filter(f -> f.excludes("content", "minhash")))
+                            .query(bestFields(q));
+                    if (highlight) s.highlight(highlight());
+                    if (tagBuckets > 0) s.aggregations("tags", a -> a.terms(t -> t.field("tags").size(tagBuckets)));
+                    return s;
+                }, DocumentEntity.class)
+                .thenApply(resp -> new Result(totalOf(resp), toHits(resp.hits().hits()), tagsOf(resp.aggregations().get("tags"))));
+    }
+
+    @Override
+    public CompletableFuture<Result> prefixSearch(String q, int size, Collection<String> sourceFields) {
+        List<String> fields = new ArrayList<>(sourceFields);
+        return esClient.search(s -> s
+                                .index(indexName)
+                                .size(size)
+                                .query(qb -> qb.multiMatch(mm -> mm
+                                        .query(q)
+                                        .fields("filename^3", "tags^5", "content")
+                                        .type(TextQueryType.BoolPrefix)))
+                                .source(src -> src.filter(f -> f.includes(fields))),
+                        DocumentEntity.class)
+                .thenApply(resp -> new Result(totalOf(resp), toHits(resp.hits().hits()), Map.of()));
+    }
+
+    @Override
+    public boolean supportsCursorPaging() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsPassages() {
+        return true;
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        return Map.of("backend", name(), "index", indexName);
+    }
+
+    /** The document query of the search endpoints; also the filter of cursor paging and the NDJSON export. */
+    public static Query bestFields(String q) {
+        return Query.of(qb -> qb
+                .multiMatch(mm -> mm
+                        .query(q)
+                        .fields("content", "filename")
+                        .type(TextQueryType.BestFields)
+                )
+        );
+    }
+
+    public static Highlight highlight() {
+        return Highlight.of(h -> h
+                .preTags("<mark>")
+                .postTags("</mark>")
+                .fields("content", HighlightField.of(hf -> hf.fragmentSize(250).numberOfFragments(3)))
+                .fields("filename", HighlightField.of(hf -> hf.fragmentSize(150).numberOfFragments(1)))
+        );
+    }
+
+    /** Client hits as {@link DocumentHit}s; also used by cursor paging, which queries the cluster directly. */
+    public static List<DocumentHit> toHits(List<Hit<DocumentEntity>> hits) {
+        List<DocumentHit> out = new ArrayList<>(hits.size());
+        for (Hit<DocumentEntity> hit : hits) out.add(new DocumentHit(hit.id(), hit.score(), hit.source(), hit.highlight()));
+        return out;
+    }
+
+    private static long totalOf(SearchResponse<?> resp) {
+        return resp.hits().total() != null ? resp.hits().total().value() : resp.hits().hits().size();
+    }
+
+    private static Map<String, Long> tagsOf(Aggregate agg) {
+        if (agg == null || !agg.isSterms()) return Map.of();
+        Map<String, Long> tags = new LinkedHashMap<>();
+        for (StringTermsBucket b : agg.sterms().buckets().array()) tags.put(b.key().stringValue(), b.docCount());
+        return tags;
+    }
+}
@@ -0,0 +1,89 @@
+package com.aadesh.docsearch.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * SHA-256 of served files, the strong validator behind their ETags.
+ *
+ * Blobs are named by their hash and never come through here; this covers files still in the
+ * flat upload directory and generated files such as page images. The hash is computed from
+ * the file once and remembered against its size and modification time. The map is an
+ * access-ordered LRU of {@code docsearch.files.hash-cache-size} entries.
+ */
+@Service
+public class FileHashCache {
+
+    private final int maxEntries;
+    private final Map<Path, Entry> entries;
+
+    public FileHashCache(@Value("${docsearch.files.hash-cache-size:10000}") int maxEntries) {
+        this.maxEntries = Math.max(16, maxEntries);
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Entry> eldest) {
+                return size() > FileHashCache.this.maxEntries;
+            }
+        };
+    }
+
+    /** Hex SHA-256 of {@code file}, whose current attributes are {@code attrs}. */
+    public String sha256(Path file, BasicFileAttributes attrs) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        long size = attrs.size();
+        long modified = attrs.lastModifiedTime().toMillis();
+        Entry e;
+        synchronized (entries) {
+            e = entries.get(key);
+        }
+        if (e != null && e.size == size && e.modified == modified) return e.sha256;
+
+        String sha256 = hash(file);
+        put(key, new Entry(size, modified, sha256));
+        return sha256;
+    }
+
+    private void put(Path file, Entry e) {
+        synchronized (entries) {
+            entries.put(file.toAbsolutePath().normalize(), e);
+        }
+    }
+
+    /** Hex SHA-256 of a file's content, uncached. */
+    public static String hash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buf = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            for (int n; (n = in.read(buf)) > 0; ) digest.update(buf, 0, n);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static final class Entry {
+        final long size;
+        final long modified;
+        final String sha256;
+
+        Entry(long size, long modified, String sha256) {
+            this.size = size;
+            this.modified = modified;
+            this.sha256 = sha256;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.aadesh.docsearch.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * {@link BlobStore} on the local file system under {@code <storage-dir>/blobs}.
+ *
+ * Blobs are sharded by the leading hex pairs of their key, {@code docsearch.blobs.shard-depth}
+ * levels deep (2 gives {@code ab/cd/abcd...}, 65536 directories), so no directory grows past a
+ * few hundred entries even at tens of millions of files. Types listed in
+ * {@code docsearch.blobs.compress-types} are stored gzipped as {@code <key>.gz} when that saves
+ * at least a tenth of their size; formats that are already compressed (PDF, OOXML, images) are
+ * stored as they are.
+ *
+ * Writes go to {@code blobs/.tmp} and are renamed into place, and the temp directory is
+ * cleared on startup, so a crash never leaves a partial blob behind. {@link #copy} links the
+ * source into place instead of moving it, which costs no I/O when it is on the same file system.
+ */
+@Service
+public class FileSystemBlobStore implements BlobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(FileSystemBlobStore.class);
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}");
+    private static final String GZ_SUFFIX = ".gz";
+
+    private final Path root;
+    private final Path tmpDir;
+    private final int shardDepth;
+    private final Set<String> compressTypes;
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder compressed = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    public FileSystemBlobStore(@Value("${file.storage-dir:./uploaded_files}") String storageDirPath,
+                               @Value("${docsearch.blobs.shard-depth:2}") int shardDepth,
+                               @Value("${docsearch.blobs.compress-types:txt,md,csv,json,xml,html,htm,rtf,log,eml}")
+                               String compressTypes) throws IOException {
+        this.root = Paths.get(storageDirPath).resolve("blobs").toAbsolutePath().normalize();
+        this.tmpDir = root.resolve(".tmp");
+        this.shardDepth = Math.max(0, Math.min(4, shardDepth));
+        this.compressTypes = Arrays.stream(compressTypes.split(","))
+                .map(s -> s.trim().toLowerCase(Locale.ROOT))
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        Files.createDirectories(tmpDir);
+        clearTmp();
+    }
+
+    @Override
+    public String put(Path source, String sha256, String fileType) throws IOException {
+        return store(source, sha256, fileType, true);
+    }
+
+    @Override
+    public String copy(Path source, String sha256, String fileType) throws IOException {
+        return store(source, sha256, fileType, false);
+    }
+
+    private String store(Path source, String sha256, String fileType, boolean consume) throws IOException {
+        String key = sha256.toLowerCase(Locale.ROOT);
+        if (!KEY.matcher(key).matches()) throw new IllegalArgumentException("Not a SHA-256: " + sha256);
+        long size = Files.size(source);
+        bytesIn.add(size);
+
+        Path plain = pathOf(key, false);
+        Path gz = pathOf(key, true);
+        if (Files.exists(plain) || Files.exists(gz)) {
+            if (consume) Files.deleteIfExists(source);
+            deduplicated.increment();
+            return key;
+        }
+        Files.createDirectories(plain.getParent());
+
+        if (fileType != null && compressTypes.contains(fileType.toLowerCase(Locale.ROOT))) {
+            Path tmp = tmpFile(key);
+            try {
+                if (gzip(source, tmp) <= size - size / 10) {
+                    bytesWritten.add(Files.size(tmp));
+                    Files.move(tmp, gz, StandardCopyOption.ATOMIC_MOVE);
+                    if (consume) Files.delete(source);
+                    stored.increment();
+                    compressed.increment();
+                    return key;
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+
+        if (consume) {
+            moveInto(source, plain, key);
+        } else {
+            linkInto(source, plain, key);
+        }
+        bytesWritten.add(size);
+        stored.increment();
+        return key;
+    }
+
+    @Override
+    public Optional<Blob> get(String key) throws IOException {
+        if (key == null || !KEY.matcher(key).matches()) return Optional.empty();
+        for (boolean gz : new boolean[] {false, true}) {
+            Path file = pathOf(key, gz);
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                continue;
+            }
+            long length = gz ? gzipLength(file) : attrs.size();
+            return Optional.of(new Blob(key, file, gz, length, attrs.lastModifiedTime().toMillis()));
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public InputStream open(Blob blob) throws IOException {
+        InputStream in = Files.newInputStream(blob.path);
+        return blob.compressed ? new GZIPInputStream(in, 64 * 1024) : in;
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("dir", root.toString());
+        m.put("shardDepth", shardDepth);
+        m.put("compressTypes", compressTypes);
+        m.put("stored", stored.sum());
+        m.put("deduplicated", deduplicated.sum());
+        m.put("compressed", compressed.sum());
+        m.put("bytesIn", bytesIn.sum());
+        m.put("bytesWritten", bytesWritten.sum());
+        return m;
+    }
+
+    private Path pathOf(String key, boolean gz) {
+        Path dir = root;
+        for (int i = 0; i < shardDepth; i++) dir = dir.resolve(key.substring(2 * i, 2 * i + 2));
+        return dir.resolve(gz ? key + GZ_SUFFIX : key);
+    }
+
+    private Path tmpFile(String key) {
+        return tmpDir.resolve(key + "." + UUID.randomUUID() + ".tmp");
+    }
+
+    // a rename when source and store share a file system, otherwise a copy renamed into place
+    private void moveInto(Path source, Path target, String key) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Path tmp = tmpFile(key);
+            try {
+                Files.copy(source, tmp);
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            Files.delete(source);
+        }
+    }
+
+    // a hard link renamed into place, or a copy where links are not supported (another file system)
+    private void linkInto(Path source, Path target, String key) throws IOException {
+        Path tmp = tmpFile(key);
+        try {
+            try {
+                Files.createLink(tmp, source);
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                Files.copy(source, tmp);
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static long gzip(Path source, Path target) throws IOException {
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(target), 64 * 1024)) {
+            in.transferTo(out);
+        }
+        return Files.size(target);
+    }
+
+    // ISIZE from the gzip trailer: the original length modulo 2^32, exact for anything under 4 GiB
+    private static long gzipLength(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer trailer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            ch.read(trailer, ch.size() - 4);
+            return Integer.toUnsignedLong(trailer.getInt(0));
+        }
+    }
+
+    private void clearTmp() {
+        try (Stream<Path> files = Files.list(tmpDir)) {
+            files.forEach(f -> {
+                try {
+                    Files.deleteIfExists(f);
+                } catch (IOException e) {
+                    log.debug("Could not delete {}", f, e);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Could not clear {}", tmpDir, e);
+        }
+    }
+}
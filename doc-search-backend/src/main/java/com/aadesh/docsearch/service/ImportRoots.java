@@ -0,0 +1,54 @@
+package com.aadesh.docsearch.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The directories a server-side bulk import may read ({@code docsearch.bulk.allowed-roots}).
+ * Roots and requested directories are compared by their real paths, so a symlink inside a root,
+ * or a symlinked directory argument, cannot reach the rest of the host. Imports walk without
+ * following links and only take regular files that are not links themselves.
+ */
+final class ImportRoots {
+
+    private final List<Path> roots;
+
+    ImportRoots(String commaSeparated) {
+        this.roots = Arrays.stream(commaSeparated.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(s -> realPath(Paths.get(s)))
+                .toList();
+    }
+
+    /** The real path of {@code directory}; rejected unless it is an existing directory under a root. */
+    Path resolve(String directory) {
+        Path dir = realPath(Paths.get(directory));
+        if (roots.stream().noneMatch(dir::startsWith)) {
+            throw new IllegalArgumentException("Directory is not under docsearch.bulk.allowed-roots: " + directory);
+        }
+        if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+            throw new IllegalArgumentException("Not a directory: " + directory);
+        }
+        return dir;
+    }
+
+    /** Whether a walked path is a file to import: regular, and not a symlink to somewhere else. */
+    static boolean importable(Path p) {
+        return Files.isRegularFile(p, LinkOption.NOFOLLOW_LINKS);
+    }
+
+    // paths that do not exist (yet) have no real path; they are compared as written
+    private static Path realPath(Path p) {
+        try {
+            return p.toRealPath();
+        } catch (IOException e) {
+            return p.toAbsolutePath().normalize();
+        }
+    }
+}
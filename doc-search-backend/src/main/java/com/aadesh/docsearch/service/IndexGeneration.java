@@ -0,0 +1,30 @@
+package com.aadesh.docsearch.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Monotonic counter bumped on every write to the document index (index, bulk,
+ * update, delete). Anything derived from search results remembers the generation
+ * it was computed at and is stale once the counter moves on.
+ */
+@Component
+public class IndexGeneration {
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile long lastBumpNanos = System.nanoTime();
+
+    public long current() {
+        return generation.get();
+    }
+
+    public long bump() {
+        lastBumpNanos = System.nanoTime();
+        return generation.incrementAndGet();
+    }
+
+    public long millisSinceLastBump() {
+        return (System.nanoTime() - lastBumpNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,81 @@
+package com.aadesh.docsearch.service;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Rebuilds every {@link DocumentIndexListener} from the {@link DocumentStore} once the application
+ * is up. Runs on a background thread with a scan that fetches only the fields the
+ * listeners asked for, so startup is not blocked and document bodies are never loaded for it.
+ */
+@Service
+public class IndexReplayService {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexReplayService.class);
+
+    private final DocumentStore store;
+    private final List<DocumentIndexListener> listeners;
+    private final boolean enabled;
+    private final int batchSize;
+    private volatile boolean completed;
+
+    public IndexReplayService(DocumentStore store, List<DocumentIndexListener> listeners,
+                              @Value("${docsearch.replay.enabled:true}") boolean enabled,
+                              @Value("${docsearch.replay.batch-size:1000}") int batchSize) {
+        this.store = store;
+        this.listeners = listeners;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayOnStartup() {
+        if (!enabled || listeners.isEmpty()) {
+            completed = true;
+            return;
+        }
+        Thread t = new Thread(() -> replay(listeners), "index-replay");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void replay(List<DocumentIndexListener> listeners) {
+        Set<String> fields = new LinkedHashSet<>();
+        listeners.forEach(l -> fields.addAll(l.replayFields()));
+
+        long start = System.currentTimeMillis();
+        LongAdder count = new LongAdder();
+        try {
+            store.scan(fields, batchSize, doc -> {
+                for (DocumentIndexListener l : listeners) {
+                    try {
+                        l.onIndexed(doc);
+                    } catch (Exception e) {
+                        log.warn("Replay of {} into {} failed", doc.getId(), l.getClass().getSimpleName(), e);
+                    }
+                }
+                count.increment();
+            });
+            log.info("Replayed {} documents into {} listeners in {} ms", count.sum(), listeners.size(),
+                    System.currentTimeMillis() - start);
+            listeners.forEach(DocumentIndexListener::onReplayCompleted);
+        } catch (Exception e) {
+            log.warn("Index replay stopped after {} documents", count.sum(), e);
+        } finally {
+            completed = true;
+        }
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+}
@@ -1,31 +1,89 @@
 package com.aadesh.docsearch.service;
 
 import com.aadesh.docsearch.model.DocumentEntity;
-import com.aadesh.docsearch.repository.DocumentRepository;
+import com.aadesh.docsearch.model.IngestJob;
+import com.aadesh.docsearch.model.PassageEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.*;
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 @Service
 public class IndexService {
 
-    private final DocumentRepository repo;
+    private static final Logger log = LoggerFactory.getLogger(IndexService.class);
+
+    /** Length of the stored preview used as the snippet when a hit has no highlight. */
+    public static final int PREVIEW_LENGTH = 250;
+
+    private final DocumentStore store;
     private final TikaService tikaService;
+    private final KeywordExtractor keywordExtractor;
+    private final SimilarityIndex similarityIndex;
+    private final IndexGeneration indexGeneration;
+    private final DocSearchMetrics metrics;
+    private final BlobStore blobStore;
+    private final List<DocumentIndexListener> listeners;
     private final Path storageDir;
     private final int topKeywords;
+    private final String dedupMode;
+    private final boolean passagesEnabled;
+    private final int passageSize;
+    private final int passageOverlap;
+    private final int passageMaxChars;
 
-    public IndexService(DocumentRepository repo, TikaService tikaService,
+    // sha256 -> the document holding that content, for recent and in-flight ingests. An ingest
+    // claims its hash before the store lookup, so an identical upload arriving meanwhile waits for
+    // it instead of also being indexed as an original; this also covers the window before a
+    // freshly saved document is searchable and makes back-to-back duplicates skip the lookup.
+    // Values are text-less references (see reference()), so 10k entries stay small.
+    private final Map<String, CompletableFuture<DocumentEntity>> recentHashes = Collections.synchronizedMap(
+            new LinkedHashMap<>(1024, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<DocumentEntity>> eldest) {
+                    return size() > 10_000;
+                }
+            });
+
+    public IndexService(DocumentStore store, TikaService tikaService, KeywordExtractor keywordExtractor,
+                        SimilarityIndex similarityIndex, IndexGeneration indexGeneration, DocSearchMetrics metrics,
+                        BlobStore blobStore, List<DocumentIndexListener> listeners,
                         @Value("${file.storage-dir:./uploaded_files}") String storageDirPath,
-                        @Value("${docsearch.top-keywords:10}") int topKeywords) {
-        this.repo = repo;
+                        @Value("${docsearch.top-keywords:10}") int topKeywords,
+                        @Value("${docsearch.dedup.mode:existing}") String dedupMode,
+                        @Value("${docsearch.passages.enabled:false}") boolean passagesEnabled,
+                        @Value("${docsearch.passages.size:1000}") int passageSize,
+                        @Value("${docsearch.passages.overlap:200}") int passageOverlap,
+                        @Value("${docsearch.passages.max-chars:1000000}") int passageMaxChars) {
+        this.store = store;
         this.tikaService = tikaService;
+        this.keywordExtractor = keywordExtractor;
+        this.similarityIndex = similarityIndex;
+        this.indexGeneration = indexGeneration;
+        this.metrics = metrics;
+        this.blobStore = blobStore;
+        this.listeners = listeners;
         this.storageDir = Paths.get(storageDirPath);
         this.topKeywords = topKeywords;
+        this.dedupMode = dedupMode.trim().toLowerCase();
+        this.passagesEnabled = passagesEnabled && store.keepsPassages();
+        if (passagesEnabled && !store.keepsPassages()) {
+            log.warn("docsearch.passages.enabled is ignored: the {} store keeps no passages", store.getClass().getSimpleName());
+        }
+        this.passageSize = passageSize;
+        this.passageOverlap = passageOverlap;
+        this.passageMaxChars = passageMaxChars;
         try {
             Files.createDirectories(this.storageDir);
         } catch (Exception e) {
@@ -34,55 +92,302 @@ public class IndexService {
     }
 
     public DocumentEntity indexFile(MultipartFile file) throws Exception {
-        String id = UUID.randomUUID().toString();
         String originalName = Objects.requireNonNull(file.getOriginalFilename());
-        Path target = storageDir.resolve(id + "-" + originalName);
-        Files.copy(file.getInputStream(), target, StandardCopyOption.REPLACE_EXISTING);
+        try (InputStream in = file.getInputStream()) {
+            return indexStream(in, originalName);
+        }
+    }
+
+    public DocumentEntity indexStream(InputStream in, String originalName) throws Exception {
+        return indexStream(in, originalName, stage -> {}).document;
+    }
+
+    /** Prepares and saves a document, reporting each stage as it starts. Duplicates are not saved again. */
+    public PreparedDocument indexStream(InputStream in, String originalName,
+                                        Consumer<IngestJob.Stage> onStage) throws Exception {
+        PreparedDocument prepared = prepareDocument(in, originalName, onStage);
+        if (prepared.existing) return prepared;
+        onStage.accept(IngestJob.Stage.SAVING);
+        long start = System.nanoTime();
+        DocumentEntity saved;
+        try {
+            saved = store.save(prepared.document, prepared.passages);
+        } catch (Exception e) {
+            discard(prepared.document);
+            throw e;
+        }
+        indexGeneration.bump();
+        metrics.recordStage("save", saved.getFileType(), saved.getSize() == null ? -1 : saved.getSize(),
+                System.nanoTime() - start);
+        PreparedDocument written = new PreparedDocument(saved, false, prepared.passages, prepared.keywords);
+        notifyIndexed(written);
+        return written;
+    }
+
+    /** Records a written document's terms in the corpus statistics, then hands it to the in-memory indexes. */
+    public void notifyIndexed(PreparedDocument written) {
+        if (written.keywords != null) keywordExtractor.record(written.keywords);
+        notifyIndexed(written.document);
+    }
 
-        TikaService.ParsedResult parsed = tikaService.parse(file);
-        String text = parsed.text == null ? "" : parsed.text;
+    /** Hands a freshly written document to the in-memory indexes; a failing listener does not fail the ingest. */
+    public void notifyIndexed(DocumentEntity doc) {
+        for (DocumentIndexListener l : listeners) {
+            try {
+                l.onIndexed(doc);
+            } catch (Exception e) {
+                log.warn("Listener {} failed for document {}", l.getClass().getSimpleName(), doc.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * Forgets the content hash of a prepared document that could not be written, so the next
+     * copy of that content is indexed as an original instead of pointing at this document.
+     */
+    public void discard(DocumentEntity doc) {
+        if (doc.getSha256() == null || doc.getAliasOf() != null) return;
+        synchronized (recentHashes) {
+            CompletableFuture<DocumentEntity> known = recentHashes.get(doc.getSha256());
+            if (known != null && known.isDone() && !known.isCompletedExceptionally()
+                    && doc.getId().equals(known.join().getId())) {
+                recentHashes.remove(doc.getSha256());
+            }
+        }
+    }
+
+    /**
+     * Stores, fingerprints, parses and tags a file but does not save it, so callers such
+     * as the bulk importer can batch the resulting documents into a single write.
+     *
+     * The source is read exactly once: each chunk goes to the stored copy and the SHA-256
+     * digest together. The digest is checked before parsing, so a repeat upload costs one
+     * sequential write and a lookup. New content is then parsed from that file, which Tika can
+     * use directly instead of spooling PDFs and OOXML containers to its own temp file, and only
+     * handed to the {@link BlobStore} once it parsed.
+     *
+     * A call that finds no earlier copy holds a claim on the hash until it returns. Identical
+     * content prepared concurrently waits for the claim and becomes a duplicate of this document,
+     * or takes the claim over if this call fails.
+     */
+    public PreparedDocument prepareDocument(InputStream in, String originalName,
+                                            Consumer<IngestJob.Stage> onStage) throws Exception {
+        onStage.accept(IngestJob.Stage.STORING);
+        String id = UUID.randomUUID().toString();
+        String fileType = getExtension(originalName);
+        Path incoming = storageDir.resolve(".incoming-" + id);
+        long start = System.nanoTime();
+
+        long size;
+        String sha256;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(incoming), 64 * 1024)) {
+            TeeDigestInputStream tee = new TeeDigestInputStream(in, out);
+            tee.drain();
+            size = tee.getBytesRead();
+            sha256 = tee.sha256Hex();
+        } catch (Exception e) {
+            Files.deleteIfExists(incoming);
+            throw e;
+        }
+        metrics.recordStage("store", fileType, size, System.nanoTime() - start);
 
-        List<String> tags = extractTopKeywords(text, topKeywords);
+        CompletableFuture<DocumentEntity> claim = null;
+        if (!"off".equals(dedupMode)) {
+            start = System.nanoTime();
+            claim = new CompletableFuture<>();
+            Optional<DocumentEntity> existing;
+            try {
+                existing = findOrClaim(sha256, claim);
+            } catch (Exception e) {
+                Files.deleteIfExists(incoming);
+                throw e;
+            }
+            metrics.recordStage("dedup", fileType, size, System.nanoTime() - start);
+            if (existing.isPresent()) {
+                Files.deleteIfExists(incoming);
+                return duplicateOf(existing.get(), id, originalName);
+            }
+        }
+        try {
+            PreparedDocument prepared = parseAndTag(incoming, id, originalName, fileType, size, sha256, onStage);
+            if (claim != null) claim.complete(reference(prepared.document));
+            return prepared;
+        } finally {
+            if (claim != null && !claim.isDone()) release(sha256, claim);
+        }
+    }
+
+    private PreparedDocument parseAndTag(Path incoming, String id, String originalName, String fileType,
+                                         long size, String sha256, Consumer<IngestJob.Stage> onStage) throws Exception {
+        long start;
+        TikaService.ParsedResult parsed;
+        String blobKey;
+        try {
+            onStage.accept(IngestJob.Stage.PARSING);
+            start = System.nanoTime();
+            // passages cover up to docsearch.passages.max-chars; content stays capped at docsearch.tika.max-chars
+            parsed = passagesEnabled
+                    ? tikaService.parse(incoming, fileType, passageTextLimit())
+                    : tikaService.parse(incoming, fileType);
+            metrics.recordStage("parse", fileType, size, System.nanoTime() - start);
+            blobKey = blobStore.put(incoming, sha256, fileType);
+        } catch (Exception e) {
+            Files.deleteIfExists(incoming);
+            throw e;
+        }
+        String fullText = parsed.text == null ? "" : parsed.text;
+        int contentLimit = tikaService.getMaxChars();
+        String text = contentLimit > 0 && fullText.length() > contentLimit ? fullText.substring(0, contentLimit) : fullText;
+
+        onStage.accept(IngestJob.Stage.EXTRACTING_KEYWORDS);
+        start = System.nanoTime();
+        KeywordExtractor.Keywords keywords = keywordExtractor.extract(text, topKeywords);
+        metrics.recordStage("keywords", fileType, size, System.nanoTime() - start);
+        start = System.nanoTime();
+        String minhash = similarityIndex.signature(text);
+        metrics.recordStage("minhash", fileType, size, System.nanoTime() - start);
 
         DocumentEntity doc = new DocumentEntity();
         doc.setId(id);
         doc.setFilename(originalName);
         doc.setContent(text);
+        doc.setPreview(text.substring(0, Math.min(PREVIEW_LENGTH, text.length())));
         doc.setMetadata(parsed.metadata);
-        doc.setFileType(getExtension(originalName));
+        doc.setFileType(fileType);
         doc.setUploadedAt(Instant.now());
-        doc.setSize(file.getSize());
-        doc.setTags(tags);
-        doc.setDownloadUrl("/api/files/download/" + target.getFileName().toString());
+        doc.setSize(size);
+        doc.setTags(keywords.keywords);
+        doc.setSha256(sha256);
+        doc.setMinhash(minhash);
+        doc.setDownloadUrl(BlobStore.url(blobKey, originalName));
+
+        List<PassageEntity> passages = passagesEnabled
+                ? PassageSplitter.split(doc, fullText, parsed.pageStarts, passageSize, passageOverlap)
+                : List.of();
 
-        return repo.save(doc);
+        return new PreparedDocument(doc, false, passages, keywords);
     }
 
-    private String getExtension(String filename) {
-        int idx = filename.lastIndexOf('.');
-        if (idx >= 0 && idx < filename.length() - 1) return filename.substring(idx + 1).toLowerCase();
-        return "";
+    // 0 means no cap, as for docsearch.tika.max-chars
+    private int passageTextLimit() {
+        int contentLimit = tikaService.getMaxChars();
+        if (contentLimit <= 0 || passageMaxChars <= 0) return 0;
+        return Math.max(contentLimit, passageMaxChars);
     }
 
-    private List<String> extractTopKeywords(String text, int topN) {
-        if (text == null || text.isBlank()) return Collections.emptyList();
-        String cleaned = text.replaceAll("[^\\p{L}\\p{Nd}\\s]+", " ").toLowerCase();
-        String[] tokens = cleaned.split("\\s+");
-        Set<String> stopwords = getDefaultStopwords();
-        Map<String, Integer> freq = new HashMap<>();
-        for (String t : tokens) {
-            if (t.length() <= 2) continue;
-            if (stopwords.contains(t)) continue;
-            freq.put(t, freq.getOrDefault(t, 0) + 1);
+    /**
+     * The document already holding this content, waiting for an in-flight ingest of it if there
+     * is one. Empty means the caller now holds the claim on the hash and must complete or
+     * {@link #release} it.
+     */
+    private Optional<DocumentEntity> findOrClaim(String sha256, CompletableFuture<DocumentEntity> claim) throws Exception {
+        while (true) {
+            CompletableFuture<DocumentEntity> known;
+            synchronized (recentHashes) {
+                known = recentHashes.get(sha256);
+                if (known == null) recentHashes.put(sha256, claim);
+            }
+            if (known == null) break;
+            try {
+                return Optional.of(known.get());
+            } catch (ExecutionException e) {
+                // that ingest failed and dropped its claim; try again to take it over
+            }
         }
-        return freq.entrySet().stream()
-                .sorted((e1, e2) -> Integer.compare(e2.getValue(), e1.getValue()))
-                .limit(topN)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+        Optional<DocumentEntity> indexed;
+        try {
+            indexed = store.findOriginal(sha256);
+        } catch (RuntimeException e) {
+            release(sha256, claim);
+            throw e;
+        }
+        if (indexed.isPresent()) claim.complete(reference(indexed.get()));
+        return indexed;
+    }
+
+    // removed before it fails, so waiters retrying the claim never see it again
+    private void release(String sha256, CompletableFuture<DocumentEntity> claim) {
+        recentHashes.remove(sha256, claim);
+        claim.completeExceptionally(new IllegalStateException("Ingest of " + sha256 + " did not complete"));
     }
 
-    private Set<String> getDefaultStopwords() {
-        return Set.of("the","and","for","that","this","with","from","have","are","was","were","their","which","when","what","where","how","not","but","you","your","can","will","our","they","all","any","has","had","been","its","also");
+    // what duplicateOf and the callers of prepareDocument read from an original; no text
+    private static DocumentEntity reference(DocumentEntity d) {
+        DocumentEntity r = new DocumentEntity();
+        r.setId(d.getId());
+        r.setFilename(d.getFilename());
+        r.setFileType(d.getFileType());
+        r.setUploadedAt(d.getUploadedAt());
+        r.setSize(d.getSize());
+        r.setTags(d.getTags());
+        r.setPreview(d.getPreview());
+        r.setSha256(d.getSha256());
+        r.setMinhash(d.getMinhash());
+        r.setDownloadUrl(d.getDownloadUrl());
+        return r;
+    }
+
+    /**
+     * In "existing" mode the already-indexed document is handed back (without its text). In "alias"
+     * mode a new lightweight record is created under the uploaded name: it shares the
+     * original's stored blob and tags but carries no extracted text of its own. With passages
+     * enabled it gets copies of the original's indexed passages, so passage search finds it too;
+     * an original whose own batch has not been written yet has none to copy.
+     */
+    private PreparedDocument duplicateOf(DocumentEntity original, String id, String originalName) {
+        if (!"alias".equals(dedupMode) || originalName.equals(original.getFilename())) {
+            return new PreparedDocument(original, true, List.of());
+        }
+        DocumentEntity alias = new DocumentEntity();
+        alias.setId(id);
+        alias.setFilename(originalName);
+        alias.setFileType(getExtension(originalName));
+        alias.setUploadedAt(Instant.now());
+        alias.setSize(original.getSize());
+        alias.setTags(original.getTags());
+        alias.setPreview(original.getPreview());
+        alias.setSha256(original.getSha256());
+        alias.setMinhash(original.getMinhash());
+        alias.setAliasOf(original.getId());
+        alias.setDownloadUrl(original.getDownloadUrl());
+        return new PreparedDocument(alias, false, passagesEnabled ? passagesOf(original, alias) : List.of());
+    }
+
+    private List<PassageEntity> passagesOf(DocumentEntity original, DocumentEntity alias) {
+        try {
+            return PassageSplitter.copyFor(alias, store.passagesOf(original.getId()));
+        } catch (RuntimeException e) {
+            log.warn("Could not copy the passages of {} for alias {}", original.getId(), alias.getId(), e);
+            return List.of();
+        }
+    }
+
+    /** Result of {@link #prepareDocument}. */
+    public static class PreparedDocument {
+        public final DocumentEntity document;
+        /** true when {@code document} is an already indexed duplicate that must not be saved again */
+        public final boolean existing;
+        /** passage records to index alongside the document; empty unless docsearch.passages.enabled */
+        public final List<PassageEntity> passages;
+        /** terms to add to the document frequencies once the document is written; null for duplicates */
+        public final KeywordExtractor.Keywords keywords;
+
+        public PreparedDocument(DocumentEntity document, boolean existing, List<PassageEntity> passages) {
+            this(document, existing, passages, null);
+        }
+
+        public PreparedDocument(DocumentEntity document, boolean existing, List<PassageEntity> passages,
+                                KeywordExtractor.Keywords keywords) {
+            this.document = document;
+            this.existing = existing;
+            this.passages = passages;
+            this.keywords = keywords;
+        }
+    }
+
+    private String getExtension(String filename) {
+        int idx = filename.lastIndexOf('.');
+        if (idx >= 0 && idx < filename.length() - 1) return filename.substring(idx + 1).toLowerCase();
+        return "";
     }
 }
@@ -0,0 +1,114 @@
+package com.aadesh.docsearch.service;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Coordinates document writes with a reindex.
+ *
+ * Every write of documents holds a {@link Permit} for its duration. While a reindex is
+ * building a new index, the permit names it as the shadow index and the writer writes there
+ * too, so documents saved during the copy are not lost. Switching the shadow index, and the
+ * final alias swap, run {@link #exclusively}: new writes wait, and writes already in flight
+ * finish first.
+ *
+ * Jobs that rewrite the whole documents index (a reindex, a blob migration) must not overlap,
+ * since the reindex copy would bring back what the other changed. They {@link #claim} the index
+ * before they start and release it when they finish, and only one claim is held at a time.
+ */
+@Component
+public class IndexWriteFence {
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
+    private final LongAdder shadowFailures = new LongAdder();
+    private final AtomicReference<String> claimedBy = new AtomicReference<>();
+    private volatile String shadowIndex;
+
+    public Permit enter() {
+        lock.readLock().lock();
+        return new Permit(shadowIndex);
+    }
+
+    /** Runs {@code action} with no document write in progress. */
+    public void exclusively(Action action) throws Exception {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Claims the documents index for the job {@code job}; false if another job holds it. */
+    public boolean claim(String job) {
+        return claimedBy.compareAndSet(null, job);
+    }
+
+    public void release(String job) {
+        claimedBy.compareAndSet(job, null);
+    }
+
+    /** The job holding the documents index, or null. */
+    public String claimedBy() {
+        return claimedBy.get();
+    }
+
+    /**
+     * Runs {@code swap} with no document write in progress and then stops copying writes to the
+     * shadow index. Fails without running {@code swap} if any write to the shadow index failed,
+     * since the new index would then be missing documents.
+     */
+    void swapShadow(Action swap) throws Exception {
+        exclusively(() -> {
+            long failures = shadowFailures.sum();
+            if (failures > 0) {
+                throw new IllegalStateException(failures + " documents written during the reindex did not reach "
+                        + shadowIndex);
+            }
+            swap.run();
+            setShadowIndex(null);
+        });
+    }
+
+    /** Sets the index that writes are copied to, or clears it with null; call within {@link #exclusively}. */
+    void setShadowIndex(String index) {
+        shadowIndex = index;
+        shadowFailures.reset();
+    }
+
+    /** True while a reindex is copying documents into a new index. */
+    public boolean isReindexing() {
+        return shadowIndex != null;
+    }
+
+    /** Writes to the current shadow index that failed; a reindex must not swap if there are any. */
+    long shadowFailures() {
+        return shadowFailures.sum();
+    }
+
+    public final class Permit implements AutoCloseable {
+        /** Index that this write must also go to, or null when no reindex is running. */
+        public final String shadowIndex;
+
+        private Permit(String shadowIndex) {
+            this.shadowIndex = shadowIndex;
+        }
+
+        public void shadowFailed() {
+            shadowFailures.increment();
+        }
+
+        @Override
+        public void close() {
+            lock.readLock().unlock();
+        }
+    }
+}
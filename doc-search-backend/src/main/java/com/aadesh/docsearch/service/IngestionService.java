@@ -0,0 +1,161 @@
+package com.aadesh.docsearch.service;
+
+import com.aadesh.docsearch.exception.IngestQueueFullException;
+import com.aadesh.docsearch.model.DocumentEntity;
+import com.aadesh.docsearch.model.IngestJob;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded, asynchronous front door for uploads.
+ *
+ * The request thread only stages the multipart part (Tomcat renames its temp file
+ * when it can) and enqueues a job; a fixed pool of workers runs the single-pass
+ * store/parse/extract/save pipeline in {@link IndexService}. When the queue is
+ * full the upload is rejected immediately rather than parking a request thread.
+ *
+ * On shutdown the pool stops taking uploads and gets {@code docsearch.ingest.shutdown-timeout-seconds}
+ * to finish the jobs it already accepted; only what is still queued after that is abandoned.
+ */
+@Service
+public class IngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionService.class);
+
+    private final IndexService indexService;
+    private final Path stagingDir;
+    private final Duration jobRetention;
+    private final long shutdownTimeoutSeconds;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, IngestJob> jobs = new ConcurrentHashMap<>();
+
+    public IngestionService(IndexService indexService, MeterRegistry meterRegistry,
+                            @Value("${file.storage-dir:./uploaded_files}") String storageDirPath,
+                            @Value("${docsearch.ingest.workers:2}") int workers,
+                            @Value("${docsearch.ingest.queue-capacity:32}") int queueCapacity,
+                            @Value("${docsearch.ingest.job-retention-minutes:60}") long retentionMinutes,
+                            @Value("${docsearch.ingest.shutdown-timeout-seconds:30}") long shutdownTimeoutSeconds) {
+        this.indexService = indexService;
+        this.stagingDir = Paths.get(storageDirPath).resolve(".staging");
+        this.jobRetention = Duration.ofMinutes(retentionMinutes);
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "ingest-worker-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("docsearch.ingest.queue.depth", this, IngestionService::getQueueDepth)
+                .description("Uploads waiting for an ingest worker")
+                .register(meterRegistry);
+        Gauge.builder("docsearch.ingest.active", this, IngestionService::getActiveWorkers)
+                .description("Uploads currently being ingested")
+                .register(meterRegistry);
+        try {
+            Files.createDirectories(this.stagingDir);
+        } catch (Exception e) {
+            // ignore for now
+        }
+    }
+
+    /**
+     * Stages the upload and queues it for indexing.
+     *
+     * @throws IngestQueueFullException if every worker is busy and the queue is full
+     */
+    public IngestJob submit(MultipartFile file) throws Exception {
+        pruneFinishedJobs();
+        String originalName = Objects.requireNonNull(file.getOriginalFilename());
+        IngestJob job = new IngestJob(UUID.randomUUID().toString(), originalName, file.getSize());
+
+        // fail fast before touching the disk
+        if (executor.getQueue().remainingCapacity() == 0) {
+            throw new IngestQueueFullException("Ingestion queue is full, retry later");
+        }
+
+        Path staged = stagingDir.resolve(job.getId());
+        // absolute File so Tomcat moves its temp file instead of resolving against its own location
+        file.transferTo(staged.toAbsolutePath().toFile());
+
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, staged));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            Files.deleteIfExists(staged);
+            throw new IngestQueueFullException("Ingestion queue is full, retry later");
+        }
+        return job;
+    }
+
+    public Optional<IngestJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveWorkers() {
+        return executor.getActiveCount();
+    }
+
+    private void run(IngestJob job, Path staged) {
+        try (InputStream in = Files.newInputStream(staged)) {
+            IndexService.PreparedDocument result = indexService.indexStream(in, job.getFilename(), job::enter);
+            DocumentEntity doc = result.document;
+            job.complete(doc.getId(), result.existing || doc.getAliasOf() != null);
+        } catch (Exception e) {
+            log.warn("Ingest job {} ({}) failed", job.getId(), job.getFilename(), e);
+            job.fail(e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(staged);
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        Instant cutoff = Instant.now().minus(jobRetention);
+        jobs.values().removeIf(j -> j.isFinished() && j.getFinishedAt() != null && j.getFinishedAt().isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        int pending = executor.getQueue().size() + executor.getActiveCount();
+        if (pending > 0) log.info("Waiting up to {} s for {} accepted upload(s) to finish", shutdownTimeoutSeconds, pending);
+        if (!executor.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+            // queued jobs never started; their staged files stay in .staging
+            int dropped = executor.shutdownNow().size();
+            log.warn("Ingest pool did not drain within {} s; {} queued upload(s) abandoned", shutdownTimeoutSeconds, dropped);
+        }
+    }
+}
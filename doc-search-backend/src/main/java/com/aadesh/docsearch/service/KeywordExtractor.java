@@ -0,0 +1,283 @@
+package com.aadesh.docsearch.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Picks a document's top keywords by TF-IDF in a single pass over the extracted text.
+ *
+ * Tokens are runs of letters and digits, lower-cased code point by code point into a
+ * per-thread char pool and counted in an open-addressing table keyed by a 64-bit hash, so no
+ * String is created per token. Only the winning keywords become Strings. Tokens of two
+ * characters or fewer and stopwords are ignored. Term frequencies are weighted by
+ * {@link DocumentFrequencyTable#idf}. A document's distinct terms are added to that table with
+ * {@link #record} once the document has been written, so failed ingests do not skew it.
+ * A table that grew past 256K chars of token text or 32K distinct terms for a large document
+ * goes back to its initial size afterwards, so an ingest thread does not hold on to the
+ * largest document's buffers.
+ */
+@Service
+public class KeywordExtractor {
+
+    static final Set<String> STOPWORDS = Set.of(
+            "the", "and", "for", "that", "this", "with", "from", "have", "are", "was", "were", "their",
+            "which", "when", "what", "where", "how", "not", "but", "you", "your", "can", "will", "our",
+            "they", "all", "any", "has", "had", "been", "its", "also");
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // sorted by hash, with the words in the same order so a hash match can be confirmed
+    private static final String[] STOPWORD_LIST = STOPWORDS.stream()
+            .sorted((a, b) -> Long.compare(hash(a), hash(b))).toArray(String[]::new);
+    private static final long[] STOPWORD_HASHES = Arrays.stream(STOPWORD_LIST).mapToLong(KeywordExtractor::hash).toArray();
+
+    private static final ThreadLocal<TermTable> SCRATCH = ThreadLocal.withInitial(TermTable::new);
+
+    private final DocumentFrequencyTable documentFrequency;
+
+    public KeywordExtractor(DocumentFrequencyTable documentFrequency) {
+        this.documentFrequency = documentFrequency;
+    }
+
+    /** Top {@code topN} keywords of {@code text}; pass the result to {@link #record} once the document is written. */
+    public Keywords extract(CharSequence text, int topN) {
+        if (text == null || text.length() == 0) return Keywords.NONE;
+        TermTable terms = SCRATCH.get();
+        terms.reset();
+        try {
+            tokenize(text, terms);
+            if (terms.size == 0) return Keywords.NONE;
+            List<String> top = rank(terms, topN);
+            return new Keywords(top, Arrays.copyOf(terms.hashes, terms.size));
+        } finally {
+            terms.shrink();
+        }
+    }
+
+    /** Chars of token text the calling thread's scratch table holds on to between documents. */
+    static int retainedChars() {
+        return SCRATCH.get().pool.length;
+    }
+
+    /** Adds the distinct terms of an extracted document to the corpus statistics. */
+    public void record(Keywords keywords) {
+        if (keywords.terms.length > 0) documentFrequency.addDocument(keywords.terms, keywords.terms.length);
+    }
+
+    private static void tokenize(CharSequence text, TermTable terms) {
+        int start = -1;
+        long h = FNV_OFFSET;
+        for (int i = 0, len = text.length(); i <= len; ) {
+            int cp = i < len ? Character.codePointAt(text, i) : ' ';
+            if (Character.isLetter(cp) || Character.isDigit(cp)) {
+                if (start < 0) {
+                    start = terms.poolSize;
+                    h = FNV_OFFSET;
+                }
+                int lower = Character.toLowerCase(cp);
+                if (Character.isBmpCodePoint(lower)) {
+                    h = terms.append((char) lower, h);
+                } else {
+                    h = terms.append(Character.highSurrogate(lower), h);
+                    h = terms.append(Character.lowSurrogate(lower), h);
+                }
+            } else if (start >= 0) {
+                int tokenLength = terms.poolSize - start;
+                if (tokenLength <= 2 || isStopword(terms.pool, start, tokenLength, h)) {
+                    terms.poolSize = start;
+                } else {
+                    terms.count(start, tokenLength, h);
+                }
+                start = -1;
+            }
+            i += i < len ? Character.charCount(cp) : 1;
+        }
+    }
+
+    private static boolean isStopword(char[] pool, int start, int length, long h) {
+        int i = Arrays.binarySearch(STOPWORD_HASHES, h);
+        if (i < 0) return false;
+        String word = STOPWORD_LIST[i];
+        if (word.length() != length) return false;
+        for (int j = 0; j < length; j++) {
+            if (pool[start + j] != word.charAt(j)) return false;
+        }
+        return true;
+    }
+
+    private List<String> rank(TermTable terms, int topN) {
+        int n = Math.min(topN, terms.size);
+        if (n <= 0) return Collections.emptyList();
+        // min-heap of entry indexes by score; the root is the weakest keyword kept so far
+        int[] heap = new int[n];
+        double[] score = terms.scores();
+        documentFrequency.idf(terms.hashes, terms.size, score);
+        int heapSize = 0;
+        for (int e = 0; e < terms.size; e++) {
+            score[e] *= terms.counts[e];
+            if (heapSize < n) {
+                heap[heapSize] = e;
+                siftUp(heap, heapSize++, score);
+            } else if (weaker(heap[0], e, score)) {
+                heap[0] = e;
+                siftDown(heap, heapSize, score);
+            }
+        }
+        Integer[] order = new Integer[heapSize];
+        for (int i = 0; i < heapSize; i++) order[i] = heap[i];
+        Arrays.sort(order, (a, b) -> weaker(a, b, score) ? 1 : weaker(b, a, score) ? -1 : 0);
+        List<String> out = new ArrayList<>(heapSize);
+        for (int e : order) out.add(new String(terms.pool, terms.offsets[e], terms.lengths[e]));
+        return out;
+    }
+
+    // lower score loses; on a tie the term seen later loses, which keeps the result deterministic
+    private static boolean weaker(int a, int b, double[] score) {
+        if (score[a] != score[b]) return score[a] < score[b];
+        return a > b;
+    }
+
+    private static void siftUp(int[] heap, int i, double[] score) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!weaker(heap[i], heap[parent], score)) return;
+            int tmp = heap[parent];
+            heap[parent] = heap[i];
+            heap[i] = tmp;
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, double[] score) {
+        int i = 0;
+        while (true) {
+            int l = 2 * i + 1;
+            if (l >= size) return;
+            int c = l + 1 < size && weaker(heap[l + 1], heap[l], score) ? l + 1 : l;
+            if (!weaker(heap[c], heap[i], score)) return;
+            int tmp = heap[c];
+            heap[c] = heap[i];
+            heap[i] = tmp;
+            i = c;
+        }
+    }
+
+    /** 64-bit FNV-1a over UTF-16 chars; the same hash the tokenizer computes incrementally. */
+    static long hash(CharSequence s) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < s.length(); i++) h = (h ^ s.charAt(i)) * FNV_PRIME;
+        return h;
+    }
+
+    /** Result of {@link #extract}: the keywords plus the distinct term hashes {@link #record} adds. */
+    public static final class Keywords {
+        static final Keywords NONE = new Keywords(Collections.emptyList(), new long[0]);
+
+        public final List<String> keywords;
+        final long[] terms;
+
+        Keywords(List<String> keywords, long[] terms) {
+            this.keywords = keywords;
+            this.terms = terms;
+        }
+    }
+
+    /** Reusable per-thread term counter: a char pool plus parallel arrays indexed by entry. */
+    private static final class TermTable {
+        static final int INITIAL_CHARS = 1 << 14;
+        static final int INITIAL_TERMS = 1 << 11;
+        static final int MAX_RETAINED_CHARS = 1 << 18;
+        static final int MAX_RETAINED_TERMS = 1 << 15;
+
+        char[] pool = new char[INITIAL_CHARS];
+        int poolSize;
+        int[] slots = new int[INITIAL_TERMS * 2]; // entry index + 1, 0 = empty
+        long[] hashes = new long[INITIAL_TERMS];
+        int[] offsets = new int[INITIAL_TERMS];
+        int[] lengths = new int[INITIAL_TERMS];
+        int[] counts = new int[INITIAL_TERMS];
+        double[] scores = new double[0];
+        int size;
+
+        double[] scores() {
+            if (scores.length < size) scores = new double[hashes.length];
+            return scores;
+        }
+
+        void reset() {
+            Arrays.fill(slots, 0);
+            poolSize = 0;
+            size = 0;
+        }
+
+        /** Drops buffers a large document grew past the retained caps. */
+        void shrink() {
+            if (pool.length > MAX_RETAINED_CHARS) pool = new char[INITIAL_CHARS];
+            if (hashes.length > MAX_RETAINED_TERMS) {
+                slots = new int[INITIAL_TERMS * 2];
+                hashes = new long[INITIAL_TERMS];
+                offsets = new int[INITIAL_TERMS];
+                lengths = new int[INITIAL_TERMS];
+                counts = new int[INITIAL_TERMS];
+                scores = new double[0];
+            }
+        }
+
+        long append(char c, long h) {
+            if (poolSize == pool.length) pool = Arrays.copyOf(pool, pool.length * 2);
+            pool[poolSize++] = c;
+            return (h ^ c) * FNV_PRIME;
+        }
+
+        /** Counts the token just appended at {@code [start, start+length)}; drops the chars if it is already known. */
+        void count(int start, int length, long h) {
+            int mask = slots.length - 1;
+            for (int s = (int) (h ^ (h >>> 32)) & mask; ; s = (s + 1) & mask) {
+                int e = slots[s] - 1;
+                if (e < 0) {
+                    add(s, start, length, h);
+                    return;
+                }
+                if (hashes[e] == h && lengths[e] == length
+                        && Arrays.equals(pool, offsets[e], offsets[e] + length, pool, start, start + length)) {
+                    counts[e]++;
+                    poolSize = start;
+                    return;
+                }
+            }
+        }
+
+        private void add(int slot, int start, int length, long h) {
+            if (size == hashes.length) {
+                int cap = size * 2;
+                hashes = Arrays.copyOf(hashes, cap);
+                offsets = Arrays.copyOf(offsets, cap);
+                lengths = Arrays.copyOf(lengths, cap);
+                counts = Arrays.copyOf(counts, cap);
+            }
+            hashes[size] = h;
+            offsets[size] = start;
+            lengths[size] = length;
+            counts[size] = 1;
+            slots[slot] = ++size;
+            if (size * 2 > slots.length) rehash();
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int e = 0; e < size; e++) {
+                long h = hashes[e];
+                int s = (int) (h ^ (h >>> 32)) & mask;
+                while (slots[s] != 0) s = (s + 1) & mask;
+                slots[s] = e + 1;
+            }
+        }
+    }
+}
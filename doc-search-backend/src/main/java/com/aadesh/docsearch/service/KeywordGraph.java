@@ -0,0 +1,546 @@
+package com.aadesh.docsearch.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Service;
+
+import com.aadesh.docsearch.model.DocumentEntity;
+
+/**
+ * Keyword-document graph maintained at ingest time.
+ *
+ * Keywords are a document's tags (or, for untagged documents, filename words of three or more
+ * characters) and are interned to int ids. For each keyword the graph keeps the ids of the
+ * documents carrying it and an int->int counter of how many documents it shares with every
+ * other keyword, so neighborhoods and top-N subgraphs are read straight from primitive arrays
+ * with real co-occurrence weights. Only small fields are kept per document; bodies never are.
+ * A re-ingested document replaces its previous keywords: it leaves their postings, their
+ * co-occurrence counts drop, and an edge whose count reaches zero is removed.
+ *
+ * Responses use the shape the UI already renders: {@code nodes} (document and keyword nodes,
+ * keyword ids prefixed with {@code kw:}) and weighted {@code edges}.
+ */
+@Service
+public class KeywordGraph implements DocumentIndexListener {
+
+    private static final String TOKEN_SPLIT = "[\\s_\\-/.]+";
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> keywordIds = new HashMap<>();
+    private final List<String> keywordLabels = new ArrayList<>();
+    private IntList[] keywordDocs = new IntList[256];
+    private IntCounter[] cooccurrence = new IntCounter[256];
+
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private final List<DocNode> docs = new ArrayList<>();
+    private long edgeCount;
+
+    @Override
+    public void onIndexed(DocumentEntity doc) {
+        if (doc.getId() == null) return;
+        List<String> keywords = keywordsOf(doc);
+        lock.writeLock().lock();
+        try {
+            int[] kws = new int[keywords.size()];
+            int n = 0;
+            for (String k : keywords) {
+                int kw = intern(k);
+                boolean seen = false;
+                for (int i = 0; i < n && !seen; i++) seen = kws[i] == kw;
+                if (!seen) kws[n++] = kw;
+            }
+            kws = Arrays.copyOf(kws, n);
+            DocNode node = new DocNode(doc.getId(), doc.getFilename(), doc.getSize() == null ? 0 : doc.getSize(),
+                    doc.getUploadedAt() == null ? -1 : doc.getUploadedAt().toEpochMilli(), kws);
+            Integer existing = docIds.get(doc.getId());
+            if (existing == null) {
+                int docId = docs.size();
+                link(docId, kws);
+                docIds.put(doc.getId(), docId);
+                docs.add(node);
+                return;
+            }
+            // replay and live ingest can both deliver a document; only a change touches the graph
+            int[] previous = docs.get(existing).keywords;
+            if (!Arrays.equals(previous, kws)) {
+                unlink(existing, previous);
+                link(existing, kws);
+            }
+            docs.set(existing, node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<String> replayFields() {
+        return List.of("filename", "tags", "size", "uploadedAt");
+    }
+
+    public boolean contains(String documentId) {
+        lock.readLock().lock();
+        try {
+            return docIds.containsKey(documentId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** The {@code size} most frequent keywords and the co-occurrence edges between them. */
+    public Map<String, Object> topKeywords(int size) {
+        lock.readLock().lock();
+        try {
+            int k = keywordLabels.size();
+            int[] weights = new int[k];
+            for (int i = 0; i < k; i++) weights[i] = keywordDocs[i].size;
+            int[] top = topN(null, weights, k, size);
+            Builder b = new Builder();
+            for (int kw : top) b.keyword(kw);
+            b.cooccurrenceEdges(top);
+            return b.build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A keyword, its {@code size} strongest co-occurring keywords and up to {@code maxDocs} of
+     * its most recently indexed documents. Empty when the keyword is unknown.
+     */
+    public Map<String, Object> neighborhood(String keyword, int size, int maxDocs) {
+        lock.readLock().lock();
+        try {
+            Builder b = new Builder();
+            Integer center = keyword == null ? null : keywordIds.get(keyword.trim().toLowerCase(Locale.ROOT));
+            if (center == null || keywordDocs[center].size == 0) return b.build();
+            b.keyword(center);
+            IntCounter counter = cooccurrence[center];
+            int[] neighbors = topN(counter.keys, counter.vals, counter.keys.length, size);
+            for (int kw : neighbors) {
+                b.keyword(kw);
+                b.edge(kwId(center), kwId(kw), counter.get(kw), "cooccurs");
+            }
+            IntList postings = keywordDocs[center];
+            for (int i = postings.size - 1; i >= 0 && postings.size - i <= maxDocs; i--) {
+                int d = postings.values[i];
+                b.document(d);
+                b.edge(kwId(center), docs.get(d).id, 1, "tagged");
+            }
+            return b.build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The given documents (search hits carrying at least {@code id}, {@code filename} and
+     * {@code tags}), their keywords, and the co-occurrence edges among those keywords.
+     * Documents the graph has not seen yet, e.g. while the startup replay is running, are
+     * drawn from the hit itself and leave the graph unchanged.
+     */
+    public Map<String, Object> forDocuments(List<DocumentEntity> documents) {
+        lock.readLock().lock();
+        try {
+            Builder b = new Builder();
+            IntList kws = new IntList();
+            for (DocumentEntity doc : documents) {
+                Integer d = doc.getId() == null ? null : docIds.get(doc.getId());
+                if (d != null) {
+                    b.document(d, kws);
+                } else if (doc.getId() != null) {
+                    b.unseenDocument(doc, kws);
+                }
+            }
+            b.cooccurrenceEdges(Arrays.copyOf(kws.values, kws.size));
+            return b.build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** The {@code size} most recently indexed documents, newest first, shaped like {@link #forDocuments}. */
+    public Map<String, Object> latestDocuments(int size) {
+        lock.readLock().lock();
+        try {
+            Builder b = new Builder();
+            IntList kws = new IntList();
+            for (int d = docs.size() - 1; d >= 0 && docs.size() - d <= size; d--) b.document(d, kws);
+            b.cooccurrenceEdges(Arrays.copyOf(kws.values, kws.size));
+            return b.build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("documents", docs.size());
+            int keywords = 0;
+            for (int kw = 0; kw < keywordLabels.size(); kw++) {
+                if (keywordDocs[kw].size > 0) keywords++;
+            }
+            m.put("keywords", keywords);
+            m.put("cooccurrenceEdges", edgeCount);
+            return m;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> keywordsOf(DocumentEntity doc) {
+        List<String> out = new ArrayList<>();
+        if (doc.getTags() != null && !doc.getTags().isEmpty()) {
+            for (String t : doc.getTags()) {
+                if (t != null && !t.isBlank()) out.add(t.trim());
+            }
+        } else if (doc.getFilename() != null) {
+            for (String part : doc.getFilename().split(TOKEN_SPLIT)) {
+                if (part.length() >= 3) out.add(part);
+            }
+        }
+        return out;
+    }
+
+    // caller holds the write lock
+    private void link(int docId, int[] kws) {
+        for (int i = 0; i < kws.length; i++) {
+            keywordDocs[kws[i]].insert(docId);
+            for (int j = i + 1; j < kws.length; j++) {
+                if (cooccurrence[kws[i]].increment(kws[j]) == 1) edgeCount++;
+                cooccurrence[kws[j]].increment(kws[i]);
+            }
+        }
+    }
+
+    // caller holds the write lock
+    private void unlink(int docId, int[] kws) {
+        for (int i = 0; i < kws.length; i++) {
+            keywordDocs[kws[i]].remove(docId);
+            for (int j = i + 1; j < kws.length; j++) {
+                if (cooccurrence[kws[i]].decrement(kws[j]) == 0) edgeCount--;
+                cooccurrence[kws[j]].decrement(kws[i]);
+            }
+        }
+    }
+
+    // caller holds the write lock
+    private int intern(String keyword) {
+        String key = keyword.toLowerCase(Locale.ROOT);
+        Integer id = keywordIds.get(key);
+        if (id != null) return id;
+        int kw = keywordLabels.size();
+        keywordIds.put(key, kw);
+        keywordLabels.add(keyword);
+        if (kw == keywordDocs.length) {
+            keywordDocs = Arrays.copyOf(keywordDocs, kw * 2);
+            cooccurrence = Arrays.copyOf(cooccurrence, kw * 2);
+        }
+        keywordDocs[kw] = new IntList();
+        cooccurrence[kw] = new IntCounter();
+        return kw;
+    }
+
+    private String kwId(int kw) {
+        return "kw:" + keywordLabels.get(kw).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Ids of the {@code n} heaviest entries, heaviest first; entries of weight 0 are skipped.
+     * {@code ids == null} means the index is the id; otherwise slots whose id is 0 (empty hash
+     * slots) are skipped and stored ids are one-based, as in {@link IntCounter}.
+     */
+    private static int[] topN(int[] ids, int[] weights, int length, int n) {
+        if (n <= 0) return new int[0];
+        // min-heap of (weight << 32 | id); the root is the lightest entry kept so far
+        long[] heap = new long[n];
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            int id;
+            if (weights[i] == 0) continue;
+            if (ids == null) {
+                id = i;
+            } else {
+                if (ids[i] == 0) continue;
+                id = ids[i] - 1;
+            }
+            long packed = ((long) weights[i] << 32) | id;
+            if (size < n) {
+                heap[size] = packed;
+                siftUp(heap, size++);
+            } else if (packed > heap[0]) {
+                heap[0] = packed;
+                siftDown(heap, size);
+            }
+        }
+        long[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted);
+        int[] out = new int[size];
+        for (int i = 0; i < size; i++) out[i] = (int) sorted[size - 1 - i];
+        return out;
+    }
+
+    private static void siftUp(long[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= heap[i]) return;
+            long tmp = heap[parent];
+            heap[parent] = heap[i];
+            heap[i] = tmp;
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int i = 0;
+        while (true) {
+            int l = 2 * i + 1;
+            if (l >= size) return;
+            int c = l + 1 < size && heap[l + 1] < heap[l] ? l + 1 : l;
+            if (heap[i] <= heap[c]) return;
+            long tmp = heap[c];
+            heap[c] = heap[i];
+            heap[i] = tmp;
+            i = c;
+        }
+    }
+
+    /** Collects nodes and edges for one response; used under the read lock. */
+    private final class Builder {
+        private final Map<String, Map<String, Object>> nodes = new LinkedHashMap<>();
+        private final List<Map<String, Object>> edges = new ArrayList<>();
+
+        /** Adds a keyword node; returns false if it was already present. */
+        boolean keyword(int kw) {
+            String id = kwId(kw);
+            if (nodes.containsKey(id)) return false;
+            Map<String, Object> n = new LinkedHashMap<>();
+            n.put("id", id);
+            n.put("label", keywordLabels.get(kw));
+            n.put("type", "keyword");
+            n.put("meta", Map.of("documents", keywordDocs[kw].size));
+            nodes.put(id, n);
+            return true;
+        }
+
+        void document(int d) {
+            DocNode doc = docs.get(d);
+            if (nodes.containsKey(doc.id)) return;
+            Map<String, Object> meta = new LinkedHashMap<>();
+            meta.put("size", doc.size);
+            if (doc.uploadedAt >= 0) meta.put("uploadedAt", Instant.ofEpochMilli(doc.uploadedAt));
+            Map<String, Object> n = new LinkedHashMap<>();
+            n.put("id", doc.id);
+            n.put("label", doc.label == null ? doc.id : doc.label);
+            n.put("type", "document");
+            n.put("meta", meta);
+            nodes.put(doc.id, n);
+        }
+
+        /** Adds a document node with its keywords and tagged edges; new keyword ids go to {@code kws}. */
+        void document(int d, IntList kws) {
+            DocNode doc = docs.get(d);
+            if (nodes.containsKey(doc.id)) return;
+            document(d);
+            for (int kw : doc.keywords) {
+                if (keyword(kw)) kws.add(kw);
+                edge(kwId(kw), doc.id, 1, "tagged");
+            }
+        }
+
+        void unseenDocument(DocumentEntity doc, IntList kws) {
+            String id = doc.getId();
+            if (nodes.containsKey(id)) return;
+            Map<String, Object> meta = new LinkedHashMap<>();
+            meta.put("size", doc.getSize() == null ? 0L : doc.getSize());
+            if (doc.getUploadedAt() != null) meta.put("uploadedAt", doc.getUploadedAt());
+            Map<String, Object> n = new LinkedHashMap<>();
+            n.put("id", id);
+            n.put("label", doc.getFilename() == null ? id : doc.getFilename());
+            n.put("type", "document");
+            n.put("meta", meta);
+            nodes.put(id, n);
+            Set<String> seen = new HashSet<>();
+            for (String keyword : keywordsOf(doc)) {
+                if (!seen.add(keyword.toLowerCase(Locale.ROOT))) continue;
+                Integer kw = keywordIds.get(keyword.toLowerCase(Locale.ROOT));
+                String kwNode;
+                if (kw != null) {
+                    if (keyword(kw)) kws.add(kw);
+                    kwNode = kwId(kw);
+                } else {
+                    kwNode = unseenKeyword(keyword);
+                }
+                edge(kwNode, id, 1, "tagged");
+            }
+        }
+
+        private String unseenKeyword(String keyword) {
+            String id = "kw:" + keyword.toLowerCase(Locale.ROOT);
+            if (!nodes.containsKey(id)) {
+                Map<String, Object> n = new LinkedHashMap<>();
+                n.put("id", id);
+                n.put("label", keyword);
+                n.put("type", "keyword");
+                n.put("meta", Map.of("documents", 0));
+                nodes.put(id, n);
+            }
+            return id;
+        }
+
+        void edge(String source, String target, int weight, String type) {
+            edges.add(Map.of("source", source, "target", target, "weight", weight, "type", type));
+        }
+
+        void cooccurrenceEdges(int[] kws) {
+            for (int i = 0; i < kws.length; i++) {
+                IntCounter counter = cooccurrence[kws[i]];
+                for (int j = i + 1; j < kws.length; j++) {
+                    int w = counter.get(kws[j]);
+                    if (w > 0) edge(kwId(kws[i]), kwId(kws[j]), w, "cooccurs");
+                }
+            }
+        }
+
+        Map<String, Object> build() {
+            return Map.of("nodes", new ArrayList<>(nodes.values()), "edges", edges);
+        }
+    }
+
+    private static final class DocNode {
+        final String id;
+        final String label;
+        final long size;
+        final long uploadedAt;
+        final int[] keywords;
+
+        DocNode(String id, String label, long size, long uploadedAt, int[] keywords) {
+            this.id = id;
+            this.label = label;
+            this.size = size;
+            this.uploadedAt = uploadedAt;
+            this.keywords = keywords;
+        }
+    }
+
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int v) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = v;
+        }
+
+        /** Adds {@code v} to a list kept in ascending order. */
+        void insert(int v) {
+            int i = Arrays.binarySearch(values, 0, size, v);
+            if (i >= 0) return;
+            i = -i - 1;
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            System.arraycopy(values, i, values, i + 1, size - i);
+            values[i] = v;
+            size++;
+        }
+
+        /** Removes {@code v} from a list kept in ascending order. */
+        void remove(int v) {
+            int i = Arrays.binarySearch(values, 0, size, v);
+            if (i < 0) return;
+            System.arraycopy(values, i + 1, values, i, size - i - 1);
+            size--;
+        }
+    }
+
+    /** Open-addressing int->int counter; keys are stored one-based so 0 marks an empty slot. */
+    private static final class IntCounter {
+        int[] keys = new int[8];
+        int[] vals = new int[8];
+        int size;
+
+        int get(int key) {
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == 0) return 0;
+                if (keys[i] == key + 1) return vals[i];
+            }
+        }
+
+        /** Adds one to the count for {@code key} and returns the new count. */
+        int increment(int key) {
+            if ((size + 1) * 2 > keys.length) rehash();
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == 0) {
+                    keys[i] = key + 1;
+                    size++;
+                    return vals[i] = 1;
+                }
+                if (keys[i] == key + 1) return ++vals[i];
+            }
+        }
+
+        /** Takes one from the count for {@code key}, dropping the key at zero; returns the new count. */
+        int decrement(int key) {
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == 0) return 0;
+                if (keys[i] == key + 1) {
+                    if (--vals[i] > 0) return vals[i];
+                    delete(i);
+                    return 0;
+                }
+            }
+        }
+
+        // backward-shift deletion, so lookups never need tombstones
+        private void delete(int hole) {
+            int mask = keys.length - 1;
+            keys[hole] = 0;
+            vals[hole] = 0;
+            size--;
+            for (int i = (hole + 1) & mask; keys[i] != 0; i = (i + 1) & mask) {
+                int home = mix(keys[i] - 1) & mask;
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = keys[i];
+                    vals[hole] = vals[i];
+                    keys[i] = 0;
+                    vals[i] = 0;
+                    hole = i;
+                }
+            }
+        }
+
+        private void rehash() {
+            int[] oldKeys = keys;
+            int[] oldVals = vals;
+            keys = new int[oldKeys.length * 2];
+            vals = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] == 0) continue;
+                int i = mix(oldKeys[j] - 1) & mask;
+                while (keys[i] != 0) i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                vals[i] = oldVals[j];
+            }
+        }
+
+        private static int mix(int key) {
+            return key * 0x9E3779B9 >>> 7;
+        }
+    }
+}
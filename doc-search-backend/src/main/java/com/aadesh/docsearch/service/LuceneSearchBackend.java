@@ -0,0 +1,560 @@
+package com.aadesh.docsearch.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.BreakIterator;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.search.uhighlight.LengthGoalBreakIterator;
+import org.apache.lucene.search.uhighlight.Passage;
+import org.apache.lucene.search.uhighlight.PassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.aadesh.docsearch.model.DocumentEntity;
+import com.aadesh.docsearch.model.PassageEntity;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * {@link SearchBackend} and {@link DocumentStore} on an in-process Lucene index, for installs
+ * whose corpus fits on one box and for edge and CI deployments without a cluster: searches skip
+ * the network hop and the JSON round trip, and nothing needs Elasticsearch.
+ *
+ * The index lives in {@code docsearch.lucene.dir} (default {@code <storage-dir>/.lucene}) and is
+ * read through an {@link MMapDirectory}, so the OS page cache holds it instead of the heap. It is
+ * the store of record: every field of a document is stored, writes replace any earlier version by
+ * id, and each write is committed before it returns, so an acknowledged upload survives a crash.
+ * A {@link SearcherManager} over the writer reopens near-real-time readers every
+ * {@code docsearch.lucene.refresh-ms} for searches; lookups by id or hash, scans and updates
+ * reopen first, so they see every write that has returned. Passages are not kept.
+ *
+ * Queries mirror the Elasticsearch ones: the standard analyzer, BM25, best-fields as a dis-max
+ * over per-field term disjunctions, the last word as a prefix for the graph, and tags as exact
+ * keywords. content and filename index offsets, so the unified highlighter reads match positions
+ * from the postings.
+ */
+@Service
+@ConditionalOnProperty(name = "docsearch.search.backend", havingValue = "lucene")
+public class LuceneSearchBackend implements SearchBackend, DocumentStore {
+
+    private static final Logger log = LoggerFactory.getLogger(LuceneSearchBackend.class);
+
+    // same limits as Elasticsearch's index.max_result_window and track_total_hits
+    private static final int MAX_RESULT_WINDOW = 10_000;
+    private static final int FRAGMENT_SIZE = 250;
+    private static final int MAX_HIGHLIGHT_CHARS = 1_000_000;
+    private static final String[] HIGHLIGHT_FIELDS = {"content", "filename"};
+    private static final int[] HIGHLIGHT_FRAGMENTS = {3, 1};
+    private static final Set<String> SUMMARY_FIELDS =
+            Set.of("id", "filename", "preview", "tags", "fileType", "uploadedAt", "size", "downloadUrl");
+    // what dedup reads from an original: everything but the text and metadata
+    private static final Set<String> REFERENCE_FIELDS = Set.of("id", "filename", "preview", "tags", "fileType",
+            "uploadedAt", "size", "downloadUrl", "sha256", "minhash");
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final TypeReference<Map<String, String>> METADATA = new TypeReference<>() {};
+    private static final FieldType SEARCHED_TEXT = searchedText();
+
+    private final Path dir;
+    private final Directory directory;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final IndexWriter writer;
+    private final SearcherManager searchers;
+    private final ScheduledExecutorService maintenance;
+    private final ExecutorService searchPool;
+    private final long refreshMs;
+    private final LongAdder indexed = new LongAdder();
+    private final LongAdder searches = new LongAdder();
+
+    public LuceneSearchBackend(@Value("${file.storage-dir:./uploaded_files}") String storageDirPath,
+                               @Value("${docsearch.lucene.dir:}") String dirPath,
+                               @Value("${docsearch.lucene.refresh-ms:1000}") long refreshMs,
+                               @Value("${docsearch.lucene.ram-buffer-mb:64}") double ramBufferMb,
+                               @Value("${docsearch.lucene.search-threads:0}") int searchThreads) throws IOException {
+        this.dir = (dirPath.isBlank() ? Paths.get(storageDirPath).resolve(".lucene") : Paths.get(dirPath))
+                .toAbsolutePath().normalize();
+        this.refreshMs = Math.max(10, refreshMs);
+        Files.createDirectories(dir);
+        this.directory = new MMapDirectory(dir);
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                .setRAMBufferSizeMB(ramBufferMb));
+        this.searchers = new SearcherManager(writer, null);
+
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lucene-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        maintenance.scheduleWithFixedDelay(this::refreshQuietly, this.refreshMs, this.refreshMs, TimeUnit.MILLISECONDS);
+
+        int threads = searchThreads > 0 ? searchThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger seq = new AtomicInteger();
+        this.searchPool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "lucene-search-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        log.info("Lucene search backend at {} ({} documents)", dir, writer.getDocStats().numDocs);
+    }
+
+    @Override
+    public String name() {
+        return "lucene";
+    }
+
+    // passages are not kept: keepsPassages() is false, so IndexService produces none
+    @Override
+    public DocumentEntity save(DocumentEntity doc, List<PassageEntity> passages) throws IOException {
+        writer.updateDocument(new Term("id", doc.getId()), toDocument(doc));
+        writer.commit();
+        indexed.increment();
+        return doc;
+    }
+
+    @Override
+    public BatchResult saveAll(Collection<DocumentEntity> docs, Collection<PassageEntity> passages) throws IOException {
+        Map<String, String> failed = new HashMap<>();
+        for (DocumentEntity doc : docs) {
+            try {
+                writer.updateDocument(new Term("id", doc.getId()), toDocument(doc));
+                indexed.increment();
+            } catch (IllegalArgumentException e) {
+                // rejected by the indexer (e.g. an oversized term); the rest of the batch goes on
+                failed.put(doc.getId(), e.getMessage());
+            }
+        }
+        writer.commit();
+        return new BatchResult(failed, Map.of());
+    }
+
+    @Override
+    public Optional<DocumentEntity> findById(String id) {
+        return lookup(searcher -> first(searcher, new TermQuery(new Term("id", id)), null));
+    }
+
+    @Override
+    public Optional<DocumentEntity> findOriginal(String sha256) {
+        return lookup(searcher -> first(searcher, new TermQuery(new Term("originalSha256", sha256)), REFERENCE_FIELDS));
+    }
+
+    @Override
+    public List<PassageEntity> passagesOf(String documentId) {
+        return List.of();
+    }
+
+    @Override
+    public boolean keepsPassages() {
+        return false;
+    }
+
+    // walks the live documents of one reader, so documents written meanwhile are not seen; no batches needed
+    @Override
+    public void scan(Collection<String> fields, int batchSize, Consumer<DocumentEntity> action) {
+        Set<String> load = new LinkedHashSet<>(fields);
+        load.add("id");
+        lookup(searcher -> {
+            for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                StoredFields stored = leaf.reader().storedFields();
+                Bits live = leaf.reader().getLiveDocs();
+                for (int doc = 0; doc < leaf.reader().maxDoc(); doc++) {
+                    if (live == null || live.get(doc)) action.accept(load(stored, doc, load));
+                }
+            }
+            return null;
+        });
+    }
+
+    // Lucene has no partial update: each document is read back whole and written again
+    @Override
+    public Map<String, String> updateStoredFiles(List<StoredFileUpdate> updates) throws IOException {
+        Map<String, String> failed = new HashMap<>();
+        if (updates.isEmpty()) return failed;
+        lookup(searcher -> {
+            for (StoredFileUpdate u : updates) {
+                Optional<DocumentEntity> doc = first(searcher, new TermQuery(new Term("id", u.id)), null);
+                if (doc.isEmpty()) {
+                    failed.put(u.id, "document not found");
+                    continue;
+                }
+                doc.get().setDownloadUrl(u.downloadUrl);
+                doc.get().setSha256(u.sha256);
+                writer.updateDocument(new Term("id", u.id), toDocument(doc.get()));
+            }
+            return null;
+        });
+        writer.commit();
+        return failed;
+    }
+
+    @Override
+    public CompletableFuture<Result> search(String q, int from, int size, boolean highlight, int tagBuckets) {
+        searches.increment();
+        return CompletableFuture.supplyAsync(() -> withSearcher(searcher -> {
+            if (from < 0 || size < 0 || from + size > MAX_RESULT_WINDOW) {
+                throw new IllegalArgumentException("Result window is too large, from + size must be at most " + MAX_RESULT_WINDOW);
+            }
+            Query query = bestFields(q);
+            TopDocs top = searcher.search(query,
+                    TopScoreDocCollector.createSharedManager(Math.max(1, from + size), null, MAX_RESULT_WINDOW));
+            ScoreDoc[] page = Arrays.copyOfRange(top.scoreDocs, Math.min(from, top.scoreDocs.length), top.scoreDocs.length);
+
+            Map<String, Object[]> fragments = Map.of();
+            if (highlight && page.length > 0) {
+                int[] docIds = new int[page.length];
+                for (int i = 0; i < page.length; i++) docIds[i] = page[i].doc;
+                fragments = new Highlighter(searcher, analyzer).fragments(query, docIds);
+            }
+            StoredFields stored = searcher.storedFields();
+            List<DocumentHit> hits = new ArrayList<>(page.length);
+            for (int i = 0; i < page.length; i++) {
+                Map<String, List<String>> highlights = new LinkedHashMap<>();
+                for (Map.Entry<String, Object[]> field : fragments.entrySet()) {
+                    @SuppressWarnings("unchecked")
+                    List<String> frags = (List<String>) field.getValue()[i];
+                    if (frags != null) highlights.put(field.getKey(), frags);
+                }
+                hits.add(hit(load(stored, page[i].doc, SUMMARY_FIELDS), page[i].score, highlights));
+            }
+            Map<String, Long> tags = tagBuckets > 0 ? countTags(searcher, query, tagBuckets) : Map.of();
+            return new Result(top.totalHits.value, hits, tags);
+        }), searchPool);
+    }
+
+    @Override
+    public CompletableFuture<Result> prefixSearch(String q, int size, Collection<String> sourceFields) {
+        Set<String> fields = new LinkedHashSet<>(sourceFields);
+        fields.add("id");
+        searches.increment();
+        return CompletableFuture.supplyAsync(() -> withSearcher(searcher -> {
+            String keyword = q.trim();
+            Query query = new DisjunctionMaxQuery(List.of(
+                    new BoostQuery(matchQuery("filename", q, true), 3f),
+                    new BoostQuery(keyword.isEmpty() ? new MatchNoDocsQuery() : new PrefixQuery(new Term("tags", keyword)), 5f),
+                    matchQuery("content", q, true)), 0f);
+            TopDocs top = searcher.search(query, Math.max(1, size));
+            StoredFields stored = searcher.storedFields();
+            List<DocumentHit> hits = new ArrayList<>(top.scoreDocs.length);
+            for (ScoreDoc sd : top.scoreDocs) hits.add(hit(load(stored, sd.doc, fields), sd.score, Map.of()));
+            return new Result(top.totalHits.value, hits, Map.of());
+        }), searchPool);
+    }
+
+    /** Makes everything indexed so far searchable, without waiting for the next scheduled refresh. */
+    public void refresh() throws IOException {
+        searchers.maybeRefreshBlocking();
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("backend", name());
+        m.put("dir", dir.toString());
+        m.put("documents", writer.getDocStats().numDocs);
+        m.put("refreshMs", refreshMs);
+        m.put("indexed", indexed.sum());
+        m.put("searches", searches.sum());
+        try {
+            m.put("segments", withSearcher(s -> s.getIndexReader().leaves().size()));
+        } catch (UncheckedIOException e) {
+            log.debug("Could not count segments", e);
+        }
+        return m;
+    }
+
+    @PreDestroy
+    public void close() {
+        maintenance.shutdownNow();
+        searchPool.shutdownNow();
+        try {
+            searchers.close();
+            writer.close(); // commits
+            directory.close();
+        } catch (IOException e) {
+            log.warn("Could not close the Lucene index at {}", dir, e);
+        }
+    }
+
+    private <T> T withSearcher(SearchWork<T> work) {
+        try {
+            IndexSearcher searcher = searchers.acquire();
+            try {
+                return work.run(searcher);
+            } finally {
+                searchers.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // reopens first, so the work sees every write that has returned
+    private <T> T lookup(SearchWork<T> work) {
+        try {
+            searchers.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return withSearcher(work);
+    }
+
+    private static Optional<DocumentEntity> first(IndexSearcher searcher, Query query, Set<String> fields) throws IOException {
+        TopDocs top = searcher.search(query, 1);
+        if (top.scoreDocs.length == 0) return Optional.empty();
+        return Optional.of(load(searcher.storedFields(), top.scoreDocs[0].doc, fields));
+    }
+
+    private void refreshQuietly() {
+        try {
+            searchers.maybeRefresh();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not refresh the Lucene searcher", e);
+        }
+    }
+
+    private Query bestFields(String q) {
+        return new DisjunctionMaxQuery(List.of(matchQuery("content", q, false), matchQuery("filename", q, false)), 0f);
+    }
+
+    // one SHOULD clause per analyzed term, like a match query with the default OR operator
+    private Query matchQuery(String field, String text, boolean lastAsPrefix) {
+        List<String> terms = analyze(field, text);
+        if (terms.isEmpty()) return new MatchNoDocsQuery();
+        BooleanQuery.Builder b = new BooleanQuery.Builder();
+        for (int i = 0; i < terms.size(); i++) {
+            Term term = new Term(field, terms.get(i));
+            Query q = lastAsPrefix && i == terms.size() - 1 ? new PrefixQuery(term) : new TermQuery(term);
+            b.add(q, BooleanClause.Occur.SHOULD);
+        }
+        return b.build();
+    }
+
+    private List<String> analyze(String field, String text) {
+        List<String> terms = new ArrayList<>();
+        try (TokenStream ts = analyzer.tokenStream(field, text)) {
+            CharTermAttribute term = ts.addAttribute(CharTermAttribute.class);
+            ts.reset();
+            while (ts.incrementToken()) terms.add(term.toString());
+            ts.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms;
+    }
+
+    /** Tag counts over every live document matching {@code query}, like a terms aggregation on tags. */
+    private static Map<String, Long> countTags(IndexSearcher searcher, Query query, int buckets) throws IOException {
+        Weight weight = searcher.createWeight(searcher.rewrite(query), ScoreMode.COMPLETE_NO_SCORES, 1f);
+        Map<String, Long> counts = new HashMap<>();
+        for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+            Scorer scorer = weight.scorer(leaf);
+            if (scorer == null) continue;
+            SortedSetDocValues values = DocValues.getSortedSet(leaf.reader(), "tags");
+            if (values.getValueCount() == 0) continue;
+            long[] ordCounts = new long[(int) values.getValueCount()];
+            Bits live = leaf.reader().getLiveDocs();
+            DocIdSetIterator it = scorer.iterator();
+            for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+                if (live != null && !live.get(doc)) continue;
+                if (!values.advanceExact(doc)) continue;
+                for (int i = 0; i < values.docValueCount(); i++) ordCounts[(int) values.nextOrd()]++;
+            }
+            for (int ord = 0; ord < ordCounts.length; ord++) {
+                if (ordCounts[ord] > 0) counts.merge(values.lookupOrd(ord).utf8ToString(), ordCounts[ord], Long::sum);
+            }
+        }
+        Map<String, Long> top = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()))
+                .limit(buckets)
+                .forEach(e -> top.put(e.getKey(), e.getValue()));
+        return top;
+    }
+
+    private static Document toDocument(DocumentEntity d) {
+        Document doc = new Document();
+        doc.add(new StringField("id", d.getId(), Field.Store.YES));
+        if (d.getSha256() != null) {
+            doc.add(new StoredField("sha256", d.getSha256()));
+            // findOriginal never returns a dedup alias
+            if (d.getAliasOf() == null) doc.add(new StringField("originalSha256", d.getSha256(), Field.Store.NO));
+        }
+        if (d.getAliasOf() != null) doc.add(new StoredField("aliasOf", d.getAliasOf()));
+        if (d.getMinhash() != null) doc.add(new StoredField("minhash", d.getMinhash()));
+        if (d.getMetadata() != null) {
+            try {
+                doc.add(new StoredField("metadata", JSON.writeValueAsString(d.getMetadata())));
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (d.getFilename() != null) doc.add(new Field("filename", d.getFilename(), SEARCHED_TEXT));
+        if (d.getContent() != null) doc.add(new Field("content", d.getContent(), SEARCHED_TEXT));
+        if (d.getPreview() != null) doc.add(new StoredField("preview", d.getPreview()));
+        if (d.getTags() != null) {
+            for (String tag : d.getTags()) {
+                if (tag == null) continue;
+                doc.add(new StringField("tags", tag, Field.Store.YES));
+                doc.add(new SortedSetDocValuesField("tags", new BytesRef(tag)));
+            }
+        }
+        if (d.getFileType() != null) doc.add(new StringField("fileType", d.getFileType(), Field.Store.YES));
+        if (d.getUploadedAt() != null) doc.add(new StoredField("uploadedAt", d.getUploadedAt().toEpochMilli()));
+        if (d.getSize() != null) doc.add(new StoredField("size", d.getSize()));
+        if (d.getDownloadUrl() != null) doc.add(new StoredField("downloadUrl", d.getDownloadUrl()));
+        return doc;
+    }
+
+    // fields null loads every stored field
+    private static DocumentEntity load(StoredFields stored, int docId, Set<String> fields) throws IOException {
+        DocumentStoredFieldVisitor visitor = fields == null ? new DocumentStoredFieldVisitor() : new DocumentStoredFieldVisitor(fields);
+        stored.document(docId, visitor);
+        Document doc = visitor.getDocument();
+        DocumentEntity d = new DocumentEntity();
+        d.setId(doc.get("id"));
+        d.setFilename(doc.get("filename"));
+        d.setContent(doc.get("content"));
+        d.setPreview(doc.get("preview"));
+        d.setFileType(doc.get("fileType"));
+        d.setDownloadUrl(doc.get("downloadUrl"));
+        d.setSha256(doc.get("sha256"));
+        d.setMinhash(doc.get("minhash"));
+        d.setAliasOf(doc.get("aliasOf"));
+        String metadata = doc.get("metadata");
+        if (metadata != null) d.setMetadata(JSON.readValue(metadata, METADATA));
+        String[] tags = doc.getValues("tags");
+        if (tags.length > 0) d.setTags(new ArrayList<>(Arrays.asList(tags)));
+        IndexableField uploadedAt = doc.getField("uploadedAt");
+        if (uploadedAt != null) d.setUploadedAt(Instant.ofEpochMilli(uploadedAt.numericValue().longValue()));
+        IndexableField size = doc.getField("size");
+        if (size != null) d.setSize(size.numericValue().longValue());
+        return d;
+    }
+
+    private static DocumentHit hit(DocumentEntity d, float score, Map<String, List<String>> highlights) {
+        return new DocumentHit(d.getId(), (double) score, d, highlights);
+    }
+
+    private static FieldType searchedText() {
+        FieldType type = new FieldType(TextField.TYPE_STORED);
+        type.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        type.freeze();
+        return type;
+    }
+
+    @FunctionalInterface
+    private interface SearchWork<T> {
+        T run(IndexSearcher searcher) throws IOException;
+    }
+
+    /** Unified highlighter returning each field's fragments as a list, as Elasticsearch does. */
+    private static final class Highlighter extends UnifiedHighlighter {
+        Highlighter(IndexSearcher searcher, Analyzer analyzer) {
+            super(UnifiedHighlighter.builder(searcher, analyzer)
+                    .withFormatter(new Fragments())
+                    .withBreakIterator(() -> LengthGoalBreakIterator.createClosestToLength(
+                            BreakIterator.getSentenceInstance(Locale.ROOT), FRAGMENT_SIZE))
+                    .withMaxLength(MAX_HIGHLIGHT_CHARS));
+        }
+
+        /** Per field, one entry per doc id: its fragments, or null when the field has no match. */
+        Map<String, Object[]> fragments(Query query, int[] docIds) throws IOException {
+            return highlightFieldsAsObjects(HIGHLIGHT_FIELDS, query, docIds, HIGHLIGHT_FRAGMENTS);
+        }
+    }
+
+    /** Each passage with a match as its own {@code <mark>}-tagged fragment, like Elasticsearch's highlight fragments. */
+    static final class Fragments extends PassageFormatter {
+        @Override
+        public Object format(Passage[] passages, String content) {
+            List<String> out = new ArrayList<>(passages.length);
+            for (Passage p : passages) {
+                if (p.getNumMatches() == 0) continue;
+                StringBuilder sb = new StringBuilder();
+                int pos = p.getStartOffset();
+                for (int i = 0; i < p.getNumMatches(); i++) {
+                    int start = p.getMatchStarts()[i];
+                    int end = p.getMatchEnds()[i];
+                    if (start < pos) continue; // overlaps the previous match
+                    sb.append(content, pos, start).append("<mark>").append(content, start, end).append("</mark>");
+                    pos = end;
+                }
+                if (pos < p.getEndOffset()) sb.append(content, pos, p.getEndOffset());
+                out.add(sb.toString().trim());
+            }
+            return out.isEmpty() ? null : out;
+        }
+    }
+}
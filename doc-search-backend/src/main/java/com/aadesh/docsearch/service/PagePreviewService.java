@@ -0,0 +1,448 @@
+package com.aadesh.docsearch.service;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.poi.sl.usermodel.Shape;
+import org.apache.poi.sl.usermodel.Slide;
+import org.apache.poi.sl.usermodel.SlideShow;
+import org.apache.poi.sl.usermodel.SlideShowFactory;
+import org.apache.poi.sl.usermodel.TextShape;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.aadesh.docsearch.exception.PreviewNotSupportedException;
+import com.aadesh.docsearch.model.DocumentEntity;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Page-level previews of PDFs and slide decks (PPTX and legacy PPT): page count, per-page text,
+ * and JPEG page images at a page and a thumbnail resolution.
+ *
+ * Artifacts are produced on first request and kept in the {@link PreviewCache}, keyed by the
+ * file's SHA-256 so duplicate uploads share them. Concurrent requests for the same artifact wait
+ * for a single render, and at most {@code docsearch.preview.render-threads} renders run at once.
+ * PDFs are opened with PDFBox in temp-file-only memory mode, and decks with POI's common slide
+ * API, which reads both formats. Both libraries come with tika-parsers-standard-package.
+ *
+ * Word-processing documents and spreadsheets (DOCX, DOC, XLSX, ODT, ...) are not previewed by
+ * page. They have no fixed pages: the application that prints them decides the page breaks, and
+ * neither POI nor Tika has a layout engine that could. They answer
+ * {@link PreviewNotSupportedException}, and the UI shows its own DOCX rendering or the text.
+ *
+ * Paging through a PDF asks for one page at a time, so the last
+ * {@code docsearch.preview.open-documents} PDFs are kept open and reused instead of being parsed
+ * again for every page. A document is closed once it has been idle for
+ * {@code docsearch.preview.document-idle-seconds}, or when it is pushed out by newer ones. PDFBox
+ * documents are not thread-safe, so renders of one document take turns.
+ */
+@Service
+public class PagePreviewService {
+
+    private static final Logger log = LoggerFactory.getLogger(PagePreviewService.class);
+
+    private final PreviewCache cache;
+    private final BlobStore blobStore;
+    private final Path storageDir;
+    private final int pageDpi;
+    private final int thumbDpi;
+    private final Semaphore renderPermits;
+    private final Map<String, CompletableFuture<Path>> inflight = new ConcurrentHashMap<>();
+    private final int maxOpenPdfs;
+    private final long pdfIdleMillis;
+    // least recently used first; guarded by itself
+    private final LinkedHashMap<Path, OpenPdf> openPdfs = new LinkedHashMap<>(16, 0.75f, true);
+    private final ScheduledExecutorService pdfCloser;
+
+    public PagePreviewService(PreviewCache cache, BlobStore blobStore,
+                              @Value("${file.storage-dir:./uploaded_files}") String storageDirPath,
+                              @Value("${docsearch.preview.page-dpi:96}") int pageDpi,
+                              @Value("${docsearch.preview.thumb-dpi:24}") int thumbDpi,
+                              @Value("${docsearch.preview.render-threads:2}") int renderThreads,
+                              @Value("${docsearch.preview.open-documents:4}") int maxOpenPdfs,
+                              @Value("${docsearch.preview.document-idle-seconds:30}") int pdfIdleSeconds) {
+        this.cache = cache;
+        this.blobStore = blobStore;
+        this.storageDir = Paths.get(storageDirPath);
+        this.pageDpi = pageDpi;
+        this.thumbDpi = thumbDpi;
+        this.renderPermits = new Semaphore(Math.max(1, renderThreads));
+        this.maxOpenPdfs = Math.max(0, maxOpenPdfs);
+        this.pdfIdleMillis = Math.max(1, pdfIdleSeconds) * 1000L;
+        this.pdfCloser = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "preview-pdf-closer");
+            t.setDaemon(true);
+            return t;
+        });
+        if (this.maxOpenPdfs > 0) {
+            long period = Math.max(1000, pdfIdleMillis / 2);
+            pdfCloser.scheduleWithFixedDelay(this::closeIdlePdfs, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public static boolean supports(String fileType) {
+        return fileType != null && switch (fileType.toLowerCase(Locale.ROOT)) {
+            case "pdf", "pptx", "ppt" -> true;
+            default -> false;
+        };
+    }
+
+    public int pageCount(DocumentEntity doc) throws IOException {
+        Path source = source(doc);
+        Path file = cached(key(doc), "pages.count", out -> out.write(
+                Integer.toString(countPages(source, doc.getFileType())).getBytes(StandardCharsets.US_ASCII)));
+        return Integer.parseInt(Files.readString(file, StandardCharsets.US_ASCII).trim());
+    }
+
+    /**
+     * JPEG of page {@code page} (1-based). The file is pinned in the cache until the returned handle
+     * is closed, so it cannot be evicted while it is being sent.
+     */
+    public PreviewCache.Pinned pageImage(DocumentEntity doc, int page, boolean thumbnail) throws IOException {
+        checkPage(doc, page);
+        Path source = source(doc);
+        int dpi = thumbnail ? thumbDpi : pageDpi;
+        String key = key(doc);
+        String name = "p" + page + "-" + dpi + ".jpg";
+        for (int attempt = 0; attempt < 3; attempt++) {
+            cached(key, name, out -> {
+                BufferedImage image = render(source, doc.getFileType(), page, dpi);
+                if (!ImageIO.write(image, "jpg", out)) throw new IOException("No JPEG writer available");
+            });
+            PreviewCache.Pinned pinned = cache.pin(key, name);
+            if (pinned != null) return pinned;
+            // evicted between the render and the pin
+        }
+        throw new IOException("Preview cache evicts page images as soon as they are written; raise docsearch.preview.cache-max-mb");
+    }
+
+    /** Text of pages {@code from..to} (1-based, inclusive, clamped to the page count). */
+    public List<String> pageText(DocumentEntity doc, int from, int to) throws IOException {
+        int pages = pageCount(doc);
+        int first = Math.max(1, from);
+        int last = Math.min(pages, to);
+        String key = key(doc);
+        List<Integer> missing = new ArrayList<>();
+        for (int p = first; p <= last; p++) {
+            if (cache.get(key, "p" + p + ".txt") == null) missing.add(p);
+        }
+        if (!missing.isEmpty()) extractText(doc, key, missing);
+
+        List<String> out = new ArrayList<>();
+        for (int p = first; p <= last; p++) {
+            Path file = cache.get(key, "p" + p + ".txt");
+            out.add(file == null ? "" : Files.readString(file, StandardCharsets.UTF_8));
+        }
+        return out;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>(cache.stats());
+        m.put("pageDpi", pageDpi);
+        m.put("thumbDpi", thumbDpi);
+        m.put("rendering", inflight.size());
+        synchronized (openPdfs) {
+            m.put("openDocuments", openPdfs.size());
+        }
+        return m;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pdfCloser.shutdownNow();
+        List<OpenPdf> closing = new ArrayList<>();
+        synchronized (openPdfs) {
+            for (OpenPdf open : openPdfs.values()) retire(open, closing);
+            openPdfs.clear();
+        }
+        close(closing);
+    }
+
+    private void checkPage(DocumentEntity doc, int page) throws IOException {
+        int pages = pageCount(doc);
+        if (page < 1 || page > pages) {
+            throw new IllegalArgumentException("Page " + page + " out of range 1-" + pages);
+        }
+    }
+
+    private Path source(DocumentEntity doc) throws IOException {
+        if (!supports(doc.getFileType())) {
+            throw new PreviewNotSupportedException("No page previews for ." + doc.getFileType() + " files");
+        }
+        String url = doc.getDownloadUrl();
+        String key = BlobStore.keyOf(url);
+        Path file = null;
+        if (key != null) {
+            Optional<BlobStore.Blob> blob = blobStore.get(key);
+            if (blob.isPresent() && blob.get().compressed) {
+                throw new PreviewNotSupportedException("Stored file of document " + doc.getId() + " is compressed");
+            }
+            file = blob.map(b -> b.path).orElse(null);
+        } else if (url != null) {
+            file = storageDir.resolve(url.substring(url.lastIndexOf('/') + 1));
+        }
+        if (file == null || !Files.isRegularFile(file)) {
+            throw new PreviewNotSupportedException("Stored file of document " + doc.getId() + " is missing");
+        }
+        return file;
+    }
+
+    private static String key(DocumentEntity doc) {
+        return doc.getSha256() != null ? doc.getSha256() : "id-" + doc.getId();
+    }
+
+    /** Returns the cached artifact, producing it once even under concurrent requests. */
+    private Path cached(String key, String name, PreviewCache.Writer writer) throws IOException {
+        Path hit = cache.get(key, name);
+        if (hit != null) return hit;
+
+        String id = key + "/" + name;
+        CompletableFuture<Path> mine = new CompletableFuture<>();
+        CompletableFuture<Path> running = inflight.putIfAbsent(id, mine);
+        if (running != null) return await(running);
+        try {
+            Path file = cache.get(key, name);
+            if (file == null) {
+                renderPermits.acquireUninterruptibly();
+                try {
+                    file = cache.put(key, name, writer);
+                } finally {
+                    renderPermits.release();
+                }
+            }
+            mine.complete(file);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(id, mine);
+        }
+    }
+
+    private static Path await(CompletableFuture<Path> render) throws IOException {
+        try {
+            return render.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    private int countPages(Path source, String fileType) throws IOException {
+        if (isPdf(fileType)) return withPdf(source, PDDocument::getNumberOfPages);
+        try (SlideShow<?, ?> deck = openDeck(source)) {
+            return deck.getSlides().size();
+        }
+    }
+
+    private BufferedImage render(Path source, String fileType, int page, int dpi) throws IOException {
+        if (isPdf(fileType)) {
+            return withPdf(source, pdf -> new PDFRenderer(pdf).renderImageWithDPI(page - 1, dpi, ImageType.RGB));
+        }
+        try (SlideShow<?, ?> deck = openDeck(source)) {
+            Dimension size = deck.getPageSize();
+            double scale = dpi / 72.0;
+            BufferedImage image = new BufferedImage((int) Math.ceil(size.width * scale),
+                    (int) Math.ceil(size.height * scale), BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                g.setPaint(Color.WHITE);
+                g.fillRect(0, 0, image.getWidth(), image.getHeight());
+                g.scale(scale, scale);
+                deck.getSlides().get(page - 1).draw(g);
+            } finally {
+                g.dispose();
+            }
+            return image;
+        }
+    }
+
+    // one pass over the file for every page of the range that is not cached yet
+    private void extractText(DocumentEntity doc, String key, List<Integer> pages) throws IOException {
+        Path source = source(doc);
+        renderPermits.acquireUninterruptibly();
+        try {
+            if (isPdf(doc.getFileType())) {
+                withPdf(source, pdf -> {
+                    PDFTextStripper stripper = new PDFTextStripper();
+                    for (int p : pages) {
+                        stripper.setStartPage(p);
+                        stripper.setEndPage(p);
+                        String text = stripper.getText(pdf);
+                        cache.put(key, "p" + p + ".txt", out -> out.write(text.getBytes(StandardCharsets.UTF_8)));
+                    }
+                    return null;
+                });
+                return;
+            }
+            try (SlideShow<?, ?> deck = openDeck(source)) {
+                List<? extends Slide<?, ?>> slides = deck.getSlides();
+                for (int p : pages) {
+                    StringBuilder text = new StringBuilder();
+                    for (Shape<?, ?> shape : slides.get(p - 1).getShapes()) {
+                        if (shape instanceof TextShape<?, ?> t) text.append(t.getText()).append('\n');
+                    }
+                    cache.put(key, "p" + p + ".txt", out -> out.write(text.toString().getBytes(StandardCharsets.UTF_8)));
+                }
+            }
+        } finally {
+            renderPermits.release();
+        }
+    }
+
+    // PPTX or PPT, read from the file rather than buffered in memory
+    private static SlideShow<?, ?> openDeck(Path source) throws IOException {
+        return SlideShowFactory.create(source.toFile(), null, true);
+    }
+
+    private static boolean isPdf(String fileType) {
+        return "pdf".equalsIgnoreCase(fileType);
+    }
+
+    @FunctionalInterface
+    private interface PdfTask<T> {
+        T apply(PDDocument pdf) throws IOException;
+    }
+
+    /** Runs {@code task} on the open document of {@code source}, loading it if it is not open yet. */
+    private <T> T withPdf(Path source, PdfTask<T> task) throws IOException {
+        if (maxOpenPdfs == 0) {
+            try (PDDocument pdf = load(source)) {
+                return task.apply(pdf);
+            }
+        }
+        OpenPdf open = borrow(source);
+        try {
+            synchronized (open) {
+                if (open.pdf == null) open.pdf = load(source);
+                return task.apply(open.pdf);
+            }
+        } finally {
+            giveBack(open);
+        }
+    }
+
+    private static PDDocument load(Path source) throws IOException {
+        return PDDocument.load(source.toFile(), MemoryUsageSetting.setupTempFileOnly());
+    }
+
+    private OpenPdf borrow(Path source) throws IOException {
+        long modified = Files.getLastModifiedTime(source).toMillis();
+        List<OpenPdf> closing = new ArrayList<>();
+        OpenPdf open;
+        synchronized (openPdfs) {
+            open = openPdfs.get(source);
+            if (open != null && open.modified != modified) {
+                openPdfs.remove(source);
+                retire(open, closing);
+                open = null;
+            }
+            if (open == null) {
+                open = new OpenPdf(modified);
+                openPdfs.put(source, open);
+                Iterator<OpenPdf> eldest = openPdfs.values().iterator();
+                while (openPdfs.size() > maxOpenPdfs) {
+                    OpenPdf e = eldest.next();
+                    eldest.remove();
+                    retire(e, closing);
+                }
+            }
+            open.users++;
+        }
+        close(closing);
+        return open;
+    }
+
+    private void giveBack(OpenPdf open) {
+        List<OpenPdf> closing = new ArrayList<>();
+        synchronized (openPdfs) {
+            open.users--;
+            open.lastUsed = System.currentTimeMillis();
+            if (open.retired && open.users == 0) closing.add(open);
+        }
+        close(closing);
+    }
+
+    private void closeIdlePdfs() {
+        long cutoff = System.currentTimeMillis() - pdfIdleMillis;
+        List<OpenPdf> closing = new ArrayList<>();
+        synchronized (openPdfs) {
+            for (Iterator<OpenPdf> it = openPdfs.values().iterator(); it.hasNext(); ) {
+                OpenPdf open = it.next();
+                if (open.users == 0 && open.lastUsed < cutoff) {
+                    it.remove();
+                    retire(open, closing);
+                }
+            }
+        }
+        close(closing);
+    }
+
+    // caller holds openPdfs; a document still in use is closed by its last user
+    private static void retire(OpenPdf open, List<OpenPdf> closing) {
+        open.retired = true;
+        if (open.users == 0) closing.add(open);
+    }
+
+    private static void close(List<OpenPdf> closing) {
+        for (OpenPdf open : closing) {
+            synchronized (open) {
+                if (open.pdf == null) continue;
+                try {
+                    open.pdf.close();
+                } catch (IOException e) {
+                    log.debug("Could not close preview document", e);
+                }
+                open.pdf = null;
+            }
+        }
+    }
+
+    private static final class OpenPdf {
+        final long modified;
+        PDDocument pdf;   // guarded by this
+        int users;        // guarded by openPdfs
+        long lastUsed;    // guarded by openPdfs
+        boolean retired;  // guarded by openPdfs
+
+        OpenPdf(long modified) {
+            this.modified = modified;
+        }
+    }
+}
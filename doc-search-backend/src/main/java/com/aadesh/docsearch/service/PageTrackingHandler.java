@@ -0,0 +1,55 @@
+package com.aadesh.docsearch.service;
+
+import java.util.Arrays;
+
+import org.apache.tika.sax.ContentHandlerDecorator;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+/**
+ * Records the character offset at which each page starts in the extracted text.
+ *
+ * Tika's PDF parser wraps every page in {@code <div class="page">} and the PPTX parser
+ * every slide in {@code <div class="slide-content">}. This decorator sits between the
+ * body filter and the text writer, so the offsets line up with the final text.
+ */
+class PageTrackingHandler extends ContentHandlerDecorator {
+
+    private int[] pageStarts = new int[16];
+    private int pages;
+    private int chars;
+
+    PageTrackingHandler(ContentHandler handler) {
+        super(handler);
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String name, Attributes atts) throws SAXException {
+        if ("div".equals(localName)) {
+            String cls = atts.getValue("class");
+            if ("page".equals(cls) || "slide-content".equals(cls)) {
+                if (pages == pageStarts.length) pageStarts = Arrays.copyOf(pageStarts, pages * 2);
+                pageStarts[pages++] = chars;
+            }
+        }
+        super.startElement(uri, localName, name, atts);
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        chars += length;
+        super.characters(ch, start, length);
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        chars += length;
+        super.ignorableWhitespace(ch, start, length);
+    }
+
+    /** Start offsets of pages 1..n, or an empty array when the format has no pages. */
+    int[] getPageStarts() {
+        return Arrays.copyOf(pageStarts, pages);
+    }
+}
@@ -0,0 +1,79 @@
+package com.aadesh.docsearch.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-file-type parse outcomes and latency distribution for {@link TikaService}.
+ *
+ * Latencies go into fixed log-spaced buckets, so recording is lock-free and
+ * percentiles are reported as the upper bound of the bucket they fall in.
+ */
+public class ParseStats {
+
+    // upper bounds in millis; the last bucket catches everything slower
+    private static final long[] BOUNDS_MS = {
+            5, 10, 25, 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 30_000, 60_000, 120_000, Long.MAX_VALUE
+    };
+
+    private final Map<String, TypeStats> byType = new ConcurrentHashMap<>();
+
+    public void record(String fileType, long millis, Outcome outcome) {
+        byType.computeIfAbsent(fileType == null || fileType.isEmpty() ? "unknown" : fileType, k -> new TypeStats())
+                .record(millis, outcome);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> out = new TreeMap<>();
+        byType.forEach((type, s) -> out.put(type, s.snapshot()));
+        return out;
+    }
+
+    public enum Outcome { OK, TRUNCATED, TIMEOUT, FAILED }
+
+    private static class TypeStats {
+        private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MS.length);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalMillis = new AtomicLong();
+        private final AtomicLong maxMillis = new AtomicLong();
+        private final AtomicLongArray outcomes = new AtomicLongArray(Outcome.values().length);
+
+        void record(long millis, Outcome outcome) {
+            int i = 0;
+            while (millis > BOUNDS_MS[i]) i++;
+            buckets.incrementAndGet(i);
+            count.incrementAndGet();
+            totalMillis.addAndGet(millis);
+            maxMillis.accumulateAndGet(millis, Math::max);
+            outcomes.incrementAndGet(outcome.ordinal());
+        }
+
+        Map<String, Object> snapshot() {
+            long n = count.get();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("count", n);
+            for (Outcome o : Outcome.values()) m.put(o.name().toLowerCase(), outcomes.get(o.ordinal()));
+            m.put("meanMillis", n == 0 ? 0 : totalMillis.get() / n);
+            m.put("p50Millis", percentile(n, 0.50));
+            m.put("p95Millis", percentile(n, 0.95));
+            m.put("p99Millis", percentile(n, 0.99));
+            m.put("maxMillis", maxMillis.get());
+            return m;
+        }
+
+        private long percentile(long n, double q) {
+            if (n == 0) return 0;
+            long rank = (long) Math.ceil(q * n);
+            long seen = 0;
+            for (int i = 0; i < BOUNDS_MS.length; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) return i == BOUNDS_MS.length - 1 ? maxMillis.get() : BOUNDS_MS[i];
+            }
+            return maxMillis.get();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.aadesh.docsearch.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.aadesh.docsearch.model.DocumentEntity;
+import com.aadesh.docsearch.model.PassageEntity;
+
+/**
+ * Cuts extracted text into fixed-size, overlapping passages.
+ *
+ * Window edges are nudged to the nearest whitespace (within a tenth of the window)
+ * so words are not split, and each passage is tagged with the page it starts on.
+ */
+public final class PassageSplitter {
+
+    private PassageSplitter() {}
+
+    public static List<PassageEntity> split(DocumentEntity doc, int[] pageStarts, int size, int overlap) {
+        return split(doc, doc.getContent(), pageStarts, size, overlap);
+    }
+
+    /**
+     * Splits {@code text}, which may run past the document's stored content when the content was
+     * capped; {@code pageStarts} are offsets into {@code text}.
+     */
+    public static List<PassageEntity> split(DocumentEntity doc, String text, int[] pageStarts, int size, int overlap) {
+        List<PassageEntity> out = new ArrayList<>();
+        if (text == null || text.isBlank() || size <= 0) return out;
+        int step = Math.max(1, size - Math.max(0, Math.min(overlap, size - 1)));
+        int slack = Math.max(1, size / 10);
+
+        int start = skipWhitespace(text, 0);
+        int ordinal = 0;
+        while (start < text.length()) {
+            int end = Math.min(text.length(), start + size);
+            if (end < text.length()) {
+                int ws = lastWhitespace(text, end, end - slack);
+                if (ws > start) end = ws;
+            }
+            String slice = text.substring(start, end).strip();
+            if (!slice.isEmpty()) {
+                out.add(passage(doc, ordinal++, pageOf(pageStarts, start), slice));
+            }
+            if (end >= text.length()) break;
+            int next = Math.max(start + 1, Math.min(start + step, end));
+            // start the next window on a word boundary too
+            int ws = nextWhitespace(text, next, next + slack);
+            start = skipWhitespace(text, ws >= 0 ? ws : next);
+        }
+        return out;
+    }
+
+    /** The passages of {@code original}, re-keyed and re-labelled for {@code alias}, which shares its text. */
+    public static List<PassageEntity> copyFor(DocumentEntity alias, List<PassageEntity> original) {
+        List<PassageEntity> out = new ArrayList<>(original.size());
+        for (PassageEntity p : original) out.add(passage(alias, p.getOrdinal(), p.getPage(), p.getText()));
+        return out;
+    }
+
+    private static PassageEntity passage(DocumentEntity doc, int ordinal, Integer page, String text) {
+        PassageEntity p = new PassageEntity();
+        p.setId(doc.getId() + "_" + ordinal);
+        p.setDocumentId(doc.getId());
+        p.setOrdinal(ordinal);
+        p.setPage(page);
+        p.setText(text);
+        p.setFilename(doc.getFilename());
+        p.setFileType(doc.getFileType());
+        p.setUploadedAt(doc.getUploadedAt());
+        p.setTags(doc.getTags());
+        p.setDownloadUrl(doc.getDownloadUrl());
+        return p;
+    }
+
+    /** 1-based page containing {@code offset}, or null when the format has no page markers. */
+    static Integer pageOf(int[] pageStarts, int offset) {
+        if (pageStarts == null || pageStarts.length == 0) return null;
+        int idx = Arrays.binarySearch(pageStarts, offset);
+        if (idx < 0) idx = -idx - 2; // insertion point - 1 = last page starting before offset
+        return Math.max(0, idx) + 1;
+    }
+
+    private static int lastWhitespace(String s, int from, int limit) {
+        for (int i = from; i > limit && i > 0; i--) {
+            if (Character.isWhitespace(s.charAt(i - 1))) return i - 1;
+        }
+        return -1;
+    }
+
+    private static int nextWhitespace(String s, int from, int limit) {
+        for (int i = from; i < limit && i < s.length(); i++) {
+            if (Character.isWhitespace(s.charAt(i))) return i;
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+        return i;
+    }
+}
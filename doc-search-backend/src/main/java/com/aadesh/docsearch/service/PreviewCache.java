@@ -0,0 +1,200 @@
+package com.aadesh.docsearch.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * On-disk cache of page previews under {@code <storage-dir>/.previews/<key>/<name>}, bounded by
+ * {@code docsearch.preview.cache-max-mb}.
+ *
+ * Entries are written to a temp file and renamed into place, so readers never see a partial
+ * file. Recency is tracked in memory, seeded from file modification times at startup. When the
+ * total size goes over the limit, the least recently used files are deleted until it is back
+ * under 90% of it. Files {@link #pin pinned} by a response that is still sending them are
+ * skipped, since a sendfile connector opens the file by name after the controller returns.
+ */
+@Service
+public class PreviewCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PreviewCache.class);
+
+    @FunctionalInterface
+    public interface Writer {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private final Path root;
+    private final long maxBytes;
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public PreviewCache(@Value("${file.storage-dir:./uploaded_files}") String storageDirPath,
+                        @Value("${docsearch.preview.cache-max-mb:512}") long maxMb) {
+        this.root = Paths.get(storageDirPath).resolve(".previews").toAbsolutePath().normalize();
+        this.maxBytes = Math.max(1, maxMb) * 1024 * 1024;
+        load();
+    }
+
+    /** The cached file, or null if it has not been produced (or was evicted). */
+    public Path get(String key, String name) {
+        Path file = root.resolve(key).resolve(name);
+        Entry e = entries.get(file);
+        if (e == null || !Files.isRegularFile(file)) {
+            misses.increment();
+            return null;
+        }
+        e.lastAccess = System.currentTimeMillis();
+        hits.increment();
+        return file;
+    }
+
+    /**
+     * Keeps an entry from being evicted until the returned handle is closed. Null if the entry is
+     * not (or no longer) in the cache.
+     */
+    public Pinned pin(String key, String name) {
+        Path file = root.resolve(key).resolve(name);
+        Entry e;
+        synchronized (this) {
+            e = entries.get(file);
+            if (e == null || !Files.isRegularFile(file)) return null;
+            e.pins.incrementAndGet();
+        }
+        e.lastAccess = System.currentTimeMillis();
+        return new Pinned(file, e);
+    }
+
+    /** Writes an entry and returns its path; replaces an existing entry of the same name. */
+    public Path put(String key, String name, Writer writer) throws IOException {
+        Path dir = Files.createDirectories(root.resolve(key));
+        Path file = dir.resolve(name);
+        Path tmp = dir.resolve(name + "." + UUID.randomUUID() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+            writer.write(out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        long size = Files.size(tmp);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Entry previous;
+        synchronized (this) {
+            Entry current = entries.get(file);
+            // a replaced entry keeps the pins of the one it replaces
+            previous = entries.put(file, new Entry(size, System.currentTimeMillis(),
+                    current == null ? new AtomicInteger() : current.pins));
+        }
+        totalBytes.addAndGet(size - (previous == null ? 0 : previous.size));
+        if (totalBytes.get() > maxBytes) evict();
+        return file;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("files", entries.size());
+        m.put("bytes", totalBytes.get());
+        m.put("maxBytes", maxBytes);
+        m.put("hits", hits.sum());
+        m.put("misses", misses.sum());
+        m.put("evictions", evictions.sum());
+        m.put("pinned", entries.values().stream().filter(e -> e.pins.get() > 0).count());
+        m.put("dir", root.toString());
+        return m;
+    }
+
+    private synchronized void evict() {
+        long target = maxBytes * 9 / 10;
+        if (totalBytes.get() <= maxBytes) return;
+        List<Map.Entry<Path, Entry>> byAge = new ArrayList<>(entries.entrySet());
+        byAge.sort((a, b) -> Long.compare(a.getValue().lastAccess, b.getValue().lastAccess));
+        for (Map.Entry<Path, Entry> e : byAge) {
+            if (totalBytes.get() <= target) break;
+            if (e.getValue().pins.get() > 0) continue;
+            if (!entries.remove(e.getKey(), e.getValue())) continue;
+            try {
+                Files.deleteIfExists(e.getKey());
+            } catch (IOException ex) {
+                log.debug("Could not delete preview {}", e.getKey(), ex);
+            }
+            totalBytes.addAndGet(-e.getValue().size);
+            evictions.increment();
+        }
+    }
+
+    private void load() {
+        if (!Files.isDirectory(root)) return;
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(Files::isRegularFile).forEach(f -> {
+                try {
+                    if (f.getFileName().toString().endsWith(".tmp")) {
+                        Files.deleteIfExists(f); // left over from a crash mid-write
+                        return;
+                    }
+                    long size = Files.size(f);
+                    entries.put(f, new Entry(size, Files.getLastModifiedTime(f).toMillis(), new AtomicInteger()));
+                    totalBytes.addAndGet(size);
+                } catch (IOException e) {
+                    log.debug("Skipping preview {}", f, e);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Could not scan preview cache {}", root, e);
+        }
+        if (totalBytes.get() > maxBytes) evict();
+        log.info("Preview cache: {} files, {} bytes", entries.size(), totalBytes.get());
+    }
+
+    /** A cache file that eviction leaves alone until {@link #close()}. */
+    public static final class Pinned implements AutoCloseable {
+        public final Path path;
+        private final Entry entry;
+        private boolean closed;
+
+        private Pinned(Path path, Entry entry) {
+            this.path = path;
+            this.entry = entry;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            entry.pins.decrementAndGet();
+        }
+    }
+
+    private static final class Entry {
+        final long size;
+        final AtomicInteger pins;
+        volatile long lastAccess;
+
+        Entry(long size, long lastAccess, AtomicInteger pins) {
+            this.size = size;
+            this.lastAccess = lastAccess;
+            this.pins = pins;
+        }
+    }
+}
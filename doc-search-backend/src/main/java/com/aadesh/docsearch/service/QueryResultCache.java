@@ -0,0 +1,218 @@
+package com.aadesh.docsearch.service;
+
+import java.time.temporal.TemporalAccessor;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-process LRU cache of search response bodies, bounded both by entry count and by an
+ * estimate of retained bytes.
+ *
+ * Entries are stamped with the {@link IndexGeneration} read before the query ran. Any write
+ * to the index bumps the generation, so an entry computed before (or concurrently with) a
+ * write is treated as a miss and dropped the next time it is looked up. Results are not
+ * stored during the refresh grace period right after a write, because the search backend only
+ * makes the new document searchable on its next refresh. The grace period defaults to the
+ * backend's refresh interval ({@code docsearch.index.refresh-interval}, or
+ * {@code docsearch.lucene.refresh-ms} with the Lucene backend). A configured
+ * {@code docsearch.cache.refresh-grace-ms} shorter than that is raised to it, since results
+ * cached in between could miss the new document for as long as they stay cached.
+ */
+@Service
+public class QueryResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryResultCache.class);
+    private static final Pattern TIME_VALUE = Pattern.compile("(-?\\d+)\\s*(nanos|micros|ms|s|m|h|d)?");
+
+    private final IndexGeneration generation;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long refreshGraceMillis;
+
+    // access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+
+    public QueryResultCache(IndexGeneration generation,
+                            @Value("${docsearch.cache.enabled:true}") boolean enabled,
+                            @Value("${docsearch.cache.max-entries:1000}") int maxEntries,
+                            @Value("${docsearch.cache.max-mb:32}") int maxMb,
+                            @Value("${docsearch.cache.refresh-grace-ms:-1}") long refreshGraceMillis,
+                            @Value("${docsearch.search.backend:elasticsearch}") String backend,
+                            @Value("${docsearch.index.refresh-interval:1s}") String indexRefreshInterval,
+                            @Value("${docsearch.lucene.refresh-ms:1000}") long luceneRefreshMillis) {
+        this.generation = generation;
+        this.enabled = enabled;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxBytes = Math.max(1, maxMb) * 1024L * 1024L;
+        long refreshMillis = "lucene".equalsIgnoreCase(backend) ? luceneRefreshMillis : timeValueMillis(indexRefreshInterval);
+        this.refreshGraceMillis = graceMillis(refreshGraceMillis, refreshMillis);
+    }
+
+    /**
+     * The grace period to use: the refresh interval when none is configured (negative), and never
+     * less than it. A disabled refresh (negative interval) sets no floor.
+     */
+    static long graceMillis(long configured, long refreshMillis) {
+        if (configured < 0) return Math.max(0, refreshMillis);
+        if (configured < refreshMillis) {
+            log.warn("docsearch.cache.refresh-grace-ms={} is shorter than the refresh interval of {} ms; using {} ms",
+                    configured, refreshMillis, refreshMillis);
+            return refreshMillis;
+        }
+        return configured;
+    }
+
+    /** Milliseconds of an Elasticsearch time value such as {@code 1s} or {@code 500ms}; -1 stays -1. */
+    static long timeValueMillis(String value) {
+        Matcher m = TIME_VALUE.matcher(value == null ? "" : value.trim());
+        if (!m.matches()) {
+            log.warn("Cannot read the refresh interval '{}'; assuming 1s", value);
+            return 1000;
+        }
+        long n = Long.parseLong(m.group(1));
+        if (n < 0) return -1;
+        String unit = m.group(2) == null ? "ms" : m.group(2);
+        return switch (unit) {
+            case "nanos" -> TimeUnit.NANOSECONDS.toMillis(n);
+            case "micros" -> TimeUnit.MICROSECONDS.toMillis(n);
+            case "s" -> TimeUnit.SECONDS.toMillis(n);
+            case "m" -> TimeUnit.MINUTES.toMillis(n);
+            case "h" -> TimeUnit.HOURS.toMillis(n);
+            case "d" -> TimeUnit.DAYS.toMillis(n);
+            default -> n;
+        };
+    }
+
+    /** Cache key for one endpoint call; the query is trimmed, lower-cased and whitespace-collapsed. */
+    public static String key(String endpoint, String q, Object... params) {
+        StringBuilder sb = new StringBuilder(endpoint).append('|')
+                .append(q == null ? "" : q.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " "));
+        for (Object p : params) sb.append('|').append(p);
+        return sb.toString();
+    }
+
+    /** Generation to pass to {@link #put}; read it before querying Elasticsearch. */
+    public long generation() {
+        return generation.current();
+    }
+
+    /** Cached body for the key, or null on a miss. */
+    public Object get(String key) {
+        if (!enabled) return null;
+        long current = generation.current();
+        synchronized (this) {
+            Entry e = entries.get(key);
+            if (e == null) {
+                misses.increment();
+                return null;
+            }
+            if (e.generation != current) {
+                entries.remove(key);
+                bytes -= e.bytes;
+                stale.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return e.body;
+        }
+    }
+
+    public void put(String key, long computedAtGeneration, Object body) {
+        if (!enabled || computedAtGeneration != generation.current()) return;
+        if (generation.millisSinceLastBump() < refreshGraceMillis) return;
+        long size = estimateBytes(body) + key.length() * 2L + 64;
+        if (size > maxBytes) return;
+        synchronized (this) {
+            Entry previous = entries.put(key, new Entry(computedAtGeneration, body, size));
+            if (previous != null) bytes -= previous.bytes;
+            bytes += size;
+            puts.increment();
+            Iterator<Entry> it = entries.values().iterator();
+            while ((entries.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+                Entry eldest = it.next();
+                it.remove();
+                bytes -= eldest.bytes;
+                evictions.increment();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        long h = hits.sum();
+        long mi = misses.sum();
+        m.put("enabled", enabled);
+        m.put("refreshGraceMillis", refreshGraceMillis);
+        synchronized (this) {
+            m.put("entries", entries.size());
+            m.put("estimatedBytes", bytes);
+        }
+        m.put("maxEntries", maxEntries);
+        m.put("maxBytes", maxBytes);
+        m.put("hits", h);
+        m.put("misses", mi);
+        m.put("hitRatio", h + mi == 0 ? 0.0 : (double) h / (h + mi));
+        m.put("staleDrops", stale.sum());
+        m.put("evictions", evictions.sum());
+        m.put("puts", puts.sum());
+        m.put("generation", generation.current());
+        return m;
+    }
+
+    /** Rough retained size of a response body built from maps, lists, strings and numbers. */
+    static long estimateBytes(Object o) {
+        if (o == null) return 0;
+        if (o instanceof CharSequence cs) return 40 + cs.length() * 2L;
+        if (o instanceof Number || o instanceof Boolean || o instanceof Enum<?>) return 16;
+        if (o instanceof TemporalAccessor) return 24;
+        if (o instanceof Map<?, ?> map) {
+            long n = 48;
+            for (Map.Entry<?, ?> e : map.entrySet()) n += 32 + estimateBytes(e.getKey()) + estimateBytes(e.getValue());
+            return n;
+        }
+        if (o instanceof Collection<?> c) {
+            long n = 40;
+            for (Object item : c) n += 8 + estimateBytes(item);
+            return n;
+        }
+        return 64;
+    }
+
+    private static class Entry {
+        final long generation;
+        final Object body;
+        final long bytes;
+
+        Entry(long generation, Object body, long bytes) {
+            this.generation = generation;
+            this.body = body;
+            this.bytes = bytes;
+        }
+    }
+}
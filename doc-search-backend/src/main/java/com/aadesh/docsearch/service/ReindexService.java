@@ -0,0 +1,516 @@
+package com.aadesh.docsearch.service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.index.Settings;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.stereotype.Service;
+
+import com.aadesh.docsearch.config.IndexNames;
+import com.aadesh.docsearch.model.DocumentEntity;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.IndexState;
+import co.elastic.clients.elasticsearch.indices.update_aliases.Action;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Rebuilds the documents index behind its alias without taking search down.
+ *
+ * Searches and writes use the alias {@code documents}, which points at a versioned index
+ * ({@code documents-v<N>}). A reindex:
+ * <ol>
+ *   <li>creates {@code documents-v<N+1>} with the current settings and mapping, with refresh and
+ *       replicas off while it is loaded;</li>
+ *   <li>names it as the shadow index of the {@link IndexWriteFence}, so every document written
+ *       from then on also goes there;</li>
+ *   <li>opens a point in time on the alias and copies it in {@code docsearch.reindex.slices}
+ *       parallel slices, each walking its slice in {@code _shard_doc} order and sending the stored
+ *       sources (extracted text included, so nothing is parsed again) with _bulk create. A
+ *       document the shadow writes got there first is left alone and counted as written during
+ *       the reindex. Documents without a current MinHash signature are signed from their stored
+ *       text on the way, and added to the {@link SimilarityIndex} once written. {@code total} is counted on the same point in time, so once the copy is done
+ *       it equals {@code copied} plus {@code writtenDuringReindex}. The copy is throttled to
+ *       {@code docsearch.reindex.max-docs-per-second}, and items Elasticsearch rejects as
+ *       overloaded (429) are retried with backoff;</li>
+ *   <li>restores refresh and replicas, then, with writes held by the fence, moves the alias to the
+ *       new index in one _aliases call.</li>
+ * </ol>
+ * Search keeps using the old index until that call. The old index is kept for rollback. A plain
+ * {@code documents} index from before aliases has to go, since an alias cannot share its name: it
+ * is made read-only, cloned to {@code documents-v0} for rollback, and replaced in the same atomic
+ * call. If any step fails, or a shadow write failed, the new index is deleted and the alias (or
+ * the plain index) is left alone.
+ *
+ * A reindex and a blob migration never run at once: both {@link IndexWriteFence#claim claim} the
+ * documents index.
+ *
+ * New versions get the managed mapping of {@link DocumentEntity} and its settings file, with
+ * shards, replicas and refresh interval from {@code docsearch.index.*}. On startup the replicas,
+ * refresh interval and mapping are also applied to the current index. Changes that an existing
+ * index cannot take, such as a field's type or index options, or the shard count, are reported
+ * in the reindex status and take effect with the next reindex.
+ *
+ * Only the Elasticsearch backend has an alias to manage; with Lucene there is no reindex.
+ */
+@Service
+@ConditionalOnProperty(name = "docsearch.search.backend", havingValue = "elasticsearch", matchIfMissing = true)
+public class ReindexService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReindexService.class);
+    private static final int MAX_RETRIES = 5;
+    private static final String JOB = "reindex";
+
+    private final ElasticsearchClient esClient;
+    private final ElasticsearchOperations operations;
+    private final IndexNames indexNames;
+    private final IndexWriteFence writeFence;
+    private final IndexGeneration indexGeneration;
+    private final SimilarityIndex similarityIndex;
+    private final int defaultSlices;
+    private final int batchSize;
+    private final double maxDocsPerSecond;
+    private final String pitKeepAlive;
+    private final int shards;
+    private final int replicas;
+    private final String refreshInterval;
+    private final long startupTimeoutMillis;
+    private volatile String profileMismatch;
+    private volatile Progress last;
+
+    public ReindexService(ElasticsearchClient esClient, ElasticsearchOperations operations, IndexNames indexNames,
+                          IndexWriteFence writeFence, IndexGeneration indexGeneration, SimilarityIndex similarityIndex,
+                          @Value("${docsearch.reindex.slices:4}") int defaultSlices,
+                          @Value("${docsearch.reindex.batch-size:500}") int batchSize,
+                          @Value("${docsearch.reindex.max-docs-per-second:0}") double maxDocsPerSecond,
+                          @Value("${docsearch.search.pit-keep-alive:2m}") String pitKeepAlive,
+                          @Value("${docsearch.index.shards:1}") int shards,
+                          @Value("${docsearch.index.replicas:1}") int replicas,
+                          @Value("${docsearch.index.refresh-interval:1s}") String refreshInterval,
+                          @Value("${docsearch.index.startup-timeout-ms:60000}") long startupTimeoutMillis) {
+        this.esClient = esClient;
+        this.operations = operations;
+        this.indexNames = indexNames;
+        this.writeFence = writeFence;
+        this.indexGeneration = indexGeneration;
+        this.similarityIndex = similarityIndex;
+        this.defaultSlices = Math.max(1, defaultSlices);
+        this.batchSize = Math.max(1, Math.min(10_000, batchSize));
+        this.maxDocsPerSecond = maxDocsPerSecond;
+        this.pitKeepAlive = pitKeepAlive;
+        this.shards = Math.max(1, shards);
+        this.replicas = Math.max(0, replicas);
+        this.refreshInterval = refreshInterval;
+        this.startupTimeoutMillis = Math.max(0, startupTimeoutMillis);
+    }
+
+    /**
+     * On a fresh cluster, creates {@code documents-v1} behind the alias before anything is written;
+     * otherwise applies the managed profile to the current index as far as it can take it.
+     *
+     * Until the alias (or a plain index of that name) exists, startup does not go on: a write
+     * would make Elasticsearch auto-create {@code documents} as a plain index with a dynamic
+     * mapping. While the cluster cannot be reached the check is retried with backoff for
+     * {@code docsearch.index.startup-timeout-ms}; after that startup fails.
+     */
+    @PostConstruct
+    public void prepareIndex() {
+        String alias = indexNames.getDocuments();
+        long deadline = System.currentTimeMillis() + startupTimeoutMillis;
+        long backoff = 500;
+        boolean existed;
+        while (true) {
+            try {
+                existed = ensureIndex(alias);
+                break;
+            } catch (Exception e) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) {
+                    throw new IllegalStateException("Could not set up the " + alias + " index within "
+                            + startupTimeoutMillis + " ms (docsearch.index.startup-timeout-ms)", e);
+                }
+                long wait = Math.min(backoff, left);
+                log.warn("Could not set up the {} index yet; retrying in {} ms: {}", alias, wait, e.toString());
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for Elasticsearch", ie);
+                }
+                backoff = Math.min(10_000, backoff * 2);
+            }
+        }
+        if (!existed) return;
+        try {
+            applyProfile(alias);
+        } catch (Exception e) {
+            log.warn("Could not apply the index profile to {}", alias, e);
+        }
+    }
+
+    // true if the alias, or a plain index of that name, was there; otherwise puts documents-v1 behind it
+    private boolean ensureIndex(String alias) throws IOException {
+        if (esClient.indices().existsAlias(e -> e.name(alias)).value()) return true;
+        if (esClient.indices().exists(e -> e.index(alias)).value()) {
+            log.info("{} is a plain index; POST /api/admin/reindex moves it behind an alias", alias);
+            return true;
+        }
+        String first = indexNames.documentsVersion(1);
+        // an earlier attempt may have created it and failed before the alias was added
+        if (!esClient.indices().exists(e -> e.index(first)).value()) createIndex(first);
+        esClient.indices().updateAliases(u -> u.actions(a -> a.add(ad -> ad.index(first).alias(alias).isWriteIndex(true))));
+        log.info("Created {} behind alias {}", first, alias);
+        return false;
+    }
+
+    /** Starts a reindex in the background; false if one, or a blob migration, is already running. */
+    public boolean start(Integer slices) {
+        if (!writeFence.claim(JOB)) return false;
+        Progress progress = new Progress(slices == null || slices < 1 ? defaultSlices : slices);
+        last = progress;
+        Thread t = new Thread(() -> {
+            try {
+                reindex(progress);
+                progress.state = "DONE";
+            } catch (Exception e) {
+                log.error("Reindex into {} failed", progress.target, e);
+                progress.state = "FAILED";
+                progress.error = e.getMessage();
+            } finally {
+                progress.finishedAt = Instant.now();
+                writeFence.release(JOB);
+            }
+        }, "reindex");
+        t.setDaemon(true);
+        t.start();
+        return true;
+    }
+
+    public Map<String, Object> status() {
+        Progress p = last;
+        Map<String, Object> m = p == null ? new LinkedHashMap<>(Map.of("state", "NONE")) : p.toMap();
+        m.put("profileApplied", profileMismatch == null);
+        if (profileMismatch != null) m.put("profileMismatch", profileMismatch);
+        return m;
+    }
+
+    private void applyProfile(String alias) throws IOException {
+        esClient.indices().putSettings(p -> p.index(alias)
+                .settings(s -> s.numberOfReplicas(Integer.toString(replicas)).refreshInterval(t -> t.time(refreshInterval))));
+        List<String> mismatches = new ArrayList<>();
+        for (IndexState state : esClient.indices().getSettings(g -> g.index(alias)).result().values()) {
+            IndexSettings settings = state.settings().index() != null ? state.settings().index() : state.settings();
+            if (settings.numberOfShards() != null && !settings.numberOfShards().equals(Integer.toString(shards))) {
+                mismatches.add(settings.numberOfShards() + " shards instead of " + shards);
+            }
+        }
+        IndexOperations index = operations.indexOps(IndexCoordinates.of(alias));
+        Document mapping = operations.indexOps(DocumentEntity.class).createMapping();
+        try {
+            index.putMapping(mapping);
+        } catch (RuntimeException e) {
+            // one conflicting field (e.g. metadata changing from object to flattened) rejects the
+            // whole request; put the fields one by one so the new ones still land
+            mismatches.addAll(putFieldByField(index, mapping));
+        }
+        profileMismatch = mismatches.isEmpty() ? null : String.join("; ", mismatches);
+        if (profileMismatch != null) {
+            log.warn("{} does not match the managed index profile ({}); POST /api/admin/reindex to apply it",
+                    alias, profileMismatch);
+        }
+    }
+
+    /** Puts each top-level field of the mapping on its own; returns the fields that were rejected. */
+    @SuppressWarnings("unchecked")
+    private static List<String> putFieldByField(IndexOperations index, Document mapping) {
+        List<String> rejected = new ArrayList<>();
+        if (!(mapping.get("properties") instanceof Map<?, ?> properties)) {
+            return List.of("mapping: no properties to apply");
+        }
+        for (Map.Entry<String, Object> field : ((Map<String, Object>) properties).entrySet()) {
+            try {
+                index.putMapping(Document.from(Map.of("properties", Map.of(field.getKey(), field.getValue()))));
+            } catch (RuntimeException e) {
+                rejected.add("mapping of " + field.getKey() + ": " + e.getMessage());
+            }
+        }
+        return rejected;
+    }
+
+    private void reindex(Progress progress) throws Exception {
+        String alias = indexNames.getDocuments();
+        boolean plain = !esClient.indices().existsAlias(e -> e.name(alias)).value();
+        List<String> sources = plain ? List.of(alias)
+                : new ArrayList<>(esClient.indices().getAlias(g -> g.name(alias)).result().keySet());
+        String target = indexNames.documentsVersion(nextVersion(alias));
+        progress.sources = sources;
+        progress.target = target;
+
+        createIndex(target);
+        try {
+            IndexSettings loaded = settingsOf(target);
+            String replicas = loaded.numberOfReplicas() != null ? loaded.numberOfReplicas() : "1";
+            Time refresh = loaded.refreshInterval() != null ? loaded.refreshInterval() : Time.of(t -> t.time("1s"));
+            esClient.indices().putSettings(p -> p.index(target)
+                    .settings(s -> s.numberOfReplicas("0").refreshInterval(t -> t.time("-1"))));
+
+            writeFence.exclusively(() -> writeFence.setShadowIndex(target));
+            progress.state = "COPYING";
+            copy(alias, target, progress);
+
+            progress.state = "SWAPPING";
+            esClient.indices().putSettings(p -> p.index(target)
+                    .settings(s -> s.numberOfReplicas(replicas).refreshInterval(refresh)));
+            esClient.indices().refresh(r -> r.index(target));
+            writeFence.swapShadow(() -> swap(alias, sources, plain, target));
+        } catch (Exception e) {
+            writeFence.exclusively(() -> writeFence.setShadowIndex(null));
+            deleteQuietly(target);
+            throw e;
+        }
+        indexGeneration.bump();
+        profileMismatch = null;
+        log.info("Alias {} now points at {} ({} documents copied)", alias, target, progress.copied.sum());
+    }
+
+    private void copy(String alias, String target, Progress progress) throws Exception {
+        String pitId = esClient.openPointInTime(o -> o.index(alias).keepAlive(t -> t.time(pitKeepAlive))).id();
+        // counted on the point in time the slices copy, not on the live index
+        progress.total = esClient.search(s -> s.pit(p -> p.id(pitId).keepAlive(t -> t.time(pitKeepAlive)))
+                .size(0).trackTotalHits(t -> t.enabled(true)), ObjectNode.class).hits().total().value();
+        Throttle throttle = new Throttle(maxDocsPerSecond);
+        ExecutorService pool = Executors.newFixedThreadPool(progress.slices, r -> {
+            Thread t = new Thread(r, "reindex-slice");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<?>> slices = new ArrayList<>();
+            for (int i = 0; i < progress.slices; i++) {
+                int slice = i;
+                slices.add(pool.submit(() -> {
+                    copySlice(pitId, slice, target, throttle, progress);
+                    return null;
+                }));
+            }
+            for (Future<?> f : slices) f.get(); // the first failed slice fails the reindex
+        } finally {
+            pool.shutdownNow();
+            pool.awaitTermination(30, TimeUnit.SECONDS);
+            try {
+                esClient.closePointInTime(c -> c.id(pitId));
+            } catch (Exception e) {
+                log.debug("Could not close point-in-time; it will expire on its own", e);
+            }
+        }
+    }
+
+    private void copySlice(String pitId, int slice, String target, Throttle throttle, Progress progress)
+            throws Exception {
+        int max = progress.slices;
+        List<FieldValue> after = null;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<FieldValue> searchAfter = after;
+            SearchResponse<ObjectNode> resp = esClient.search(s -> {
+                s.pit(p -> p.id(pitId).keepAlive(t -> t.time(pitKeepAlive)))
+                        .size(batchSize)
+                        .sort(so -> so.field(f -> f.field("_shard_doc").order(SortOrder.Asc)))
+                        .trackTotalHits(t -> t.enabled(false));
+                if (max > 1) s.slice(sl -> sl.id(Integer.toString(slice)).max(max));
+                if (searchAfter != null) s.searchAfter(searchAfter);
+                return s;
+            }, ObjectNode.class);
+
+            List<Hit<ObjectNode>> hits = resp.hits().hits();
+            if (hits.isEmpty()) return;
+            throttle.acquire(hits.size());
+            List<DocumentEntity> signed = sign(hits);
+            write(target, hits, progress);
+            signed.forEach(similarityIndex::onIndexed);
+            progress.signed.add(signed.size());
+            if (hits.size() < batchSize) return;
+            after = hits.get(hits.size() - 1).sort();
+        }
+        throw new InterruptedException("Reindex slice " + slice + " interrupted");
+    }
+
+    /** Adds a signature to the sources that lack a current one; returns those documents, for the similarity index. */
+    private List<DocumentEntity> sign(List<Hit<ObjectNode>> hits) {
+        List<DocumentEntity> signed = new ArrayList<>();
+        for (Hit<ObjectNode> hit : hits) {
+            ObjectNode source = hit.source();
+            if (source == null) continue;
+            String minhash = similarityIndex.backfill(text(source, "minhash"), text(source, "content"));
+            if (minhash == null) continue;
+            source.put("minhash", minhash);
+            DocumentEntity doc = new DocumentEntity();
+            doc.setId(hit.id());
+            doc.setFilename(text(source, "filename"));
+            doc.setMinhash(minhash);
+            signed.add(doc);
+        }
+        return signed;
+    }
+
+    private static String text(ObjectNode source, String field) {
+        JsonNode node = source.get(field);
+        return node != null && node.isTextual() ? node.textValue() : null;
+    }
+
+    private void write(String target, List<Hit<ObjectNode>> hits, Progress progress) throws Exception {
+        List<Hit<ObjectNode>> batch = hits;
+        for (int attempt = 0; ; attempt++) {
+            BulkRequest.Builder br = new BulkRequest.Builder();
+            for (Hit<ObjectNode> hit : batch) {
+                br.operations(op -> op.create(c -> c.index(target).id(hit.id()).document(hit.source())));
+            }
+            BulkResponse resp = esClient.bulk(br.build());
+            List<Hit<ObjectNode>> rejected = new ArrayList<>();
+            for (int i = 0; i < resp.items().size(); i++) {
+                BulkResponseItem item = resp.items().get(i);
+                if (item.error() == null) {
+                    progress.copied.increment();
+                } else if (item.status() == 409) {
+                    progress.alreadyThere.increment(); // written during the reindex
+                } else if (item.status() == 429) {
+                    rejected.add(batch.get(i));
+                } else {
+                    throw new IllegalStateException("Could not copy " + item.id() + ": " + item.error().reason());
+                }
+            }
+            if (rejected.isEmpty()) return;
+            if (attempt >= MAX_RETRIES) {
+                throw new IllegalStateException(rejected.size() + " documents still rejected after " + attempt + " retries");
+            }
+            progress.retries.increment();
+            Thread.sleep(200L << attempt); // back off while Elasticsearch catches up
+            batch = rejected;
+        }
+    }
+
+    private void swap(String alias, List<String> sources, boolean plain, String target) throws IOException {
+        List<Action> actions = new ArrayList<>();
+        if (!plain) {
+            for (String source : sources) actions.add(Action.of(a -> a.remove(r -> r.index(source).alias(alias))));
+            actions.add(Action.of(a -> a.add(ad -> ad.index(target).alias(alias).isWriteIndex(true))));
+            esClient.indices().updateAliases(u -> u.actions(actions));
+            return;
+        }
+        // the alias takes the plain index's name, so that index is removed; a read-only clone keeps it for rollback
+        String rollback = indexNames.documentsVersion(0);
+        esClient.indices().putSettings(p -> p.index(alias).settings(s -> s.blocks(b -> b.write(true))));
+        boolean cloned = false;
+        try {
+            esClient.indices().clone(c -> c.index(alias).target(rollback));
+            cloned = true;
+            actions.add(Action.of(a -> a.removeIndex(r -> r.index(alias))));
+            actions.add(Action.of(a -> a.add(ad -> ad.index(target).alias(alias).isWriteIndex(true))));
+            esClient.indices().updateAliases(u -> u.actions(actions));
+        } catch (IOException | RuntimeException e) {
+            if (cloned) deleteQuietly(rollback);
+            esClient.indices().putSettings(p -> p.index(alias).settings(s -> s.blocks(b -> b.write(false))));
+            throw e;
+        }
+        log.info("Plain index {} was replaced by the alias; its documents are kept in {}", alias, rollback);
+    }
+
+    private int nextVersion(String alias) throws IOException {
+        String prefix = alias + "-v";
+        int max = 0;
+        for (String index : esClient.indices().get(g -> g.index(prefix + "*")).result().keySet()) {
+            try {
+                max = Math.max(max, Integer.parseInt(index.substring(prefix.length())));
+            } catch (NumberFormatException ignored) {
+                // not one of ours
+            }
+        }
+        return max + 1;
+    }
+
+    private void createIndex(String name) {
+        IndexOperations entity = operations.indexOps(DocumentEntity.class);
+        Settings settings = entity.createSettings();
+        settings.put("index.number_of_shards", shards);
+        settings.put("index.number_of_replicas", replicas);
+        settings.put("index.refresh_interval", refreshInterval);
+        operations.indexOps(IndexCoordinates.of(name)).create(settings, entity.createMapping());
+    }
+
+    private IndexSettings settingsOf(String index) throws IOException {
+        IndexState state = esClient.indices().getSettings(g -> g.index(index)).get(index);
+        IndexSettings settings = state.settings();
+        return settings.index() != null ? settings.index() : settings;
+    }
+
+    private void deleteQuietly(String index) {
+        try {
+            esClient.indices().delete(d -> d.index(index));
+        } catch (Exception e) {
+            log.warn("Could not delete the partial index {}", index, e);
+        }
+    }
+
+    private static final class Progress {
+        final int slices;
+        final Instant startedAt = Instant.now();
+        volatile String state = "STARTING";
+        volatile List<String> sources = List.of();
+        volatile String target;
+        volatile long total = -1;
+        volatile Instant finishedAt;
+        volatile String error;
+        final LongAdder copied = new LongAdder();
+        final LongAdder alreadyThere = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder signed = new LongAdder();
+
+        Progress(int slices) {
+            this.slices = slices;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("state", state);
+            m.put("from", sources);
+            m.put("to", target);
+            m.put("slices", slices);
+            m.put("total", total);
+            m.put("copied", copied.sum());
+            m.put("writtenDuringReindex", alreadyThere.sum());
+            m.put("retries", retries.sum());
+            m.put("signaturesAdded", signed.sum());
+            m.put("startedAt", startedAt);
+            m.put("finishedAt", finishedAt);
+            if (error != null) m.put("error", error);
+            return m;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.aadesh.docsearch.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.aadesh.docsearch.model.DocumentEntity;
+
+/**
+ * The document queries behind the search and graph endpoints, selected with
+ * {@code docsearch.search.backend}: {@code elasticsearch} (default) or {@code lucene}, an
+ * in-process index for single-box installs and deployments without a cluster.
+ *
+ * Writes and lookups go through the matching {@link DocumentStore}; with {@code lucene} both live
+ * in the same in-process index and no cluster is needed.
+ *
+ * Hits come back as {@link DocumentHit}s whichever backend produced them, so the controllers'
+ * response mapping (and the benchmarks feeding it) does not depend on either. Sources never
+ * carry {@code content} or {@code minhash}.
+ */
+public interface SearchBackend {
+
+    /** {@code elasticsearch} or {@code lucene}. */
+    String name();
+
+    /**
+     * A best-fields match of {@code q} on content and filename, {@code size} hits from
+     * {@code from}. With {@code highlight}, hits carry {@code <mark>} fragments of content
+     * (up to 3) and filename; with {@code tagBuckets > 0} the result counts the tags of all
+     * matching documents.
+     */
+    CompletableFuture<Result> search(String q, int from, int size, boolean highlight, int tagBuckets);
+
+    /**
+     * Search-as-you-type over filename (boost 3), tags (boost 5) and content, the last word of
+     * {@code q} matching as a prefix. Sources only carry {@code id} and {@code sourceFields}.
+     */
+    CompletableFuture<Result> prefixSearch(String q, int size, Collection<String> sourceFields);
+
+    /** Whether {@code /api/search/v2} can page this backend's results with a cursor. */
+    default boolean supportsCursorPaging() {
+        return false;
+    }
+
+    /** Whether this backend can answer passage searches ({@code passages=true}). */
+    default boolean supportsPassages() {
+        return false;
+    }
+
+    Map<String, Object> stats();
+
+    final class Result {
+        public final long total;
+        public final List<DocumentHit> hits;
+        /** Tag to number of matching documents, most frequent first; empty unless requested. */
+        public final Map<String, Long> tags;
+
+        public Result(long total, List<DocumentHit> hits, Map<String, Long> tags) {
+            this.total = total;
+            this.hits = hits;
+            this.tags = tags;
+        }
+    }
+
+    /** One matching document: its id, score, the requested source fields and highlight fragments by field. */
+    final class DocumentHit {
+        public final String id;
+        public final Double score;
+        public final DocumentEntity source;
+        public final Map<String, List<String>> highlight;
+
+        public DocumentHit(String id, Double score, DocumentEntity source, Map<String, List<String>> highlight) {
+            this.id = id;
+            this.score = score;
+            this.source = source;
+            this.highlight = highlight == null ? Map.of() : highlight;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.aadesh.docsearch.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+
+/**
+ * Opaque continuation token of cursor-paged search: the point-in-time id, the sort values of
+ * the last hit returned (for {@code search_after}), the total from the first page, and a hash of
+ * the query so a cursor cannot be replayed against a different one. Encoded as URL-safe base64.
+ */
+public final class SearchCursor {
+
+    private static final int VERSION = 1;
+    private static final byte DOUBLE = 'd', LONG = 'l', STRING = 's', BOOLEAN = 'b', NULL = 'n';
+
+    public final String pitId;
+    public final List<FieldValue> searchAfter;
+    public final long total;
+    private final int queryHash;
+
+    public SearchCursor(String pitId, List<FieldValue> searchAfter, long total, String query) {
+        this(pitId, searchAfter, total, query.hashCode());
+    }
+
+    private SearchCursor(String pitId, List<FieldValue> searchAfter, long total, int queryHash) {
+        this.pitId = pitId;
+        this.searchAfter = searchAfter;
+        this.total = total;
+        this.queryHash = queryHash;
+    }
+
+    public boolean matches(String query) {
+        return query.hashCode() == queryHash;
+    }
+
+    public String encode() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            byte[] pit = pitId.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(pit.length);
+            out.write(pit);
+            out.writeInt(queryHash);
+            out.writeLong(total);
+            out.writeByte(searchAfter.size());
+            for (FieldValue v : searchAfter) {
+                if (v.isDouble()) {
+                    out.writeByte(DOUBLE);
+                    out.writeDouble(v.doubleValue());
+                } else if (v.isLong()) {
+                    out.writeByte(LONG);
+                    out.writeLong(v.longValue());
+                } else if (v.isBoolean()) {
+                    out.writeByte(BOOLEAN);
+                    out.writeBoolean(v.booleanValue());
+                } else if (v.isString()) {
+                    out.writeByte(STRING);
+                    out.writeUTF(v.stringValue());
+                } else {
+                    out.writeByte(NULL);
+                }
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // in-memory stream
+        }
+    }
+
+    /** @throws IllegalArgumentException if {@code token} was not produced by {@link #encode()} */
+    public static SearchCursor decode(String token) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)));
+            if (in.readByte() != VERSION) throw new IllegalArgumentException("Unsupported cursor version");
+            int pitLength = in.readInt();
+            if (pitLength <= 0 || pitLength > 64 * 1024) throw new IllegalArgumentException("Invalid cursor");
+            byte[] pit = new byte[pitLength];
+            in.readFully(pit);
+            int queryHash = in.readInt();
+            long total = in.readLong();
+            int n = in.readUnsignedByte();
+            List<FieldValue> values = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                byte type = in.readByte();
+                switch (type) {
+                    case DOUBLE -> values.add(FieldValue.of(in.readDouble()));
+                    case LONG -> values.add(FieldValue.of(in.readLong()));
+                    case BOOLEAN -> values.add(FieldValue.of(in.readBoolean()));
+                    case STRING -> values.add(FieldValue.of(in.readUTF()));
+                    case NULL -> values.add(FieldValue.NULL);
+                    default -> throw new IllegalArgumentException("Invalid cursor");
+                }
+            }
+            if (in.available() != 0) throw new IllegalArgumentException("Invalid cursor");
+            return new SearchCursor(new String(pit, StandardCharsets.UTF_8), values, total, queryHash);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.aadesh.docsearch.service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.aadesh.docsearch.model.DocumentEntity;
+
+/**
+ * Near-duplicate detection over the extracted text, with MinHash signatures and an in-memory
+ * LSH index.
+ *
+ * At ingest {@link #signature} hashes every run of {@link #SHINGLE_WORDS} consecutive words of
+ * the text and keeps, for each of {@code docsearch.similar.hashes} hash functions, the minimum
+ * value. The share of positions where two signatures agree estimates the Jaccard similarity of
+ * the two shingle sets. The signature is stored on the document ({@code minhash}), so the
+ * startup replay rebuilds this index without the text.
+ *
+ * The signature is cut into {@code docsearch.similar.bands} bands. Documents that agree on all
+ * rows of at least one band share a bucket and become candidates, whose similarity is then
+ * estimated from the full signatures. With 64 hashes in 16 bands of 4, a pair at 0.8 similarity
+ * becomes a candidate with over 99.9% probability, a pair at 0.3 with about 12%. Buckets are
+ * chains through a flat int array, so each document costs its signature plus one int per band.
+ */
+@Service
+public class SimilarityIndex implements DocumentIndexListener {
+
+    static final int SHINGLE_WORDS = 5;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int hashes;
+    private final int bands;
+    private final int rows;
+    private final double duplicateThreshold;
+    private final long[] multipliers;
+    private final long[] increments;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    private final List<String> filenames = new ArrayList<>();
+    private int[][] signatures = new int[1024][];
+    // open-addressing table from band key to the newest entry (doc * bands + band) + 1
+    private long[] bucketKeys = new long[1 << 12];
+    private int[] bucketHeads = new int[1 << 12];
+    private int buckets;
+    // next[doc * bands + band]: the previous entry in the same bucket + 1, 0 at the end
+    private int[] next = new int[1024];
+    private long skipped;
+
+    public SimilarityIndex(@Value("${docsearch.similar.hashes:64}") int hashes,
+                           @Value("${docsearch.similar.bands:16}") int bands,
+                           @Value("${docsearch.similar.duplicate-threshold:0.8}") double duplicateThreshold) {
+        this.bands = Math.max(1, bands);
+        this.rows = Math.max(1, hashes / this.bands);
+        this.hashes = this.bands * this.rows;
+        this.duplicateThreshold = duplicateThreshold;
+        // fixed seed: signatures are stored, so the hash functions must not change between runs
+        Random rnd = new Random(0x5EED_2025L);
+        this.multipliers = new long[this.hashes];
+        this.increments = new long[this.hashes];
+        for (int i = 0; i < this.hashes; i++) {
+            multipliers[i] = rnd.nextLong() | 1;
+            increments[i] = rnd.nextLong();
+        }
+    }
+
+    /**
+     * The encoded MinHash signature of {@code text}, or null when it has no words. Texts shorter
+     * than a shingle are hashed as one shingle.
+     */
+    public String signature(String text) {
+        if (text == null) return null;
+        int[] sig = new int[hashes];
+        Arrays.fill(sig, Integer.MAX_VALUE);
+        long[] window = new long[SHINGLE_WORDS];
+        int words = 0;
+        long h = FNV_OFFSET;
+        boolean inWord = false;
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                h = (h ^ Character.toLowerCase(c)) * FNV_PRIME;
+                inWord = true;
+            } else if (inWord) {
+                window[words++ % SHINGLE_WORDS] = h;
+                if (words >= SHINGLE_WORDS) update(sig, shingle(window, words));
+                h = FNV_OFFSET;
+                inWord = false;
+            }
+        }
+        if (words == 0) return null;
+        if (words < SHINGLE_WORDS) update(sig, shingle(window, words));
+        return encode(sig);
+    }
+
+    /**
+     * The signature of a stored document's {@code content} if its {@code minhash} is missing or
+     * was made with a different {@code docsearch.similar.hashes}; null when the stored one is
+     * current or there is no text. Used by the reindex to sign documents from before signatures.
+     */
+    public String backfill(String minhash, String content) {
+        int[] sig = decode(minhash);
+        if (sig != null && sig.length == hashes) return null;
+        return signature(content);
+    }
+
+    @Override
+    public void onIndexed(DocumentEntity doc) {
+        if (doc.getId() == null) return;
+        int[] sig = decode(doc.getMinhash());
+        lock.writeLock().lock();
+        try {
+            if (sig == null || sig.length != hashes) {
+                skipped++; // ingested before signatures, or with a different docsearch.similar.hashes
+                return;
+            }
+            // replay and live ingest can both deliver a document; the first one wins
+            if (docIds.containsKey(doc.getId())) return;
+            int docId = ids.size();
+            docIds.put(doc.getId(), docId);
+            ids.add(doc.getId());
+            filenames.add(doc.getFilename());
+            if (docId == signatures.length) signatures = Arrays.copyOf(signatures, docId * 2);
+            signatures[docId] = sig;
+            if ((docId + 1) * bands > next.length) next = Arrays.copyOf(next, Math.max(next.length * 2, (docId + 1) * bands));
+            for (int b = 0; b < bands; b++) {
+                int slot = slotOf(bandKey(sig, b), true);
+                int entry = docId * bands + b;
+                next[entry] = bucketHeads[slot];
+                bucketHeads[slot] = entry + 1;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<String> replayFields() {
+        return List.of("filename", "minhash");
+    }
+
+    /**
+     * Up to {@code limit} documents whose estimated similarity to {@code id} is at least
+     * {@code minSimilarity}, most similar first; null if {@code id} has no signature.
+     */
+    public List<Map<String, Object>> similarTo(String id, double minSimilarity, int limit) {
+        lock.readLock().lock();
+        try {
+            Integer docId = docIds.get(id);
+            if (docId == null) return null;
+            int[] sig = signatures[docId];
+            Set<Integer> seen = new HashSet<>();
+            List<int[]> found = new ArrayList<>(); // {doc, agreeing hashes}
+            for (int b = 0; b < bands; b++) {
+                int slot = slotOf(bandKey(sig, b), false);
+                if (slot < 0) continue;
+                for (int e = bucketHeads[slot]; e != 0; e = next[e - 1]) {
+                    int other = (e - 1) / bands;
+                    if (other == docId || !seen.add(other)) continue;
+                    int agree = agreement(sig, signatures[other]);
+                    if (agree >= minSimilarity * hashes) found.add(new int[] {other, agree});
+                }
+            }
+            found.sort((x, y) -> Integer.compare(y[1], x[1]));
+            int n = Math.min(Math.max(0, limit), found.size());
+            List<Map<String, Object>> out = new ArrayList<>(n);
+            for (int[] f : found.subList(0, n)) {
+                Map<String, Object> m = new LinkedHashMap<>();
+                m.put("id", ids.get(f[0]));
+                m.put("filename", filenames.get(f[0]));
+                m.put("similarity", Math.round(1000.0 * f[1] / hashes) / 1000.0);
+                out.add(m);
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Groups ranked ids into near-duplicate groups: each id joins the group of the first
+     * better-ranked id it is a near-duplicate of (at least {@code docsearch.similar.duplicate-threshold}),
+     * or starts a new one. Groups are in rank order, led by their best-ranked id. Ids without a
+     * signature are groups of their own.
+     */
+    public List<List<String>> nearDuplicateGroups(List<String> rankedIds) {
+        List<List<String>> groups = new ArrayList<>();
+        List<int[]> leaders = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (String id : rankedIds) {
+                Integer docId = docIds.get(id);
+                int[] sig = docId == null ? null : signatures[docId];
+                int group = -1;
+                for (int g = 0; g < leaders.size() && group < 0 && sig != null; g++) {
+                    int[] leader = leaders.get(g);
+                    if (leader != null && agreement(sig, leader) >= duplicateThreshold * hashes) group = g;
+                }
+                if (group >= 0) {
+                    groups.get(group).add(id);
+                } else {
+                    groups.add(new ArrayList<>(List.of(id)));
+                    leaders.add(sig);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return groups;
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("documents", ids.size());
+            m.put("withoutSignature", skipped);
+            m.put("hashes", hashes);
+            m.put("bands", bands);
+            m.put("rows", rows);
+            m.put("buckets", buckets);
+            m.put("duplicateThreshold", duplicateThreshold);
+            return m;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void update(int[] sig, long shingle) {
+        for (int i = 0; i < hashes; i++) {
+            int v = (int) ((multipliers[i] * shingle + increments[i]) >>> 32);
+            if (v < sig[i]) sig[i] = v;
+        }
+    }
+
+    // order-sensitive combination of the last min(words, SHINGLE_WORDS) word hashes
+    private static long shingle(long[] window, int words) {
+        int n = Math.min(words, SHINGLE_WORDS);
+        long h = FNV_OFFSET;
+        for (int i = words - n; i < words; i++) h = (h ^ window[i % SHINGLE_WORDS]) * FNV_PRIME;
+        return mix(h);
+    }
+
+    private long bandKey(int[] sig, int band) {
+        long h = FNV_OFFSET ^ band;
+        for (int r = band * rows; r < (band + 1) * rows; r++) h = (h ^ sig[r]) * FNV_PRIME;
+        return mix(h);
+    }
+
+    // caller holds the lock (the write lock when create is set); -1 if absent and not created.
+    // A slot counts as taken once it has a head, which onIndexed stores right after creating it.
+    private int slotOf(long key, boolean create) {
+        int mask = bucketKeys.length - 1;
+        int slot = (int) key & mask;
+        while (bucketHeads[slot] != 0) {
+            if (bucketKeys[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        if (!create) return -1;
+        if (buckets + 1 > bucketKeys.length / 2) {
+            grow();
+            return slotOf(key, true);
+        }
+        bucketKeys[slot] = key;
+        buckets++;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = bucketKeys;
+        int[] oldHeads = bucketHeads;
+        bucketKeys = new long[oldKeys.length * 2];
+        bucketHeads = new int[oldKeys.length * 2];
+        int mask = bucketKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldHeads[i] == 0) continue;
+            int slot = (int) oldKeys[i] & mask;
+            while (bucketHeads[slot] != 0) slot = (slot + 1) & mask;
+            bucketKeys[slot] = oldKeys[i];
+            bucketHeads[slot] = oldHeads[i];
+        }
+    }
+
+    private static int agreement(int[] a, int[] b) {
+        int same = 0;
+        for (int i = 0; i < a.length; i++) if (a[i] == b[i]) same++;
+        return same;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static String encode(int[] sig) {
+        ByteBuffer buf = ByteBuffer.allocate(sig.length * 4);
+        for (int v : sig) buf.putInt(v);
+        return Base64.getEncoder().withoutPadding().encodeToString(buf.array());
+    }
+
+    private static int[] decode(String encoded) {
+        if (encoded == null || encoded.isEmpty()) return null;
+        byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(encoded);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (bytes.length % 4 != 0) return null;
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        int[] sig = new int[bytes.length / 4];
+        for (int i = 0; i < sig.length; i++) sig[i] = buf.getInt();
+        return sig;
+    }
+}
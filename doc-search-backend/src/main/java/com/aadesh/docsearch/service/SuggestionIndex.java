@@ -0,0 +1,364 @@
+package com.aadesh.docsearch.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.aadesh.docsearch.model.DocumentEntity;
+
+/**
+ * In-memory autocomplete over filenames and tags.
+ *
+ * Every suggestion (a filename or a tag, de-duplicated case-insensitively) is reachable from
+ * a trie by the lower-cased full text and by each filename token, so "rep" finds
+ * "Annual_Report_2023.pdf". Its weight is the number of documents carrying it. Each trie node
+ * keeps the ids of its top-K suggestions ordered by weight, so a lookup is a walk down the
+ * prefix plus a copy of at most K strings.
+ *
+ * The trie stops at {@code max-prefix-length} characters; a longer prefix is looked up by its
+ * first {@code max-prefix-length} characters and the candidates are filtered by the full prefix.
+ * Each document id remembers the suggestions it contributed: the same document delivered again
+ * (startup replay and live ingest) does not weigh twice, and a re-ingest with another filename
+ * or other tags takes its old suggestions back. A suggestion whose weight drops to zero is no
+ * longer returned. When a weight drops, a node whose list may now miss a suggestion is rebuilt
+ * from the suggestions ending there and its children's lists, deepest node first, which keeps
+ * every list exact.
+ */
+@Service
+public class SuggestionIndex implements DocumentIndexListener {
+
+    private static final String TOKEN_SPLIT = "[\\s_\\-/.]+";
+
+    private final int topK;
+    private final int maxPrefixLength;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node();
+    private final Map<String, Integer> idsByKey = new HashMap<>();
+    private final List<String> texts = new ArrayList<>();
+    private final Map<String, int[]> contributions = new HashMap<>();
+    private int[] weights = new int[1024];
+    private long nodeCount = 1;
+    private long anonymousDocuments;
+
+    public SuggestionIndex(@Value("${docsearch.suggest.top-k:20}") int topK,
+                           @Value("${docsearch.suggest.max-prefix-length:48}") int maxPrefixLength) {
+        this.topK = Math.max(1, topK);
+        this.maxPrefixLength = Math.max(1, maxPrefixLength);
+    }
+
+    @Override
+    public void onIndexed(DocumentEntity doc) {
+        String filename = doc.getFilename();
+        List<String> tags = doc.getTags();
+        boolean hasFilename = filename != null && !filename.isBlank();
+        List<String> given = new ArrayList<>();
+        if (hasFilename) given.add(filename);
+        if (tags != null) {
+            for (String tag : tags) {
+                if (tag != null && !tag.isBlank()) given.add(tag);
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            int[] previous = doc.getId() == null ? null : contributions.get(doc.getId());
+            if (previous != null) {
+                if (Arrays.equals(previous, known(given))) return;
+                for (int id : previous) remove(id);
+            }
+            int[] added = new int[given.size()];
+            for (int i = 0; i < added.length; i++) {
+                String text = given.get(i);
+                List<String> terms = List.of(text);
+                if (i == 0 && hasFilename) {
+                    terms = new ArrayList<>(terms);
+                    terms.addAll(Arrays.asList(text.split(TOKEN_SPLIT)));
+                }
+                added[i] = add(text, terms);
+            }
+            if (doc.getId() == null) {
+                anonymousDocuments++;
+            } else {
+                contributions.put(doc.getId(), added);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<String> replayFields() {
+        return List.of("filename", "tags");
+    }
+
+    /** Up to {@code limit} suggestions (capped at top-K) whose text or a filename token starts with {@code prefix}. */
+    public List<String> suggest(String prefix, int limit) {
+        if (prefix == null) return List.of();
+        String key = prefix.trim().toLowerCase(Locale.ROOT);
+        if (key.isEmpty() || limit <= 0) return List.of();
+        int depth = Math.min(key.length(), maxPrefixLength);
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < depth && node != null; i++) node = node.child(key.charAt(i));
+            if (node == null || node.top == null) return List.of();
+            int n = Math.min(limit, node.topSize);
+            List<String> out = new ArrayList<>(n);
+            for (int i = 0; i < node.topSize && out.size() < n; i++) {
+                String text = texts.get(node.top[i]);
+                if (depth == key.length() || matches(text, key)) out.add(text);
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("documents", contributions.size() + anonymousDocuments);
+            int live = 0;
+            for (int i = 0; i < texts.size(); i++) {
+                if (weights[i] > 0) live++;
+            }
+            m.put("suggestions", live);
+            m.put("trieNodes", nodeCount);
+            m.put("topK", topK);
+            return m;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // the trie only saw the first max-prefix-length characters of each term
+    private static boolean matches(String text, String key) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        if (lower.startsWith(key)) return true;
+        for (String token : lower.split(TOKEN_SPLIT)) {
+            if (token.startsWith(key)) return true;
+        }
+        return false;
+    }
+
+    // the suggestion ids of texts, or null if one of them is not a suggestion; caller holds a lock
+    private int[] known(List<String> texts) {
+        int[] ids = new int[texts.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Integer id = idsByKey.get(texts.get(i).trim().toLowerCase(Locale.ROOT));
+            if (id == null) return null;
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    // caller holds the write lock; returns the suggestion id
+    private int add(String text, List<String> terms) {
+        String key = text.trim().toLowerCase(Locale.ROOT);
+        Integer existing = idsByKey.get(key);
+        int id;
+        if (existing == null) {
+            id = texts.size();
+            idsByKey.put(key, id);
+            texts.add(text.trim());
+            if (id == weights.length) weights = Arrays.copyOf(weights, id * 2);
+        } else {
+            id = existing;
+        }
+        weights[id]++;
+        for (String term : terms) {
+            String t = term.trim().toLowerCase(Locale.ROOT);
+            if (t.isEmpty()) continue;
+            Node node = root;
+            int len = Math.min(t.length(), maxPrefixLength);
+            for (int i = 0; i < len; i++) {
+                Node next = node.child(t.charAt(i));
+                if (next == null) {
+                    next = node.addChild(t.charAt(i));
+                    nodeCount++;
+                }
+                node = next;
+                offer(node, id);
+            }
+            node.addEnd(id);
+        }
+        return id;
+    }
+
+    /** Takes one document's weight away from suggestion {@code id}; caller holds the write lock. */
+    private void remove(int id) {
+        weights[id]--;
+        // every node a filename or tag with this text can reach, deepest first
+        String text = texts.get(id).toLowerCase(Locale.ROOT);
+        List<String> terms = new ArrayList<>();
+        terms.add(text);
+        terms.addAll(Arrays.asList(text.split(TOKEN_SPLIT)));
+        Map<Node, Integer> depths = new IdentityHashMap<>();
+        for (String term : terms) {
+            Node node = root;
+            int len = Math.min(term.length(), maxPrefixLength);
+            for (int i = 0; i < len && node != null; i++) {
+                node = node.child(term.charAt(i));
+                if (node != null) depths.put(node, i);
+            }
+        }
+        List<Node> nodes = new ArrayList<>(depths.keySet());
+        nodes.sort((a, b) -> depths.get(b) - depths.get(a));
+        for (Node node : nodes) demote(node, id);
+    }
+
+    /** Re-positions {@code id} in the node's top list after its weight dropped. */
+    private void demote(Node node, int id) {
+        if (weights[id] == 0) node.removeEnd(id);
+        int pos = -1;
+        for (int i = 0; i < node.topSize; i++) {
+            if (node.top[i] == id) {
+                pos = i;
+                break;
+            }
+        }
+        if (pos < 0) return;
+        boolean full = node.topSize == topK;
+        if (weights[id] == 0) {
+            System.arraycopy(node.top, pos + 1, node.top, pos, node.topSize - pos - 1);
+            node.topSize--;
+            pos = node.topSize;
+        } else {
+            int[] top = node.top;
+            while (pos + 1 < node.topSize && ranksBefore(top[pos + 1], top[pos])) {
+                int tmp = top[pos + 1];
+                top[pos + 1] = top[pos];
+                top[pos] = tmp;
+                pos++;
+            }
+        }
+        // a suggestion that was not in a full list may now outrank the last entry
+        if (full && pos >= node.topSize - 1) rebuild(node);
+    }
+
+    /**
+     * Rebuilds the node's top list from the suggestions ending at it and its children's lists,
+     * which hold every suggestion that can make the cut once the children are exact.
+     */
+    private void rebuild(Node node) {
+        Set<Integer> candidates = new HashSet<>();
+        for (int i = 0; i < node.endsSize; i++) candidates.add(node.ends[i]);
+        for (int c = 0; c < node.childCount; c++) {
+            Node child = node.children[c];
+            for (int i = 0; i < child.topSize; i++) candidates.add(child.top[i]);
+        }
+        List<Integer> ranked = new ArrayList<>();
+        for (int id : candidates) {
+            if (weights[id] > 0) ranked.add(id);
+        }
+        ranked.sort((a, b) -> ranksBefore(a, b) ? -1 : ranksBefore(b, a) ? 1 : Integer.compare(a, b));
+        int n = Math.min(topK, ranked.size());
+        if (node.top.length < n) node.top = new int[n];
+        for (int i = 0; i < n; i++) node.top[i] = ranked.get(i);
+        node.topSize = n;
+    }
+
+    /** Inserts or re-positions {@code id} in the node's top list after its weight grew. */
+    private void offer(Node node, int id) {
+        if (node.top == null) node.top = new int[Math.min(topK, 4)];
+        int[] top = node.top;
+        int pos = -1;
+        for (int i = 0; i < node.topSize; i++) {
+            if (top[i] == id) {
+                pos = i;
+                break;
+            }
+        }
+        if (pos < 0) {
+            if (node.topSize < topK) {
+                if (node.topSize == top.length) top = node.top = Arrays.copyOf(top, Math.min(topK, top.length * 2));
+                pos = node.topSize++;
+            } else if (ranksBefore(id, top[node.topSize - 1])) {
+                pos = node.topSize - 1;
+            } else {
+                return;
+            }
+            top[pos] = id;
+        }
+        // bubble towards the front; the rest of the list is already ordered
+        while (pos > 0 && ranksBefore(top[pos], top[pos - 1])) {
+            int tmp = top[pos - 1];
+            top[pos - 1] = top[pos];
+            top[pos] = tmp;
+            pos--;
+        }
+    }
+
+    // heavier first; ties go to the shorter (more general) suggestion
+    private boolean ranksBefore(int a, int b) {
+        if (weights[a] != weights[b]) return weights[a] > weights[b];
+        return texts.get(a).length() < texts.get(b).length();
+    }
+
+    private static final class Node {
+        char[] keys;
+        Node[] children;
+        int childCount;
+        int[] top;
+        int topSize;
+        // suggestions with a term that ends here, or is cut off here at max-prefix-length
+        int[] ends;
+        int endsSize;
+
+        void addEnd(int id) {
+            for (int i = 0; i < endsSize; i++) {
+                if (ends[i] == id) return;
+            }
+            if (ends == null) ends = new int[2];
+            if (endsSize == ends.length) ends = Arrays.copyOf(ends, endsSize * 2);
+            ends[endsSize++] = id;
+        }
+
+        void removeEnd(int id) {
+            for (int i = 0; i < endsSize; i++) {
+                if (ends[i] == id) {
+                    ends[i] = ends[--endsSize];
+                    return;
+                }
+            }
+        }
+
+        Node child(char c) {
+            if (childCount == 0) return null;
+            int i = Arrays.binarySearch(keys, 0, childCount, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node addChild(char c) {
+            if (keys == null) {
+                keys = new char[2];
+                children = new Node[2];
+            }
+            int i = -Arrays.binarySearch(keys, 0, childCount, c) - 1;
+            if (childCount == keys.length) {
+                keys = Arrays.copyOf(keys, childCount * 2);
+                children = Arrays.copyOf(children, childCount * 2);
+            }
+            System.arraycopy(keys, i, keys, i + 1, childCount - i);
+            System.arraycopy(children, i, children, i + 1, childCount - i);
+            Node n = new Node();
+            keys[i] = c;
+            children[i] = n;
+            childCount++;
+            return n;
+        }
+    }
+}
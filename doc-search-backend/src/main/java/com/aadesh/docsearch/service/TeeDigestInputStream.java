@@ -0,0 +1,112 @@
+package com.aadesh.docsearch.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * InputStream decorator that copies every byte it hands out to a sink and
+ * feeds it through a SHA-256 digest, so a single read of an upload can store
+ * the file, parse it and fingerprint it at the same time.
+ *
+ * close() does NOT close the source or the sink: parsers like Tika close the
+ * stream they are given, and the caller still needs to {@link #drain()} the
+ * remainder (parsers are allowed to stop early) before closing both ends.
+ */
+public class TeeDigestInputStream extends FilterInputStream {
+
+    private final OutputStream sink;
+    private final MessageDigest digest;
+    private long bytesRead;
+
+    public TeeDigestInputStream(InputStream source, OutputStream sink) {
+        super(source);
+        this.sink = sink;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            sink.write(b);
+            digest.update((byte) b);
+            bytesRead++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+        int n = in.read(buf, off, len);
+        if (n > 0) {
+            sink.write(buf, off, n);
+            digest.update(buf, off, n);
+            bytesRead += n;
+        }
+        return n;
+    }
+
+    /** skip() is implemented as a read so skipped bytes still reach the sink and digest. */
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buf = new byte[(int) Math.min(8192, Math.max(n, 1))];
+        long remaining = n;
+        while (remaining > 0) {
+            int r = read(buf, 0, (int) Math.min(buf.length, remaining));
+            if (r < 0) break;
+            remaining -= r;
+        }
+        return n - remaining;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        // not supported: a reset would write the same bytes to the sink twice
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    @Override
+    public void close() {
+        // intentionally a no-op, see class doc
+    }
+
+    /** Reads whatever the consumer left unread so the sink and digest cover the whole source. */
+    public void drain() throws IOException {
+        byte[] buf = new byte[8192];
+        while (read(buf, 0, buf.length) >= 0) {
+            // keep reading
+        }
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /** Hex SHA-256 of everything read so far. Only meaningful after {@link #drain()}. */
+    public String sha256Hex() {
+        try {
+            // clone so the running digest can still be updated afterwards
+            return HexFormat.of().formatHex(((MessageDigest) digest.clone()).digest());
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
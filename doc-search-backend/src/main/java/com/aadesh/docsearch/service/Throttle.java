@@ -0,0 +1,32 @@
+package com.aadesh.docsearch.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces out batches so that the threads sharing one throttle together stay under a rate of
+ * documents per second; 0 (or less) means no limit. Used by the reindex copy, whose slices share
+ * one.
+ */
+final class Throttle {
+
+    private final double docsPerSecond;
+    private long nextFreeNanos = System.nanoTime();
+
+    Throttle(double docsPerSecond) {
+        this.docsPerSecond = docsPerSecond;
+    }
+
+    /** Waits until {@code docs} more documents fit under the rate. */
+    void acquire(int docs) throws InterruptedException {
+        long wait = reserve(docs, System.nanoTime());
+        if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+    }
+
+    // books docs at the first free slot from now on and returns how long to wait for it
+    synchronized long reserve(int docs, long now) {
+        if (docsPerSecond <= 0) return 0;
+        long start = Math.max(now, nextFreeNanos);
+        nextFreeNanos = start + (long) (docs * 1e9 / docsPerSecond);
+        return start - now;
+    }
+}
@@ -1,37 +1,294 @@
 package com.aadesh.docsearch.service;
 
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.tika.Tika;
+import org.apache.tika.exception.WriteLimitReachedException;
+import org.apache.tika.fork.ForkParser;
+import org.apache.tika.io.TikaInputStream;
 import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.sax.BodyContentHandler;
+import org.apache.tika.sax.WriteOutContentHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.aadesh.docsearch.exception.ParseTimeoutException;
+import com.aadesh.docsearch.exception.ParserUnavailableException;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Text extraction with a per-document wall-clock budget and a cap on extracted characters.
+ *
+ * docsearch.tika.mode=inline parses on threads inside this JVM, at most
+ * docsearch.tika.parse-threads at a time. The budget starts when a parse gets its thread, not
+ * while it waits for one. A parse that overruns it is abandoned: Tika's parsers ignore
+ * interrupts, so its thread may keep running, but it gives up its slot and the next parse
+ * starts on a fresh thread. Once more than docsearch.tika.max-stuck-parses abandoned parses are
+ * still running (any, with 0), new parses fail fast with {@link ParserUnavailableException} instead of piling up
+ * more stuck threads.
+ *
+ * docsearch.tika.mode=fork runs parsers in a pool of child JVMs (Tika's ForkParser) so a hung,
+ * OOMing or crashing parse is killed with its process and search traffic is unaffected; use it
+ * for untrusted input.
+ */
 @Service
 public class TikaService {
-    private final Tika tika = new Tika();
+
+    private static final Logger log = LoggerFactory.getLogger(TikaService.class);
+
+    private final Parser parser;
+    private final ForkParser forkParser;
+    // threads are created on demand; slots bounds the parses that run within their budget
+    private final ExecutorService parsePool;
+    private final Semaphore slots;
+    private final int maxStuck;
+    private final AtomicInteger stuck = new AtomicInteger();
+    private final long timeoutMillis;
+    private final int maxChars;
+    private final ParseStats stats = new ParseStats();
+
+    public TikaService(@Value("${docsearch.tika.mode:inline}") String mode,
+                       @Value("${docsearch.tika.timeout-ms:60000}") long timeoutMillis,
+                       @Value("${docsearch.tika.max-chars:100000}") int maxChars,
+                       @Value("${docsearch.tika.parse-threads:0}") int parseThreads,
+                       @Value("${docsearch.tika.max-stuck-parses:16}") int maxStuck,
+                       @Value("${docsearch.tika.fork.pool-size:2}") int forkPoolSize,
+                       @Value("${docsearch.tika.fork.java-command:java -Xmx512m -Djava.awt.headless=true}") String forkJavaCommand) {
+        this.timeoutMillis = timeoutMillis;
+        this.maxChars = maxChars;
+        AutoDetectParser autoDetect = new AutoDetectParser();
+        if ("fork".equalsIgnoreCase(mode.trim())) {
+            ForkParser fork = new ForkParser(TikaService.class.getClassLoader(), autoDetect);
+            fork.setPoolSize(forkPoolSize);
+            fork.setJavaCommand(new ArrayList<>(Arrays.asList(forkJavaCommand.trim().split("\\s+"))));
+            if (timeoutMillis > 0) fork.setServerParseTimeoutMillis(timeoutMillis);
+            this.forkParser = fork;
+            this.parser = fork;
+        } else {
+            this.forkParser = null;
+            this.parser = autoDetect;
+        }
+        int threads = parseThreads > 0 ? parseThreads : Runtime.getRuntime().availableProcessors();
+        this.slots = new Semaphore(threads);
+        this.maxStuck = Math.max(0, maxStuck);
+        AtomicInteger seq = new AtomicInteger();
+        this.parsePool = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "tika-parse-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
 
     public ParsedResult parse(MultipartFile file) throws Exception {
-        Metadata metadata = new Metadata();
         try (InputStream is = file.getInputStream()) {
-            String text = tika.parseToString(is, metadata);
-            Map<String, String> metaMap = new HashMap<>();
-            for (String name : metadata.names()) {
-                metaMap.put(name, metadata.get(name));
+            return parse(is, extensionOf(file.getOriginalFilename()));
+        }
+    }
+
+    /** Parses a file on disk; file-backed input lets Tika skip spooling PDFs and OOXML to a temp file. */
+    public ParsedResult parse(Path file) throws Exception {
+        return parse(file, extensionOf(file.getFileName().toString()));
+    }
+
+    /** As {@link #parse(Path)}, for files whose name does not carry the type, such as ingest's incoming file. */
+    public ParsedResult parse(Path file, String fileType) throws Exception {
+        return parse(file, fileType, maxChars);
+    }
+
+    /** As {@link #parse(Path, String)}, extracting up to {@code maxChars} instead of docsearch.tika.max-chars. */
+    public ParsedResult parse(Path file, String fileType, int maxChars) throws Exception {
+        try (InputStream is = TikaInputStream.get(file)) {
+            return parse(is, fileType, maxChars);
+        }
+    }
+
+    /** docsearch.tika.max-chars: the cap on the extracted text of a document; 0 or less for none. */
+    public int getMaxChars() {
+        return maxChars;
+    }
+
+    /**
+     * Parses an already-open stream within the configured budget, waiting first for a free parse
+     * slot. {@code fileType} is only used to bucket the latency/timeout statistics.
+     *
+     * @throws ParseTimeoutException if the parse overruns docsearch.tika.timeout-ms
+     * @throws ParserUnavailableException if too many abandoned parses are still running
+     */
+    public ParsedResult parse(InputStream is, String fileType) throws Exception {
+        return parse(is, fileType, maxChars);
+    }
+
+    private ParsedResult parse(InputStream is, String fileType, int maxChars) throws Exception {
+        if (stuck.get() > maxStuck) {
+            throw new ParserUnavailableException(stuck.get() + " abandoned parses are still running; not starting another");
+        }
+        slots.acquire();
+        ParseTask task = new ParseTask(is, maxChars);
+        Future<ParsedResult> future;
+        try {
+            future = parsePool.submit(task);
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            throw e;
+        }
+        long start = System.nanoTime();
+        try {
+            ParsedResult result = timeoutMillis > 0
+                    ? future.get(timeoutMillis, TimeUnit.MILLISECONDS)
+                    : future.get();
+            stats.record(fileType, elapsedMillis(start),
+                    result.truncated ? ParseStats.Outcome.TRUNCATED : ParseStats.Outcome.OK);
+            return result;
+        } catch (TimeoutException e) {
+            task.abandon();
+            future.cancel(true);
+            stats.record(fileType, elapsedMillis(start), ParseStats.Outcome.TIMEOUT);
+            log.warn("Parse of {} file exceeded {} ms and was abandoned ({} abandoned parses still running)",
+                    fileType, timeoutMillis, stuck.get());
+            throw new ParseTimeoutException("Parsing exceeded " + timeoutMillis + " ms");
+        } catch (InterruptedException e) {
+            // the caller gave up; the parse is left to finish or overrun on its own
+            task.abandon();
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            stats.record(fileType, elapsedMillis(start), ParseStats.Outcome.FAILED);
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception ex) throw ex;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * One parse and its claim on a slot. The slot goes back when the parse finishes, or when it
+     * is abandoned, whichever comes first; an abandoned parse that is still running counts as
+     * stuck until it returns.
+     */
+    private final class ParseTask implements Callable<ParsedResult> {
+        private static final int NEW = 0, RUNNING = 1, DONE = 2, ABANDONED = 3;
+
+        private final InputStream is;
+        private final int maxChars;
+        private final AtomicInteger state = new AtomicInteger(NEW);
+
+        ParseTask(InputStream is, int maxChars) {
+            this.is = is;
+            this.maxChars = maxChars;
+        }
+
+        @Override
+        public ParsedResult call() throws Exception {
+            if (!state.compareAndSet(NEW, RUNNING)) throw new CancellationException();
+            try {
+                return doParse(is, maxChars);
+            } finally {
+                if (state.compareAndSet(RUNNING, DONE)) {
+                    slots.release();
+                } else {
+                    stuck.decrementAndGet();
+                    log.info("An abandoned parse returned; {} still running", stuck.get());
+                }
+            }
+        }
+
+        void abandon() {
+            if (state.compareAndSet(NEW, ABANDONED)) {
+                slots.release();
+            } else if (state.compareAndSet(RUNNING, ABANDONED)) {
+                stuck.incrementAndGet();
+                slots.release();
+            }
+        }
+    }
+
+    private ParsedResult doParse(InputStream is, int maxChars) throws Exception {
+        Metadata metadata = new Metadata();
+        WriteOutContentHandler text = new WriteOutContentHandler(maxChars > 0 ? maxChars : -1);
+        PageTrackingHandler pages = new PageTrackingHandler(text);
+        boolean truncated = false;
+        try {
+            parser.parse(TikaInputStream.get(is), new BodyContentHandler(pages), metadata, new ParseContext());
+        } catch (Exception e) {
+            // hitting the character cap is not an error: keep what was extracted so far
+            if (!WriteLimitReachedException.isWriteLimitReached(e)) throw e;
+            truncated = true;
+        }
+        Map<String, String> metaMap = new HashMap<>();
+        for (String name : metadata.names()) {
+            metaMap.put(name, metadata.get(name));
+        }
+        return new ParsedResult(text.toString(), metaMap, truncated, pages.getPageStarts());
+    }
+
+    /** Latency percentiles and outcome counts per file type, and the abandoned parses still running. */
+    public Map<String, Object> getStats() {
+        Map<String, Object> out = stats.snapshot();
+        out.put("stuckParses", stuck.get());
+        return out;
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private static String extensionOf(String filename) {
+        if (filename == null) return "unknown";
+        int idx = filename.lastIndexOf('.');
+        if (idx >= 0 && idx < filename.length() - 1) return filename.substring(idx + 1).toLowerCase();
+        return "unknown";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        parsePool.shutdownNow();
+        if (forkParser != null) {
+            try {
+                forkParser.close();
+            } catch (Exception e) {
+                log.debug("Error closing fork parser pool", e);
             }
-            return new ParsedResult(text, metaMap);
         }
     }
 
     public static class ParsedResult {
         public final String text;
         public final Map<String, String> metadata;
+        /** true when extraction stopped at docsearch.tika.max-chars */
+        public final boolean truncated;
+        /** offset in {@code text} where each page (PDF) or slide (PPTX) starts; empty if unknown */
+        public final int[] pageStarts;
 
         public ParsedResult(String text, Map<String, String> metadata) {
+            this(text, metadata, false, new int[0]);
+        }
+
+        public ParsedResult(String text, Map<String, String> metadata, boolean truncated, int[] pageStarts) {
             this.text = text;
             this.metadata = metadata;
+            this.truncated = truncated;
+            this.pageStarts = pageStarts;
         }
     }
 }
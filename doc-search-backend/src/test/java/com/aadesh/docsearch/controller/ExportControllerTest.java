@@ -0,0 +1,175 @@
+package com.aadesh.docsearch.controller;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.aadesh.docsearch.config.IndexNames;
+import com.aadesh.docsearch.service.DocSearchMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.HitsMetadata;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.util.ObjectBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ExportControllerTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    // batches of two over five documents: three searches, the last one short
+    private final List<SearchRequest> searches = new CopyOnWriteArrayList<>();
+    private final CountDownLatch secondBatch = new CountDownLatch(1);
+    private final List<String> closedPits = new CopyOnWriteArrayList<>();
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        ElasticsearchClient es = mock(ElasticsearchClient.class, invocation -> switch (invocation.getMethod().getName()) {
+            case "openPointInTime" -> pit("pit-1");
+            case "search" -> search(invocation.getArgument(0));
+            case "closePointInTime" -> {
+                closedPits.add("closed");
+                yield null;
+            }
+            default -> null;
+        });
+        ExportController controller = new ExportController(es, new JacksonJsonpMapper(JSON),
+                new DocSearchMetrics(new SimpleMeterRegistry()), new IndexNames("documents", "document-passages"),
+                2, "1m");
+        mvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        secondBatch.countDown();
+    }
+
+    @Test
+    void matchingDocumentsStreamAsNdjsonBatchByBatch() throws Exception {
+        MvcResult result = mvc.perform(get("/api/search/export").param("q", "contract").param("fields", "filename,tags"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // the first batch reaches the client while the second search is still outstanding
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (lines(result).size() < 2) {
+            assertTrue(System.currentTimeMillis() < deadline, "first batch was not flushed");
+            Thread.sleep(10);
+        }
+        assertEquals(2, lines(result).size());
+        secondBatch.countDown();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andExpect(header().string("Content-Disposition", containsString("export.ndjson")));
+
+        List<String> lines = lines(result);
+        assertEquals(5, lines.size());
+        for (int i = 0; i < 5; i++) {
+            ObjectNode line = (ObjectNode) JSON.readTree(lines.get(i));
+            assertEquals("doc-" + i, line.get("id").asText());
+            assertEquals("file-" + i + ".pdf", line.get("filename").asText());
+            assertEquals("legal", line.get("tags").get(0).asText());
+            // only the requested fields are written
+            assertEquals(3, line.size());
+        }
+
+        assertEquals(3, searches.size());
+        assertTrue(searches.get(0).searchAfter().isEmpty());
+        assertEquals(1L, searches.get(1).searchAfter().get(0).longValue());
+        assertEquals(3L, searches.get(2).searchAfter().get(0).longValue());
+        assertEquals(List.of("filename", "tags"), searches.get(0).source().filter().includes());
+        assertEquals(List.of("closed"), closedPits);
+    }
+
+    @Test
+    void aBlankQueryIsRejectedBeforeStreaming() throws Exception {
+        mvc.perform(get("/api/search/export").param("q", " "))
+                .andExpect(status().isBadRequest())
+                .andExpect(status().reason("Query required"));
+        assertTrue(searches.isEmpty());
+    }
+
+    @Test
+    void anUnknownFieldIsRejectedBeforeStreaming() throws Exception {
+        mvc.perform(get("/api/search/export").param("q", "contract").param("fields", "filename,password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(status().reason(containsString("Unknown field: password")));
+        assertTrue(searches.isEmpty());
+    }
+
+    private SearchResponse<ObjectNode> search(Function<SearchRequest.Builder, ObjectBuilder<SearchRequest>> fn)
+            throws InterruptedException {
+        SearchRequest req = fn.apply(new SearchRequest.Builder()).build();
+        int batch = searches.size();
+        searches.add(req);
+        if (batch == 1) assertTrue(secondBatch.await(5, TimeUnit.SECONDS), "the test never saw the first batch");
+        List<Hit<ObjectNode>> hits = new ArrayList<>();
+        for (int i = batch * 2; i < Math.min(5, batch * 2 + 2); i++) hits.add(hit(i));
+        return page(hits);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Hit<ObjectNode> hit(int i) {
+        ObjectNode source = JSON.createObjectNode();
+        source.put("filename", "file-" + i + ".pdf");
+        source.putArray("tags").add("legal");
+        Hit<ObjectNode> hit = mock(Hit.class);
+        when(hit.id()).thenReturn("doc-" + i);
+        when(hit.source()).thenReturn(source);
+        when(hit.sort()).thenReturn(List.of(FieldValue.of(i)));
+        return hit;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SearchResponse<ObjectNode> page(List<Hit<ObjectNode>> hits) {
+        HitsMetadata<ObjectNode> metadata = mock(HitsMetadata.class);
+        when(metadata.hits()).thenReturn(hits);
+        SearchResponse<ObjectNode> response = mock(SearchResponse.class);
+        when(response.hits()).thenReturn(metadata);
+        when(response.pitId()).thenReturn("pit-1");
+        return response;
+    }
+
+    private static OpenPointInTimeResponse pit(String id) {
+        OpenPointInTimeResponse response = mock(OpenPointInTimeResponse.class);
+        when(response.id()).thenReturn(id);
+        return response;
+    }
+
+    private static List<String> lines(MvcResult result) {
+        String body = new String(result.getResponse().getContentAsByteArray(), StandardCharsets.UTF_8);
+        return body.isEmpty() ? List.of() : List.of(body.split("\n"));
+    }
+}
@@ -0,0 +1,231 @@
+package com.aadesh.docsearch.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.aadesh.docsearch.service.FileHashCache;
+
+class FileResponderTest {
+
+    private static final long MODIFIED = Instant.parse("2024-03-01T10:00:00Z").toEpochMilli();
+
+    @TempDir
+    Path dir;
+
+    private final byte[] data = new byte[10_000];
+    private Path file;
+    private String etag;
+    private FileResponder responder;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        new Random(7).nextBytes(data);
+        file = dir.resolve("report.pdf");
+        Files.write(file, data);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(MODIFIED));
+        etag = "\"" + FileHashCache.hash(file) + "\"";
+        responder = new FileResponder(new FileHashCache(16), null, "private, max-age=60", 4096);
+    }
+
+    @Test
+    void wholeFileWithValidators() throws Exception {
+        MockHttpServletResponse response = send(get());
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(data, response.getContentAsByteArray());
+        assertEquals(10_000, response.getContentLengthLong());
+        assertEquals(etag, response.getHeader("ETag"));
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertEquals("private, max-age=60", response.getHeader("Cache-Control"));
+        assertTrue(response.getHeader("Content-Disposition").startsWith("inline"));
+    }
+
+    @Test
+    void matchingIfNoneMatchAnswers304WithoutABody() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader("If-None-Match", etag);
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void singleRange() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader("Range", "bytes=100-199");
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 100-199/10000", response.getHeader("Content-Range"));
+        assertEquals(100, response.getContentLengthLong());
+        assertArrayEquals(Arrays.copyOfRange(data, 100, 200), response.getContentAsByteArray());
+    }
+
+    @Test
+    void suffixAndOpenEndedRanges() throws Exception {
+        MockHttpServletRequest suffix = get();
+        suffix.addHeader("Range", "bytes=-10");
+        MockHttpServletResponse response = send(suffix);
+        assertEquals("bytes 9990-9999/10000", response.getHeader("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(data, 9990, 10_000), response.getContentAsByteArray());
+
+        MockHttpServletRequest open = get();
+        open.addHeader("Range", "bytes=9000-");
+        response = send(open);
+        assertEquals("bytes 9000-9999/10000", response.getHeader("Content-Range"));
+        assertEquals(1000, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void severalRangesAnswerMultipartWithAnExactLength() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader("Range", "bytes=0-9,5000-5019");
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(206, response.getStatus());
+        String contentType = response.getContentType();
+        assertTrue(contentType.startsWith("multipart/byteranges; boundary="), contentType);
+        String boundary = contentType.substring(contentType.indexOf("boundary=") + 9);
+        byte[] body = response.getContentAsByteArray();
+        assertEquals(body.length, response.getContentLengthLong());
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(("\r\n--" + boundary + "\r\nContent-Type: application/pdf\r\n"
+                + "Content-Range: bytes 0-9/10000\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        expected.write(data, 0, 10);
+        expected.write(("\r\n--" + boundary + "\r\nContent-Type: application/pdf\r\n"
+                + "Content-Range: bytes 5000-5019/10000\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        expected.write(data, 5000, 20);
+        expected.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        assertArrayEquals(expected.toByteArray(), body);
+    }
+
+    @Test
+    void ifRangeWithTheCurrentValidatorServesTheRange() throws Exception {
+        MockHttpServletRequest byEtag = get();
+        byEtag.addHeader("Range", "bytes=0-99");
+        byEtag.addHeader("If-Range", etag);
+        assertEquals(206, send(byEtag).getStatus());
+
+        MockHttpServletRequest byDate = get();
+        byDate.addHeader("Range", "bytes=0-99");
+        byDate.addHeader("If-Range", "Fri, 01 Mar 2024 10:00:00 GMT");
+        assertEquals(206, send(byDate).getStatus());
+    }
+
+    @Test
+    void ifRangeWithAStaleValidatorServesTheWholeFile() throws Exception {
+        MockHttpServletRequest byEtag = get();
+        byEtag.addHeader("Range", "bytes=0-99");
+        byEtag.addHeader("If-Range", "\"0000\"");
+        MockHttpServletResponse response = send(byEtag);
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader("Content-Range"));
+        assertArrayEquals(data, response.getContentAsByteArray());
+
+        MockHttpServletRequest byDate = get();
+        byDate.addHeader("Range", "bytes=0-99");
+        byDate.addHeader("If-Range", "Thu, 29 Feb 2024 10:00:00 GMT");
+        assertEquals(200, send(byDate).getStatus());
+    }
+
+    @Test
+    void unsatisfiableRangesAnswer416() throws Exception {
+        MockHttpServletRequest pastTheEnd = get();
+        pastTheEnd.addHeader("Range", "bytes=20000-");
+        MockHttpServletResponse response = send(pastTheEnd);
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10000", response.getHeader("Content-Range"));
+
+        // overlapping ranges asking for more than the file
+        MockHttpServletRequest tooMuch = get();
+        tooMuch.addHeader("Range", "bytes=0-9999,0-9999");
+        assertEquals(416, send(tooMuch).getStatus());
+    }
+
+    @Test
+    void largeRegionsGoToTheConnectorsSendfile() throws Exception {
+        MockHttpServletRequest request = get();
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=1000-8999");
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(8000, response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(file.toAbsolutePath().toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(1000L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(9000L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+
+    @Test
+    void smallRegionsAreCopiedEvenWithSendfile() throws Exception {
+        MockHttpServletRequest request = get();
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=0-99");
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(100, response.getContentAsByteArray().length);
+        assertNull(request.getAttribute("org.apache.tomcat.sendfile.filename"));
+    }
+
+    @Test
+    void sendCopyNeverLeavesTheFileToSendfile() throws Exception {
+        MockHttpServletRequest request = get();
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        responder.sendCopy(file, MediaType.IMAGE_JPEG, ContentDisposition.inline().build(), request, response);
+
+        assertArrayEquals(data, response.getContentAsByteArray());
+        assertNull(request.getAttribute("org.apache.tomcat.sendfile.filename"));
+    }
+
+    @Test
+    void headSendsHeadersOnly() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("HEAD", "/api/files/preview/report.pdf");
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(10_000, response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void missingFileAnswers404() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        responder.send(dir.resolve("missing.pdf"), MediaType.APPLICATION_PDF, ContentDisposition.inline().build(), get(), response);
+
+        assertEquals(404, response.getStatus());
+    }
+
+    private static MockHttpServletRequest get() {
+        return new MockHttpServletRequest("GET", "/api/files/preview/report.pdf");
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        responder.send(file, MediaType.APPLICATION_PDF, ContentDisposition.inline().filename("report.pdf").build(),
+                request, response);
+        return response;
+    }
+}
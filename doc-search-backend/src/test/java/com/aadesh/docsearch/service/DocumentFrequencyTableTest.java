@@ -0,0 +1,89 @@
+package com.aadesh.docsearch.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DocumentFrequencyTableTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rareTermsScoreHigherThanCommonOnes() {
+        DocumentFrequencyTable df = new DocumentFrequencyTable(dir.toString(), 1 << 16, 0);
+        long common = KeywordExtractor.hash("common");
+        long rare = KeywordExtractor.hash("rare");
+        for (int i = 0; i < 50; i++) df.addDocument(new long[] {common}, 1);
+        df.addDocument(new long[] {common, rare}, 2);
+
+        assertEquals(51, df.getDocuments());
+        assertTrue(df.idf(rare) > df.idf(common));
+        assertEquals(Math.log(52.0 / 52.0) + 1.0, df.idf(common), 1e-9);
+        df.shutdown();
+    }
+
+    @Test
+    void onlyTheFirstNHashesAreCounted() {
+        DocumentFrequencyTable df = new DocumentFrequencyTable(dir.toString(), 1 << 16, 0);
+        long a = KeywordExtractor.hash("alpha");
+        long b = KeywordExtractor.hash("beta");
+        df.addDocument(new long[] {a, b}, 1);
+
+        assertTrue(df.idf(b) > df.idf(a));
+        df.shutdown();
+    }
+
+    @Test
+    void shutdownSavesAndANewTableLoadsIt() {
+        long h = KeywordExtractor.hash("persisted");
+        DocumentFrequencyTable df = new DocumentFrequencyTable(dir.toString(), 1 << 16, 0);
+        for (int i = 0; i < 3; i++) df.addDocument(new long[] {h}, 1);
+        df.addDocument(new long[0], 0);
+        double idf = df.idf(h);
+        df.shutdown();
+
+        DocumentFrequencyTable reloaded = new DocumentFrequencyTable(dir.toString(), 1 << 16, 0);
+        assertEquals(4, reloaded.getDocuments());
+        assertEquals(idf, reloaded.idf(h), 1e-9);
+        assertEquals(4L, reloaded.stats().get("savedDocuments"));
+        reloaded.shutdown();
+    }
+
+    @Test
+    void aSketchOfAnotherWidthIsIgnored() {
+        DocumentFrequencyTable df = new DocumentFrequencyTable(dir.toString(), 1 << 16, 0);
+        df.addDocument(new long[] {1L}, 1);
+        df.shutdown();
+
+        DocumentFrequencyTable wider = new DocumentFrequencyTable(dir.toString(), 1 << 17, 0);
+        assertEquals(0, wider.getDocuments());
+        wider.shutdown();
+    }
+
+    @Test
+    void timerSavesOnlyWhenSomethingChanged() throws Exception {
+        Path file = dir.resolve(".stats").resolve("document-frequency.bin");
+        DocumentFrequencyTable df = new DocumentFrequencyTable(dir.toString(), 1024, 1);
+        try {
+            Thread.sleep(1_500);
+            assertTrue(Files.notExists(file), "nothing to save yet");
+
+            df.addDocument(new long[] {KeywordExtractor.hash("timer")}, 1);
+            // no per-document write; the next tick saves it
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (!Long.valueOf(1).equals(df.stats().get("savedDocuments"))) {
+                assertTrue(System.currentTimeMillis() < deadline, "sketch was not saved by the timer");
+                Thread.sleep(50);
+            }
+            assertTrue(Files.isRegularFile(file));
+        } finally {
+            df.shutdown();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.aadesh.docsearch.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DropFolderWatcherTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void checkpointedFilesAreDoneUntilTheyChange() throws Exception {
+        Path file = dir.resolve("checkpoint.tsv");
+        Path a = dir.resolve("in").resolve("a.pdf");
+        DropFolderWatcher.Checkpoint checkpoint = load(file);
+        checkpoint.markDone(Map.of(a, pending(100, 5)));
+        checkpoint.close();
+
+        DropFolderWatcher.Checkpoint reloaded = load(file);
+        assertTrue(reloaded.isDone(a, 100, 5));
+        assertFalse(reloaded.isDone(a, 101, 5));
+        assertFalse(reloaded.isDone(a, 100, 6));
+        assertFalse(reloaded.isDone(dir.resolve("in").resolve("b.pdf"), 100, 5));
+    }
+
+    @Test
+    void theLogIsCompactedOnceItHasGrownToTwiceTheLiveEntries() throws Exception {
+        Path file = dir.resolve("checkpoint.tsv");
+        Path a = dir.resolve("in").resolve("a.pdf");
+        DropFolderWatcher.Checkpoint checkpoint = load(file);
+        // one live entry: compaction runs once more than 2 * 1 + 1000 lines were written
+        for (int i = 1; i <= 1002; i++) checkpoint.markDone(Map.of(a, pending(i, i)));
+        assertEquals(1002, lines(file));
+
+        checkpoint.markDone(Map.of(a, pending(1003, 1003)));
+        assertEquals(1, lines(file));
+        checkpoint.markDone(Map.of(a, pending(1004, 1004)));
+        assertEquals(2, lines(file));
+        checkpoint.close();
+
+        DropFolderWatcher.Checkpoint reloaded = load(file);
+        assertEquals(1, reloaded.size());
+        assertTrue(reloaded.isDone(a, 1004, 1004));
+    }
+
+    @Test
+    void retainForgetsVanishedFilesOnlyBelowTheScannedDirectories() throws Exception {
+        Path file = dir.resolve("checkpoint.tsv");
+        Path scanned = dir.resolve("in");
+        Path kept = scanned.resolve("kept.pdf");
+        Path gone = scanned.resolve("sub").resolve("gone.pdf");
+        Path elsewhere = dir.resolve("unwatched").resolve("other.pdf");
+        DropFolderWatcher.Checkpoint checkpoint = load(file);
+        checkpoint.markDone(Map.of(kept, pending(1, 1), gone, pending(2, 2), elsewhere, pending(3, 3)));
+
+        checkpoint.retain(List.of(scanned), Set.of(kept));
+        assertEquals(2, checkpoint.size());
+        assertFalse(checkpoint.isDone(gone, 2, 2));
+        assertTrue(checkpoint.isDone(elsewhere, 3, 3));
+        // rewritten without the forgotten line
+        assertEquals(2, lines(file));
+        checkpoint.close();
+
+        assertEquals(2, load(file).size());
+    }
+
+    @Test
+    void aTornLastLineIsIgnored() throws Exception {
+        Path file = dir.resolve("checkpoint.tsv");
+        Path a = dir.resolve("in").resolve("a.pdf");
+        Files.writeString(file, "10\t20\t" + a + "\n30\t4", StandardCharsets.UTF_8);
+
+        DropFolderWatcher.Checkpoint checkpoint = load(file);
+        assertEquals(1, checkpoint.size());
+        assertTrue(checkpoint.isDone(a, 10, 20));
+    }
+
+    @Test
+    void retriesWaitTwiceAsLongAfterEveryFailure() {
+        assertEquals(30_000, DropFolderWatcher.retryDelay(30_000, 1));
+        assertEquals(60_000, DropFolderWatcher.retryDelay(30_000, 2));
+        assertEquals(240_000, DropFolderWatcher.retryDelay(30_000, 4));
+        assertEquals(0, DropFolderWatcher.retryDelay(0, 3));
+        // the shift is capped, so a large attempt count cannot overflow into a negative wait
+        assertTrue(DropFolderWatcher.retryDelay(30_000, 1_000) > 0);
+    }
+
+    @Test
+    void aChangedFileStartsItsAttemptsOver() {
+        DropFolderWatcher.Pending p = pending(100, 5);
+        p.attempts = 3;
+        p.retryAt = 99_000;
+
+        p.changed(120, 6, 1_000);
+        assertEquals(0, p.attempts);
+        assertEquals(0, p.retryAt);
+        assertEquals(120, p.size);
+        assertEquals(6, p.modified);
+        assertEquals(1_000, p.changedAt);
+    }
+
+    private static DropFolderWatcher.Checkpoint load(Path file) throws Exception {
+        DropFolderWatcher.Checkpoint checkpoint = new DropFolderWatcher.Checkpoint(file);
+        checkpoint.load();
+        return checkpoint;
+    }
+
+    private static DropFolderWatcher.Pending pending(long size, long modified) {
+        return new DropFolderWatcher.Pending(size, modified, 0);
+    }
+
+    private static long lines(Path file) throws Exception {
+        return Files.readAllLines(file, StandardCharsets.UTF_8).size();
+    }
+}
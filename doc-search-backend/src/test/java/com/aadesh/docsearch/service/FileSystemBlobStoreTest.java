@@ -0,0 +1,148 @@
+package com.aadesh.docsearch.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileSystemBlobStoreTest {
+
+    private static final String TYPES = "txt,csv";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void blobsAreShardedByTheirLeadingHexPairs() throws Exception {
+        FileSystemBlobStore store = new FileSystemBlobStore(dir.toString(), 2, TYPES);
+        byte[] data = random(1000);
+        String key = store.put(upload("a.pdf", data), hash(data), "pdf");
+
+        Path expected = dir.resolve("blobs").resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+        BlobStore.Blob blob = store.get(key).orElseThrow();
+        assertEquals(expected.toAbsolutePath(), blob.path);
+        assertFalse(blob.compressed);
+        assertEquals(1000, blob.length);
+
+        FileSystemBlobStore flat = new FileSystemBlobStore(dir.resolve("flat").toString(), 0, TYPES);
+        String again = flat.put(upload("b.pdf", data), hash(data), "pdf");
+        assertEquals(dir.resolve("flat").resolve("blobs").resolve(again).toAbsolutePath(), flat.get(again).orElseThrow().path);
+    }
+
+    @Test
+    void compressibleTypesAreStoredGzipped() throws Exception {
+        FileSystemBlobStore store = new FileSystemBlobStore(dir.toString(), 2, TYPES);
+        byte[] text = "the same line again and again\n".repeat(500).getBytes(StandardCharsets.UTF_8);
+        String key = store.put(upload("notes.txt", text), hash(text), "TXT");
+
+        BlobStore.Blob blob = store.get(key).orElseThrow();
+        assertTrue(blob.compressed);
+        assertTrue(blob.path.getFileName().toString().endsWith(".gz"));
+        assertEquals(text.length, blob.length);
+        assertTrue(Files.size(blob.path) < text.length / 10);
+        try (InputStream in = store.open(blob)) {
+            assertArrayEquals(text, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void compressionThatSavesLessThanATenthIsNotKept() throws Exception {
+        FileSystemBlobStore store = new FileSystemBlobStore(dir.toString(), 2, TYPES);
+        byte[] noise = random(20_000);
+        String key = store.put(upload("noise.csv", noise), hash(noise), "csv");
+
+        BlobStore.Blob blob = store.get(key).orElseThrow();
+        assertFalse(blob.compressed);
+        assertArrayEquals(noise, Files.readAllBytes(blob.path));
+        assertEquals(0L, store.stats().get("compressed"));
+    }
+
+    @Test
+    void otherTypesAreNeverCompressed() throws Exception {
+        FileSystemBlobStore store = new FileSystemBlobStore(dir.toString(), 2, TYPES);
+        byte[] text = "compressible\n".repeat(1000).getBytes(StandardCharsets.UTF_8);
+
+        assertFalse(store.get(store.put(upload("x.pdf", text), hash(text), "pdf")).orElseThrow().compressed);
+    }
+
+    @Test
+    void identicalContentIsStoredOnce() throws Exception {
+        FileSystemBlobStore store = new FileSystemBlobStore(dir.toString(), 2, TYPES);
+        byte[] data = random(500);
+        Path first = upload("a.pdf", data);
+        Path second = upload("b.pdf", data);
+
+        assertEquals(store.put(first, hash(data), "pdf"), store.put(second, hash(data), "pdf"));
+        assertFalse(Files.exists(first));
+        assertFalse(Files.exists(second));
+        assertEquals(1L, store.stats().get("stored"));
+        assertEquals(1L, store.stats().get("deduplicated"));
+    }
+
+    @Test
+    void copyLeavesTheSourceInPlace() throws Exception {
+        FileSystemBlobStore store = new FileSystemBlobStore(dir.toString(), 2, TYPES);
+        byte[] data = random(2000);
+        Path source = upload("legacy.pdf", data);
+        String key = store.copy(source, hash(data), "pdf");
+
+        assertArrayEquals(data, Files.readAllBytes(source));
+        Path blob = store.get(key).orElseThrow().path;
+        Files.delete(source);
+        assertArrayEquals(data, Files.readAllBytes(blob));
+
+        // a second copy of the same content is a dedup hit and still leaves its source alone
+        Path again = upload("again.pdf", data);
+        store.copy(again, hash(data), "pdf");
+        assertTrue(Files.exists(again));
+    }
+
+    @Test
+    void leftoverTempFilesAreClearedOnStartup() throws Exception {
+        new FileSystemBlobStore(dir.toString(), 2, TYPES);
+        Path tmp = dir.resolve("blobs").resolve(".tmp");
+        Files.write(tmp.resolve("partial.tmp"), random(10));
+
+        new FileSystemBlobStore(dir.toString(), 2, TYPES);
+        try (Stream<Path> files = Files.list(tmp)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void malformedKeysAreRejected() throws Exception {
+        FileSystemBlobStore store = new FileSystemBlobStore(dir.toString(), 2, TYPES);
+
+        assertTrue(store.get("../../etc/passwd").isEmpty());
+        assertTrue(store.get(null).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> store.put(upload("a.pdf", random(1)), "abc", "pdf"));
+    }
+
+    private Path upload(String name, byte[] data) throws Exception {
+        Path dirOfUploads = Files.createDirectories(dir.resolve("uploads"));
+        return Files.write(dirOfUploads.resolve(name), data);
+    }
+
+    private static String hash(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+
+    private static byte[] random(int n) {
+        byte[] b = new byte[n];
+        new Random(n).nextBytes(b);
+        return b;
+    }
+}
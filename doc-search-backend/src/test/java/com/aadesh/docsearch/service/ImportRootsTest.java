@@ -0,0 +1,75 @@
+package com.aadesh.docsearch.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ImportRootsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void directoriesBelowARootAreAccepted() throws Exception {
+        Path root = Files.createDirectories(dir.resolve("data"));
+        Path sub = Files.createDirectories(root.resolve("onboarding"));
+        ImportRoots roots = new ImportRoots(" " + root + " , /nonexistent-root ");
+
+        assertEquals(sub.toRealPath(), roots.resolve(sub.toString()));
+        assertEquals(sub.toRealPath(), roots.resolve(root + "/other/../onboarding"));
+        assertThrows(IllegalArgumentException.class, () -> roots.resolve(dir.toString()));
+        assertThrows(IllegalArgumentException.class, () -> roots.resolve(root + "/../" + dir.getFileName()));
+    }
+
+    @Test
+    void aSymlinkInsideARootDoesNotLeadOut() throws Exception {
+        Path root = Files.createDirectories(dir.resolve("data"));
+        Path outside = Files.createDirectories(dir.resolve("secrets"));
+        Path link = Files.createSymbolicLink(root.resolve("escape"), outside);
+        ImportRoots roots = new ImportRoots(root.toString());
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> roots.resolve(link.toString()));
+        assertTrue(e.getMessage().contains("allowed-roots"), e.getMessage());
+    }
+
+    @Test
+    void aSymlinkedRootIsComparedByWhereItPoints() throws Exception {
+        Path real = Files.createDirectories(dir.resolve("mnt").resolve("data"));
+        Path root = Files.createSymbolicLink(dir.resolve("data"), real);
+        Path sub = Files.createDirectories(real.resolve("onboarding"));
+        ImportRoots roots = new ImportRoots(root.toString());
+
+        assertEquals(sub.toRealPath(), roots.resolve(root.resolve("onboarding").toString()));
+    }
+
+    @Test
+    void missingDirectoriesAreReportedOnlyInsideARoot() throws Exception {
+        Path root = Files.createDirectories(dir.resolve("data"));
+        ImportRoots roots = new ImportRoots(root.toString());
+
+        IllegalArgumentException inside = assertThrows(IllegalArgumentException.class,
+                () -> roots.resolve(root.resolve("missing").toString()));
+        assertTrue(inside.getMessage().startsWith("Not a directory"), inside.getMessage());
+        IllegalArgumentException outside = assertThrows(IllegalArgumentException.class,
+                () -> roots.resolve(dir.resolve("missing").toString()));
+        assertTrue(outside.getMessage().contains("allowed-roots"), outside.getMessage());
+    }
+
+    @Test
+    void linkedFilesAreNotImported() throws Exception {
+        Path file = Files.writeString(dir.resolve("a.txt"), "text");
+        Path outside = Files.writeString(Files.createDirectories(dir.resolve("secrets")).resolve("key.txt"), "secret");
+        Path link = Files.createSymbolicLink(dir.resolve("b.txt"), outside);
+
+        assertTrue(ImportRoots.importable(file));
+        assertFalse(ImportRoots.importable(link));
+        assertFalse(ImportRoots.importable(dir));
+    }
+}
@@ -0,0 +1,110 @@
+package com.aadesh.docsearch.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+class IndexWriteFenceTest {
+
+    @Test
+    void permitsNameTheShadowIndexWhileOneIsSet() throws Exception {
+        IndexWriteFence fence = new IndexWriteFence();
+        try (IndexWriteFence.Permit permit = fence.enter()) {
+            assertNull(permit.shadowIndex);
+        }
+
+        fence.exclusively(() -> fence.setShadowIndex("documents-v2"));
+        assertTrue(fence.isReindexing());
+        try (IndexWriteFence.Permit permit = fence.enter()) {
+            assertEquals("documents-v2", permit.shadowIndex);
+        }
+    }
+
+    @Test
+    void aFailedShadowWritePreventsTheSwap() throws Exception {
+        IndexWriteFence fence = new IndexWriteFence();
+        fence.exclusively(() -> fence.setShadowIndex("documents-v2"));
+        try (IndexWriteFence.Permit permit = fence.enter()) {
+            permit.shadowFailed();
+        }
+
+        AtomicBoolean swapped = new AtomicBoolean();
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> fence.swapShadow(() -> swapped.set(true)));
+        assertTrue(e.getMessage().contains("documents-v2"), e.getMessage());
+        assertFalse(swapped.get());
+        // still copying; the reindex clears the shadow itself when it gives up
+        assertTrue(fence.isReindexing());
+    }
+
+    @Test
+    void aCleanSwapRunsAndStopsTheShadowWrites() throws Exception {
+        IndexWriteFence fence = new IndexWriteFence();
+        fence.exclusively(() -> fence.setShadowIndex("documents-v2"));
+
+        AtomicBoolean swapped = new AtomicBoolean();
+        fence.swapShadow(() -> swapped.set(true));
+        assertTrue(swapped.get());
+        assertFalse(fence.isReindexing());
+    }
+
+    @Test
+    void failuresFromAnEarlierShadowIndexDoNotCount() throws Exception {
+        IndexWriteFence fence = new IndexWriteFence();
+        fence.exclusively(() -> fence.setShadowIndex("documents-v2"));
+        try (IndexWriteFence.Permit permit = fence.enter()) {
+            permit.shadowFailed();
+        }
+        fence.exclusively(() -> fence.setShadowIndex(null));
+
+        fence.exclusively(() -> fence.setShadowIndex("documents-v3"));
+        assertEquals(0, fence.shadowFailures());
+    }
+
+    @Test
+    void theSwapWaitsForWritesInFlight() throws Exception {
+        IndexWriteFence fence = new IndexWriteFence();
+        fence.exclusively(() -> fence.setShadowIndex("documents-v2"));
+        IndexWriteFence.Permit writing = fence.enter();
+
+        CountDownLatch swapped = new CountDownLatch(1);
+        Thread swapper = new Thread(() -> {
+            try {
+                fence.swapShadow(() -> { });
+                swapped.countDown();
+            } catch (Exception ignored) {
+                // the assertion below fails
+            }
+        });
+        swapper.start();
+        assertFalse(swapped.await(200, TimeUnit.MILLISECONDS));
+
+        writing.close();
+        assertTrue(swapped.await(5, TimeUnit.SECONDS));
+        swapper.join();
+    }
+
+    @Test
+    void onlyOneJobCanClaimTheIndex() {
+        IndexWriteFence fence = new IndexWriteFence();
+
+        assertTrue(fence.claim("reindex"));
+        assertFalse(fence.claim("blob-migration"));
+        assertEquals("reindex", fence.claimedBy());
+
+        // releasing someone else's claim does nothing
+        fence.release("blob-migration");
+        assertEquals("reindex", fence.claimedBy());
+
+        fence.release("reindex");
+        assertNull(fence.claimedBy());
+        assertTrue(fence.claim("blob-migration"));
+    }
+}
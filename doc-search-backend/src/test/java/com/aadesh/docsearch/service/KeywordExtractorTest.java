@@ -0,0 +1,103 @@
+package com.aadesh.docsearch.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class KeywordExtractorTest {
+
+    @TempDir
+    Path dir;
+
+    private DocumentFrequencyTable df;
+    private KeywordExtractor extractor;
+
+    @BeforeEach
+    void setUp() {
+        df = new DocumentFrequencyTable(dir.toString(), 1024, 0);
+        extractor = new KeywordExtractor(df);
+    }
+
+    @AfterEach
+    void tearDown() {
+        df.shutdown();
+    }
+
+    @Test
+    void stopwordsAndShortTokensAreDropped() {
+        KeywordExtractor.Keywords k = extractor.extract("The cat and the dog ran to the barn, and the barn was red.", 10);
+
+        assertEquals(List.of("barn", "cat", "dog", "ran", "red"), k.keywords);
+    }
+
+    @Test
+    void wordsThatOnlyResembleStopwordsAreKept() {
+        // only the listed words are stopwords, not words sharing a prefix with them
+        KeywordExtractor.Keywords k = extractor.extract("them then thee tho there", 10);
+
+        assertEquals(List.of("them", "then", "thee", "tho", "there"), k.keywords);
+    }
+
+    @Test
+    void termsAreRankedByFrequencyThenFirstSeen() {
+        KeywordExtractor.Keywords k = extractor.extract("delta alpha beta alpha gamma beta alpha", 2);
+
+        assertEquals(List.of("alpha", "beta"), k.keywords);
+    }
+
+    @Test
+    void tokensAreCaseFoldedAndSplitOnPunctuation() {
+        KeywordExtractor.Keywords k = extractor.extract("Kafka, KAFKA; kafka-streams", 3);
+
+        assertEquals(List.of("kafka", "streams"), k.keywords);
+    }
+
+    @Test
+    void documentFrequenciesChangeOnlyWhenRecorded() {
+        KeywordExtractor.Keywords k = extractor.extract("common words everywhere", 3);
+        assertEquals(0, df.getDocuments());
+        assertEquals(1.0, df.idf(KeywordExtractor.hash("common")), 1e-9);
+
+        extractor.record(k);
+        assertEquals(1, df.getDocuments());
+        // now seen in every document: the smallest idf the table hands out
+        assertEquals(Math.log(2.0 / 2.0) + 1.0, df.idf(KeywordExtractor.hash("common")), 1e-9);
+    }
+
+    @Test
+    void idfDemotesTermsSeenInManyDocuments() {
+        for (int i = 0; i < 20; i++) extractor.record(extractor.extract("report quarterly", 5));
+
+        // "report" appears more often here, but every earlier document had it
+        KeywordExtractor.Keywords k = extractor.extract("report report kubernetes", 1);
+        assertEquals(List.of("kubernetes"), k.keywords);
+    }
+
+    @Test
+    void emptyTextHasNoKeywordsAndRecordsNothing() {
+        KeywordExtractor.Keywords k = extractor.extract("", 5);
+        assertTrue(k.keywords.isEmpty());
+        extractor.record(k);
+        extractor.record(extractor.extract("a an of to", 5));
+        assertEquals(0, df.getDocuments());
+    }
+
+    @Test
+    void aLargeDocumentDoesNotLeaveItsBuffersBehind() {
+        StringBuilder sb = new StringBuilder("zebra zebra ");
+        for (int i = 0; i < 100_000; i++) sb.append("term").append(i).append(' ');
+        KeywordExtractor.Keywords k = extractor.extract(sb, 1);
+        assertEquals(List.of("zebra"), k.keywords);
+        assertEquals(100_001, k.terms.length);
+        assertTrue(KeywordExtractor.retainedChars() <= 1 << 18, "retained " + KeywordExtractor.retainedChars());
+
+        assertEquals(List.of("cat", "dog"), extractor.extract("cat dog cat dog", 2).keywords);
+    }
+}
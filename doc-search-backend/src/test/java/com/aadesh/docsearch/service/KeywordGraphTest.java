@@ -0,0 +1,148 @@
+package com.aadesh.docsearch.service;
+
+import static com.aadesh.docsearch.service.TestDocuments.doc;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.aadesh.docsearch.model.DocumentEntity;
+
+class KeywordGraphTest {
+
+    @Test
+    void cooccurrenceEdgesCarrySharedDocumentCounts() {
+        KeywordGraph graph = new KeywordGraph();
+        graph.onIndexed(doc("1", "a.pdf", "ai", "ml"));
+        graph.onIndexed(doc("2", "b.pdf", "ai", "ml"));
+        graph.onIndexed(doc("3", "c.pdf", "ai", "nlp"));
+
+        Map<String, Object> top = graph.topKeywords(3);
+        assertEquals(List.of("kw:ai", "kw:ml", "kw:nlp"), nodeIds(top));
+        assertTrue(edges(top).contains("kw:ai>kw:ml:2:cooccurs"));
+        assertTrue(edges(top).contains("kw:ai>kw:nlp:1:cooccurs"));
+    }
+
+    @Test
+    void replayAndLiveIngestOfTheSameDocumentCountOnce() {
+        KeywordGraph graph = new KeywordGraph();
+        DocumentEntity d = doc("1", "a.pdf", "ai", "ml");
+        graph.onIndexed(d);
+        graph.onIndexed(d);
+
+        assertEquals(1, graph.stats().get("documents"));
+        assertTrue(edges(graph.neighborhood("ai", 5, 5)).contains("kw:ai>kw:ml:1:cooccurs"));
+    }
+
+    @Test
+    void latestDocumentsAreNewestFirstWithTheirKeywords() {
+        KeywordGraph graph = new KeywordGraph();
+        graph.onIndexed(doc("1", "old.pdf", "ai"));
+        graph.onIndexed(doc("2", "mid.pdf", "ml"));
+        graph.onIndexed(doc("3", "new.pdf", "ai", "ml"));
+
+        Map<String, Object> latest = graph.latestDocuments(2);
+        assertEquals(List.of("3", "kw:ai", "kw:ml", "2"), nodeIds(latest));
+        assertTrue(edges(latest).contains("kw:ai>3:1:tagged"));
+        assertTrue(edges(latest).contains("kw:ml>2:1:tagged"));
+        assertTrue(edges(latest).contains("kw:ai>kw:ml:1:cooccurs"));
+    }
+
+    @Test
+    void unseenDocumentsAreDrawnWithoutChangingTheGraph() {
+        KeywordGraph graph = new KeywordGraph();
+        graph.onIndexed(doc("1", "a.pdf", "ai"));
+
+        Map<String, Object> result = graph.forDocuments(List.of(doc("1", "a.pdf", "ai"),
+                doc("9", "quarterly_sales.pdf", "ai", "sales", "sales")));
+        assertEquals(List.of("1", "kw:ai", "9", "kw:sales"), nodeIds(result));
+        assertTrue(edges(result).contains("kw:sales>9:1:tagged"));
+        assertEquals(1, edges(result).stream().filter(e -> e.startsWith("kw:sales>")).count());
+
+        assertFalse(graph.contains("9"));
+        assertEquals(1, graph.stats().get("documents"));
+        assertEquals(1, graph.stats().get("keywords"));
+    }
+
+    @Test
+    void untaggedDocumentsUseFilenameWords() {
+        KeywordGraph graph = new KeywordGraph();
+        graph.onIndexed(doc("1", "annual_report-2023.pdf"));
+
+        assertEquals(List.of("annual", "report", "2023", "pdf"), KeywordGraph.keywordsOf(doc("1", "annual_report-2023.pdf")));
+        assertEquals(List.of("kw:annual"), nodeIds(graph.neighborhood("Annual", 0, 0)));
+        assertTrue(nodeIds(graph.neighborhood("missing", 5, 5)).isEmpty());
+    }
+
+    @Test
+    void aReingestReplacesTheKeywordsOfItsPreviousVersion() {
+        KeywordGraph graph = new KeywordGraph();
+        graph.onIndexed(doc("1", "a.pdf", "ai", "ml"));
+        graph.onIndexed(doc("2", "b.pdf", "ai", "ml"));
+        graph.onIndexed(doc("1", "a-v2.pdf", "ai", "nlp"));
+
+        List<String> ai = edges(graph.neighborhood("ai", 5, 5));
+        assertTrue(ai.contains("kw:ai>kw:ml:1:cooccurs"), ai.toString());
+        assertTrue(ai.contains("kw:ai>kw:nlp:1:cooccurs"), ai.toString());
+        assertEquals(List.of("kw:ml", "kw:ai", "2"), nodeIds(graph.neighborhood("ml", 5, 5)));
+        assertEquals(List.of("b.pdf", "a-v2.pdf"), labels(graph.latestDocuments(5), "document"));
+
+        // the last document carrying ml moves on: the keyword and its edge are gone
+        graph.onIndexed(doc("2", "b.pdf", "ai"));
+        assertTrue(nodeIds(graph.neighborhood("ml", 5, 5)).isEmpty());
+        assertEquals(List.of("kw:ai", "kw:nlp"), nodeIds(graph.topKeywords(5)));
+        assertEquals(2, graph.stats().get("documents"));
+        assertEquals(2, graph.stats().get("keywords"));
+        assertEquals(1L, graph.stats().get("cooccurrenceEdges"));
+    }
+
+    @Test
+    void cooccurrenceCountsSurviveRemovalsFromACrowdedCounter() {
+        KeywordGraph graph = new KeywordGraph();
+        String[] many = new String[40];
+        for (int i = 0; i < many.length; i++) many[i] = "k" + i;
+        graph.onIndexed(doc("1", "a.pdf", many));
+        graph.onIndexed(doc("2", "b.pdf", many));
+        // keep every third keyword on document 1
+        List<String> kept = new ArrayList<>();
+        for (int i = 0; i < many.length; i += 3) kept.add(many[i]);
+        graph.onIndexed(doc("1", "a.pdf", kept.toArray(new String[0])));
+
+        List<String> k0 = edges(graph.neighborhood("k0", many.length, 0));
+        assertEquals(many.length - 1, k0.size());
+        for (int i = 1; i < many.length; i++) {
+            int expected = i % 3 == 0 ? 2 : 1;
+            assertTrue(k0.contains("kw:k0>kw:k" + i + ":" + expected + ":cooccurs"), "k" + i + " in " + k0);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> nodeIds(Map<String, Object> graph) {
+        List<String> out = new ArrayList<>();
+        for (Map<String, Object> n : (List<Map<String, Object>>) graph.get("nodes")) out.add((String) n.get("id"));
+        return out;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> labels(Map<String, Object> graph, String type) {
+        List<String> out = new ArrayList<>();
+        for (Map<String, Object> n : (List<Map<String, Object>>) graph.get("nodes")) {
+            if (type.equals(n.get("type"))) out.add((String) n.get("label"));
+        }
+        return out;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> edges(Map<String, Object> graph) {
+        List<String> out = new ArrayList<>();
+        for (Map<String, Object> e : (List<Map<String, Object>>) graph.get("edges")) {
+            out.add(e.get("source") + ">" + e.get("target") + ":" + e.get("weight") + ":" + e.get("type"));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,216 @@
+package com.aadesh.docsearch.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import org.apache.lucene.search.uhighlight.Passage;
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aadesh.docsearch.model.DocumentEntity;
+
+class LuceneSearchBackendTest {
+
+    @TempDir
+    Path dir;
+
+    private LuceneSearchBackend lucene;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        lucene = new LuceneSearchBackend(dir.toString(), "", 1000, 16, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        lucene.close();
+    }
+
+    @Test
+    void bothTermsInOneFieldOutrankOneTermInEachField() throws Exception {
+        // summed over fields "quarterly-report.pdf" would win; best-fields takes the better field only
+        lucene.save(doc("both", "notes.txt", "quarterly budget review"), List.of());
+        lucene.save(doc("split", "quarterly-report.pdf", "the budget"), List.of());
+        for (int i = 0; i < 3; i++) lucene.save(doc("other-" + i, "other-notes.txt", "nothing to see"), List.of());
+        lucene.refresh();
+
+        SearchBackend.Result result = lucene.search("quarterly budget", 0, 10, false, 0).join();
+
+        assertEquals(2, result.total);
+        assertEquals(List.of("both", "split"), result.hits.stream().map(h -> h.id).toList());
+        assertTrue(result.hits.get(0).score > result.hits.get(1).score);
+        // summaries leave the text out
+        assertNull(result.hits.get(0).source.getContent());
+        assertEquals("notes.txt", result.hits.get(0).source.getFilename());
+    }
+
+    @Test
+    void highlightsMarkMatchesAndSkipFieldsWithoutOne() throws Exception {
+        lucene.save(doc("a", "notes.txt", "The contract was signed in March. Payment is due on delivery."), List.of());
+        lucene.save(doc("b", "contract-draft.txt", "Nothing relevant in here."), List.of());
+        lucene.refresh();
+
+        SearchBackend.Result result = lucene.search("contract", 0, 10, true, 0).join();
+        Map<String, SearchBackend.DocumentHit> hits = byId(result);
+
+        List<String> content = hits.get("a").highlight.get("content");
+        assertFalse(content.isEmpty());
+        assertTrue(content.get(0).contains("The <mark>contract</mark> was signed"), content.get(0));
+        assertFalse(hits.get("a").highlight.containsKey("filename"));
+
+        assertEquals(List.of("<mark>contract</mark>-draft.txt"), hits.get("b").highlight.get("filename"));
+        assertFalse(hits.get("b").highlight.containsKey("content"));
+    }
+
+    @Test
+    void overlappingMatchesAreMarkedOnceAndPassagesWithoutMatchesDropped() {
+        String content = "contract contracts apply";
+        Passage overlapping = passage(0, content.length());
+        overlapping.addMatch(0, 8, new BytesRef("contract"), 1);
+        overlapping.addMatch(0, 8, new BytesRef("contract"), 1);
+        overlapping.addMatch(9, 18, new BytesRef("contracts"), 1);
+        overlapping.addMatch(12, 18, new BytesRef("racts"), 1);
+        Passage empty = passage(0, content.length());
+
+        Object fragments = new LuceneSearchBackend.Fragments().format(new Passage[] {overlapping, empty}, content);
+
+        assertEquals(List.of("<mark>contract</mark> <mark>contracts</mark> apply"), fragments);
+        assertNull(new LuceneSearchBackend.Fragments().format(new Passage[] {empty}, content));
+    }
+
+    @Test
+    void prefixSearchMatchesTagsAndTheLastWordAsAPrefix() throws Exception {
+        DocumentEntity tagged = doc("tagged", "notes.txt", "minutes of the meeting");
+        tagged.setTags(List.of("finance"));
+        lucene.save(tagged, List.of());
+        lucene.save(doc("budget", "plan.txt", "quarterly budget review"), List.of());
+        lucene.save(doc("unrelated", "misc.txt", "nothing to see"), List.of());
+        lucene.refresh();
+
+        SearchBackend.Result tags = lucene.prefixSearch("fin", 10, List.of("tags")).join();
+        assertEquals(List.of("tagged"), tags.hits.stream().map(h -> h.id).toList());
+        assertEquals(List.of("finance"), tags.hits.get(0).source.getTags());
+        // only the requested fields come back
+        assertNull(tags.hits.get(0).source.getFilename());
+
+        SearchBackend.Result words = lucene.prefixSearch("quarterly bud", 10, List.of("filename")).join();
+        assertEquals(List.of("budget"), words.hits.stream().map(h -> h.id).toList());
+        // only the last word is a prefix: "quart" finds nothing, "meeting" the tagged document
+        SearchBackend.Result firstWord = lucene.prefixSearch("quart meeting", 10, List.of()).join();
+        assertEquals(List.of("tagged"), firstWord.hits.stream().map(h -> h.id).toList());
+    }
+
+    @Test
+    void tagsAreCountedOverEveryLiveMatchAcrossSegments() throws Exception {
+        // every save commits, so each document lands in its own segment
+        lucene.save(tagged("d1", "contract one", "legal", "finance"), List.of());
+        lucene.save(tagged("d2", "contract two", "legal"), List.of());
+        lucene.save(tagged("d3", "contract three", "hr"), List.of());
+        lucene.save(tagged("d4", "invoice four", "legal"), List.of());
+        lucene.refresh();
+        assertTrue((Integer) lucene.stats().get("segments") > 1);
+
+        Map<String, Long> tags = lucene.search("contract", 0, 1, false, 2).join().tags;
+        assertEquals(List.of("legal", "finance"), List.copyOf(tags.keySet()));
+        assertEquals(2L, tags.get("legal"));
+        assertEquals(1L, tags.get("finance"));
+
+        // the replaced d2 is deleted in its old segment and no longer counted there
+        lucene.save(tagged("d2", "contract two", "hr"), List.of());
+        lucene.refresh();
+        tags = lucene.search("contract", 0, 1, false, 10).join().tags;
+        assertEquals(List.of("hr", "finance", "legal"), List.copyOf(tags.keySet()));
+        assertEquals(Map.of("hr", 2L, "finance", 1L, "legal", 1L), tags);
+    }
+
+    @Test
+    void aResultWindowBeyondTenThousandIsRejected() throws Exception {
+        lucene.save(doc("a", "notes.txt", "contract"), List.of());
+        lucene.refresh();
+
+        assertEquals(1, lucene.search("contract", 9_990, 10, false, 0).join().total);
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> lucene.search("contract", 9_991, 10, false, 0).join());
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        assertTrue(e.getCause().getMessage().contains("10000"));
+    }
+
+    @Test
+    void lookupsSeeWritesAndStoredFileUpdatesKeepTheRest() throws Exception {
+        DocumentEntity original = doc("orig", "report.pdf", "annual report text");
+        original.setSha256("aaa");
+        original.setDownloadUrl("/api/files/orig");
+        original.setMetadata(Map.of("author", "finance team"));
+        original.setUploadedAt(Instant.ofEpochMilli(1_700_000_000_000L));
+        original.setSize(42L);
+        DocumentEntity alias = doc("copy", "report-copy.pdf", "annual report text");
+        alias.setSha256("aaa");
+        alias.setAliasOf("orig");
+        lucene.saveAll(List.of(alias, original), List.of());
+
+        // no refresh(): lookups reopen the reader themselves
+        DocumentEntity found = lucene.findById("orig").orElseThrow();
+        assertEquals("annual report text", found.getContent());
+        assertEquals(Map.of("author", "finance team"), found.getMetadata());
+        assertEquals(Instant.ofEpochMilli(1_700_000_000_000L), found.getUploadedAt());
+        assertEquals(42L, found.getSize());
+        assertEquals("orig", lucene.findOriginal("aaa").orElseThrow().getId());
+        assertEquals("orig", lucene.findById("copy").orElseThrow().getAliasOf());
+
+        Map<String, String> failed = lucene.updateStoredFiles(List.of(
+                new DocumentStore.StoredFileUpdate("orig", "/api/files/blob-bbb", "bbb"),
+                new DocumentStore.StoredFileUpdate("missing", "/api/files/x", "ccc")));
+
+        assertEquals(Map.of("missing", "document not found"), failed);
+        DocumentEntity updated = lucene.findById("orig").orElseThrow();
+        assertEquals("/api/files/blob-bbb", updated.getDownloadUrl());
+        assertEquals("annual report text", updated.getContent());
+        assertEquals(Map.of("author", "finance team"), updated.getMetadata());
+        assertEquals("orig", lucene.findOriginal("bbb").orElseThrow().getId());
+        assertTrue(lucene.findOriginal("aaa").isEmpty());
+
+        // the index is the store of record: it survives a restart
+        lucene.close();
+        lucene = new LuceneSearchBackend(dir.toString(), "", 1000, 16, 1);
+        assertEquals("/api/files/blob-bbb", lucene.findById("orig").orElseThrow().getDownloadUrl());
+    }
+
+    private static DocumentEntity doc(String id, String filename, String content) {
+        DocumentEntity d = new DocumentEntity();
+        d.setId(id);
+        d.setFilename(filename);
+        d.setContent(content);
+        return d;
+    }
+
+    private static DocumentEntity tagged(String id, String content, String... tags) {
+        DocumentEntity d = doc(id, id + ".txt", content);
+        d.setTags(List.of(tags));
+        return d;
+    }
+
+    private static Passage passage(int start, int end) {
+        Passage p = new Passage();
+        p.setStartOffset(start);
+        p.setEndOffset(end);
+        return p;
+    }
+
+    private static Map<String, SearchBackend.DocumentHit> byId(SearchBackend.Result result) {
+        return result.hits.stream().collect(Collectors.toMap(h -> h.id, h -> h));
+    }
+}
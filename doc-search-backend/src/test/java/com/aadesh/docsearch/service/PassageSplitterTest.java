@@ -0,0 +1,149 @@
+package com.aadesh.docsearch.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.aadesh.docsearch.model.DocumentEntity;
+import com.aadesh.docsearch.model.PassageEntity;
+
+class PassageSplitterTest {
+
+    @Test
+    void passagesOverlapAndCoverTheWholeText() {
+        String text = words(2_000);
+        List<PassageEntity> passages = PassageSplitter.split(doc(text), text, new int[0], 1000, 200);
+
+        assertTrue(passages.size() > 1);
+        assertTrue(text.startsWith(passages.get(0).getText()));
+        assertTrue(text.endsWith(passages.get(passages.size() - 1).getText()));
+        for (int i = 1; i < passages.size(); i++) {
+            String prev = passages.get(i - 1).getText();
+            String next = passages.get(i).getText();
+            int prevStart = text.indexOf(prev);
+            int nextStart = text.indexOf(next, prevStart + 1);
+            // no gap, and roughly the configured overlap
+            assertTrue(nextStart <= prevStart + prev.length(), "gap before passage " + i);
+            int overlap = prevStart + prev.length() - nextStart;
+            assertTrue(overlap >= 100 && overlap <= 300, "overlap " + overlap + " before passage " + i);
+        }
+    }
+
+    @Test
+    void windowsEndOnWordBoundaries() {
+        String text = words(3_000);
+        for (PassageEntity p : PassageSplitter.split(doc(text), text, new int[0], 500, 50)) {
+            String t = p.getText();
+            int at = text.indexOf(t);
+            assertTrue(at == 0 || Character.isWhitespace(text.charAt(at - 1)), "split word at start: " + t);
+            int end = at + t.length();
+            assertTrue(end == text.length() || Character.isWhitespace(text.charAt(end)), "split word at end: " + t);
+            assertTrue(t.length() <= 500);
+        }
+    }
+
+    @Test
+    void passagesAreKeyedAndLabelledByTheirDocument() {
+        String text = words(500);
+        DocumentEntity doc = doc(text);
+        List<PassageEntity> passages = PassageSplitter.split(doc, text, new int[0], 300, 0);
+
+        for (int i = 0; i < passages.size(); i++) {
+            PassageEntity p = passages.get(i);
+            assertEquals("doc-1_" + i, p.getId());
+            assertEquals("doc-1", p.getDocumentId());
+            assertEquals(i, p.getOrdinal());
+            assertEquals("report.pdf", p.getFilename());
+            assertEquals(List.of("alpha"), p.getTags());
+            assertNull(p.getPage());
+        }
+    }
+
+    @Test
+    void passagesAreTaggedWithTheirStartPage() {
+        String page1 = words(200);
+        String page2 = words(200);
+        String text = page1 + " " + page2;
+        int[] pageStarts = {0, page1.length() + 1};
+        List<PassageEntity> passages = PassageSplitter.split(doc(text), text, pageStarts, 400, 0);
+
+        assertEquals(1, passages.get(0).getPage());
+        assertEquals(2, passages.get(passages.size() - 1).getPage());
+        assertEquals(1, PassageSplitter.pageOf(pageStarts, 0));
+        assertEquals(1, PassageSplitter.pageOf(pageStarts, page1.length()));
+        assertEquals(2, PassageSplitter.pageOf(pageStarts, page1.length() + 1));
+    }
+
+    @Test
+    void textBeyondTheStoredContentIsSplitToo() {
+        String full = words(5_000);
+        DocumentEntity doc = doc(full.substring(0, 1_000));
+        List<PassageEntity> passages = PassageSplitter.split(doc, full, new int[0], 1000, 100);
+
+        assertTrue(full.endsWith(passages.get(passages.size() - 1).getText()));
+    }
+
+    @Test
+    void textWithoutWhitespaceIsCutAtTheWindow() {
+        String text = "x".repeat(2_500);
+        List<PassageEntity> passages = PassageSplitter.split(doc(text), text, new int[0], 1000, 0);
+
+        assertEquals(3, passages.size());
+        assertEquals(1000, passages.get(0).getText().length());
+        assertEquals(500, passages.get(2).getText().length());
+    }
+
+    @Test
+    void blankTextHasNoPassages() {
+        assertTrue(PassageSplitter.split(doc(""), "", new int[0], 1000, 200).isEmpty());
+        assertTrue(PassageSplitter.split(doc(" \n\t "), " \n\t ", new int[0], 1000, 200).isEmpty());
+        assertTrue(PassageSplitter.split(doc(null), new int[0], 1000, 200).isEmpty());
+    }
+
+    @Test
+    void aliasCopiesKeepTextAndPagesUnderTheAliasId() {
+        String text = words(800);
+        List<PassageEntity> original = PassageSplitter.split(doc(text), text, new int[] {0, 1_000}, 400, 50);
+        DocumentEntity alias = doc(null);
+        alias.setId("doc-2");
+        alias.setFilename("copy.pdf");
+
+        List<PassageEntity> copies = PassageSplitter.copyFor(alias, original);
+        assertEquals(original.size(), copies.size());
+        for (int i = 0; i < copies.size(); i++) {
+            assertEquals("doc-2_" + i, copies.get(i).getId());
+            assertEquals("doc-2", copies.get(i).getDocumentId());
+            assertEquals("copy.pdf", copies.get(i).getFilename());
+            assertEquals(original.get(i).getText(), copies.get(i).getText());
+            assertEquals(original.get(i).getPage(), copies.get(i).getPage());
+        }
+        assertFalse(copies.isEmpty());
+    }
+
+    private static DocumentEntity doc(String content) {
+        DocumentEntity d = new DocumentEntity();
+        d.setId("doc-1");
+        d.setFilename("report.pdf");
+        d.setFileType("pdf");
+        d.setUploadedAt(Instant.EPOCH);
+        d.setTags(List.of("alpha"));
+        d.setContent(content);
+        return d;
+    }
+
+    // n distinct words of varying length, so every passage is unique in the text
+    private static String words(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(i % 17 == 0 ? "\n" : " ");
+            sb.append("w").append(Integer.toString(i * 7919, 36));
+        }
+        return sb.toString();
+    }
+}
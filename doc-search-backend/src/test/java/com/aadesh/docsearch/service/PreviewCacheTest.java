@@ -0,0 +1,97 @@
+package com.aadesh.docsearch.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PreviewCacheTest {
+
+    private static final int MB = 1024 * 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void putThenGet() throws Exception {
+        PreviewCache cache = new PreviewCache(dir.toString(), 1);
+        Path file = cache.put("abc", "p1.txt", out -> out.write("page one".getBytes()));
+
+        assertEquals(file, cache.get("abc", "p1.txt"));
+        assertEquals("page one", Files.readString(file));
+        assertNull(cache.get("abc", "p2.txt"));
+    }
+
+    @Test
+    void leastRecentlyUsedFilesAreEvicted() throws Exception {
+        PreviewCache cache = new PreviewCache(dir.toString(), 1);
+        cache.put("k", "a", out -> out.write(new byte[400 * 1024]));
+        Thread.sleep(5);
+        cache.put("k", "b", out -> out.write(new byte[400 * 1024]));
+        Thread.sleep(5);
+        cache.get("k", "a");
+        cache.put("k", "c", out -> out.write(new byte[400 * 1024]));
+
+        assertNotNull(cache.get("k", "a"));
+        assertNull(cache.get("k", "b"));
+        assertFalse(Files.exists(dir.resolve(".previews").resolve("k").resolve("b")));
+        assertEquals(1L, cache.stats().get("evictions"));
+    }
+
+    @Test
+    void pinnedFilesSurviveEvictionUntilReleased() throws Exception {
+        PreviewCache cache = new PreviewCache(dir.toString(), 1);
+        cache.put("k", "sending", out -> out.write(new byte[MB / 2]));
+        PreviewCache.Pinned pinned = cache.pin("k", "sending");
+        assertNotNull(pinned);
+        assertEquals(1L, cache.stats().get("pinned"));
+
+        cache.put("k", "newer", out -> out.write(new byte[MB / 2 + 1]));
+        // the pinned file is the oldest, so the newer one had to go instead
+        assertTrue(Files.isRegularFile(pinned.path));
+        assertNull(cache.get("k", "newer"));
+
+        pinned.close();
+        pinned.close();
+        assertEquals(0L, cache.stats().get("pinned"));
+        cache.put("k", "newest", out -> out.write(new byte[MB / 2 + 1]));
+        assertFalse(Files.exists(pinned.path));
+    }
+
+    @Test
+    void replacingAPinnedEntryKeepsItPinned() throws Exception {
+        PreviewCache cache = new PreviewCache(dir.toString(), 1);
+        cache.put("k", "p", out -> out.write(new byte[16]));
+        try (PreviewCache.Pinned pinned = cache.pin("k", "p")) {
+            cache.put("k", "p", out -> out.write(new byte[MB / 2]));
+            cache.put("k", "other", out -> out.write(new byte[MB / 2 + 1]));
+            assertTrue(Files.isRegularFile(pinned.path));
+        }
+    }
+
+    @Test
+    void onlyCachedFilesCanBePinned() throws Exception {
+        PreviewCache cache = new PreviewCache(dir.toString(), 1);
+
+        assertNull(cache.pin("k", "missing"));
+    }
+
+    @Test
+    void restartKeepsEntriesAndDropsPartialWrites() throws Exception {
+        new PreviewCache(dir.toString(), 1).put("k", "p1.jpg", out -> out.write(new byte[100]));
+        Path leftover = dir.resolve(".previews").resolve("k").resolve("p2.jpg.123.tmp");
+        Files.write(leftover, new byte[10]);
+
+        PreviewCache reopened = new PreviewCache(dir.toString(), 1);
+        assertNotNull(reopened.get("k", "p1.jpg"));
+        assertFalse(Files.exists(leftover));
+        assertEquals(100L, reopened.stats().get("bytes"));
+    }
+}
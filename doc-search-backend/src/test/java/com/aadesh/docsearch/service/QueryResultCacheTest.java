@@ -0,0 +1,140 @@
+package com.aadesh.docsearch.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class QueryResultCacheTest {
+
+    private final IndexGeneration generation = new IndexGeneration();
+
+    @Test
+    void hitUntilTheGenerationMoves() {
+        QueryResultCache cache = cache(true, 100, 32, 0);
+        long gen = cache.generation();
+        cache.put("k", gen, "body");
+        assertEquals("body", cache.get("k"));
+
+        generation.bump();
+        assertNull(cache.get("k"));
+        assertEquals(1L, cache.stats().get("staleDrops"));
+        assertEquals(0, cache.stats().get("entries"));
+    }
+
+    @Test
+    void resultComputedAcrossAWriteIsNotStored() {
+        QueryResultCache cache = cache(true, 100, 32, 0);
+        long gen = cache.generation();
+        // a write lands while the query is running
+        generation.bump();
+        cache.put("k", gen, "body");
+
+        assertNull(cache.get("k"));
+        assertEquals(0L, cache.stats().get("puts"));
+    }
+
+    @Test
+    void nothingIsStoredWithinTheRefreshGrace() throws Exception {
+        QueryResultCache cache = cache(true, 100, 32, 200);
+        generation.bump();
+        cache.put("k", cache.generation(), "body");
+        assertNull(cache.get("k"));
+
+        Thread.sleep(250);
+        cache.put("k", cache.generation(), "body");
+        assertEquals("body", cache.get("k"));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedFirst() {
+        QueryResultCache cache = cache(true, 2, 32, 0);
+        long gen = cache.generation();
+        cache.put("a", gen, "A");
+        cache.put("b", gen, "B");
+        cache.get("a");
+        cache.put("c", gen, "C");
+
+        assertEquals("A", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("C", cache.get("c"));
+        assertEquals(1L, cache.stats().get("evictions"));
+    }
+
+    @Test
+    void byteBudgetEvictsAndOversizedBodiesAreSkipped() {
+        QueryResultCache cache = cache(true, 1000, 1, 0);
+        long gen = cache.generation();
+        String half = "x".repeat(300_000); // ~600 KB as UTF-16
+        cache.put("a", gen, half);
+        cache.put("b", gen, half);
+        assertNull(cache.get("a"));
+        assertEquals(half, cache.get("b"));
+        assertTrue((Long) cache.stats().get("estimatedBytes") <= 1024L * 1024L);
+
+        cache.put("big", gen, "x".repeat(600_000));
+        assertNull(cache.get("big"));
+    }
+
+    @Test
+    void disabledCacheNeverHits() {
+        QueryResultCache cache = cache(false, 100, 32, 0);
+        cache.put("k", cache.generation(), "body");
+        assertNull(cache.get("k"));
+    }
+
+    @Test
+    void keysNormalizeTheQuery() {
+        assertEquals(QueryResultCache.key("search", "  Hello   World ", 0, 10),
+                QueryResultCache.key("search", "hello world", 0, 10));
+        assertNotEquals(QueryResultCache.key("search", "q", 0, 10), QueryResultCache.key("search", "q", 1, 10));
+        assertEquals("graph|", QueryResultCache.key("graph", null));
+    }
+
+    @Test
+    void estimateGrowsWithNestedContent() {
+        Map<String, Object> small = Map.of("hits", List.of());
+        Map<String, Object> large = Map.of("hits", List.of(Map.of("content", "x".repeat(1000))));
+        assertTrue(QueryResultCache.estimateBytes(large) > QueryResultCache.estimateBytes(small) + 2000);
+    }
+
+    @Test
+    void theGraceDefaultsToAndNeverUndercutsTheRefreshInterval() {
+        assertEquals(1000, QueryResultCache.graceMillis(-1, 1000));
+        assertEquals(1000, QueryResultCache.graceMillis(200, 1000));
+        assertEquals(5000, QueryResultCache.graceMillis(5000, 1000));
+        // refresh disabled: nothing to wait for
+        assertEquals(0, QueryResultCache.graceMillis(-1, -1));
+        assertEquals(0, QueryResultCache.graceMillis(0, -1));
+    }
+
+    @Test
+    void theActiveBackendsRefreshIntervalSetsTheGrace() {
+        QueryResultCache es = new QueryResultCache(generation, true, 100, 32, -1, "elasticsearch", "30s", 1000);
+        assertEquals(30_000L, es.stats().get("refreshGraceMillis"));
+
+        QueryResultCache lucene = new QueryResultCache(generation, true, 100, 32, 100, "lucene", "30s", 2000);
+        assertEquals(2000L, lucene.stats().get("refreshGraceMillis"));
+    }
+
+    @Test
+    void elasticsearchTimeValuesAreRead() {
+        assertEquals(1000, QueryResultCache.timeValueMillis("1s"));
+        assertEquals(500, QueryResultCache.timeValueMillis("500ms"));
+        assertEquals(120_000, QueryResultCache.timeValueMillis("2m"));
+        assertEquals(-1, QueryResultCache.timeValueMillis("-1"));
+        assertEquals(0, QueryResultCache.timeValueMillis("0"));
+        // unreadable: the Elasticsearch default
+        assertEquals(1000, QueryResultCache.timeValueMillis("soon"));
+    }
+
+    /** A cache with refresh disabled, so the grace given is used as is. */
+    private QueryResultCache cache(boolean enabled, int maxEntries, int maxMb, long graceMillis) {
+        return new QueryResultCache(generation, enabled, maxEntries, maxMb, graceMillis, "elasticsearch", "-1", 1000);
+    }
+}
@@ -0,0 +1,92 @@
+package com.aadesh.docsearch.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+
+class SearchCursorTest {
+
+    private static final String PIT = "46ToAwMDaWR5BXV1aWQyKwZub2RlXzMAAAAAAAAAACoBYwADaWR4BXV1aWQxAgZub2RlXzEAAAAAAAAAAAEBYQADaWR5";
+
+    @Test
+    void everySortValueTypeRoundTrips() {
+        List<FieldValue> sort = List.of(FieldValue.of(12.5), FieldValue.of(42L), FieldValue.of(true),
+                FieldValue.of("\u00fcn\u00efcode key"), FieldValue.NULL);
+        String token = new SearchCursor(PIT, sort, 1234, "annual report").encode();
+
+        SearchCursor decoded = SearchCursor.decode(token);
+        assertEquals(PIT, decoded.pitId);
+        assertEquals(1234, decoded.total);
+        assertEquals(5, decoded.searchAfter.size());
+        assertEquals(12.5, decoded.searchAfter.get(0).doubleValue(), 0.0);
+        assertEquals(42L, decoded.searchAfter.get(1).longValue());
+        assertTrue(decoded.searchAfter.get(2).booleanValue());
+        assertEquals("\u00fcn\u00efcode key", decoded.searchAfter.get(3).stringValue());
+        assertTrue(decoded.searchAfter.get(4).isNull());
+        assertTrue(decoded.matches("annual report"));
+    }
+
+    @Test
+    void tokenIsUrlSafe() {
+        String token = new SearchCursor(PIT, List.of(FieldValue.of(-1.0e-300), FieldValue.of(Long.MIN_VALUE)), 0, "q").encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+    }
+
+    @Test
+    void cursorIsBoundToItsQuery() {
+        SearchCursor decoded = SearchCursor.decode(new SearchCursor(PIT, List.of(), 1, "kafka").encode());
+
+        assertTrue(decoded.matches("kafka"));
+        assertFalse(decoded.matches("kafka streams"));
+    }
+
+    @Test
+    void tamperedTokensAreRejected() {
+        String token = new SearchCursor(PIT, List.of(FieldValue.of(3.0), FieldValue.of(7L)), 10, "q").encode();
+        byte[] raw = Base64.getUrlDecoder().decode(token);
+
+        // truncated
+        assertInvalid(token.substring(0, token.length() - 4));
+        // trailing bytes
+        assertInvalid(encode(append(raw, (byte) 0)));
+        // another version
+        byte[] version = raw.clone();
+        version[0] = 9;
+        assertInvalid(encode(version));
+        // unknown type tag on the first sort value
+        byte[] type = raw.clone();
+        type[raw.length - 9 - 9] = 'x';
+        assertInvalid(encode(type));
+        // PIT length out of range
+        byte[] length = raw.clone();
+        length[1] = (byte) 0x7f;
+        assertInvalid(encode(length));
+        // not base64 at all
+        assertInvalid("not a cursor!");
+        assertInvalid("");
+    }
+
+    private static void assertInvalid(String token) {
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode(token));
+    }
+
+    private static String encode(byte[] raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    private static byte[] append(byte[] raw, byte b) {
+        byte[] out = Arrays.copyOf(raw, raw.length + 1);
+        out[raw.length] = b;
+        return out;
+    }
+}
@@ -0,0 +1,122 @@
+package com.aadesh.docsearch.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.aadesh.docsearch.model.DocumentEntity;
+
+class SimilarityIndexTest {
+
+    private static final String REPORT = prose(400, 1);
+
+    private final SimilarityIndex index = new SimilarityIndex(64, 16, 0.8);
+
+    @Test
+    void signaturesIgnoreCaseAndPunctuation() {
+        assertEquals(index.signature("The quick brown fox jumps over the lazy dog"),
+                index.signature("the QUICK brown fox -- jumps over the lazy dog!"));
+        assertNotEquals(index.signature("the quick brown fox jumps over the lazy dog"),
+                index.signature("the lazy dog jumps over the quick brown fox"));
+        assertNull(index.signature("  ... !! "));
+        assertNull(index.signature(null));
+        // shorter than a shingle: still signed
+        assertNotNull(index.signature("two words"));
+    }
+
+    @Test
+    void identicalTextIsFullySimilar() {
+        index.onIndexed(doc("a", REPORT));
+        index.onIndexed(doc("b", REPORT));
+
+        List<Map<String, Object>> similar = index.similarTo("a", 0.5, 10);
+        assertEquals(1, similar.size());
+        assertEquals("b", similar.get(0).get("id"));
+        assertEquals(1.0, similar.get(0).get("similarity"));
+    }
+
+    @Test
+    void aLightlyEditedCopyIsFoundAndUnrelatedTextIsNot() {
+        index.onIndexed(doc("original", REPORT));
+        index.onIndexed(doc("edited", REPORT + " One more sentence at the end of the copy."));
+        index.onIndexed(doc("unrelated", prose(400, 2)));
+
+        List<Map<String, Object>> similar = index.similarTo("original", 0.5, 10);
+        assertEquals(1, similar.size());
+        assertEquals("edited", similar.get(0).get("id"));
+        assertTrue((double) similar.get(0).get("similarity") >= 0.8, similar.toString());
+        assertEquals(List.of(), index.similarTo("unrelated", 0.5, 10));
+    }
+
+    @Test
+    void unknownOrUnsignedDocumentsHaveNoAnswer() {
+        index.onIndexed(doc("signed", REPORT));
+        DocumentEntity unsigned = new DocumentEntity();
+        unsigned.setId("unsigned");
+        index.onIndexed(unsigned);
+
+        assertNull(index.similarTo("unsigned", 0.5, 10));
+        assertNull(index.similarTo("missing", 0.5, 10));
+        assertEquals(1L, index.stats().get("withoutSignature"));
+    }
+
+    @Test
+    void nearDuplicatesJoinTheGroupOfTheBestRankedOne() {
+        index.onIndexed(doc("first", REPORT));
+        index.onIndexed(doc("other", prose(400, 2)));
+        index.onIndexed(doc("copy", REPORT));
+        index.onIndexed(doc("third", prose(400, 3)));
+
+        assertEquals(List.of(List.of("first", "copy"), List.of("other"), List.of("third"), List.of("unsigned")),
+                index.nearDuplicateGroups(List.of("first", "other", "copy", "third", "unsigned")));
+    }
+
+    @Test
+    void unrelatedTextIsNotCollapsed() {
+        for (int i = 0; i < 50; i++) index.onIndexed(doc("doc-" + i, prose(300, 100 + i)));
+        List<String> page = new ArrayList<>();
+        for (int i = 0; i < 50; i++) page.add("doc-" + i);
+
+        assertEquals(50, index.nearDuplicateGroups(page).size());
+    }
+
+    @Test
+    void backfillOnlySignsDocumentsWithoutACurrentSignature() {
+        String current = index.signature(REPORT);
+        assertNull(index.backfill(current, REPORT));
+        assertEquals(current, index.backfill(null, REPORT));
+
+        // made with a different docsearch.similar.hashes
+        String other = new SimilarityIndex(32, 8, 0.8).signature(REPORT);
+        assertEquals(current, index.backfill(other, REPORT));
+        assertNull(index.backfill(null, null));
+    }
+
+    private DocumentEntity doc(String id, String text) {
+        DocumentEntity d = new DocumentEntity();
+        d.setId(id);
+        d.setFilename(id + ".pdf");
+        d.setMinhash(index.signature(text));
+        return d;
+    }
+
+    // words drawn from a vocabulary of its own, so texts with different seeds share no shingles
+    private static String prose(int words, long seed) {
+        Random rnd = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append("w").append(seed).append('x').append(rnd.nextInt(200));
+        }
+        return sb.toString();
+    }
+}
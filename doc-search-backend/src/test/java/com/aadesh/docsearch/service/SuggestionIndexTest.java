@@ -0,0 +1,110 @@
+package com.aadesh.docsearch.service;
+
+import static com.aadesh.docsearch.service.TestDocuments.doc;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.aadesh.docsearch.model.DocumentEntity;
+
+class SuggestionIndexTest {
+
+    @Test
+    void filenameTokensAndTagsAreSuggested() {
+        SuggestionIndex index = new SuggestionIndex(20, 48);
+        index.onIndexed(doc("1", "Annual_Report_2023.pdf", "finance"));
+
+        assertEquals(List.of("Annual_Report_2023.pdf"), index.suggest("rep", 10));
+        assertEquals(List.of("Annual_Report_2023.pdf"), index.suggest("ANNUAL", 10));
+        assertEquals(List.of("finance"), index.suggest("fin", 10));
+        assertTrue(index.suggest("xyz", 10).isEmpty());
+        assertTrue(index.suggest("  ", 10).isEmpty());
+    }
+
+    @Test
+    void heavierSuggestionsComeFirst() {
+        SuggestionIndex index = new SuggestionIndex(20, 48);
+        index.onIndexed(doc("1", "java-basics.pdf", "java"));
+        index.onIndexed(doc("2", "javanotes.pdf", "java"));
+        index.onIndexed(doc("3", "javanotes.pdf"));
+
+        assertEquals(List.of("java", "javanotes.pdf", "java-basics.pdf"), index.suggest("jav", 10));
+        assertEquals(List.of("java"), index.suggest("jav", 1));
+    }
+
+    @Test
+    void onlyTopKAreKeptPerPrefix() {
+        SuggestionIndex index = new SuggestionIndex(2, 48);
+        index.onIndexed(doc("1", "alpha.txt"));
+        index.onIndexed(doc("2", "alpine.txt"));
+        index.onIndexed(doc("3", "alpine.txt"));
+        index.onIndexed(doc("4", "altitude.txt"));
+
+        assertEquals(List.of("alpine.txt", "alpha.txt"), index.suggest("al", 10));
+    }
+
+    @Test
+    void prefixesLongerThanTheTrieAreMatchedInFull() {
+        SuggestionIndex index = new SuggestionIndex(20, 4);
+        index.onIndexed(doc("1", "reporting.pdf"));
+        index.onIndexed(doc("2", "report.pdf"));
+        index.onIndexed(doc("3", "repository.txt"));
+
+        assertEquals(List.of("report.pdf", "reporting.pdf"), index.suggest("report", 10));
+        assertEquals(List.of("repository.txt"), index.suggest("repos", 10));
+        assertTrue(index.suggest("reporter", 10).isEmpty());
+        assertEquals(3, index.suggest("repo", 10).size());
+    }
+
+    @Test
+    void aDocumentIsCountedOnceAcrossReplayAndLiveIngest() {
+        SuggestionIndex index = new SuggestionIndex(20, 48);
+        DocumentEntity a = doc("1", "beta.pdf");
+        // the startup replay and a live ingest both deliver document 1
+        index.onIndexed(a);
+        index.onIndexed(a);
+        index.onIndexed(doc("2", "bravo.pdf"));
+        index.onIndexed(doc("3", "bravo.pdf"));
+
+        assertEquals(List.of("bravo.pdf", "beta.pdf"), index.suggest("b", 10));
+        assertEquals(3L, index.stats().get("documents"));
+    }
+
+    @Test
+    void aReingestReplacesTheSuggestionsOfItsPreviousVersion() {
+        SuggestionIndex index = new SuggestionIndex(20, 48);
+        index.onIndexed(doc("1", "draft_notes.txt", "finance"));
+        index.onIndexed(doc("2", "budget.xlsx", "finance"));
+        index.onIndexed(doc("1", "final_notes.txt", "finance", "legal"));
+
+        assertTrue(index.suggest("draft", 10).isEmpty());
+        assertEquals(List.of("final_notes.txt"), index.suggest("notes", 10));
+        assertEquals(List.of("finance", "final_notes.txt"), index.suggest("fin", 10));
+        assertEquals(List.of("legal"), index.suggest("leg", 10));
+        assertEquals(2L, index.stats().get("documents"));
+        assertEquals(4, index.stats().get("suggestions"));
+    }
+
+    @Test
+    void aSuggestionOutsideAFullListMovesUpWhenAnotherOneLosesItsDocuments() {
+        SuggestionIndex index = new SuggestionIndex(2, 48);
+        index.onIndexed(doc("1", "alpha.txt"));
+        index.onIndexed(doc("2", "alpine.txt"));
+        index.onIndexed(doc("3", "alpine.txt"));
+        index.onIndexed(doc("4", "altitude.txt"));
+        index.onIndexed(doc("5", "altitude.txt"));
+        index.onIndexed(doc("6", "altitude.txt"));
+        assertEquals(List.of("altitude.txt", "alpine.txt"), index.suggest("al", 10));
+
+        // alpine.txt drops to one document, then to none
+        index.onIndexed(doc("2", "zeta.txt"));
+        assertEquals(List.of("altitude.txt", "alpha.txt"), index.suggest("al", 10));
+        index.onIndexed(doc("3", "zeta.txt"));
+        assertEquals(List.of("altitude.txt", "alpha.txt"), index.suggest("al", 10));
+        assertTrue(index.suggest("alpi", 10).isEmpty());
+        assertEquals(List.of("zeta.txt"), index.suggest("z", 10));
+    }
+}
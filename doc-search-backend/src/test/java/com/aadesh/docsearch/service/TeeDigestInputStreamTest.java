@@ -0,0 +1,115 @@
+package com.aadesh.docsearch.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TeeDigestInputStreamTest {
+
+    private static final byte[] DATA = new byte[100_000];
+
+    static {
+        new Random(42).nextBytes(DATA);
+    }
+
+    @Test
+    void digestAndSinkCoverEveryByteRead() throws Exception {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        TeeDigestInputStream tee = new TeeDigestInputStream(new ByteArrayInputStream(DATA), sink);
+
+        // a mix of single-byte and bulk reads, as parsers do
+        assertEquals(DATA[0] & 0xff, tee.read());
+        byte[] buf = new byte[1000];
+        assertEquals(1000, tee.read(buf, 0, buf.length));
+        tee.drain();
+
+        assertEquals(DATA.length, tee.getBytesRead());
+        assertArrayEquals(DATA, sink.toByteArray());
+        assertEquals(sha256(DATA), tee.sha256Hex());
+    }
+
+    @Test
+    void skippedBytesStillReachSinkAndDigest() throws Exception {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        TeeDigestInputStream tee = new TeeDigestInputStream(new ByteArrayInputStream(DATA), sink);
+
+        assertEquals(20_000, tee.skip(20_000));
+        assertEquals(DATA[20_000] & 0xff, tee.read());
+        // skipping past the end stops at the end
+        assertEquals(DATA.length - 20_001, tee.skip(Long.MAX_VALUE));
+        assertEquals(0, tee.skip(10));
+
+        assertEquals(DATA.length, tee.getBytesRead());
+        assertArrayEquals(DATA, sink.toByteArray());
+        assertEquals(sha256(DATA), tee.sha256Hex());
+    }
+
+    @Test
+    void markIsIgnoredAndResetFails() throws Exception {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        // the source supports mark, the tee must not pass that on
+        TeeDigestInputStream tee = new TeeDigestInputStream(new ByteArrayInputStream(DATA), sink);
+
+        assertFalse(tee.markSupported());
+        tee.mark(1000);
+        byte[] buf = new byte[500];
+        assertEquals(500, tee.read(buf, 0, buf.length));
+        assertThrows(IOException.class, tee::reset);
+        tee.drain();
+
+        // nothing was written twice
+        assertArrayEquals(DATA, sink.toByteArray());
+        assertEquals(sha256(DATA), tee.sha256Hex());
+    }
+
+    @Test
+    void closeLeavesSourceReadableForDrain() throws Exception {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        TeeDigestInputStream tee = new TeeDigestInputStream(new ByteArrayInputStream(DATA), sink);
+
+        // a parser that reads a little and closes its stream
+        try (InputStream parser = tee) {
+            parser.read(new byte[10]);
+        }
+        tee.drain();
+
+        assertEquals(DATA.length, tee.getBytesRead());
+        assertEquals(sha256(DATA), tee.sha256Hex());
+    }
+
+    @Test
+    void sha256HexCanBeTakenMidStream() throws Exception {
+        TeeDigestInputStream tee = new TeeDigestInputStream(new ByteArrayInputStream(DATA), new ByteArrayOutputStream());
+        tee.read(new byte[10], 0, 10);
+
+        byte[] head = new byte[10];
+        System.arraycopy(DATA, 0, head, 0, 10);
+        assertEquals(sha256(head), tee.sha256Hex());
+        tee.drain();
+        assertEquals(sha256(DATA), tee.sha256Hex());
+    }
+
+    @Test
+    void emptySource() throws Exception {
+        TeeDigestInputStream tee = new TeeDigestInputStream(new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream());
+        assertEquals(-1, tee.read());
+        tee.drain();
+        assertEquals(0, tee.getBytesRead());
+        assertEquals(sha256(new byte[0]), tee.sha256Hex());
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+}
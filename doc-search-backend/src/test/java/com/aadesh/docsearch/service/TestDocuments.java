@@ -0,0 +1,20 @@
+package com.aadesh.docsearch.service;
+
+import java.util.List;
+
+import com.aadesh.docsearch.model.DocumentEntity;
+
+/** Documents as the index listeners receive them. */
+final class TestDocuments {
+
+    private TestDocuments() {
+    }
+
+    static DocumentEntity doc(String id, String filename, String... tags) {
+        DocumentEntity d = new DocumentEntity();
+        d.setId(id);
+        d.setFilename(filename);
+        d.setTags(List.of(tags));
+        return d;
+    }
+}
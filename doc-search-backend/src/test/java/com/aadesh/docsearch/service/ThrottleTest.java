@@ -0,0 +1,63 @@
+package com.aadesh.docsearch.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ThrottleTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void zeroMeansNoLimit() {
+        Throttle throttle = new Throttle(0);
+
+        for (int i = 0; i < 5; i++) assertEquals(0, throttle.reserve(1_000_000, 0));
+    }
+
+    @Test
+    void batchesAreSpacedByTheirSize() {
+        Throttle throttle = new Throttle(100);
+        long now = System.nanoTime();
+
+        assertEquals(0, throttle.reserve(50, now));
+        // the first 50 documents take half a second at 100/s
+        assertEquals(SECOND / 2, throttle.reserve(100, now));
+        assertEquals(SECOND / 2 + SECOND, throttle.reserve(10, now));
+    }
+
+    @Test
+    void idleTimeIsNotSavedUp() {
+        Throttle throttle = new Throttle(100);
+        long now = System.nanoTime();
+        throttle.reserve(100, now);
+
+        // long after the booked second: no credit for the idle time, the batch just goes
+        long later = now + 10 * SECOND;
+        assertEquals(0, throttle.reserve(100, later));
+        assertEquals(SECOND, throttle.reserve(100, later));
+    }
+
+    @Test
+    void threadsSharingAThrottleShareTheRate() throws Exception {
+        Throttle throttle = new Throttle(1000);
+        long start = System.nanoTime();
+        Thread[] slices = new Thread[4];
+        for (int i = 0; i < slices.length; i++) {
+            slices[i] = new Thread(() -> {
+                try {
+                    for (int b = 0; b < 3; b++) throttle.acquire(25);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            slices[i].start();
+        }
+        for (Thread t : slices) t.join();
+
+        // 300 documents at 1000/s: the last batch may start after 275 ms
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsedMillis >= 270, elapsedMillis + " ms");
+    }
+}
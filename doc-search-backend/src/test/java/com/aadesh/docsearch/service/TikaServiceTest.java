@@ -0,0 +1,188 @@
+package com.aadesh.docsearch.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.aadesh.docsearch.exception.ParseTimeoutException;
+import com.aadesh.docsearch.exception.ParserUnavailableException;
+
+class TikaServiceTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private TikaService tika;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (tika != null) tika.shutdown();
+    }
+
+    @Test
+    void hungParsesDoNotStarveThePool() throws Exception {
+        tika = new TikaService("inline", 200, 100_000, 2, 16, 1, "java");
+
+        // twice as many hung parses as parse threads
+        for (int i = 0; i < 4; i++) {
+            assertThrows(ParseTimeoutException.class, () -> tika.parse(new HangingStream(release), "pdf"));
+        }
+        assertEquals(4, tika.getStats().get("stuckParses"));
+
+        TikaService.ParsedResult result = tika.parse(text("still parsing"), "txt");
+        assertTrue(result.text.contains("still parsing"));
+
+        release.countDown();
+        awaitStuck(0);
+    }
+
+    @Test
+    void waitingForAParseThreadDoesNotCountAgainstTheBudget() throws Exception {
+        tika = new TikaService("inline", 1_500, 100_000, 1, 16, 1, "java");
+        tika.parse(text("warm-up"), "txt");
+
+        // four 500 ms parses on one thread: the last one waits 1.5 s for it but parses in 0.5 s
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<TikaService.ParsedResult>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                String body = "document " + i;
+                results.add(callers.submit(() -> tika.parse(new SlowStream(body, 500), "txt")));
+            }
+            for (int i = 0; i < 4; i++) {
+                assertTrue(results.get(i).get().text.contains("document " + i));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void tooManyStuckParsesFailFastUntilTheyReturn() throws Exception {
+        tika = new TikaService("inline", 100, 100_000, 1, 2, 1, "java");
+
+        // two stuck parses are tolerated, a third one is not
+        assertThrows(ParseTimeoutException.class, () -> tika.parse(new HangingStream(release), "pdf"));
+        assertThrows(ParseTimeoutException.class, () -> tika.parse(new HangingStream(release), "pdf"));
+        assertTrue(tika.parse(text("still started"), "txt").text.contains("still started"));
+        assertThrows(ParseTimeoutException.class, () -> tika.parse(new HangingStream(release), "pdf"));
+        assertThrows(ParserUnavailableException.class, () -> tika.parse(text("not started"), "txt"));
+
+        release.countDown();
+        awaitStuck(0);
+        assertTrue(tika.parse(text("started again"), "txt").text.contains("started again"));
+    }
+
+    @Test
+    void withNoStuckParsesAllowedParsingWorksUntilOneHangs() throws Exception {
+        tika = new TikaService("inline", 100, 100_000, 1, 0, 1, "java");
+
+        assertTrue(tika.parse(text("first"), "txt").text.contains("first"));
+        assertThrows(ParseTimeoutException.class, () -> tika.parse(new HangingStream(release), "pdf"));
+        assertThrows(ParserUnavailableException.class, () -> tika.parse(text("not started"), "txt"));
+
+        release.countDown();
+        awaitStuck(0);
+        assertTrue(tika.parse(text("started again"), "txt").text.contains("started again"));
+    }
+
+    @Test
+    void writeLimitTruncatesInsteadOfFailing() throws Exception {
+        tika = new TikaService("inline", 5_000, 10, 1, 16, 1, "java");
+
+        TikaService.ParsedResult result = tika.parse(text("a text well over ten characters"), "txt");
+        assertTrue(result.truncated);
+        assertTrue(result.text.length() <= 10);
+    }
+
+    private void awaitStuck(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!Integer.valueOf(expected).equals(tika.getStats().get("stuckParses"))) {
+            assertTrue(System.currentTimeMillis() < deadline, "abandoned parses did not return");
+            Thread.sleep(10);
+        }
+    }
+
+    private static InputStream text(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // blocks every read until released and ignores interrupts, like a parser stuck in a loop
+    private static final class HangingStream extends InputStream {
+        private final CountDownLatch release;
+
+        HangingStream(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public int read() {
+            hang();
+            return -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            hang();
+            return -1;
+        }
+
+        private void hang() {
+            while (true) {
+                try {
+                    release.await();
+                    return;
+                } catch (InterruptedException ignored) {
+                    // keep going, as Tika's parsers do
+                }
+            }
+        }
+    }
+
+    // takes delayMillis before its first byte, then reads normally
+    private static final class SlowStream extends InputStream {
+        private final InputStream body;
+        private final long delayMillis;
+        private boolean waited;
+
+        SlowStream(String body, long delayMillis) {
+            this.body = text(body);
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public int read() throws IOException {
+            pause();
+            return body.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            pause();
+            return body.read(b, off, len);
+        }
+
+        private void pause() {
+            if (waited) return;
+            waited = true;
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
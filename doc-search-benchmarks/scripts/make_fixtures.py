@@ -0,0 +1,267 @@
+#!/usr/bin/env python3
+"""Writes the benchmark fixtures.
+
+- sample.pdf / sample.docx / sample.pptx for TikaParseBenchmark, built by hand (raw PDF
+  objects, minimal OOXML packages) so they can be regenerated without office software.
+  All three carry the same three pages of text.
+- documents-response.json / passages-response.json: canned Elasticsearch search responses
+  for ResponseMappingBenchmark.
+Run from the module directory: python3 scripts/make_fixtures.py
+"""
+import json
+import os
+import random
+import zipfile
+from xml.sax.saxutils import escape
+
+OUT = os.path.join(os.path.dirname(__file__), "..", "src", "main", "resources", "fixtures")
+
+TOPICS = [
+    ("Onboarding guide", "onboarding checklist account access laptop security training"),
+    ("Quarterly search report", "elasticsearch latency throughput index refresh shards replicas"),
+    ("Knowledge graph notes", "keywords documents co-occurrence graph neighbors ranking"),
+]
+
+SENTENCES = [
+    "The {0} team reviewed the {1} requirements and agreed on next steps.",
+    "Every document is parsed, tagged with keywords and indexed for full-text search.",
+    "Reviewers flagged {1} as the main risk for the upcoming release.",
+    "Search results show a highlighted snippet and link back to the original file.",
+    "Metrics for {1} were collected weekly and compared against the previous quarter.",
+    "The appendix lists owners, deadlines and open questions for {0}.",
+]
+
+
+def pages():
+    out = []
+    for title, words in TOPICS:
+        w = words.split()
+        lines = [title]
+        for i in range(36):
+            s = SENTENCES[i % len(SENTENCES)]
+            lines.append(s.format(title.lower(), " ".join(w[i % len(w):i % len(w) + 2])))
+        out.append(lines)
+    return out
+
+
+def pdf(path):
+    objs = []
+
+    def add(body):
+        objs.append(body)
+        return len(objs)
+
+    font = add(b"<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>")
+    pages_id = len(objs) + 1 + 2 * len(TOPICS) + 1  # reserved below
+    page_ids = []
+    for lines in pages():
+        text = ["BT", "/F1 10 Tf", "12 TL", "56 790 Td"]
+        for line in lines:
+            esc = line.replace("\\", "\\\\").replace("(", "\\(").replace(")", "\\)")
+            text.append("(%s) Tj T*" % esc)
+        text.append("ET")
+        stream = "\n".join(text).encode("latin-1")
+        content = add(b"<< /Length %d >>\nstream\n" % len(stream) + stream + b"\nendstream")
+        page_ids.append(add(("<< /Type /Page /Parent %d 0 R /MediaBox [0 0 595 842] "
+                             "/Resources << /Font << /F1 %d 0 R >> >> /Contents %d 0 R >>"
+                             % (pages_id, font, content)).encode()))
+    info = add(b"<< /Title (Doc search benchmark fixture) /Producer (make_fixtures.py) >>")
+    assert len(objs) + 1 == pages_id
+    add(("<< /Type /Pages /Kids [%s] /Count %d >>"
+         % (" ".join("%d 0 R" % p for p in page_ids), len(page_ids))).encode())
+    catalog = add(("<< /Type /Catalog /Pages %d 0 R >>" % pages_id).encode())
+
+    data = bytearray(b"%PDF-1.4\n%\xe2\xe3\xcf\xd3\n")
+    offsets = []
+    for i, body in enumerate(objs, 1):
+        offsets.append(len(data))
+        data += b"%d 0 obj\n" % i + body + b"\nendobj\n"
+    xref = len(data)
+    data += b"xref\n0 %d\n0000000000 65535 f \n" % (len(objs) + 1)
+    for off in offsets:
+        data += b"%010d 00000 n \n" % off
+    data += (b"trailer\n<< /Size %d /Root %d 0 R /Info %d 0 R >>\nstartxref\n%d\n%%%%EOF\n"
+             % (len(objs) + 1, catalog, info, xref))
+    with open(path, "wb") as f:
+        f.write(data)
+
+
+def write_zip(path, parts):
+    with zipfile.ZipFile(path, "w", zipfile.ZIP_DEFLATED) as z:
+        for name, body in parts:
+            z.writestr(zipfile.ZipInfo(name, (2024, 1, 1, 0, 0, 0)), body)
+
+
+RELS_NS = "http://schemas.openxmlformats.org/package/2006/relationships"
+DOC_REL = "http://schemas.openxmlformats.org/officeDocument/2006/relationships"
+
+
+def rels(*items):
+    body = "".join('<Relationship Id="%s" Type="%s/%s" Target="%s"/>' % (i, DOC_REL, t, target)
+                   for i, t, target in items)
+    return '<?xml version="1.0" encoding="UTF-8" standalone="yes"?><Relationships xmlns="%s">%s</Relationships>' % (RELS_NS, body)
+
+
+def docx(path):
+    w = "http://schemas.openxmlformats.org/wordprocessingml/2006/main"
+    paras = []
+    for n, lines in enumerate(pages()):
+        if n:
+            paras.append('<w:p><w:r><w:br w:type="page"/></w:r></w:p>')
+        for line in lines:
+            paras.append("<w:p><w:r><w:t xml:space=\"preserve\">%s</w:t></w:r></w:p>" % escape(line))
+    document = ('<?xml version="1.0" encoding="UTF-8" standalone="yes"?>'
+                '<w:document xmlns:w="%s"><w:body>%s<w:sectPr/></w:body></w:document>' % (w, "".join(paras)))
+    types = ('<?xml version="1.0" encoding="UTF-8" standalone="yes"?>'
+             '<Types xmlns="http://schemas.openxmlformats.org/package/2006/content-types">'
+             '<Default Extension="rels" ContentType="application/vnd.openxmlformats-package.relationships+xml"/>'
+             '<Default Extension="xml" ContentType="application/xml"/>'
+             '<Override PartName="/word/document.xml" '
+             'ContentType="application/vnd.openxmlformats-officedocument.wordprocessingml.document.main+xml"/>'
+             '</Types>')
+    write_zip(path, [
+        ("[Content_Types].xml", types),
+        ("_rels/.rels", rels(("rId1", "officeDocument", "word/document.xml"))),
+        ("word/document.xml", document),
+    ])
+
+
+P = 'xmlns:a="http://schemas.openxmlformats.org/drawingml/2006/main" ' \
+    'xmlns:r="http://schemas.openxmlformats.org/officeDocument/2006/relationships" ' \
+    'xmlns:p="http://schemas.openxmlformats.org/presentationml/2006/main"'
+XML = '<?xml version="1.0" encoding="UTF-8" standalone="yes"?>'
+EMPTY_TREE = ('<p:cSld><p:spTree><p:nvGrpSpPr><p:cNvPr id="1" name=""/><p:cNvGrpSpPr/><p:nvPr/></p:nvGrpSpPr>'
+              '<p:grpSpPr/>%s</p:spTree></p:cSld>')
+THEME = (XML + '<a:theme xmlns:a="http://schemas.openxmlformats.org/drawingml/2006/main" name="Fixture">'
+         '<a:themeElements><a:clrScheme name="Fixture">'
+         + "".join('<a:%s><a:srgbClr val="%s"/></a:%s>' % (n, v, n) for n, v in [
+             ("dk1", "000000"), ("lt1", "FFFFFF"), ("dk2", "1F497D"), ("lt2", "EEECE1"),
+             ("accent1", "4F81BD"), ("accent2", "C0504D"), ("accent3", "9BBB59"), ("accent4", "8064A2"),
+             ("accent5", "4BACC6"), ("accent6", "F79646"), ("hlink", "0000FF"), ("folHlink", "800080")])
+         + '</a:clrScheme><a:fontScheme name="Fixture">'
+         '<a:majorFont><a:latin typeface="Calibri"/><a:ea typeface=""/><a:cs typeface=""/></a:majorFont>'
+         '<a:minorFont><a:latin typeface="Calibri"/><a:ea typeface=""/><a:cs typeface=""/></a:minorFont>'
+         '</a:fontScheme><a:fmtScheme name="Fixture">'
+         '<a:fillStyleLst>' + '<a:solidFill><a:schemeClr val="phClr"/></a:solidFill>' * 3 + '</a:fillStyleLst>'
+         '<a:lnStyleLst>' + '<a:ln w="9525"><a:solidFill><a:schemeClr val="phClr"/></a:solidFill></a:ln>' * 3 + '</a:lnStyleLst>'
+         '<a:effectStyleLst>' + '<a:effectStyle><a:effectLst/></a:effectStyle>' * 3 + '</a:effectStyleLst>'
+         '<a:bgFillStyleLst>' + '<a:solidFill><a:schemeClr val="phClr"/></a:solidFill>' * 3 + '</a:bgFillStyleLst>'
+         '</a:fmtScheme></a:themeElements></a:theme>')
+
+
+def text_shape(shape_id, name, lines):
+    paras = "".join('<a:p><a:r><a:rPr lang="en-US"/><a:t>%s</a:t></a:r></a:p>' % escape(l) for l in lines)
+    return ('<p:sp><p:nvSpPr><p:cNvPr id="%d" name="%s"/><p:cNvSpPr txBox="1"/><p:nvPr/></p:nvSpPr>'
+            '<p:spPr><a:xfrm><a:off x="457200" y="457200"/><a:ext cx="8229600" cy="5943600"/></a:xfrm>'
+            '<a:prstGeom prst="rect"><a:avLst/></a:prstGeom></p:spPr>'
+            '<p:txBody><a:bodyPr/><a:lstStyle/>%s</p:txBody></p:sp>' % (shape_id, name, paras))
+
+
+def pptx(path):
+    slides = pages()
+    ct = "application/vnd.openxmlformats-officedocument.presentationml"
+    types = (XML + '<Types xmlns="http://schemas.openxmlformats.org/package/2006/content-types">'
+             '<Default Extension="rels" ContentType="application/vnd.openxmlformats-package.relationships+xml"/>'
+             '<Default Extension="xml" ContentType="application/xml"/>'
+             '<Override PartName="/ppt/presentation.xml" ContentType="%s.presentation.main+xml"/>'
+             '<Override PartName="/ppt/slideMasters/slideMaster1.xml" ContentType="%s.slideMaster+xml"/>'
+             '<Override PartName="/ppt/slideLayouts/slideLayout1.xml" ContentType="%s.slideLayout+xml"/>'
+             '<Override PartName="/ppt/theme/theme1.xml" ContentType="application/vnd.openxmlformats-officedocument.theme+xml"/>'
+             % (ct, ct, ct)
+             + "".join('<Override PartName="/ppt/slides/slide%d.xml" ContentType="%s.slide+xml"/>' % (i, ct)
+                       for i in range(1, len(slides) + 1))
+             + '</Types>')
+    presentation = (XML + '<p:presentation %s>'
+                    '<p:sldMasterIdLst><p:sldMasterId id="2147483648" r:id="rId1"/></p:sldMasterIdLst>'
+                    '<p:sldIdLst>%s</p:sldIdLst>'
+                    '<p:sldSz cx="9144000" cy="6858000"/><p:notesSz cx="6858000" cy="9144000"/>'
+                    '</p:presentation>'
+                    % (P, "".join('<p:sldId id="%d" r:id="rId%d"/>' % (256 + i, i + 2) for i in range(len(slides)))))
+    pres_rels = rels(("rId1", "slideMaster", "slideMasters/slideMaster1.xml"),
+                     *[("rId%d" % (i + 2), "slide", "slides/slide%d.xml" % (i + 1)) for i in range(len(slides))],
+                     ("rId%d" % (len(slides) + 2), "theme", "theme/theme1.xml"))
+    master = (XML + '<p:sldMaster %s>' % P + EMPTY_TREE % ""
+              + '<p:clrMap bg1="lt1" tx1="dk1" bg2="lt2" tx2="dk2" accent1="accent1" accent2="accent2" '
+                'accent3="accent3" accent4="accent4" accent5="accent5" accent6="accent6" hlink="hlink" folHlink="folHlink"/>'
+              + '<p:sldLayoutIdLst><p:sldLayoutId id="2147483649" r:id="rId1"/></p:sldLayoutIdLst></p:sldMaster>')
+    layout = XML + '<p:sldLayout %s type="blank">' % P + EMPTY_TREE % "" + '<p:clrMapOvr><a:masterClrMapping/></p:clrMapOvr></p:sldLayout>'
+    parts = [
+        ("[Content_Types].xml", types),
+        ("_rels/.rels", rels(("rId1", "officeDocument", "ppt/presentation.xml"))),
+        ("ppt/presentation.xml", presentation),
+        ("ppt/_rels/presentation.xml.rels", pres_rels),
+        ("ppt/slideMasters/slideMaster1.xml", master),
+        ("ppt/slideMasters/_rels/slideMaster1.xml.rels",
+         rels(("rId1", "slideLayout", "../slideLayouts/slideLayout1.xml"), ("rId2", "theme", "../theme/theme1.xml"))),
+        ("ppt/slideLayouts/slideLayout1.xml", layout),
+        ("ppt/slideLayouts/_rels/slideLayout1.xml.rels", rels(("rId1", "slideMaster", "../slideMasters/slideMaster1.xml"))),
+        ("ppt/theme/theme1.xml", THEME),
+    ]
+    for i, lines in enumerate(slides, 1):
+        slide = (XML + '<p:sld %s>' % P + EMPTY_TREE % (text_shape(2, "Title", lines[:1]) + text_shape(3, "Body", lines[1:]))
+                 + '<p:clrMapOvr><a:masterClrMapping/></p:clrMapOvr></p:sld>')
+        parts.append(("ppt/slides/slide%d.xml" % i, slide))
+        parts.append(("ppt/slides/_rels/slide%d.xml.rels" % i, rels(("rId1", "slideLayout", "../slideLayouts/slideLayout1.xml"))))
+    write_zip(path, parts)
+
+
+def search_responses(out):
+    rnd = random.Random(7)
+    words = " ".join(" ".join(p) for p in pages()).split()
+    tags_pool = sorted({w.strip(".,").lower() for w in words if len(w) > 5})
+
+    def sentence(n):
+        start = rnd.randrange(len(words) - n)
+        return " ".join(words[start:start + n])
+
+    docs, passages = [], []
+    for i in range(50):
+        doc_id = "00000000-0000-4000-8000-%012d" % i
+        filename = "%s_%d.%s" % (rnd.choice(["report", "notes", "guide", "minutes"]), 2000 + i, rnd.choice(["pdf", "docx", "pptx"]))
+        source = {
+            "id": doc_id,
+            "filename": filename,
+            "fileType": filename.rsplit(".", 1)[1],
+            "uploadedAt": "2024-03-%02dT10:15:30Z" % (i % 28 + 1),
+            "size": rnd.randrange(20_000, 5_000_000),
+            "tags": rnd.sample(tags_pool, 10),
+            "preview": sentence(40)[:250],
+            "downloadUrl": "/api/files/download/%s-%s" % (doc_id, filename),
+            "sha256": "%064x" % rnd.getrandbits(256),
+        }
+        score = round(12.0 - i * 0.2, 4)
+        docs.append({
+            "_index": "documents", "_id": doc_id, "_score": score, "_source": source,
+            "highlight": {
+                "content": ["%s <mark>search</mark> %s" % (sentence(15), sentence(15)) for _ in range(3)],
+                "filename": ["<mark>%s</mark>" % filename],
+            },
+        })
+        passage = {
+            "id": "%s_%d" % (doc_id, i % 7), "documentId": doc_id, "ordinal": i % 7, "page": i % 7 + 1,
+            "text": sentence(160), "filename": filename, "fileType": source["fileType"],
+            "uploadedAt": source["uploadedAt"], "tags": source["tags"], "downloadUrl": source["downloadUrl"],
+        }
+        passages.append({
+            "_index": "document-passages", "_id": passage["id"], "_score": score, "_source": passage,
+            "highlight": {"text": ["%s <mark>search</mark> %s" % (sentence(20), sentence(20))]},
+            "fields": {"documentId": [doc_id]},
+        })
+
+    def response(hits):
+        return {"took": 7, "timed_out": False,
+                "_shards": {"total": 1, "successful": 1, "skipped": 0, "failed": 0},
+                "hits": {"total": {"value": 1234, "relation": "eq"}, "max_score": hits[0]["_score"], "hits": hits}}
+
+    with open(os.path.join(out, "documents-response.json"), "w") as f:
+        json.dump(response(docs), f, indent=1)
+    with open(os.path.join(out, "passages-response.json"), "w") as f:
+        json.dump(response(passages), f, indent=1)
+
+
+if __name__ == "__main__":
+    os.makedirs(OUT, exist_ok=True)
+    pdf(os.path.join(OUT, "sample.pdf"))
+    docx(os.path.join(OUT, "sample.docx"))
+    pptx(os.path.join(OUT, "sample.pptx"))
+    search_responses(OUT)
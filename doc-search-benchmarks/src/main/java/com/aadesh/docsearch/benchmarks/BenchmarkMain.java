@@ -0,0 +1,29 @@
+package com.aadesh.docsearch.benchmarks;
+
+import java.util.Arrays;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. Accepts the usual JMH command line and always adds the GC
+ * profiler, so every result carries {@code gc.alloc.rate.norm} (bytes allocated per operation)
+ * next to the throughput.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {}
+
+    public static void main(String[] args) throws Exception {
+        // listing and help output need no profiler
+        if (Arrays.stream(args).anyMatch(a -> a.equals("-l") || a.equals("-lp") || a.equals("-h") || a.equals("-lprof"))) {
+            Main.main(args);
+            return;
+        }
+        CommandLineOptions cli = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder().parent(cli).addProfiler(GCProfiler.class).build()).run();
+    }
+}
@@ -0,0 +1,80 @@
+package com.aadesh.docsearch.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+
+/**
+ * Shared benchmark inputs: checked-in files under {@code /fixtures} (see scripts/make_fixtures.py)
+ * and deterministic synthetic text.
+ */
+public final class Fixtures {
+
+    private static final String[] COMMON = {
+            "the", "and", "for", "that", "with", "from", "this", "are", "was", "document", "search",
+            "index", "report", "quarter", "team", "review", "data", "graph", "keyword", "results"
+    };
+
+    private Fixtures() {}
+
+    public static InputStream open(String name) {
+        InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name);
+        if (in == null) throw new IllegalArgumentException("No fixture " + name);
+        return in;
+    }
+
+    /** Copies a fixture to a temp file, since the parsers are benchmarked on file-backed input. */
+    public static Path copyToTemp(String name) {
+        try (InputStream in = open(name)) {
+            Path tmp = Files.createTempFile("docsearch-bench-", "-" + name);
+            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            tmp.toFile().deleteOnExit();
+            return tmp;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * About {@code chars} characters of prose-like text: a Zipf-skewed vocabulary of a few
+     * thousand words mixed with common words, digits, punctuation and some accented letters.
+     */
+    public static String text(int chars, long seed) {
+        Random rnd = new Random(seed);
+        String[] vocab = new String[5000];
+        for (int i = 0; i < vocab.length; i++) {
+            StringBuilder w = new StringBuilder();
+            int len = 3 + rnd.nextInt(9);
+            for (int j = 0; j < len; j++) w.append((char) ('a' + rnd.nextInt(26)));
+            if (i % 97 == 0) w.append('\u00e9');
+            vocab[i] = w.toString();
+        }
+        StringBuilder sb = new StringBuilder(chars + 32);
+        int sentence = 0;
+        while (sb.length() < chars) {
+            double r = rnd.nextDouble();
+            String word;
+            if (r < 0.35) {
+                word = COMMON[rnd.nextInt(COMMON.length)];
+            } else if (r < 0.37) {
+                word = Integer.toString(rnd.nextInt(10_000));
+            } else {
+                // rank ~ 1/u gives a heavy head and a long tail
+                int rank = (int) Math.min(vocab.length - 1, 1 / (rnd.nextDouble() + 1e-4) - 1);
+                word = vocab[rank];
+            }
+            sb.append(sentence == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            if (++sentence > 8 + rnd.nextInt(12)) {
+                sb.append(rnd.nextInt(5) == 0 ? ".\n" : ". ");
+                sentence = 0;
+            } else {
+                sb.append(rnd.nextInt(10) == 0 ? ", " : " ");
+            }
+        }
+        return sb.toString();
+    }
+}
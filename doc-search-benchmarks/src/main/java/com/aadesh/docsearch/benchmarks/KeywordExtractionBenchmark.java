@@ -0,0 +1,104 @@
+package com.aadesh.docsearch.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aadesh.docsearch.service.DocumentFrequencyTable;
+import com.aadesh.docsearch.service.KeywordExtractor;
+
+/**
+ * Tag extraction as done for every ingested document, on small (2 KB), medium (100 KB, the
+ * default docsearch.tika.max-chars) and huge (5 MB) texts. {@code legacyRegex} is the
+ * replaceAll/split/HashMap/sort implementation that KeywordExtractor replaced, kept as a baseline.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class KeywordExtractionBenchmark {
+
+    @Param({"small", "medium", "huge"})
+    public String size;
+
+    private String text;
+    private Path statsDir;
+    private DocumentFrequencyTable documentFrequency;
+    private KeywordExtractor extractor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        int chars = switch (size) {
+            case "small" -> 2_000;
+            case "medium" -> 100_000;
+            default -> 5_000_000;
+        };
+        text = Fixtures.text(chars, 42);
+        statsDir = Files.createTempDirectory("docsearch-bench-stats");
+        // no periodic flush during the run; the sketch is written once at tear-down
+        documentFrequency = new DocumentFrequencyTable(statsDir.toString(), 1 << 20, 0);
+        extractor = new KeywordExtractor(documentFrequency);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        documentFrequency.shutdown();
+        try (Stream<Path> files = Files.walk(statsDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public List<String> extractAndRecord() {
+        KeywordExtractor.Keywords keywords = extractor.extract(text, 12);
+        extractor.record(keywords);
+        return keywords.keywords;
+    }
+
+    @Benchmark
+    public List<String> legacyRegex() {
+        return legacyExtract(text, 12);
+    }
+
+    private static List<String> legacyExtract(String text, int topN) {
+        String cleaned = text.replaceAll("[^\\p{L}\\p{Nd}\\s]+", " ").toLowerCase();
+        String[] tokens = cleaned.split("\\s+");
+        Set<String> stopwords = Set.of("the", "and", "for", "that", "this", "with", "from",
+                "have", "are", "was", "were", "their", "which", "when", "what", "where", "how", "not", "but", "you",
+                "your", "can", "will", "our", "they", "all", "any", "has", "had", "been", "its", "also");
+        Map<String, Integer> freq = new HashMap<>();
+        for (String t : tokens) {
+            if (t.length() <= 2) continue;
+            if (stopwords.contains(t)) continue;
+            freq.put(t, freq.getOrDefault(t, 0) + 1);
+        }
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(freq.entrySet());
+        entries.sort((e1, e2) -> Integer.compare(e2.getValue(), e1.getValue()));
+        List<String> out = new ArrayList<>(topN);
+        for (int i = 0; i < Math.min(topN, entries.size()); i++) out.add(entries.get(i).getKey());
+        return out;
+    }
+}
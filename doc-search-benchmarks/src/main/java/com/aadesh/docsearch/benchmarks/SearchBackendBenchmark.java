@@ -0,0 +1,208 @@
+package com.aadesh.docsearch.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aadesh.docsearch.config.IndexNames;
+import com.aadesh.docsearch.model.DocumentEntity;
+import com.aadesh.docsearch.service.ElasticsearchSearchBackend;
+import com.aadesh.docsearch.service.LuceneSearchBackend;
+import com.aadesh.docsearch.service.SearchBackend;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.mapping.IndexOptions;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+
+/**
+ * Latency of the {@link SearchBackend} calls behind /api/search, /api/search/v2 and the graph,
+ * on the same synthetic corpus in both backends: the embedded Lucene index, and a throwaway
+ * index on the Elasticsearch cluster at {@code DOCSEARCH_BENCH_ES} (default
+ * {@code http://localhost:9200}), mapped like the documents index. Without a cluster, run
+ * {@code -p backend=lucene}.
+ *
+ * Sample-time mode, so the results carry p50/p90/p99 per call rather than only a mean.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SearchBackendBenchmark {
+
+    @Param({"lucene", "elasticsearch"})
+    public String backend;
+
+    @Param({"10000"})
+    public int documents;
+
+    private SearchBackend search;
+    private Path luceneDir;
+    private RestClient restClient;
+    private ElasticsearchClient esClient;
+    private String esIndex;
+    private String[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        List<DocumentEntity> corpus = corpus(documents);
+        queries = queries(corpus, 200);
+        if ("lucene".equals(backend)) {
+            luceneDir = Files.createTempDirectory("docsearch-bench-lucene-");
+            LuceneSearchBackend lucene = new LuceneSearchBackend(luceneDir.toString(), "", 1000, 256, 0);
+            lucene.saveAll(corpus, List.of());
+            lucene.refresh();
+            search = lucene;
+        } else {
+            search = elasticsearch(corpus);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (search instanceof LuceneSearchBackend lucene) lucene.close();
+        if (luceneDir != null) {
+            try (Stream<Path> files = Files.walk(luceneDir)) {
+                for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+            }
+        }
+        if (esClient != null) {
+            esClient.indices().delete(d -> d.index(esIndex));
+            restClient.close();
+        }
+    }
+
+    @Benchmark
+    public SearchBackend.Result search() {
+        return search.search(nextQuery(), 0, 10, false, 0).join();
+    }
+
+    @Benchmark
+    public SearchBackend.Result searchHighlighted() {
+        return search.search(nextQuery(), 0, 10, true, 0).join();
+    }
+
+    @Benchmark
+    public SearchBackend.Result searchWithTags() {
+        return search.search(nextQuery(), 0, 10, true, 20).join();
+    }
+
+    @Benchmark
+    public SearchBackend.Result prefixSearch() {
+        String q = nextQuery();
+        return search.prefixSearch(q.substring(0, Math.max(2, q.length() - 2)), 30, List.of("filename", "tags")).join();
+    }
+
+    private String nextQuery() {
+        return queries[next++ % queries.length];
+    }
+
+    private SearchBackend elasticsearch(List<DocumentEntity> corpus) throws IOException {
+        String url = System.getenv().getOrDefault("DOCSEARCH_BENCH_ES", "http://localhost:9200");
+        restClient = RestClient.builder(HttpHost.create(url)).build();
+        ObjectMapper mapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        RestClientTransport transport = new RestClientTransport(restClient, new JacksonJsonpMapper(mapper));
+        esClient = new ElasticsearchClient(transport);
+        esIndex = "docsearch-bench-" + System.nanoTime();
+
+        esClient.indices().create(c -> c
+                .index(esIndex)
+                .settings(s -> s.numberOfShards("1").numberOfReplicas("0").refreshInterval(t -> t.time("-1")))
+                .mappings(m -> m
+                        .properties("filename", p -> p.text(t -> t.indexOptions(IndexOptions.Offsets)))
+                        .properties("content", p -> p.text(t -> t.indexOptions(IndexOptions.Offsets)))
+                        .properties("preview", p -> p.text(t -> t.index(false)))
+                        .properties("tags", p -> p.keyword(k -> k))
+                        .properties("fileType", p -> p.keyword(k -> k))
+                        .properties("uploadedAt", p -> p.date(d -> d))
+                        .properties("size", p -> p.long_(l -> l))
+                        .properties("downloadUrl", p -> p.keyword(k -> k.index(false).docValues(false)))));
+        for (int from = 0; from < corpus.size(); from += 500) {
+            BulkRequest.Builder br = new BulkRequest.Builder();
+            for (DocumentEntity d : corpus.subList(from, Math.min(corpus.size(), from + 500))) {
+                br.operations(op -> op.index(i -> i.index(esIndex).id(d.getId()).document(d)));
+            }
+            esClient.bulk(br.build());
+        }
+        esClient.indices().putSettings(p -> p.index(esIndex).settings(s -> s.refreshInterval(t -> t.time("1s"))));
+        esClient.indices().refresh(r -> r.index(esIndex));
+
+        ElasticsearchAsyncClient async = new ElasticsearchAsyncClient(transport);
+        return new ElasticsearchSearchBackend(async, new IndexNames(esIndex, esIndex + "-passages"));
+    }
+
+    private static List<DocumentEntity> corpus(int n) {
+        Random rnd = new Random(17);
+        // windows of one long text, so all documents share its vocabulary and word frequencies
+        String text = Fixtures.text(4_000_000, 3);
+        String[] words = text.substring(0, 100_000).toLowerCase().split("[^\\p{L}]+");
+        List<DocumentEntity> docs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int length = 2_000 + rnd.nextInt(8_000);
+            int start = rnd.nextInt(text.length() - length);
+            String content = text.substring(start, start + length);
+            DocumentEntity d = new DocumentEntity();
+            d.setId("doc-" + i);
+            d.setFilename(words[rnd.nextInt(words.length)] + "_" + words[rnd.nextInt(words.length)] + "_" + i + ".pdf");
+            d.setContent(content);
+            d.setPreview(content.substring(0, 250));
+            List<String> tags = new ArrayList<>();
+            for (int t = 0; t < 8; t++) tags.add(words[rnd.nextInt(words.length)]);
+            d.setTags(tags);
+            d.setFileType("pdf");
+            d.setUploadedAt(Instant.ofEpochSecond(1_700_000_000L + i));
+            d.setSize((long) content.length());
+            d.setDownloadUrl("/api/files/blob/" + i + "/" + d.getFilename());
+            docs.add(d);
+        }
+        return docs;
+    }
+
+    // one or two words taken from the corpus, so every query has hits
+    private static String[] queries(List<DocumentEntity> corpus, int n) {
+        Random rnd = new Random(5);
+        String[] out = new String[n];
+        for (int i = 0; i < n; i++) {
+            String[] words = corpus.get(rnd.nextInt(corpus.size())).getContent().toLowerCase().split("[^\\p{L}]+");
+            String a = words[rnd.nextInt(words.length)];
+            while (a.length() < 4) a = words[rnd.nextInt(words.length)];
+            out[i] = rnd.nextBoolean() ? a : a + " " + words[rnd.nextInt(words.length)];
+        }
+        return out;
+    }
+}
@@ -0,0 +1,91 @@
+package com.aadesh.docsearch.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aadesh.docsearch.model.DocumentEntity;
+import com.aadesh.docsearch.service.SimilarityIndex;
+
+/**
+ * Near-duplicate detection with the default 64 hashes in 16 bands: signing a small (2 KB) or
+ * medium (100 KB) text at ingest, and, on an index of 10k documents of which every tenth is an
+ * edited copy of another, the {@code /similar} lookup and the per-page grouping of
+ * {@code collapse=true} over 10 ranked ids. Lookups report their average time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class SimilarityBenchmark {
+
+    private static final int DOCUMENTS = 10_000;
+
+    private SimilarityIndex index;
+    private List<String> ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new SimilarityIndex(64, 16, 0.8);
+        ids = new ArrayList<>(DOCUMENTS);
+        String previous = null;
+        for (int i = 0; i < DOCUMENTS; i++) {
+            // every tenth document repeats the one before with a sentence added
+            String body = i % 10 == 9 ? previous + " An added closing sentence for this copy." : Fixtures.text(2_000, i);
+            DocumentEntity d = new DocumentEntity();
+            d.setId("synthetic-" + i);
+            d.setFilename("synthetic_" + i + ".pdf");
+            d.setMinhash(index.signature(body));
+            index.onIndexed(d);
+            ids.add(d.getId());
+            previous = body;
+        }
+    }
+
+    /** The signed text; only {@link #signature} depends on its size. */
+    @State(Scope.Benchmark)
+    public static class Text {
+        @Param({"small", "medium"})
+        public String size;
+
+        String text;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            text = Fixtures.text("small".equals(size) ? 2_000 : 100_000, 42);
+        }
+    }
+
+    @Benchmark
+    public String signature(Text text) {
+        return index.signature(text.text);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> similarTo() {
+        return index.similarTo(ids.get(next++ % DOCUMENTS), 0.5, 10);
+    }
+
+    @Benchmark
+    public List<List<String>> nearDuplicateGroups() {
+        int from = (next++ * 10) % DOCUMENTS;
+        return index.nearDuplicateGroups(ids.subList(from, from + 10));
+    }
+}
@@ -0,0 +1,56 @@
+package com.aadesh.docsearch.benchmarks;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aadesh.docsearch.service.TikaService;
+
+/**
+ * {@link TikaService#parse(Path)} per file type on the checked-in three-page fixtures, in
+ * inline mode with one parse thread, so the figure is the cost of one parse including the
+ * hand-off to the parse pool.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-Djava.awt.headless=true"})
+public class TikaParseBenchmark {
+
+    @Param({"pdf", "docx", "pptx"})
+    public String type;
+
+    private Path file;
+    private TikaService tika;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        file = Fixtures.copyToTemp("sample." + type);
+        tika = new TikaService("inline", 0, 100_000, 1, 16, 1, "java");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        tika.shutdown();
+    }
+
+    @Benchmark
+    public TikaService.ParsedResult parse() throws Exception {
+        return tika.parse(file);
+    }
+}
@@ -0,0 +1,132 @@
+package com.aadesh.docsearch.controller;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aadesh.docsearch.benchmarks.Fixtures;
+import com.aadesh.docsearch.model.DocumentEntity;
+import com.aadesh.docsearch.model.PassageEntity;
+import com.aadesh.docsearch.service.ElasticsearchSearchBackend;
+import com.aadesh.docsearch.service.KeywordGraph;
+import com.aadesh.docsearch.service.SearchBackend;
+import com.aadesh.docsearch.service.SuggestionIndex;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import jakarta.json.stream.JsonParser;
+
+/**
+ * Per-request work the search endpoints do after the search backend has answered: turning 50 canned
+ * hits (fixtures/*-response.json, deserialized once with the client's mapper) into response
+ * maps, building a query graph, and answering suggestions from a 10k-document index.
+ *
+ * Lives in the controller package because the mapping methods are package-private.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ResponseMappingBenchmark {
+
+    private static final String[] PREFIXES = {"r", "re", "rep", "report", "g", "gu", "not", "minutes_20", "sea", "key"};
+
+    private List<SearchBackend.DocumentHit> documentHits;
+    private List<Hit<PassageEntity>> passageHits;
+    private List<DocumentEntity> documents;
+    private KeywordGraph graph;
+    private SuggestionIndex suggestions;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        JacksonJsonpMapper mapper = new JacksonJsonpMapper(new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false));
+        documentHits = ElasticsearchSearchBackend.toHits(hits("documents-response.json", DocumentEntity.class, mapper));
+        passageHits = hits("passages-response.json", PassageEntity.class, mapper);
+        documents = new ArrayList<>();
+        for (SearchBackend.DocumentHit hit : documentHits) documents.add(hit.source);
+
+        graph = new KeywordGraph();
+        suggestions = new SuggestionIndex(20, 48);
+        Random rnd = new Random(11);
+        String[] words = Fixtures.text(20_000, 5).toLowerCase().split("[^\\p{L}]+");
+        for (int i = 0; i < 10_000; i++) {
+            DocumentEntity d = new DocumentEntity();
+            d.setId("synthetic-" + i);
+            d.setFilename(words[rnd.nextInt(words.length)] + "_" + words[rnd.nextInt(words.length)] + "_" + i + ".pdf");
+            List<String> tags = new ArrayList<>();
+            for (int t = 0; t < 10; t++) tags.add(words[rnd.nextInt(words.length)]);
+            d.setTags(tags);
+            graph.onIndexed(d);
+            suggestions.onIndexed(d);
+        }
+        documents.forEach(graph::onIndexed);
+        documents.forEach(suggestions::onIndexed);
+    }
+
+    private static <T> List<Hit<T>> hits(String fixture, Class<T> type, JsonpMapper mapper) throws Exception {
+        JsonpDeserializer<SearchResponse<T>> deserializer =
+                SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(type));
+        try (InputStream in = Fixtures.open(fixture); JsonParser parser = mapper.jsonProvider().createParser(in)) {
+            return deserializer.deserialize(parser, mapper).hits().hits();
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> searchV1() {
+        List<Map<String, Object>> out = new ArrayList<>(documents.size());
+        for (DocumentEntity d : documents) out.add(SearchController.summaryOf(d));
+        return out;
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> searchV2() {
+        return SearchController.toResults(documentHits);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> searchV2Passages() {
+        return SearchController.toPassageResults(passageHits);
+    }
+
+    @Benchmark
+    public Map<String, Object> graphForQuery() {
+        return GraphController.toGraph(documentHits, graph);
+    }
+
+    @Benchmark
+    public Map<String, Object> graphTopKeywords() {
+        return graph.topKeywords(40);
+    }
+
+    @Benchmark
+    public List<String> suggest() {
+        String prefix = PREFIXES[next++ % PREFIXES.length];
+        return suggestions.suggest(prefix, 8);
+    }
+}
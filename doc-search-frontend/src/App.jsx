@@ -7,6 +7,8 @@ import GraphView from "./components/GraphView";
 import axios from "axios";
 import "./styles.css"
 
+const JOB_TIMEOUT_MS = 5 * 60 * 1000;
+
 export default function App() {
   const [results, setResults] = useState([]);
   const [graph, setGraph] = useState(null);
@@ -30,24 +32,43 @@ export default function App() {
   }
 
   async function handleUpload(file) {
+    const base = import.meta.env.VITE_API_BASE || "http://localhost:5001";
     const fd = new FormData();
     fd.append("file", file);
     try {
-      const res = await axios.post(
-        `${
-          import.meta.env.VITE_API_BASE || "http://localhost:5001"
-        }/api/files/upload`,
-        fd,
-        { headers: { "Content-Type": "multipart/form-data" } }
-      );
-      // optimistic: insert uploaded doc at top
-      setResults((prev) => [res.data, ...prev]);
-      alert("Uploaded: " + res.data.filename);
+      // upload is accepted (202) and indexed in the background
+      const res = await axios.post(`${base}/api/files/upload`, fd, {
+        headers: { "Content-Type": "multipart/form-data" },
+      });
+      const job = await waitForJob(base, res.data.statusUrl);
+      if (job.stage === "FAILED") {
+        alert("Upload failed: " + (job.error || "indexing error"));
+        return;
+      }
+      const doc = await axios.get(`${base}/api/files/${job.documentId}`);
+      // insert uploaded doc at top
+      setResults((prev) => [doc.data, ...prev]);
+      alert("Uploaded: " + doc.data.filename);
     } catch (e) {
       alert("Upload failed: " + (e.response?.data || e.message));
     }
   }
 
+  async function waitForJob(base, statusUrl) {
+    // a job stuck in the backend must not keep the upload spinning forever
+    const deadline = Date.now() + JOB_TIMEOUT_MS;
+    while (Date.now() < deadline) {
+      const res = await axios.get(`${base}${statusUrl}`, { timeout: 10000 });
+      if (res.data.stage === "DONE" || res.data.stage === "FAILED") {
+        return res.data;
+      }
+      await new Promise((r) => setTimeout(r, 1000));
+    }
+    throw new Error(
+      `indexing did not finish within ${JOB_TIMEOUT_MS / 60000} minutes`
+    );
+  }
+
   return (
     <div className="min-h-screen bg-gradient-to-b from-white via-gray-50 to-gray-100">
       <Header />
@@ -1,5 +1,5 @@
 // frontend/src/components/PreviewModal.jsx
-import React, { useEffect, useState } from "react";
+import React, { useEffect, useMemo, useState } from "react";
 import { Document, Page } from "react-pdf";
 import DOMPurify from "dompurify";
 import mammoth from "mammoth";
@@ -14,63 +14,61 @@ pdfjs.GlobalWorkerOptions.workerSrc = `${window.location.origin}/pdf.worker.min.
 // pdfjs.GlobalWorkerOptions.workerSrc = pdfWorkerUrl;
 
 
+// let pdf.js request only the byte ranges of the pages it renders; the backend
+// answers Range requests and ETag revalidation for /api/files/download
+const PDF_OPTIONS = { disableAutoFetch: true, disableStream: true };
+
 export default function PreviewModal({
   open,
   onClose,
   fileUrl,
   filename,
   textFallback,
+  docId,
+  page,
 }) {
-  const [fileExt, setFileExt] = useState("");
   const [numPages, setNumPages] = useState(null);
-  const [docBuffer, setDocBuffer] = useState(null);
+  const [pageNumber, setPageNumber] = useState(1);
   const [docHtml, setDocHtml] = useState("");
   const [loading, setLoading] = useState(false);
+  const [showFull, setShowFull] = useState(false);
+  // one source of truth for the file type; every branch below keys off it
+  const fileExt = filename?.split(".").pop()?.toLowerCase() || "";
+  const pdfSource = useMemo(() => (fileUrl ? { url: fileUrl } : null), [fileUrl]);
+  // PDFs and decks open on a server-rendered image of the matching page
+  const pageImageUrl =
+    docId && ["pdf", "pptx", "ppt"].includes(fileExt)
+      ? `${import.meta.env.VITE_API_BASE || "http://localhost:5001"}/api/files/${docId}/pages/${page || 1}/image`
+      : null;
 
   useEffect(() => {
     if (!open) return;
-    setFileExt(filename?.split(".").pop()?.toLowerCase() || "");
     setNumPages(null);
-    setDocBuffer(null);
+    setPageNumber(page || 1);
     setDocHtml("");
-    if (!fileUrl) return;
+    setShowFull(false);
+    // pdf.js fetches PDFs itself, by range; only DOCX needs the whole file here
+    if (!fileUrl || fileExt !== "docx") return;
     setLoading(true);
 
-    // fetch the file as array buffer for pdf/docx rendering
     fetch(fileUrl)
-      .then(async (r) => {
+      .then((r) => {
         if (!r.ok) throw new Error("Failed to fetch file");
-        const ab = await r.arrayBuffer();
-        setDocBuffer(ab);
-        return ab;
-      })
-      .then((ab) => {
-        if (fileExt === "docx" || filename.toLowerCase().endsWith(".docx")) {
-          // convert docx to HTML using mammoth
-          mammoth
-            .convertToHtml({ arrayBuffer: ab })
-            .then((res) => {
-              setDocHtml(res.value || "<div>No content</div>");
-            })
-            .catch((err) => {
-              setDocHtml("<div>Cannot parse DOCX preview</div>");
-              console.error(err);
-            })
-            .finally(() => setLoading(false));
-        } else {
-          setLoading(false);
-        }
+        return r.arrayBuffer();
       })
+      // convert docx to HTML using mammoth
+      .then((ab) => mammoth.convertToHtml({ arrayBuffer: ab }))
+      .then((res) => setDocHtml(res.value || "<div>No content</div>"))
       .catch((err) => {
+        setDocHtml("<div>Cannot parse DOCX preview</div>");
         console.error("preview fetch error", err);
-        setLoading(false);
-      });
-
-    // eslint-disable-next-line react-hooks/exhaustive-deps
-  }, [open, fileUrl, filename, fileExt]);
+      })
+      .finally(() => setLoading(false));
+  }, [open, fileUrl, fileExt, page]);
 
   function onDocumentLoadSuccess({ numPages }) {
     setNumPages(numPages);
+    setPageNumber((p) => Math.min(p, numPages));
   }
 
   if (!open) return null;
@@ -98,17 +96,52 @@ export default function PreviewModal({
         <div className="p-4">
           {loading && <div>Loading preview…</div>}
 
-          {fileExt === "pdf" && docBuffer && (
+          {pageImageUrl && !showFull && (
+            <div>
+              <img
+                src={pageImageUrl}
+                alt={`${filename} page ${page || 1}`}
+                className="mx-auto border"
+              />
+              <div className="mt-3 flex items-center justify-between text-sm text-gray-500">
+                <span>Page {page || 1}</span>
+                {fileExt === "pdf" && (
+                  <button className="text-accent" onClick={() => setShowFull(true)}>
+                    Show full document
+                  </button>
+                )}
+              </div>
+            </div>
+          )}
+
+          {fileExt === "pdf" && pdfSource && (!pageImageUrl || showFull) && (
             <div>
               <Document
-                file={docBuffer}
+                file={pdfSource}
+                options={PDF_OPTIONS}
                 onLoadSuccess={onDocumentLoadSuccess}
                 loading={<div>Loading PDF…</div>}
               >
-                {/* render first page and allow navigation */}
-                <Page pageNumber={1} width={900} />
-                <div className="mt-3 text-sm text-gray-500">
-                  Page 1 of {numPages || "?"}
+                {/* each page is fetched by range when it is shown */}
+                <Page pageNumber={pageNumber} width={900} />
+                <div className="mt-3 flex items-center gap-3 text-sm text-gray-500">
+                  <button
+                    className="text-accent disabled:text-gray-300"
+                    disabled={pageNumber <= 1}
+                    onClick={() => setPageNumber((p) => p - 1)}
+                  >
+                    Previous
+                  </button>
+                  <span>
+                    Page {pageNumber} of {numPages || "?"}
+                  </span>
+                  <button
+                    className="text-accent disabled:text-gray-300"
+                    disabled={numPages != null && pageNumber >= numPages}
+                    onClick={() => setPageNumber((p) => p + 1)}
+                  >
+                    Next
+                  </button>
                 </div>
               </Document>
             </div>
@@ -121,7 +154,7 @@ export default function PreviewModal({
             />
           )}
 
-          {fileExt === "pptx" && (
+          {["pptx", "ppt"].includes(fileExt) && !pageImageUrl && (
             <div>
               <div className="text-sm text-gray-600 mb-3">
                 Presentation preview is not available yet. You can download or
@@ -139,7 +172,7 @@ export default function PreviewModal({
             </pre>
           )}
 
-          {!["pdf", "docx", "pptx", "txt", "md"].includes(fileExt) && (
+          {!["pdf", "docx", "pptx", "ppt", "txt", "md"].includes(fileExt) && (
             <div>
               <div className="text-sm text-gray-600">
                 Preview not supported for this file type.
@@ -20,10 +20,13 @@ export default function ResultCard({ doc }) {
   });
 
   // compute preview URL — use inline preview endpoint
-  // doc.downloadUrl is like "/api/files/download/<filename>"
-  // convert to preview path and add inline=true
+  // doc.downloadUrl is like "/api/files/blob/<sha256>/<filename>", or
+  // "/api/files/download/<filename>" for files not yet moved to the blob store
   const previewUrl = (() => {
     if (!doc.downloadUrl) return null;
+    if (doc.downloadUrl.startsWith("/api/files/blob/")) {
+      return `http://localhost:5001${doc.downloadUrl}?inline=true`;
+    }
     // replace /download/ with /preview/ and ensure inline true
     if (doc.downloadUrl.includes("/api/files/download/")) {
       const fn = doc.downloadUrl.split("/api/files/download/")[1];
@@ -83,12 +86,14 @@ export default function ResultCard({ doc }) {
             >
               Download
             </a>
-            {/* <button
-              className="text-sm text-gray-700 hover:text-accent"
-              onClick={() => setOpenPreview(true)}
-            >
-              Preview
-            </button> */}
+            {previewUrl && (
+              <button
+                className="text-sm text-gray-700 hover:text-accent"
+                onClick={() => setOpenPreview(true)}
+              >
+                Preview
+              </button>
+            )}
           </div>
           <div className="text-xs text-gray-400">
             Size: {Math.round((doc.size || 0) / 1024)} KB
@@ -96,15 +101,17 @@ export default function ResultCard({ doc }) {
         </div>
       </motion.div>
 
-      {/* {openPreview && (
+      {openPreview && (
         <PreviewModal
           open={openPreview}
           onClose={() => setOpenPreview(false)}
           fileUrl={previewUrl}
           filename={doc.filename}
           textFallback={doc.snippet}
+          docId={doc.id}
+          page={doc.page}
         />
-      )} */}
+      )}
     </>
   );
 }